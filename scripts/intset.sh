@@ -6,6 +6,9 @@ java="java -verbose:gc -Xmx1g -Xms1g -XXaggressive"
 
 warmup=2000
 duration=10000
+# One row per run and phase with the commits, aborts and allocations, charted by plot.sh
+results=logs/intset.csv
+stats="-Dorg.deuce.transaction.stats=true"
 
 for r in 1 2 3; do
 for b in LinkedList SkipList; do
@@ -17,9 +20,9 @@ for t in 1 2 4 8 12 16; do
 for c in lsa.Context lsa64.Context tl2.Context; do
 log=logs/intset-${b}-${c}-i${i}-w${w}-t${t}.log
 CLASSPATH=classes \
-  ${java} -javaagent:bin/deuceAgent.jar \
+  ${java} -javaagent:bin/deuceAgent.jar ${stats} \
   -Dorg.deuce.transaction.contextClass=org.deuce.transaction.${c} \
-  org.deuce.benchmark.Driver -n ${t} -d ${duration} -w ${warmup} \
+  org.deuce.benchmark.Driver -n ${t} -d ${duration} -w ${warmup} -o ${results} \
   org.deuce.benchmark.intset.Benchmark ${b} -r 262144 -i ${i} -w ${w} >> $log 2>&1
 done
 
@@ -27,10 +30,10 @@ done
 for c in lsa.Context lsa64.Context; do
 log=logs/intset-${b}-${c}.ro-i${i}-w${w}-t${t}.log
 CLASSPATH=classes \
-  ${java} -javaagent:bin/deuceAgent.jar \
+  ${java} -javaagent:bin/deuceAgent.jar ${stats} \
   -Dorg.deuce.transaction.contextClass=org.deuce.transaction.${c} \
   -Dorg.deuce.transaction.lsa.rohint=true \
-  org.deuce.benchmark.Driver -n ${t} -d ${duration} -w ${warmup} \
+  org.deuce.benchmark.Driver -n ${t} -d ${duration} -w ${warmup} -o ${results} \
   org.deuce.benchmark.intset.Benchmark ${b} -r 262144 -i ${i} -w ${w} >> $log 2>&1
 done
 
@@ -38,10 +41,10 @@ done
 for c in tl2.Context; do
 log=logs/intset-${b}-${c}.ro-i${i}-w${w}-t${t}.log
 CLASSPATH=classes \
-  ${java} -javaagent:bin/deuceAgent.jar \
+  ${java} -javaagent:bin/deuceAgent.jar ${stats} \
   -Dorg.deuce.transaction.contextClass=org.deuce.transaction.${c} \
   -Dorg.deuce.transaction.tl2.rohint=true \
-  org.deuce.benchmark.Driver -n ${t} -d ${duration} -w ${warmup} \
+  org.deuce.benchmark.Driver -n ${t} -d ${duration} -w ${warmup} -o ${results} \
   org.deuce.benchmark.intset.Benchmark ${b} -r 262144 -i ${i} -w ${w} >> $log 2>&1
 done
 
@@ -49,9 +52,9 @@ done
 for c in lock; do
 log=logs/intset-${b}-${c}-i${i}-w${w}-t${t}.log
 CLASSPATH=classes \
-  ${java} -javaagent:bin/deuceAgent.jar \
+  ${java} -javaagent:bin/deuceAgent.jar ${stats} \
   -Dorg.deuce.transaction.global=true \
-  org.deuce.benchmark.Driver -n ${t} -d ${duration} -w ${warmup} \
+  org.deuce.benchmark.Driver -n ${t} -d ${duration} -w ${warmup} -o ${results} \
   org.deuce.benchmark.intset.Benchmark ${b} -r 262144 -i ${i} -w ${w} >> $log 2>&1
 done
 
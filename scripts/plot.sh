@@ -48,3 +48,69 @@ epstopdf ${eps}
 done
 done
 done
+
+# Abort rate and allocation per transaction, from the results of the test phases
+results=logs/intset.csv
+if [ -f ${results} ]; then
+for b in LinkedList SkipList; do
+for i in 256 4096 16384; do
+for w in 0 20 50; do
+
+for c in lock tl2.Context lsa.Context lsa.Context.ro lsa64.Context lsa64.Context.ro; do
+    data=logs/intset-${b}-${c}-i${i}-w${w}.aborts.data
+    awk -F, -v args="${b} -r 262144 -i ${i} -w ${w}" -v config="${c}" '
+        NR == 1 { for (f = 1; f <= NF; f++) col[$f] = f; next }
+        {
+            c = $col["context"]; sub(/^org\.deuce\.transaction\./, "", c)
+            if ($col["options"] ~ /global=true/) c = "lock"
+            else if ($col["options"] ~ /rohint=true/) c = c ".ro"
+        }
+        $col["phase"] == "test" && $col["args"] == args && c == config {
+            t = $col["threads"]; nb[t]++
+            rate[t] += $col["abort_rate"]; bytes[t] += $col["bytes_per_tx"]
+        }
+        END { for (t in nb) printf "%d %f %f\n", t, rate[t] / nb[t], bytes[t] / nb[t] }
+    ' ${results} | sort -n > ${data}
+done
+
+for m in aborts bytes; do
+g=logs/graph-intset-${b}-i${i}-w${w}-${m}.gp
+eps=logs/graph-intset-${b}-i${i}-w${w}-${m}.eps
+
+echo "set term postscript eps enhanced color 22" > ${g}
+echo "set output \"${eps}\"" >> ${g}
+echo "set title \"IntSet ${b}, size=${i}, update=${w}%\"" >> ${g}
+echo "set key top" >> ${g}
+echo "set key left" >> ${g}
+echo "set xtics 1" >> ${g}
+echo "set xlabel \"Number of threads\"" >> ${g}
+if [ ${m} = aborts ]; then
+    echo "set ylabel \"Abort rate (aborts/attempts)\"" >> ${g}
+    column=2
+else
+    echo "set ylabel \"Allocation (bytes/transaction)\"" >> ${g}
+    column=3
+fi
+echo -n "plot " >> ${g}
+
+j=6
+for c in lock tl2.Context lsa.Context lsa.Context.ro lsa64.Context lsa64.Context.ro; do
+    data=logs/intset-${b}-${c}-i${i}-w${w}.aborts.data
+    echo -n "\"${data}\" using 1:${column} title \"${c}\" with lines" >> ${g}
+    j=`expr ${j} \- 1`
+    if [ ${j} -gt 0 ]; then
+        echo ", \\" >> ${g}
+        echo -n "    " >> ${g}
+    else
+        echo "" >> ${g}
+    fi
+done
+
+gnuplot ${g}
+epstopdf ${eps}
+done
+
+done
+done
+done
+fi
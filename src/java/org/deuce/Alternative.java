@@ -0,0 +1,19 @@
+package org.deuce;
+
+/**
+ * A piece of a transaction composed with {@link OrElse#orElse(Alternative, Alternative)}.
+ *
+ * Not excluded: the implementations are instrumented like any other class, and the interface
+ * has to declare the instrumented method they get.
+ *
+ * @param <T> the result type
+ * @since 1.4
+ */
+public interface Alternative<T> {
+
+	/**
+	 * Runs as part of the enclosing transaction, may call {@link Transaction#retry()}.
+	 * @return the result
+	 */
+	T run();
+}
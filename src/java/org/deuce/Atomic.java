@@ -18,4 +18,10 @@ public @interface Atomic {
 	int retries() default Integer.MAX_VALUE;
 	String metainf() default "";
 	boolean twilight() default false;
+	/**
+	 * Marks the block as an elastic transaction. Engines that support elastic
+	 * transactions (E-STM) only validate a sliding window of the last reads until
+	 * the first write; other engines ignore this attribute.
+	 */
+	boolean elastic() default false;
 }
@@ -0,0 +1,52 @@
+package org.deuce;
+
+import org.deuce.transaction.RetryException;
+
+/**
+ * Alternative composition of transactions: runs the first alternative and, if it calls
+ * {@link Transaction#retry()}, rolls back its writes and runs the second one in the same
+ * transaction. If the second one retries too, the whole transaction retries (and blocks on
+ * the fields read by both alternatives).
+ *
+ * <pre>
+ * &#64;Atomic
+ * public Task take() {
+ *     return OrElse.orElse(new Alternative&lt;Task&gt;() {
+ *         public Task run() { return urgent.take(); }  // retries when empty
+ *     }, new Alternative&lt;Task&gt;() {
+ *         public Task run() { return normal.take(); }
+ *     });
+ * }
+ * </pre>
+ *
+ * Only the engines implementing {@link org.deuce.transaction.RetryContext} (TL2 and LSA)
+ * roll back the writes of an alternative, the others run the whole transaction again when
+ * the first alternative retries. Must be called from an {@link Atomic} method.
+ *
+ * Not excluded: the class is instrumented, so the alternatives run with their instrumented
+ * code in the transaction of the caller.
+ *
+ * @since 1.4
+ */
+public class OrElse {
+
+	private OrElse() {}
+
+	/**
+	 * @param first the alternative to run first
+	 * @param second the alternative to run if the first one retries
+	 * @return the result of the alternative that did not retry
+	 */
+	public static <T> T orElse(Alternative<T> first, Alternative<T> second) {
+		int savepoint = Transaction.beginAlternative();
+		boolean retried = false;
+		try {
+			return first.run();
+		} catch (RetryException e) {
+			retried = true;
+		} finally {
+			Transaction.endAlternative(savepoint, retried);
+		}
+		return second.run();
+	}
+}
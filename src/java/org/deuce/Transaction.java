@@ -0,0 +1,111 @@
+package org.deuce;
+
+import org.deuce.reflection.AddressUtil;
+import org.deuce.transaction.Context;
+import org.deuce.transaction.ContextDelegator;
+import org.deuce.transaction.EarlyReleaseContext;
+import org.deuce.transaction.RetryContext;
+import org.deuce.transaction.RetryException;
+import org.deuce.transaction.TransactionException;
+import org.deuce.transform.commons.Exclude;
+
+/**
+ * Explicit transaction operations that can be called from inside an {@link Atomic} method.
+ *
+ * Like any other call made from a transaction, calls to this class are redirected by the
+ * instrumentation to the overload that takes the current {@link Context} as a last argument.
+ * This class is excluded, so those overloads are the ones declared here and no thread-local
+ * lookup is needed on the instrumented path.
+ *
+ * @since 1.4
+ */
+@Exclude
+public class Transaction {
+
+	private Transaction() {}
+
+	/**
+	 * Resolves the address of an instance field, to be used with {@link #release(Object, long)}.
+	 * The lookup uses reflection, so keep the result in a static final field.
+	 *
+	 * @param clazz the class declaring the field
+	 * @param fieldName the name of the field
+	 * @return the field address, as used by the instrumentation
+	 */
+	public static long fieldAddress(Class<?> clazz, String fieldName) {
+		return fieldAddress(clazz, fieldName, null);
+	}
+
+	/** Called from the instrumented code, see {@link #fieldAddress(Class, String)}. */
+	public static long fieldAddress(Class<?> clazz, String fieldName, Context context) {
+		try {
+			return AddressUtil.getAddress(clazz.getDeclaredField(fieldName));
+		} catch (NoSuchFieldException e) {
+			throw new IllegalArgumentException(clazz.getName() + "." + fieldName, e);
+		}
+	}
+
+	/**
+	 * Early release: drops a field that was read by the current transaction from its read set,
+	 * so it is no longer validated. Only engines implementing {@link EarlyReleaseContext}
+	 * (E-STM and LSA) honor the request, the others ignore it.
+	 *
+	 * @param obj the object of the field
+	 * @param field the field address (see {@link #fieldAddress(Class, String)})
+	 */
+	public static void release(Object obj, long field) {
+		release(obj, field, ContextDelegator.getInstance());
+	}
+
+	/** Called from the instrumented code, see {@link #release(Object, long)}. */
+	public static void release(Object obj, long field, Context context) {
+		if (context instanceof EarlyReleaseContext)
+			((EarlyReleaseContext) context).release(obj, field);
+	}
+
+	/**
+	 * Blocking retry: aborts the current transaction and runs it again once another transaction
+	 * committed a field it read. Used when a condition the transaction depends on does not hold
+	 * yet (e.g. a consumer on an empty queue), so the thread parks instead of spinning.
+	 * Only engines implementing {@link RetryContext} (TL2 and LSA) park, the others restart the
+	 * transaction right away. Must be called from an {@link Atomic} method.
+	 *
+	 * Inside an alternative of {@link OrElse#orElse(Alternative, Alternative)} the thread does
+	 * not park, the other alternative runs instead.
+	 */
+	public static void retry() {
+		retry(ContextDelegator.getInstance());
+	}
+
+	/** Called from the instrumented code, see {@link #retry()}. */
+	public static void retry(Context context) {
+		if (context instanceof RetryContext)
+			((RetryContext) context).retry();
+		throw RetryException.STATIC_RETRY;
+	}
+
+	/** Called by {@link OrElse}, see {@link RetryContext#beginAlternative()}. */
+	static int beginAlternative() {
+		return beginAlternative(ContextDelegator.getInstance());
+	}
+
+	/** Called from the instrumented {@link OrElse}. */
+	public static int beginAlternative(Context context) {
+		if (context instanceof RetryContext)
+			return ((RetryContext) context).beginAlternative();
+		return -1;
+	}
+
+	/** Called by {@link OrElse}, see {@link RetryContext#endAlternative(int, boolean)}. */
+	static void endAlternative(int savepoint, boolean retried) {
+		endAlternative(savepoint, retried, ContextDelegator.getInstance());
+	}
+
+	/** Called from the instrumented {@link OrElse}. */
+	public static void endAlternative(int savepoint, boolean retried, Context context) {
+		if (context instanceof RetryContext)
+			((RetryContext) context).endAlternative(savepoint, retried);
+		else if (retried) // the writes can't be rolled back alone, run the whole transaction again
+			throw TransactionException.STATIC_TRANSACTION;
+	}
+}
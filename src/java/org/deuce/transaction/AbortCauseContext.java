@@ -0,0 +1,29 @@
+package org.deuce.transaction;
+
+import org.deuce.transaction.stats.AbortCause;
+import org.deuce.transform.commons.Exclude;
+
+/**
+ * Implemented by contexts that tell why a transaction aborted. The engine records the cause
+ * just before it throws or fails a commit, in a field of the context, so the shared static
+ * exceptions stay and no abort allocates. The retry loop reads the cause once the attempt is
+ * over and passes it on to the back-off, see {@link ContextDelegator#onAbort(Context)}.
+ *
+ * @see org.deuce.transaction.util.AbortChannel
+ * @since 1.4
+ */
+@Exclude
+public interface AbortCauseContext extends Context {
+
+	/**
+	 * @return the cause of the attempt that just aborted, <code>null</code> while an attempt
+	 * runs
+	 */
+	AbortCause getAbortCause();
+
+	/**
+	 * @return the number of aborts in a row of the current atomic block, the aborted attempt
+	 * included
+	 */
+	int getAbortCount();
+}
@@ -24,12 +24,16 @@ public interface Context
 	final static public String CONTEXT_INTERNAL = Type.getInternalName(Context.class);
 	final static public String CONTEXT_DESC = Type.getDescriptor(Context.class);
 
+	/** Flag passed to {@link #init(int, int, String)} when the block is declared elastic. */
+	final static public int FLAG_ELASTIC = 1;
+
 	/**
 	 * Called before the transaction was started
 	 * @param atomicBlockId a unique id for atomic block
+	 * @param flags the block attributes resolved at transform time (e.g. {@link #FLAG_ELASTIC}).
 	 * @param metainf a meta information on the current atomic block.
 	 */
-	void init(int atomicBlockId, String metainf);
+	void init(int atomicBlockId, int flags, String metainf);
 
 	/**
 	 * Called on commit
@@ -39,7 +43,7 @@ public interface Context
 
 	/**
 	 * Called on rollback, rollback might be called more than once in a row.
-	 * But, can't be called after {@link #commit()} without an {@link #init(int, String)} call in between.
+	 * But, can't be called after {@link #commit()} without an {@link #init(int, int, String)} call in between.
 	 */
 	void rollback();
 
@@ -3,6 +3,8 @@ package org.deuce.transaction;
 import org.deuce.objectweb.asm.Type;
 import org.deuce.reflection.AddressUtil;
 import org.deuce.transaction.Context;
+import org.deuce.transaction.stats.TransactionMonitor;
+import org.deuce.transaction.util.Backoff;
 import org.deuce.transform.commons.Exclude;
 
 /**
@@ -116,6 +118,19 @@ public class ContextDelegator {
 
 	final private static ContextThreadLocal THREAD_CONTEXT = new ContextThreadLocal();
 
+	static {
+		// Also for the engines that don't record statistics
+		TransactionMonitor.registerIfEnabled();
+	}
+
+	final static public String GET_RETRIES_METHOD_NAME = "getRetries";
+	final static public String GET_RETRIES_METHOD_DESC = "()I";
+	final static public String ON_ABORT_METHOD_NAME = "onAbort";
+	final static public String ON_ABORT_METHOD_DESC = "(" + Context.CONTEXT_DESC + ")V";
+
+	/** The number of attempts of the atomic blocks that don't set their retries */
+	private static volatile int retries = Integer.getInteger("org.deuce.transaction.retries", Integer.MAX_VALUE);
+
 	@Exclude
 	private static class ContextThreadLocal extends ThreadLocal<Context>
 	{
@@ -148,6 +163,43 @@ public class ContextDelegator {
 		return THREAD_CONTEXT.get();
 	}
 
+	/**
+	 * @return the class of the contexts of the threads
+	 */
+	public static Class<? extends Context> getContextClass(){
+		return THREAD_CONTEXT.contextClass;
+	}
+
+	/**
+	 * Called by the atomic blocks that don't set their retries, on each call.
+	 * @return the number of attempts of an atomic block before it fails with a {@link TransactionException}
+	 */
+	public static int getRetries(){
+		return retries;
+	}
+
+	/**
+	 * Sets the number of attempts of the atomic blocks that don't set their retries, applies to
+	 * the calls started afterwards.
+	 */
+	public static void setRetries(int retries){
+		if( retries < 1)
+			throw new IllegalArgumentException("retries must be positive: " + retries);
+		ContextDelegator.retries = retries;
+	}
+
+	/**
+	 * Called by the atomic blocks after each aborted attempt, once it is rolled back or its
+	 * commit failed, with the cause the engine recorded.
+	 * @see AbortCauseContext
+	 */
+	public static void onAbort( Context context){
+		if( context instanceof AbortCauseContext){
+			AbortCauseContext abortCauseContext = (AbortCauseContext) context;
+			Backoff.onAbort(abortCauseContext.getAbortCause(), abortCauseContext.getAbortCount());
+		}
+	}
+
 	public static String getWriteMethodDesc( Type type) {
 		switch( type.getSort()) {
 		case Type.BOOLEAN:
@@ -0,0 +1,26 @@
+package org.deuce.transaction;
+
+import org.deuce.transform.commons.Exclude;
+
+/**
+ * Implemented by contexts that support early release of read-set entries.
+ * Releasing a field drops it from the validation of the running transaction,
+ * so the caller asserts that a later change of the field cannot affect the
+ * correctness of the transaction (e.g. a node already left behind in a
+ * hand-over-hand traversal).
+ *
+ * @see org.deuce.Transaction#release(Object, long)
+ */
+@Exclude
+public interface EarlyReleaseContext extends Context {
+
+	/**
+	 * Drops the field from the read set of the current transaction.
+	 * A field that is not in the read set, or that the transaction
+	 * already wrote, is left untouched.
+	 *
+	 * @param obj the object of the field
+	 * @param field the field address
+	 */
+	void release(Object obj, long field);
+}
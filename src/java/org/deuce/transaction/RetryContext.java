@@ -0,0 +1,42 @@
+package org.deuce.transaction;
+
+import org.deuce.transform.commons.Exclude;
+
+/**
+ * Implemented by contexts that support blocking retry. A transaction that retries
+ * is aborted and only started again once another transaction committed one of the
+ * fields it read, instead of spinning on a condition that can't have changed.
+ *
+ * The contexts also support the alternatives of {@link org.deuce.OrElse}: the writes of an
+ * alternative that retries are rolled back, and the other alternative runs in the same
+ * transaction.
+ *
+ * @see org.deuce.Transaction#retry()
+ * @see org.deuce.OrElse
+ * @see org.deuce.transaction.util.WaiterRegistry
+ */
+@Exclude
+public interface RetryContext extends Context {
+
+	/**
+	 * Registers the current transaction as waiting on its read set. The caller then aborts
+	 * the transaction, and the next {@link #init(int, int, String)} parks until a stripe of
+	 * the read set is committed by another transaction.
+	 * Inside an alternative the call does nothing, the caller runs the other alternative.
+	 */
+	void retry();
+
+	/**
+	 * Starts an alternative: until the matching {@link #endAlternative(int, boolean)} a retry
+	 * does not block and the writes can be rolled back.
+	 * @return the savepoint of the write set
+	 */
+	int beginAlternative();
+
+	/**
+	 * Ends an alternative.
+	 * @param savepoint returned by {@link #beginAlternative()}
+	 * @param retried <code>true</code> if the alternative retried, its writes are then rolled back
+	 */
+	void endAlternative(int savepoint, boolean retried);
+}
@@ -0,0 +1,19 @@
+package org.deuce.transaction;
+
+import org.deuce.transform.commons.Exclude;
+
+/**
+ * Thrown by {@link org.deuce.Transaction#retry()}. Caught by {@link org.deuce.OrElse} to run
+ * the other alternative, otherwise it aborts the transaction like any {@link TransactionException}.
+ *
+ * @since 1.4
+ */
+@Exclude
+public class RetryException extends TransactionException {
+
+	private static final long serialVersionUID = 1L;
+
+	final static public RetryException STATIC_RETRY = new RetryException();
+
+	private RetryException(){}
+}
@@ -2,8 +2,9 @@ package org.deuce.transaction.estm;
 
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicIntegerArray;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
 
+import org.deuce.transaction.AbortCauseContext;
+import org.deuce.transaction.EarlyReleaseContext;
 import org.deuce.transaction.TransactionException;
 //import org.deuce.transaction.estm.field.Field;
 import org.deuce.transaction.estm.field.ReadFieldAccess.Field;
@@ -11,6 +12,11 @@ import org.deuce.transaction.estm.field.ReadFieldAccess.Field.Type;
 //import org.deuce.transaction.estm.field.Field.Type;
 import org.deuce.transaction.estm.ReadSet;
 import org.deuce.transaction.estm.WriteSet;
+import org.deuce.transaction.stats.AbortCause;
+import org.deuce.transaction.stats.Recorder;
+import org.deuce.transaction.stats.Statistics;
+import org.deuce.transaction.util.AbortChannel;
+import org.deuce.transaction.util.IrrevocableAccessLock;
 import org.deuce.transform.commons.Exclude;
 
 /**
@@ -23,7 +29,7 @@ import org.deuce.transform.commons.Exclude;
  * @author Vincent Gramoli
  */
 @Exclude
-final public class Context implements org.deuce.transaction.Context {
+final public class Context implements EarlyReleaseContext, AbortCauseContext {
 
 	/** Type of the tx, (!elastic) means regular type */
 	private boolean elastic;
@@ -45,16 +51,20 @@ final public class Context implements org.deuce.transaction.Context {
 	final private static AtomicInteger threadID = new AtomicInteger(0);
 	
 	//Global lock used to allow only one irrevocable transaction solely. 
-	final private static ReentrantReadWriteLock irrevocableAccessLock = new ReentrantReadWriteLock();
+	final private static IrrevocableAccessLock irrevocableAccessLock = new IrrevocableAccessLock();
+	final private IrrevocableAccessLock.Slot irrevocableSlot = irrevocableAccessLock.newSlot();
 	private boolean irrevocableState = false;
 	
+	/** Size k of the elastic window, set with -Dorg.deuce.transaction.estm.window (default 2) */
+	final private static int ELASTIC_WINDOW = Integer.getInteger("org.deuce.transaction.estm.window", 2);
+
 	/**
-	 * The last-read-entries contains up to k=2 entries.
+	 * The last-read-entries contains up to k entries.
 	 * 
 	 * This is a hack of the C-based E-STM to check that the previous read is not 
 	 * being made inconsistent by the garbage collector.
 	 */
-	final private LastReadEntries lreSet = new LastReadEntries();
+	final private LastReadEntries lreSet = new LastReadEntries(ELASTIC_WINDOW);
 	
 	/** Read set, used by any regular reads or after an elastic write */
 	final private ReadSet readSet = new ReadSet(1024);
@@ -67,6 +77,9 @@ final public class Context implements org.deuce.transaction.Context {
 	
 	private int id;
 
+	final private Recorder stats = Recorder.ENABLED ? Statistics.newRecorder(this) : null;
+	final private AbortChannel abortChannel = new AbortChannel();
+
 	public Context() {
 		// Unique identifier among active threads
 		id = threadID.incrementAndGet();
@@ -75,17 +88,17 @@ final public class Context implements org.deuce.transaction.Context {
 	/**
 	 * The begin delimiter of the transaction
 	 */
-	public void init(int blockId, String metainf) {
-        elastic = (metainf.indexOf("elastic") != -1);
+	public void init(int blockId, int flags, String metainf) {
+		abortChannel.init(blockId);
+		if (Recorder.ENABLED)
+			stats.onStart(blockId);
+		elastic = (flags & FLAG_ELASTIC) != 0;
 		writeSet.clear();
 		readSet.clear();
 		lreSet.clear();
 		
 		//Lock according to the transaction irrevocable state
-		if(irrevocableState)
-			irrevocableAccessLock.writeLock().lock();
-		else
-			irrevocableAccessLock.readLock().lock();
+		irrevocableSlot.lock(irrevocableState);
 		
 		lb = ub = clock.get();
 	}
@@ -99,31 +112,51 @@ final public class Context implements org.deuce.transaction.Context {
 				int newClock = clock.incrementAndGet();
 				if (newClock != lb + 1 && !readSet.validate(id)) {
 					writeSet.rollback(); // Release locks
+					abortChannel.set(AbortCause.COMMIT);
+					if (Recorder.ENABLED)
+						stats.onAbort(AbortCause.COMMIT);
 					return false;
 				}
 				// Write values and release locks
 				writeSet.commit(newClock);
 			}
+			if (Recorder.ENABLED)
+				stats.onCommit(readSet.getSize(), writeSet.size());
 			return true;
 		}
 		finally{
-			if(irrevocableState){
-				irrevocableState = false;
-				irrevocableAccessLock.writeLock().unlock();
-			}
-			else{
-				irrevocableAccessLock.readLock().unlock();
-			}
+			irrevocableState = false;
+			irrevocableSlot.unlock();
 		}
 	}
 
+	/**
+	 * The clock of the last commit
+	 */
+	public static long getClock() {
+		return clock.get();
+	}
+
 	/**
 	 * Call upon abort
 	 */
 	public void rollback() {
+		abortChannel.rollback();
+		if (Recorder.ENABLED)
+			stats.onAbort(abortChannel.getCause());
 		// Release locks
 		writeSet.rollback();
-		irrevocableAccessLock.readLock().unlock();
+		irrevocableSlot.unlock();
+	}
+
+	@Override
+	public AbortCause getAbortCause() {
+		return abortChannel.getCause();
+	}
+
+	@Override
+	public int getAbortCount() {
+		return abortChannel.getAborts();
 	}
 
 	/**
@@ -141,7 +174,18 @@ final public class Context implements org.deuce.transaction.Context {
 	public void beforeReadAccess(Object obj, long field) {
 		readHash = LockTable.hash(obj, field);
 		// Check if the field is locked (may throw an exception)
-		readLock = LockTable.checkLock(readHash, id);
+		readLock = checkReadLock(obj, field);
+	}
+
+	private int checkReadLock(Object obj, long field) {
+		try {
+			return LockTable.checkLock(readHash, id);
+		} catch (TransactionException e) {
+			abortChannel.set(AbortCause.READ);
+			if (Recorder.ENABLED)
+				stats.onConflict(readHash, obj, field);
+			throw e;
+		}
 	}
 	
 	/**
@@ -168,7 +212,7 @@ final public class Context implements org.deuce.transaction.Context {
 			// check timestamp 
 			while (readLock <= ub) {
 				// check version value version
-				int lock = LockTable.checkLock(readHash, id);
+				int lock = checkReadLock(obj, field);
 				if (lock != readLock) {
 					readLock = lock;
 					readValue = Field.getValue(obj, field, type);
@@ -185,12 +229,16 @@ final public class Context implements org.deuce.transaction.Context {
 			// Partial validation
 			if (elastic && writeSet.isEmpty()) {
 				// check if last read entries have been updated
-				if (!lreSet.validate(id, ub)) throw BETWEEN_SUCCESSIVE_READS_EXCEPTION;
+				if (!lreSet.validate(id, ub)) {
+					abortChannel.set(AbortCause.READ);
+					throw BETWEEN_SUCCESSIVE_READS_EXCEPTION;
+				}
 				ub = readLock;
 				return b;
 			} else {
 				// Try to extend snapshot
 				if (!extend()) {
+					abortChannel.set(AbortCause.READ);
 					throw EXTEND_FAILURE_EXCEPTION;
 				}
 			}
@@ -210,7 +258,15 @@ final public class Context implements org.deuce.transaction.Context {
 		
 		int hash = LockTable.hash(obj, field);
 		// Lock entry (might throw an exception)
-		int timestamp = LockTable.lock(hash, id);
+		int timestamp;
+		try {
+			timestamp = LockTable.lock(hash, id);
+		} catch (TransactionException e) {
+			abortChannel.set(AbortCause.WRITE);
+			if (Recorder.ENABLED)
+				stats.onConflict(hash, obj, field);
+			throw e;
+		}
 		
 		if (timestamp < 0) {
 			// We already own that lock
@@ -222,6 +278,7 @@ final public class Context implements org.deuce.transaction.Context {
 			if ((elastic && lreSet.contains(obj, field)) || readSet.contains(obj, field)) {
 				// Abort
 				LockTable.setAndReleaseLock(hash, timestamp);
+				abortChannel.set(AbortCause.WRITE);
 				throw WRITE_FAILURE_EXCEPTION;
 			}
 			// We delay validation until later (although we could already validate once here)
@@ -230,6 +287,7 @@ final public class Context implements org.deuce.transaction.Context {
 		// Additional validation 
 		if (elastic && !lreSet.validate(id, ub)) {
 			LockTable.setAndReleaseLock(hash, timestamp);
+			abortChannel.set(AbortCause.WRITE);
 			throw BETWEEN_READ_AND_WRITE_EXCEPTION;
 		}
 		if (elastic && !lreSet.isEmpty()) {
@@ -311,6 +369,17 @@ final public class Context implements org.deuce.transaction.Context {
 	public void onWriteAccess(Object obj, double value, long field) {
 		onWriteAccess(obj, field, (Object) value, Type.DOUBLE);
 	}
+
+	/**
+	 * Early release, the field is no longer validated
+	 * 
+	 * @param obj the object of the field
+	 * @param field the field to release
+	 */
+	public void release(Object obj, long field) {
+		lreSet.release(obj, field);
+		readSet.release(obj, field);
+	}
 	
 	@Exclude
 	static public class LockTable {
@@ -382,6 +451,7 @@ final public class Context implements org.deuce.transaction.Context {
 			return;
 
 		irrevocableState = true;
+		abortChannel.set(AbortCause.IRREVOCABLE);
 		throw TransactionException.STATIC_TRANSACTION;
 	}
 }
@@ -2,53 +2,103 @@ package org.deuce.transaction.estm;
 
 import org.deuce.transaction.TransactionException;
 import org.deuce.transaction.estm.Context.LockTable;
-import org.deuce.transaction.estm.field.ReadFieldAccess;
 import org.deuce.transform.commons.Exclude;
 
 /**
- * LastReadEntries implement a pool of k=2 read entries
- * 
+ * LastReadEntries implement a pool of k read entries, used as a ring
+ * (the oldest entry is overwritten once k entries were recorded).
+ * The valid entries always form the ring segment ending just before next.
+ *
  * @author Vincent Gramoli
  */
 @Exclude
 final public class LastReadEntries {
 
-	protected ReadFieldAccess[] entries;
+	private final Object[] references;
+	private final long[] fields;
+	private final int[] hashes;
+	private final int[] locks;
 	private int size;
-	private boolean first = true;	
-	
+	private int next;
+
 	public LastReadEntries() {
 		// by default, record k=2 read entries
-		entries = new ReadFieldAccess[2];
-		entries[0] = new ReadFieldAccess();
-		entries[1] = new ReadFieldAccess();
+		this(2);
+	}
+
+	public LastReadEntries(int k) {
+		if (k < 1)
+			throw new IllegalArgumentException("Elastic window must hold at least one entry: " + k);
+		references = new Object[k];
+		fields = new long[k];
+		hashes = new int[k];
+		locks = new int[k];
 		size = 0;
+		next = 0;
 	}
-	
+
 	public void clear() {
 		size = 0;
+		next = 0;
 	}
-	
+
 	public void add(Object reference, long field, int hash, int lock) {
-		if (size < 2) size++;
-		ReadFieldAccess r = first ? entries[0] : entries[1];
-		r.init(reference, field, hash, lock);
-		first = !first;
+		if (size < references.length) size++;
+		references[next] = reference;
+		fields[next] = field;
+		hashes[next] = hash;
+		locks[next] = lock;
+		next = succ(next);
+	}
+
+	/**
+	 * Remove the entries of the given field (early release),
+	 * keeping the order of the remaining ones.
+	 */
+	public void release(Object obj, long field) {
+		int i = first();
+		for (int n = size; n > 0; n--) {
+			if (fields[i] == field && references[i] == obj) {
+				// Shift the newer entries one slot back
+				int p = i;
+				for (int q = succ(p); q != next; q = succ(q)) {
+					references[p] = references[q];
+					fields[p] = fields[q];
+					hashes[p] = hashes[q];
+					locks[p] = locks[q];
+					p = q;
+				}
+				references[p] = null;
+				next = p;
+				size--;
+			} else {
+				i = succ(i);
+			}
+		}
+	}
+
+	/**
+	 * Append the entries to the read set, used when the elastic
+	 * transaction turns regular.
+	 */
+	public void copyTo(ReadSet readSet) {
+		for (int n = 0, i = first(); n < size; n++, i = succ(i))
+			readSet.add(references[i], fields[i], hashes[i], locks[i]);
 	}
 
 	public boolean isEmpty() {
 		return (size==0);
 	}
-	
+
 	public int getSize() {
 		return size;
 	}
 
 	public boolean validate(int id, int timestamp) {
 		try {
-			for (int i = 0; i < size; i++) {
+			for (int n = 0, i = first(); n < size; n++, i = succ(i)) {
 				// Throws an exception if validation fails
-				int lock = LockTable.checkLock(entries[i].getHash(), id);
+				int lock = LockTable.checkLock(hashes[i], id);
 				if (lock > timestamp && lock >= 0) {
 					return false;
 				}
@@ -61,11 +111,10 @@ final public class LastReadEntries {
 
 	public boolean validate(int id) {
 		try {
-			for (int i = 0; i < size; i++) {
+			for (int n = 0, i = first(); n < size; n++, i = succ(i)) {
 				// Throws an exception if validation fails
-				ReadFieldAccess r = entries[i];
-				int lock = LockTable.checkLock(r.getHash(), id);
-				if (lock >= 0 && lock != r.getLock()) {
+				int lock = LockTable.checkLock(hashes[i], id);
+				if (lock >= 0 && lock != locks[i]) {
 					// Other version: cannot validate
 					return false;
 				}
@@ -77,12 +126,21 @@ final public class LastReadEntries {
 	}
 
 	public boolean contains(Object obj, long field) {
-		for (int i = 0; i < size; i++) {
-			ReadFieldAccess r = entries[i];
-			if (r.getField() == field && r.getReference() == obj)
+		for (int n = 0, i = first(); n < size; n++, i = succ(i)) {
+			if (fields[i] == field && references[i] == obj)
 				return true;
 		}
 		return false;
 	}
 
+	/** Index of the oldest valid entry */
+	private int first() {
+		int i = next - size;
+		return i < 0 ? i + references.length : i;
+	}
+
+	private int succ(int i) {
+		return ++i == references.length ? 0 : i;
+	}
+
 }
@@ -2,32 +2,42 @@ package org.deuce.transaction.estm;
 
 import org.deuce.transaction.TransactionException;
 import org.deuce.transaction.estm.Context.LockTable;
-import org.deuce.transaction.estm.field.ReadFieldAccess;
 import org.deuce.transform.commons.Exclude;
 
 /**
  * The set of read entries maintained by the transaction
- * Based on the code from Pascal Felber 
- * 
+ * Based on the code from Pascal Felber
+ *
+ * Entries are kept in parallel primitive arrays rather than
+ * in read entry objects, so validation walks contiguous memory.
+ *
  * @author Vincent Gramoli
  */
 @Exclude
 final public class ReadSet {
 
-	/** An array of read entries */
-	private ReadFieldAccess[] entries;
+	/** The objects of the read entries */
+	private Object[] references;
+	/** The fields of the read entries */
+	private long[] fields;
+	/** The lock table indexes of the read entries */
+	private int[] hashes;
+	/** The versions of the read entries */
+	private int[] locks;
 	/** The number of read entries */
 	private int size;
 
 	/**
 	 * Initialize the read set with a given number of elements
-	 * 
+	 *
 	 * @param initialCapacity the number of elements
 	 */
 	public ReadSet(int initialCapacity) {
-		entries = new ReadFieldAccess[initialCapacity];
+		references = new Object[initialCapacity];
+		fields = new long[initialCapacity];
+		hashes = new int[initialCapacity];
+		locks = new int[initialCapacity];
 		size = 0;
-		initArray(0);
 	}
 
 	/**
@@ -41,50 +51,51 @@ final public class ReadSet {
 	 * Copy the last-read-entries field to the readset.
 	 * Used to switched from lightweight validation to full validation
 	 * in an elastic transaction
-	 * 
+	 *
 	 * @param lre last-read-entries field to be copied
 	 */
 	public void copy(LastReadEntries lre) {
-		int l = lre.getSize();
-		ReadFieldAccess[] e = new ReadFieldAccess[l];
-		System.arraycopy(lre.entries, 0, e, 0, l);
-		entries = e;
+		lre.copyTo(this);
 	}
-	
+
 	/**
 	 * Add a read entry to the read set
-	 * and allocates length^2 new entries if full
-	 * 
+	 * and doubles the arrays if full
+	 *
 	 * @param reference the object of the field
-	 * @param field the field 
+	 * @param field the field
 	 * @param hash its identifier
 	 * @param lock its version / owner
 	 */
 	public void add(Object reference, long field, int hash, int lock) {
-		/* unable to catch this exception within a transaction
-		 * even though it would be faster to try instead of guarding
-		try {
-			ReadFieldAccess r = entries[size++];
-			r.init(reference, field, hash, lock);
-		} catch (ArrayIndexOutOfBoundsException x) {
-			int l = entries.length;
-			ReadFieldAccess[] e = new ReadFieldAccess[l << 1];
-			System.arraycopy(entries, 0, e, 0, l);
-			entries = e;
-			initArray(l);
-			ReadFieldAccess r = entries[size++];
-			r.init(reference, field, hash, lock);
-		} */
-		if (size >= entries.length) {
-			int l = entries.length;
-			ReadFieldAccess[] e = new ReadFieldAccess[l << 1];
-			System.arraycopy(entries, 0, e, 0, l);
-			entries = e;
-			initArray(l);
+		if (size >= references.length)
+			grow();
+		assert size < references.length;
+		references[size] = reference;
+		fields[size] = field;
+		hashes[size] = hash;
+		locks[size] = lock;
+		size++;
+	}
+
+	/**
+	 * Remove all the read entries of the given field (early release)
+	 *
+	 * @param obj the object of the field
+	 * @param field the released field
+	 */
+	public void release(Object obj, long field) {
+		for (int i = size - 1; i >= 0; i--) {
+			if (fields[i] == field && references[i] == obj) {
+				// Move the last entry in place of the released one
+				int last = --size;
+				references[i] = references[last];
+				fields[i] = fields[last];
+				hashes[i] = hashes[last];
+				locks[i] = locks[last];
+				references[last] = null;
+			}
 		}
-		assert size < entries.length;
-		ReadFieldAccess r = entries[size++];
-		r.init(reference, field, hash, lock);
 	}
 
 	/**
@@ -96,9 +107,9 @@ final public class ReadSet {
 
 	/**
 	 * Validate the transaction
-	 * Check that the version of read locations, which 
+	 * Check that the version of read locations, which
 	 * are maintained by the elastic tx, are consistent
-	 * 
+	 *
 	 * @param id the identifier
 	 * @return true if the validation is successful
 	 */
@@ -107,9 +118,8 @@ final public class ReadSet {
 		try {
 			for (int i = 0; i < size; i++) {
 				// Throws an exception if validation fails
-				ReadFieldAccess r = entries[i];
-				lock = LockTable.checkLock(r.getHash(), id);
-				if (lock >= 0 && lock != r.getLock()) {
+				lock = LockTable.checkLock(hashes[i], id);
+				if (lock >= 0 && lock != locks[i]) {
 					// Other version: cannot validate
 					return false;
 				}
@@ -123,29 +133,36 @@ final public class ReadSet {
 	/**
 	 * Indicates whether the given field corresponds
 	 * to an existing read entry of the read set
-	 * 
+	 *
 	 * @param obj the object of the field
 	 * @param field the accessed field
 	 * @return true is the read set contains the field
 	 */
 	public boolean contains(Object obj, long field) {
 		for (int i = 0; i < size; i++) {
-			ReadFieldAccess r = entries[i];
-			if (r.getField() == field && r.getReference() == obj)
+			if (fields[i] == field && references[i] == obj)
 				return true;
 		}
 		return false;
 	}
 
 	/**
-	 * Allocating more space for the array
-	 * 
-	 * @param fromIndex index from where allocation is done
+	 * Allocating more space for the arrays
 	 */
-	private void initArray(int fromIndex) {
-		int l = entries.length;
-		for (int i = fromIndex; i < l; i++)
-			entries[i] = new ReadFieldAccess();
+	private void grow() {
+		int l = references.length << 1;
+		Object[] r = new Object[l];
+		System.arraycopy(references, 0, r, 0, size);
+		references = r;
+		long[] f = new long[l];
+		System.arraycopy(fields, 0, f, 0, size);
+		fields = f;
+		int[] h = new int[l];
+		System.arraycopy(hashes, 0, h, 0, size);
+		hashes = h;
+		int[] k = new int[l];
+		System.arraycopy(locks, 0, k, 0, size);
+		locks = k;
 	}
-	
+
 }
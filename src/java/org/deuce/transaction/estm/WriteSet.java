@@ -37,6 +37,10 @@ final public class WriteSet {
 		return empty;
 	}
 
+	public int size() {
+		return entries.size();
+	}
+
 	/**
 	 * Indicates whether the given field corresponds
 	 * to an existing write entry of the read set
@@ -1,15 +1,24 @@
 package org.deuce.transaction.lsa;
 
 import java.util.concurrent.atomic.AtomicInteger;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
 
+import org.deuce.transaction.AbortCauseContext;
+import org.deuce.transaction.EarlyReleaseContext;
+import org.deuce.transaction.RetryContext;
 import org.deuce.transaction.TransactionException;
 import org.deuce.transaction.lsa.field.Field;
 import org.deuce.transaction.lsa.field.Field.Type;
 import org.deuce.transaction.lsa.field.WriteFieldAccess;
 import org.deuce.transaction.lsa.ReadSet;
 import org.deuce.transaction.lsa.WriteSet;
+import org.deuce.transaction.stats.AbortCause;
+import org.deuce.transaction.stats.Recorder;
+import org.deuce.transaction.stats.Statistics;
+import org.deuce.transaction.stats.TransactionEvents;
+import org.deuce.transaction.util.AbortChannel;
 import org.deuce.transaction.util.BooleanArrayList;
+import org.deuce.transaction.util.IrrevocableAccessLock;
+import org.deuce.transaction.util.WaiterRegistry;
 import org.deuce.transform.commons.Exclude;
 
 /**
@@ -18,7 +27,7 @@ import org.deuce.transform.commons.Exclude;
  * @author Pascal Felber
  */
 @Exclude
-final public class Context implements org.deuce.transaction.Context {
+final public class Context implements EarlyReleaseContext, RetryContext, AbortCauseContext {
 
 	final private static TransactionException WRITE_FAILURE_EXCEPTION =
 		new TransactionException("Fail on write (read previous version).");
@@ -32,10 +41,12 @@ final public class Context implements org.deuce.transaction.Context {
 	final private static AtomicInteger clock = new AtomicInteger(0);
 	final private static AtomicInteger threadID = new AtomicInteger(0);
 
-	final private static boolean RO_HINT = Boolean.getBoolean("org.deuce.transaction.lsa.rohint");
+	// Switched at run time with setReadOnlyHint(boolean)
+	private static volatile boolean roHint = Boolean.getBoolean("org.deuce.transaction.lsa.rohint");
 
 	//Global lock used to allow only one irrevocable transaction solely. 
-	final private static ReentrantReadWriteLock irrevocableAccessLock = new ReentrantReadWriteLock();
+	final private static IrrevocableAccessLock irrevocableAccessLock = new IrrevocableAccessLock();
+	final private IrrevocableAccessLock.Slot irrevocableSlot = irrevocableAccessLock.newSlot();
 	private boolean irrevocableState = false;
 
 	final private ReadSet readSet = new ReadSet(1024);
@@ -54,26 +65,43 @@ final public class Context implements org.deuce.transaction.Context {
 	private int endTime;
 	private int id;
 
+	// Set by a retry, the next init of the block parks until a read field is committed
+	private WaiterRegistry.Waiter waiter = null;
+
+	final private Recorder stats = Recorder.ENABLED ? Statistics.newRecorder(this) : null;
+	final private AbortChannel abortChannel = new AbortChannel();
+
 	public Context() {
 		// Unique identifier among active threads
 		id = threadID.incrementAndGet();
 	}
 
 	@Override
-	public void init(int blockId, String metainf) {
+	public void init(int blockId, int flags, String metainf) {
+		if (waiter != null) {
+			WaiterRegistry.Waiter retried = waiter;
+			waiter = null;
+			if (blockId == atomicBlockId)
+				retried.await(); // aborts the block if interrupted
+			else // the retrying block gave up (out of retries)
+				retried.cancel();
+		}
+		atomicBlockId = blockId;
+		abortChannel.init(blockId);
+		if (Recorder.ENABLED)
+			stats.onStart(blockId);
 		readSet.clear();
-		writeSet.clear();
+		writeSet.clear(blockId);
 		
 		//Lock according to the transaction irrevocable state
-		if(irrevocableState)
-			irrevocableAccessLock.writeLock().lock();
-		else
-			irrevocableAccessLock.readLock().lock();
+		irrevocableSlot.lock(irrevocableState);
 		
 		startTime = endTime = clock.get();
-		if (RO_HINT) {
-			atomicBlockId = blockId;
+		if (roHint) {
 			readWriteHint = readWriteMarkers.get(atomicBlockId);
+		} else {
+			// The hint may have been switched off since the last transaction
+			readWriteHint = true;
 		}
 	}
 
@@ -84,46 +112,122 @@ final public class Context implements org.deuce.transaction.Context {
 				int newClock = clock.incrementAndGet();
 				if (newClock != startTime + 1 && !readSet.validate(id)) {
 					writeSet.rollback(); // Release locks
+					abortChannel.set(AbortCause.COMMIT);
+					if (Recorder.ENABLED)
+						stats.onAbort(AbortCause.COMMIT);
 					return false;
 				}
 				// Write values and release locks
 				writeSet.commit(newClock);
+				if (WaiterRegistry.hasWaiters())
+					writeSet.wakeWaiters();
 			}
+			if (Recorder.ENABLED)
+				stats.onCommit(readSet.getSize(), writeSet.size());
 			return true;
 		}
 		finally{
-			if(irrevocableState){
-				irrevocableState = false;
-				irrevocableAccessLock.writeLock().unlock();
-			}
-			else{
-				irrevocableAccessLock.readLock().unlock();
-			}
+			irrevocableState = false;
+			irrevocableSlot.unlock();
+
+		}
+	}
+
+	/**
+	 * @return the clock of the last commit
+	 */
+	public static long getClock() {
+		return clock.get();
+	}
+
+	public static boolean isReadOnlyHint() {
+		return roHint;
+	}
+
+	/**
+	 * Starts the blocks read-only until they write (<code>true</code>), or read-write. Applies to
+	 * the transactions started afterwards.
+	 */
+	public static void setReadOnlyHint(boolean hint) {
+		roHint = hint;
+	}
 
+	@Override
+	public void retry() {
+		if (writeSet.hasSavepoint()) // the caller runs the other alternative
+			return;
+		int[] hashes = readSet.getHashes();
+		if (hashes.length == 0) // nothing to wait for
+			return;
+		waiter = WaiterRegistry.register(hashes);
+		if (!readSet.validate(id)) {
+			// Already changed, run again right away
+			waiter.cancel();
+			waiter = null;
 		}
 	}
 
+	@Override
+	public int beginAlternative() {
+		return writeSet.savepoint();
+	}
+
+	@Override
+	public void endAlternative(int savepoint, boolean retried) {
+		// The reads of the alternative are kept, the choice of the other alternative depends on them
+		if (retried)
+			writeSet.rollbackTo(savepoint);
+		else
+			writeSet.releaseSavepoint(savepoint);
+	}
+
 	@Override
 	public void rollback() {
+		abortChannel.rollback();
+		if (Recorder.ENABLED)
+			stats.onAbort(abortChannel.getCause());
 		// Release locks
 		writeSet.rollback();
-		irrevocableAccessLock.readLock().unlock();
+		irrevocableSlot.unlock();
+	}
+
+	@Override
+	public AbortCause getAbortCause() {
+		return abortChannel.getCause();
+	}
+
+	@Override
+	public int getAbortCount() {
+		return abortChannel.getAborts();
 	}
 
 	private boolean extend() {
+		long start = TransactionEvents.EXTEND ? System.nanoTime() : 0;
 		int now = clock.get();
-		if (readSet.validate(id)) {
+		boolean extended = readSet.validate(id);
+		if (extended)
 			endTime = now;
-			return true;
-		}
-		return false;
+		if (TransactionEvents.EXTEND)
+			TransactionEvents.extend(atomicBlockId, extended, now, System.nanoTime() - start);
+		return extended;
 	}
 
 	@Override
 	public void beforeReadAccess(Object obj, long field) {
 		readHash = LockTable.hash(obj, field);
 		// Check if the field is locked (may throw an exception)
-		readLock = LockTable.checkLock(readHash, id);
+		readLock = checkReadLock(obj, field);
+	}
+
+	private int checkReadLock(Object obj, long field) {
+		try {
+			return LockTable.checkLock(readHash, id);
+		} catch (TransactionException e) {
+			abortChannel.set(AbortCause.READ);
+			if (Recorder.ENABLED)
+				stats.onConflict(readHash, obj, field);
+			throw e;
+		}
 	}
 
 	private boolean onReadAccess(Object obj, long field, Type type) {
@@ -139,7 +243,7 @@ final public class Context implements org.deuce.transaction.Context {
 		while (true) {
 			while (readLock <= endTime) {
 				// Re-read timestamp (check for race)
-				int lock = LockTable.checkLock(readHash, id);
+				int lock = checkReadLock(obj, field);
 				if (lock != readLock) {
 					readLock = lock;
 					readValue = Field.getValue(obj, field, type);
@@ -156,6 +260,7 @@ final public class Context implements org.deuce.transaction.Context {
 
 			// Try to extend snapshot
 			if (!(readWriteHint && extend())) {
+				abortChannel.set(AbortCause.READ);
 				throw EXTEND_FAILURE_EXCEPTION;
 			}
 		}
@@ -165,13 +270,22 @@ final public class Context implements org.deuce.transaction.Context {
 		if (!readWriteHint) {
 			// Change hint to read-write
 			readWriteMarkers.insert(atomicBlockId, true);
+			abortChannel.set(AbortCause.WRITE);
 			throw READ_ONLY_FAILURE_EXCEPTION;
 		}
 
 		int hash = LockTable.hash(obj, field);
 
 		// Lock entry (might throw an exception)
-		int timestamp = LockTable.lock(hash, id);
+		int timestamp;
+		try {
+			timestamp = LockTable.lock(hash, id);
+		} catch (TransactionException e) {
+			abortChannel.set(AbortCause.WRITE);
+			if (Recorder.ENABLED)
+				stats.onConflict(hash, obj, field);
+			throw e;
+		}
 
 		if (timestamp < 0) {
 			// We already own that lock
@@ -184,6 +298,7 @@ final public class Context implements org.deuce.transaction.Context {
 			if (readSet.contains(obj, field)) {
 				// Abort
 				LockTable.setAndReleaseLock(hash, timestamp);
+				abortChannel.set(AbortCause.WRITE);
 				throw WRITE_FAILURE_EXCEPTION;
 			}
 			// We delay validation until later (although we could already validate once here)
@@ -283,12 +398,20 @@ final public class Context implements org.deuce.transaction.Context {
 		onWriteAccess(obj, field, (Object) value, Type.DOUBLE);
 	}
 
+	@Override
+	public void release(Object obj, long field) {
+		if (writeSet.get(LockTable.hash(obj, field), obj, field) != null)
+			return; // written, the read stays validated
+		readSet.release(obj, field);
+	}
+
 	@Override
 	public void onIrrevocableAccess() {
 		if(irrevocableState) // already in irrevocable state so no need to restart transaction.
 			return;
 
 		irrevocableState = true;
+		abortChannel.set(AbortCause.IRREVOCABLE);
 		throw TransactionException.STATIC_TRANSACTION;
 	}
 }
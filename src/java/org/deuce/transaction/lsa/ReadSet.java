@@ -43,10 +43,29 @@ public class ReadSet {
 		r.init(reference, field, hash, lock);
 	}
 
+	public void release(Object obj, long field) {
+		for (int i = size - 1; i >= 0; i--) {
+			ReadFieldAccess r = entries[i];
+			if (r.getReference() == obj && r.getField() == field) {
+				// Swap with the last entry, so the released one is reused
+				int last = --size;
+				entries[i] = entries[last];
+				entries[last] = r;
+			}
+		}
+	}
+
 	public int getSize() {
 		return size;
 	}
 
+	public int[] getHashes() {
+		int[] hashes = new int[size];
+		for (int i = 0; i < size; i++)
+			hashes[i] = entries[i].getHash();
+		return hashes;
+	}
+
 	public boolean validate(int id) {
 		try {
 			for (int i = 0; i < size; i++) {
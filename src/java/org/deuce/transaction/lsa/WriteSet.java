@@ -1,8 +1,12 @@
 package org.deuce.transaction.lsa;
 
+import java.util.Arrays;
+
 import org.deuce.transaction.lsa.field.Field.Type;
 import org.deuce.transaction.lsa.field.WriteFieldAccess;
 import org.deuce.transaction.lsa.LockTable;
+import org.deuce.transaction.util.CapacityTuner;
+import org.deuce.transaction.util.WaiterRegistry;
 import org.deuce.transform.commons.Exclude;
 import org.deuce.trove.THashMap;
 
@@ -13,11 +17,27 @@ import org.deuce.trove.THashMap;
 public class WriteSet {
 
 	private static final int DEFAULT_CAPACITY = 16;
+	private static final CapacityTuner.Hints HINTS = new CapacityTuner.Hints();
+
+	private THashMap<Integer, WriteFieldAccess> entries;
+	// The entries the map holds without a rehash, a clear costs as much
+	private int capacity;
+	final private CapacityTuner tuner;
 
-	final private THashMap<Integer, WriteFieldAccess> entries;
+	// Undo log of the writes made under a savepoint
+	private static final byte UNDO_ADD = 0; // entry added (its lock released on undo)
+	private static final byte UNDO_APPEND = 1; // entry appended to the chain of the logged entry
+	private static final byte UNDO_UPDATE = 2; // value of the logged entry updated
+	private byte[] undoKinds = new byte[DEFAULT_CAPACITY];
+	private WriteFieldAccess[] undoEntries = new WriteFieldAccess[DEFAULT_CAPACITY];
+	private Object[] undoValues = new Object[DEFAULT_CAPACITY];
+	private int undoSize = 0;
+	private int savepoints = 0;
 
 	public WriteSet(int initialCapacity) {
 		entries = new THashMap<Integer, WriteFieldAccess>(initialCapacity);
+		capacity = initialCapacity;
+		tuner = new CapacityTuner(HINTS, initialCapacity);
 	}
 
 	public WriteSet() {
@@ -26,12 +46,40 @@ public class WriteSet {
 
 	public void clear() {
 		entries.clear();
+		if (undoSize > 0)
+			clearUndo();
+		savepoints = 0;
+	}
+
+	/**
+	 * Clears the write set for the next transaction, sized for its block, see {@link CapacityTuner}.
+	 */
+	public void clear(int atomicBlockId) {
+		int used = entries.size();
+		if (used > capacity)
+			capacity = used; // grown by the map
+		int next = tuner.next(atomicBlockId, used, capacity);
+		if (next < capacity) {
+			entries = new THashMap<Integer, WriteFieldAccess>(next);
+			if (undoSize > 0)
+				clearUndo();
+			savepoints = 0;
+		} else {
+			clear();
+			if (next > capacity)
+				entries.ensureCapacity(next);
+		}
+		capacity = next;
 	}
 
 	public boolean isEmpty() {
 		return entries.isEmpty();
 	}
 
+	public int size() {
+		return entries.size();
+	}
+
 	public WriteFieldAccess get(int hash, Object obj, long field) {
 		// Return value from existing entry
 		WriteFieldAccess w = entries.get(hash);
@@ -51,12 +99,16 @@ public class WriteSet {
 			// Check if we have already written that field
 			if (w.getReference() == obj && w.getField() == field) {
 				// Update written value
+				if (savepoints > 0)
+					logUndo(UNDO_UPDATE, w, w.getValue());
 				w.setValue(value);
 				return;
 			}
 			WriteFieldAccess next = w.getNext();
 			if (next == null) {
 				// We did not write this field (we must add it to write set)
+				if (savepoints > 0)
+					logUndo(UNDO_APPEND, w, null);
 				w.setNext(new WriteFieldAccess(obj, field, type, value, hash, 0));
 				return;
 			}
@@ -66,7 +118,75 @@ public class WriteSet {
 
 	public void add(int hash, Object obj, long field, Object value, Type type, int timestamp) {
 		// Add new entry
-		entries.put(hash, new WriteFieldAccess(obj, field, type, value, hash, timestamp));
+		WriteFieldAccess w = new WriteFieldAccess(obj, field, type, value, hash, timestamp);
+		if (savepoints > 0)
+			logUndo(UNDO_ADD, w, null);
+		entries.put(hash, w);
+	}
+
+	private void logUndo(byte kind, WriteFieldAccess w, Object value) {
+		if (undoSize == undoKinds.length) {
+			undoKinds = Arrays.copyOf(undoKinds, undoSize << 1);
+			undoEntries = Arrays.copyOf(undoEntries, undoSize << 1);
+			undoValues = Arrays.copyOf(undoValues, undoSize << 1);
+		}
+		undoKinds[undoSize] = kind;
+		undoEntries[undoSize] = w;
+		undoValues[undoSize] = value;
+		undoSize++;
+	}
+
+	private void clearUndo() {
+		Arrays.fill(undoEntries, 0, undoSize, null);
+		Arrays.fill(undoValues, 0, undoSize, null);
+		undoSize = 0;
+	}
+
+	/**
+	 * Sets a savepoint, the writes that follow can be undone with {@link #rollbackTo(int)}.
+	 * @return the savepoint
+	 */
+	public int savepoint() {
+		savepoints++;
+		return undoSize;
+	}
+
+	/**
+	 * Undoes the writes made since the savepoint, releasing the locks they acquired, and drops it.
+	 * @param savepoint returned by {@link #savepoint()}
+	 */
+	public void rollbackTo(int savepoint) {
+		while (undoSize > savepoint) {
+			undoSize--;
+			WriteFieldAccess w = undoEntries[undoSize];
+			switch (undoKinds[undoSize]) {
+			case UNDO_ADD:
+				entries.remove(w.getHash());
+				LockTable.setAndReleaseLock(w.getHash(), w.getLock());
+				break;
+			case UNDO_APPEND:
+				w.setNext(null); // undone in reverse order, the appended entry is the last of the chain
+				break;
+			default:
+				w.setValue(undoValues[undoSize]);
+			}
+			undoEntries[undoSize] = null;
+			undoValues[undoSize] = null;
+		}
+		savepoints--;
+	}
+
+	/**
+	 * Drops the savepoint and keeps the writes made since, the outer savepoints can still undo them.
+	 * @param savepoint returned by {@link #savepoint()}
+	 */
+	public void releaseSavepoint(int savepoint) {
+		if (--savepoints == 0)
+			clearUndo();
+	}
+
+	public boolean hasSavepoint() {
+		return savepoints > 0;
 	}
 
 	public void commit(int timestamp) {
@@ -82,6 +202,12 @@ public class WriteSet {
 		}
 	}
 
+	public void wakeWaiters() {
+		// Wake the retrying transactions that read the committed entries
+		for (Integer hash : entries.keySet())
+			WaiterRegistry.wake(hash);
+	}
+
 	public void rollback() {
 		// Release locks
 		for (WriteFieldAccess w : entries.values()) {
@@ -3,9 +3,9 @@ package org.deuce.transaction.lsacm;
 import java.util.Map;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
 import java.util.concurrent.ConcurrentHashMap;
 
+import org.deuce.transaction.AbortCauseContext;
 import org.deuce.transaction.TransactionException;
 import org.deuce.transaction.lsacm.field.Field;
 import org.deuce.transaction.lsacm.field.Field.Type;
@@ -14,7 +14,13 @@ import org.deuce.transaction.lsacm.ReadSet;
 import org.deuce.transaction.lsacm.WriteSet;
 import org.deuce.transaction.lsacm.ContentionManager;
 import org.deuce.transaction.lsacm.ContentionManager.ConflictType;
+import org.deuce.transaction.stats.AbortCause;
+import org.deuce.transaction.stats.Recorder;
+import org.deuce.transaction.stats.Statistics;
+import org.deuce.transaction.stats.TransactionEvents;
+import org.deuce.transaction.util.AbortChannel;
 import org.deuce.transaction.util.BooleanArrayList;
+import org.deuce.transaction.util.IrrevocableAccessLock;
 import org.deuce.transform.commons.Exclude;
 
 /**
@@ -23,7 +29,7 @@ import org.deuce.transform.commons.Exclude;
  * @author Pascal Felber
  */
 @Exclude
-final public class Context implements org.deuce.transaction.Context {
+final public class Context implements AbortCauseContext {
 
 	final private static int TX_IDLE = 0;
 	final private static int TX_ACTIVE = 1;
@@ -59,7 +65,8 @@ final public class Context implements org.deuce.transaction.Context {
 	final private static ContentionManager cm;
 
 	//Global lock used to allow only one irrevocable transaction solely. 
-	final private static ReentrantReadWriteLock irrevocableAccessLock = new ReentrantReadWriteLock();
+	final private static IrrevocableAccessLock irrevocableAccessLock = new IrrevocableAccessLock();
+	final private IrrevocableAccessLock.Slot irrevocableSlot = irrevocableAccessLock.newSlot();
 	private boolean irrevocableState = false;
 
 	final private ReadSet readSet = new ReadSet(1024);
@@ -84,6 +91,9 @@ final public class Context implements org.deuce.transaction.Context {
 
 	private AtomicInteger status;
 
+	final private Recorder stats = Recorder.ENABLED ? Statistics.newRecorder(this) : null;
+	final private AbortChannel abortChannel = new AbortChannel();
+
 	static {
 		// Set contention manager
 		String s = System.getProperty("org.deuce.transaction.lsacm.cm");
@@ -114,15 +124,15 @@ final public class Context implements org.deuce.transaction.Context {
 	}
 
 	@Override
-	public void init(int blockId, String metainf) {
+	public void init(int blockId, int flags, String metainf) {
+		abortChannel.init(blockId);
+		if (Recorder.ENABLED)
+			stats.onStart(blockId);
 		readSet.clear();
 		writeSet.clear();
 		
 		//Lock according to the transaction irrevocable state
-		if(irrevocableState)
-			irrevocableAccessLock.writeLock().lock();
-		else
-			irrevocableAccessLock.readLock().lock();
+		irrevocableSlot.lock(irrevocableState);
 		
 		endTime = clock.get();
 		startTime.set(endTime);
@@ -145,6 +155,9 @@ final public class Context implements org.deuce.transaction.Context {
 					long newClock = clock.incrementAndGet();
 					if (newClock != startTime.get() + 1 && !readSet.validate(this, id)) {
 						rollback0();
+						abortChannel.set(AbortCause.COMMIT);
+						if (Recorder.ENABLED)
+							stats.onAbort(AbortCause.COMMIT);
 						return false;
 					}
 					// Write values and release locks
@@ -154,31 +167,42 @@ final public class Context implements org.deuce.transaction.Context {
 					// We have been killed: wait for our locks to have been released
 					while (s != TX_ABORTED)
 						s = status.get() & STATUS_MASK;
+					abortChannel.set(AbortCause.KILLED);
+					if (Recorder.ENABLED)
+						stats.onAbort(AbortCause.KILLED);
 					return false;
 				}
 			} else {
 				// No need to set status to COMMITTED (we cannot be killed with an empty write set)
 			}
 			attempts = 0;
+			if (Recorder.ENABLED)
+				stats.onCommit(readSet.getSize(), writeSet.size());
 			return true;
 		}
 		finally{
-			if(irrevocableState){
-				irrevocableState = false;
-				irrevocableAccessLock.writeLock().unlock();
-			}
-			else{
-				irrevocableAccessLock.readLock().unlock();
-			}
+			irrevocableState = false;
+			irrevocableSlot.unlock();
 
 		}
 	}
 
 	@Override
 	public void rollback() {
-		rollback0();
-		
-		irrevocableAccessLock.readLock().unlock();
+		abortChannel.rollback();
+		if (Recorder.ENABLED)
+			stats.onAbort(abortChannel.getCause());
+		rollback0(); // also unlocks the irrevocableAccessLock slot
+	}
+
+	@Override
+	public AbortCause getAbortCause() {
+		return abortChannel.getCause();
+	}
+
+	@Override
+	public int getAbortCount() {
+		return abortChannel.getAborts();
 	}
 	
 	private void rollback0() {
@@ -202,7 +226,7 @@ final public class Context implements org.deuce.transaction.Context {
 			// No need to set status to ABORTED (at that point we do not hold locks anymore)
 		}
 		
-		irrevocableAccessLock.readLock().unlock();
+		irrevocableSlot.unlock();
 	}
 
 	public boolean conflict(int other, ConflictType type, int hash, long lock) {
@@ -234,6 +258,13 @@ final public class Context implements org.deuce.transaction.Context {
 		}
 	}
 
+	/**
+	 * @return the clock of the last commit
+	 */
+	public static long getClock() {
+		return clock.get();
+	}
+
 	public long getStartTime() {
 		return startTime.get();
 	}
@@ -247,12 +278,14 @@ final public class Context implements org.deuce.transaction.Context {
 	}
 
 	private boolean extend() {
+		long start = TransactionEvents.EXTEND ? System.nanoTime() : 0;
 		long now = clock.get();
-		if (readSet.validate(this, id)) {
+		boolean extended = readSet.validate(this, id);
+		if (extended)
 			endTime = now;
-			return true;
-		}
-		return false;
+		if (TransactionEvents.EXTEND)
+			TransactionEvents.extend(atomicBlockId, extended, now, System.nanoTime() - start);
+		return extended;
 	}
 
 	@Override
@@ -260,7 +293,7 @@ final public class Context implements org.deuce.transaction.Context {
 		if (vr) {
 			readHash = LockTable.hash(obj, field);
 			// Lock entry in read mode (might throw an exception)
-			readLock = LockTable.lock(this, readHash, id, false);
+			readLock = lockEntry(readHash, obj, field, false);
 			if (readLock >= 0) {
 				synchronized (writeSet) {
 					// Mutual exclusion on write set to allow other transaction to drop locks
@@ -268,6 +301,7 @@ final public class Context implements org.deuce.transaction.Context {
 						// We have been killed: drop lock we just acquired (not in write set)
 						LockTable.setAndReleaseLock(readHash, readLock);
 						// Abort
+						abortChannel.set(AbortCause.KILLED);
 						throw KILLED_EXCEPTION;
 					}
 					// Add to write set (for being able to drop lock later)
@@ -277,7 +311,29 @@ final public class Context implements org.deuce.transaction.Context {
 		} else {
 			readHash = LockTable.hash(obj, field);
 			// Check if the field is locked (may throw an exception)
-			readLock = LockTable.checkLock(this, readHash, id);
+			readLock = checkReadLock(obj, field);
+		}
+	}
+
+	private long checkReadLock(Object obj, long field) {
+		try {
+			return LockTable.checkLock(this, readHash, id);
+		} catch (TransactionException e) {
+			abortChannel.set(AbortCause.READ);
+			if (Recorder.ENABLED)
+				stats.onConflict(readHash, obj, field);
+			throw e;
+		}
+	}
+
+	private long lockEntry(int hash, Object obj, long field, boolean write) {
+		try {
+			return LockTable.lock(this, hash, id, write);
+		} catch (TransactionException e) {
+			abortChannel.set(write ? AbortCause.WRITE : AbortCause.READ);
+			if (Recorder.ENABLED)
+				stats.onConflict(hash, obj, field);
+			throw e;
 		}
 	}
 
@@ -299,6 +355,7 @@ final public class Context implements org.deuce.transaction.Context {
 			// Invisible read
 			if ((status.get() & STATUS_MASK) != TX_ACTIVE) {
 				// We have been killed: abort
+				abortChannel.set(AbortCause.KILLED);
 				throw KILLED_EXCEPTION;
 			}
 			if (readLock == LockTable.LOCKED_WRITE) {
@@ -316,7 +373,7 @@ final public class Context implements org.deuce.transaction.Context {
 			while (true) {
 				while (readLock <= endTime) {
 					// Re-read timestamp (check for race)
-					long lock = LockTable.checkLock(this, readHash, id);
+					long lock = checkReadLock(obj, field);
 					if (lock != readLock) {
 						readLock = lock;
 						readValue = Field.getValue(obj, field, type);
@@ -333,6 +390,7 @@ final public class Context implements org.deuce.transaction.Context {
 
 				// Try to extend snapshot
 				if (!(readWriteHint && extend())) {
+					abortChannel.set(AbortCause.READ);
 					throw EXTEND_FAILURE_EXCEPTION;
 				}
 			}
@@ -343,12 +401,13 @@ final public class Context implements org.deuce.transaction.Context {
 		if (!readWriteHint) {
 			// Change hint to read-write
 			readWriteMarkers.insert(atomicBlockId, true);
+			abortChannel.set(AbortCause.WRITE);
 			throw READ_ONLY_FAILURE_EXCEPTION;
 		}
 
 		int hash = LockTable.hash(obj, field);
 		// Lock entry in write mode (might throw an exception)
-		long timestamp = LockTable.lock(this, hash, id, true);
+		long timestamp = lockEntry(hash, obj, field, true);
 
 		synchronized (writeSet) {
 			// Mutual exclusion on write set to allow other transaction to drop locks
@@ -359,6 +418,7 @@ final public class Context implements org.deuce.transaction.Context {
 					LockTable.setAndReleaseLock(hash, timestamp);
 				}
 				// Abort
+				abortChannel.set(AbortCause.KILLED);
 				throw KILLED_EXCEPTION;
 			}
 			if (timestamp < 0) {
@@ -371,6 +431,7 @@ final public class Context implements org.deuce.transaction.Context {
 					if (readSet.contains(obj, field)) {
 						// Abort
 						LockTable.setAndReleaseLock(hash, timestamp);
+						abortChannel.set(AbortCause.WRITE);
 						throw WRITE_FAILURE_EXCEPTION;
 					}
 					// We delay validation until later (although we could already validate once here)
@@ -477,6 +538,7 @@ final public class Context implements org.deuce.transaction.Context {
 			return;
 
 		irrevocableState = true;
+		abortChannel.set(AbortCause.IRREVOCABLE);
 		throw TransactionException.STATIC_TRANSACTION;
 	}
 }
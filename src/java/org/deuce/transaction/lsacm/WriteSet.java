@@ -32,6 +32,10 @@ public class WriteSet {
 		return entries.isEmpty();
 	}
 
+	public int size() {
+		return entries.size();
+	}
+
 	public WriteFieldAccess get(int hash, Object obj, long field) {
 		// Return value from existing entry
 		WriteFieldAccess w = entries.get(hash);
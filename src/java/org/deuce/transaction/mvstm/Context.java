@@ -0,0 +1,467 @@
+package org.deuce.transaction.mvstm;
+
+import java.lang.ref.WeakReference;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.deuce.transaction.AbortCauseContext;
+import org.deuce.transaction.TransactionException;
+import org.deuce.transaction.mvstm.VersionTable.Version;
+import org.deuce.transaction.mvstm.field.Field;
+import org.deuce.transaction.mvstm.field.Field.Type;
+import org.deuce.transaction.mvstm.field.WriteFieldAccess;
+import org.deuce.transaction.stats.AbortCause;
+import org.deuce.transaction.stats.Recorder;
+import org.deuce.transaction.stats.Statistics;
+import org.deuce.transaction.util.AbortChannel;
+import org.deuce.transaction.util.BooleanArrayList;
+import org.deuce.transaction.util.IrrevocableAccessLock;
+import org.deuce.transform.commons.Exclude;
+
+/**
+ * Multi-version implementation.
+ * 
+ * Atomic blocks start as read-only until they write (turned off with
+ * -Dorg.deuce.transaction.mvstm.rohint=false, or {@link #setReadOnlyHint(boolean)},
+ * to run all blocks as update transactions). A read-only transaction reads the snapshot
+ * of its start time, using the old versions of the {@link VersionTable} for the
+ * fields overwritten since then. It does not validate and never aborts, unless the
+ * version it needs was discarded because of the depth bound
+ * ({@link AbortCause#SNAPSHOT}). It may only wait for the write-back of a committing
+ * transaction.
+ * 
+ * The first write of a read-only transaction marks its atomic block as an update
+ * block and turns the transaction into an update transaction in place: the fields read
+ * so far are kept in the read set, and if none of them was overwritten the snapshot
+ * becomes the start of the update transaction, without a restart. Otherwise it aborts
+ * as an update transaction would. Update transactions behave as in LSA, except that
+ * the stripes are locked at commit time and that the overwritten values are pushed
+ * to the version table.
+ * 
+ * Versions are reclaimed by epochs: read-only transactions announce their snapshot
+ * time, and committing transactions periodically compute the oldest one as
+ * reclamation bound.
+ */
+@Exclude
+final public class Context implements AbortCauseContext {
+
+	final private static TransactionException EXTEND_FAILURE_EXCEPTION =
+		new TransactionException("Fail on extend.");
+
+	final private static TransactionException UPGRADE_FAILURE_EXCEPTION =
+		new TransactionException("Fail on write (snapshot is out of date).");
+
+	final private static AtomicInteger clock = new AtomicInteger(0);
+	final private static AtomicInteger threadID = new AtomicInteger(0);
+
+	// Switched at run time with setReadOnlyHint(boolean)
+	private static volatile boolean roHint =
+		Boolean.parseBoolean(System.getProperty("org.deuce.transaction.mvstm.rohint", "true"));
+
+	// Snapshot time of a context that is not running a read-only transaction
+	final private static int INACTIVE = Integer.MAX_VALUE;
+	// Number of commits between two computations of the reclamation bound
+	final private static int RECLAIM_PERIOD = 64;
+	// Number of stripes swept by each update transaction
+	final private static int SWEEP_SIZE = 8;
+
+	final private static ConcurrentLinkedQueue<WeakReference<Context>> contexts =
+		new ConcurrentLinkedQueue<WeakReference<Context>>();
+	private static volatile int reclaimBound = 0;
+
+	//Global lock used to allow only one irrevocable transaction solely. 
+	final private static IrrevocableAccessLock irrevocableAccessLock = new IrrevocableAccessLock();
+	final private IrrevocableAccessLock.Slot irrevocableSlot = irrevocableAccessLock.newSlot();
+	private boolean irrevocableState = false;
+
+	final private ReadSet readSet = new ReadSet(1024);
+	final private WriteSet writeSet = new WriteSet(32);
+
+	// Keep per-thread read-write markers, atomic blocks are read-only until they write
+	final private BooleanArrayList readWriteMarkers = new BooleanArrayList();
+	private boolean readOnly;
+	// A read-only transaction read an overwritten version, it cannot become an update one
+	private boolean staleReads;
+	private int atomicBlockId;
+
+	// Snapshot time announced to the committing transactions
+	private volatile int snapshot = INACTIVE;
+	private int reclaimCountdown = RECLAIM_PERIOD;
+	private int sweepIndex;
+
+	private int readHash;
+	private int readLock;
+	private Object readValue;
+
+	private int startTime;
+	private int endTime;
+	private int id;
+
+	final private AbortChannel abortChannel = new AbortChannel();
+	final private Recorder stats = Recorder.ENABLED ? Statistics.newRecorder(this) : null;
+
+	public Context() {
+		// Unique identifier among active threads
+		id = threadID.incrementAndGet();
+		sweepIndex = (id * SWEEP_SIZE * 4099) & LockTable.MASK;
+		contexts.add(new WeakReference<Context>(this));
+	}
+
+	@Override
+	public void init(int blockId, int flags, String metainf) {
+		abortChannel.init(blockId);
+		if (Recorder.ENABLED)
+			stats.onStart(blockId);
+		readSet.clear();
+		writeSet.clear();
+		
+		//Lock according to the transaction irrevocable state
+		irrevocableSlot.lock(irrevocableState);
+		
+		atomicBlockId = blockId;
+		readOnly = roHint && !readWriteMarkers.get(atomicBlockId);
+		staleReads = false;
+		if (readOnly) {
+			// Announce before reading the clock, see computeBound()
+			snapshot = 0;
+			startTime = clock.get();
+			snapshot = startTime;
+		} else {
+			startTime = clock.get();
+		}
+		endTime = startTime;
+	}
+
+	@Override
+	public boolean commit() {
+		try{
+			if (!writeSet.isEmpty()) {
+				if (!writeSet.lock(id)) {
+					abortChannel.set(AbortCause.COMMIT);
+					if (Recorder.ENABLED)
+						stats.onAbort(AbortCause.COMMIT);
+					return false;
+				}
+				int newClock = clock.incrementAndGet();
+				if (newClock != endTime + 1 && !readSet.validate(id, writeSet)) {
+					writeSet.rollback(); // Release locks
+					abortChannel.set(AbortCause.COMMIT);
+					if (Recorder.ENABLED)
+						stats.onAbort(AbortCause.COMMIT);
+					return false;
+				}
+				int bound = reclaimBound();
+				// Save old values, write new ones and release locks
+				writeSet.commit(newClock, bound);
+				sweepIndex = VersionTable.sweep(sweepIndex, SWEEP_SIZE, bound);
+			}
+			if (Recorder.ENABLED)
+				stats.onCommit(readSet.getSize(), writeSet.size());
+			return true;
+		}
+		finally{
+			snapshot = INACTIVE;
+			irrevocableState = false;
+			irrevocableSlot.unlock();
+
+		}
+	}
+
+	@Override
+	public void rollback() {
+		abortChannel.rollback();
+		if (Recorder.ENABLED)
+			stats.onAbort(abortChannel.getCause());
+		// Stripes are only locked during commit, there is nothing to release
+		snapshot = INACTIVE;
+		irrevocableSlot.unlock();
+	}
+
+	@Override
+	public AbortCause getAbortCause() {
+		return abortChannel.getCause();
+	}
+
+	@Override
+	public int getAbortCount() {
+		return abortChannel.getAborts();
+	}
+
+	public static boolean isReadOnlyHint() {
+		return roHint;
+	}
+
+	/**
+	 * Starts the blocks read-only until they write (<code>true</code>, the default), or as update
+	 * transactions.
+	 * Applies to the transactions started afterwards.
+	 */
+	public static void setReadOnlyHint(boolean hint) {
+		roHint = hint;
+	}
+
+	private int reclaimBound() {
+		if (--reclaimCountdown == 0) {
+			reclaimCountdown = RECLAIM_PERIOD;
+			reclaimBound = computeBound();
+		}
+		return reclaimBound;
+	}
+
+	/**
+	 * Returns a time no more recent than the snapshot of any read-only transaction
+	 * running now or starting later.
+	 * A reader announces 0 before reading the clock: if the scan misses the announce,
+	 * the reader reads the clock after the scan, hence after our own read of the clock.
+	 */
+	private static int computeBound() {
+		int bound = clock.get();
+		for (Iterator<WeakReference<Context>> i = contexts.iterator(); i.hasNext();) {
+			Context context = i.next().get();
+			if (context == null) {
+				// The thread is gone
+				i.remove();
+				continue;
+			}
+			int s = context.snapshot;
+			if (s < bound)
+				bound = s;
+		}
+		return bound;
+	}
+
+	private boolean extend() {
+		int now = clock.get();
+		if (readSet.validate(id, writeSet)) {
+			endTime = now;
+			return true;
+		}
+		return false;
+	}
+
+	@Override
+	public void beforeReadAccess(Object obj, long field) {
+		readHash = LockTable.hash(obj, field);
+		if (readOnly) {
+			readLock = LockTable.getLock(readHash);
+		} else {
+			readLock = checkLock(obj, field);
+		}
+	}
+
+	private int checkLock(Object obj, long field) {
+		// Check if the field is locked (may throw an exception)
+		try {
+			return LockTable.checkLock(readHash, id);
+		} catch (TransactionException e) {
+			abortChannel.set(AbortCause.READ);
+			if (Recorder.ENABLED)
+				stats.onConflict(readHash, obj, field);
+			throw e;
+		}
+	}
+
+	private boolean onReadAccess(Object obj, long field, Type type) {
+		if (readOnly)
+			return onSnapshotRead(obj, field, type);
+
+		if (!writeSet.isEmpty()) {
+			WriteFieldAccess w = writeSet.get(readHash, obj, field);
+			if (w != null) {
+				// Read our own write
+				readValue = w.getValue();
+				return true;
+			}
+		}
+		boolean b = false;
+		while (true) {
+			while (readLock <= endTime) {
+				// Re-read timestamp (check for race)
+				int lock = checkLock(obj, field);
+				if (lock != readLock) {
+					readLock = lock;
+					readValue = Field.getValue(obj, field, type);
+					b = true;
+					continue;
+				}
+				// We have read a valid value (in snapshot), save to read set
+				readSet.add(obj, field, readHash, lock);
+				return b;
+			}
+
+			// Try to extend snapshot
+			if (!extend()) {
+				abortChannel.set(AbortCause.READ);
+				if (Recorder.ENABLED)
+					stats.onConflict(readHash, obj, field);
+				throw EXTEND_FAILURE_EXCEPTION;
+			}
+		}
+	}
+
+	private boolean onSnapshotRead(Object obj, long field, Type type) {
+		boolean b = false;
+		while (true) {
+			if (LockTable.isLocked(readLock)) {
+				// The stripe is being written back by a committing transaction
+				Thread.yield();
+			} else {
+				if (readLock > startTime) {
+					// Updated after our snapshot, look for the version we must read
+					Version v;
+					try {
+						v = VersionTable.find(readHash, obj, field, startTime);
+					} catch (TransactionException e) {
+						abortChannel.set(AbortCause.SNAPSHOT);
+						if (Recorder.ENABLED)
+							stats.onConflict(readHash, obj, field);
+						throw e;
+					}
+					if (v != null) {
+						readValue = v.getValue();
+						staleReads = true;
+						return true;
+					}
+				}
+				// The value read belongs to the snapshot if the stripe did not change meanwhile
+				int lock = LockTable.getLock(readHash);
+				if (lock == readLock) {
+					// Kept in case the transaction writes
+					readSet.add(obj, field, readHash, lock);
+					return b;
+				}
+			}
+			readLock = LockTable.getLock(readHash);
+			readValue = Field.getValue(obj, field, type);
+			b = true;
+		}
+	}
+
+	/**
+	 * Turns the running read-only transaction into an update transaction, if the
+	 * fields it read are still current.
+	 */
+	private void upgrade() {
+		int now = clock.get();
+		if (staleReads || !readSet.validate(id, writeSet)) {
+			abortChannel.set(AbortCause.WRITE);
+			throw UPGRADE_FAILURE_EXCEPTION;
+		}
+		readOnly = false;
+		endTime = now;
+		snapshot = INACTIVE;
+	}
+
+	private void onWriteAccess(Object obj, long field, Object value, Type type) {
+		if (readOnly) {
+			// Change hint to read-write
+			readWriteMarkers.insert(atomicBlockId, true);
+			upgrade();
+		}
+
+		int hash = LockTable.hash(obj, field);
+		// Locks are taken at commit time
+		writeSet.put(hash, obj, field, value, type);
+	}
+
+	@Override
+	public Object onReadAccess(Object obj, Object value, long field) {
+		return (onReadAccess(obj, field, Type.OBJECT) ? readValue : value);
+	}
+
+	@Override
+	public boolean onReadAccess(Object obj, boolean value, long field) {
+		return (onReadAccess(obj, field, Type.BOOLEAN) ? (Boolean) readValue : value);
+	}
+
+	@Override
+	public byte onReadAccess(Object obj, byte value, long field) {
+		return (onReadAccess(obj, field, Type.BYTE) ? ((Number) readValue).byteValue() : value);
+	}
+
+	@Override
+	public char onReadAccess(Object obj, char value, long field) {
+		return (onReadAccess(obj, field, Type.CHAR) ? (Character) readValue : value);
+	}
+
+	@Override
+	public short onReadAccess(Object obj, short value, long field) {
+		return (onReadAccess(obj, field, Type.SHORT) ? ((Number) readValue).shortValue() : value);
+	}
+
+	@Override
+	public int onReadAccess(Object obj, int value, long field) {
+		return (onReadAccess(obj, field, Type.INT) ? ((Number) readValue).intValue() : value);
+	}
+
+	@Override
+	public long onReadAccess(Object obj, long value, long field) {
+		return (onReadAccess(obj, field, Type.LONG) ? ((Number) readValue).longValue() : value);
+	}
+
+	@Override
+	public float onReadAccess(Object obj, float value, long field) {
+		return (onReadAccess(obj, field, Type.FLOAT) ? ((Number) readValue).floatValue() : value);
+	}
+
+	@Override
+	public double onReadAccess(Object obj, double value, long field) {
+		return (onReadAccess(obj, field, Type.DOUBLE) ? ((Number) readValue).doubleValue() : value);
+	}
+
+	@Override
+	public void onWriteAccess(Object obj, Object value, long field) {
+		onWriteAccess(obj, field, value, Type.OBJECT);
+	}
+
+	@Override
+	public void onWriteAccess(Object obj, boolean value, long field) {
+		onWriteAccess(obj, field, (Object) value, Type.BOOLEAN);
+	}
+
+	@Override
+	public void onWriteAccess(Object obj, byte value, long field) {
+		onWriteAccess(obj, field, (Object) value, Type.BYTE);
+	}
+
+	@Override
+	public void onWriteAccess(Object obj, char value, long field) {
+		onWriteAccess(obj, field, (Object) value, Type.CHAR);
+	}
+
+	@Override
+	public void onWriteAccess(Object obj, short value, long field) {
+		onWriteAccess(obj, field, (Object) value, Type.SHORT);
+	}
+
+	@Override
+	public void onWriteAccess(Object obj, int value, long field) {
+		onWriteAccess(obj, field, (Object) value, Type.INT);
+	}
+
+	@Override
+	public void onWriteAccess(Object obj, long value, long field) {
+		onWriteAccess(obj, field, (Object) value, Type.LONG);
+	}
+
+	@Override
+	public void onWriteAccess(Object obj, float value, long field) {
+		onWriteAccess(obj, field, (Object) value, Type.FLOAT);
+	}
+
+	@Override
+	public void onWriteAccess(Object obj, double value, long field) {
+		onWriteAccess(obj, field, (Object) value, Type.DOUBLE);
+	}
+
+	@Override
+	public void onIrrevocableAccess() {
+		if(irrevocableState) // already in irrevocable state so no need to restart transaction.
+			return;
+
+		irrevocableState = true;
+		abortChannel.set(AbortCause.IRREVOCABLE);
+		throw TransactionException.STATIC_TRANSACTION;
+	}
+}
@@ -0,0 +1,82 @@
+package org.deuce.transaction.mvstm;
+
+import org.deuce.transaction.TransactionException;
+import org.deuce.transaction.mvstm.field.ReadFieldAccess;
+import org.deuce.transaction.mvstm.LockTable;
+import org.deuce.transform.commons.Exclude;
+
+/**
+ * Read set of update transactions (read-only ones do not keep any).
+ * 
+ * @author Pascal Felber
+ */
+@Exclude
+public class ReadSet {
+
+	private static final int DEFAULT_CAPACITY = 1024;
+
+	private ReadFieldAccess[] entries;
+	private int size;
+
+	public ReadSet(int initialCapacity) {
+		entries = new ReadFieldAccess[initialCapacity];
+		size = 0;
+		initArray(0);
+	}
+
+	public ReadSet() {
+		this(DEFAULT_CAPACITY);
+	}
+
+	public void clear() {
+		size = 0;
+	}
+
+	public void add(Object reference, long field, int hash, int lock) {
+		if (size >= entries.length) {
+			int l = entries.length;
+			ReadFieldAccess[] e = new ReadFieldAccess[l << 1];
+			System.arraycopy(entries, 0, e, 0, l);
+			entries = e;
+			initArray(l);
+		}
+		assert size < entries.length;
+		ReadFieldAccess r = entries[size++];
+		r.init(reference, field, hash, lock);
+	}
+
+	public int getSize() {
+		return size;
+	}
+
+	/**
+	 * @param id the identifier of the transaction
+	 * @param writeSet gives the versions of the stripes locked by the transaction
+	 * @return true if no field read has changed since it was read
+	 */
+	public boolean validate(int id, WriteSet writeSet) {
+		try {
+			for (int i = 0; i < size; i++) {
+				// Throws an exception if validation fails
+				ReadFieldAccess r = entries[i];
+				int lock = LockTable.checkLock(r.getHash(), id);
+				if (lock < 0) {
+					// We own the lock, compare with the version it had when locked
+					lock = writeSet.getLock(r.getHash());
+				}
+				if (lock != r.getLock()) {
+					// Other version: cannot validate
+					return false;
+				}
+			}
+		} catch (TransactionException e) {
+			return false;
+		}
+		return true;
+	}
+
+	private void initArray(int fromIndex) {
+		for (int i = fromIndex; i < entries.length; i++)
+			entries[i] = new ReadFieldAccess();
+	}
+}
@@ -0,0 +1,140 @@
+package org.deuce.transaction.mvstm;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import org.deuce.transaction.TransactionException;
+import org.deuce.transform.commons.Exclude;
+
+/**
+ * Old versions of the fields, kept in one chain per stripe of the {@link LockTable}.
+ * 
+ * Each commit pushes, for every field it overwrites, the value the field held
+ * before the commit together with the commit time. A chain is therefore sorted
+ * by decreasing commit time and a snapshot taken at time t reads a field from
+ * the oldest of its entries that is more recent than t, or from memory if no
+ * such entry exists.
+ * 
+ * Chains are only modified by the owner of the stripe lock, except for
+ * {@link #sweep(int, int, int)} which drops whole chains with a CAS.
+ * Entries not newer than the reclamation bound (the oldest active snapshot)
+ * cannot be read by any snapshot and are dropped. Chains are also capped to
+ * {@code org.deuce.transaction.mvstm.depth} entries (0 means unbounded):
+ * a snapshot that needs a discarded entry fails and is restarted.
+ */
+@Exclude
+public class VersionTable {
+
+	final private static TransactionException SNAPSHOT_FAILURE_EXCEPTION =
+		new TransactionException("Fail on read (version was discarded).");
+
+	final private static int DEPTH = Integer.getInteger("org.deuce.transaction.mvstm.depth", 16);
+
+	// Marks the end of a chain that was cut by the depth bound
+	final private static Version DISCARDED = new Version(null, 0, null, Integer.MAX_VALUE, null);
+
+	// Head of the chain of each stripe
+	final private static AtomicReferenceArray<Version> versions = new AtomicReferenceArray<Version>(LockTable.ARRAYSIZE);
+
+	/**
+	 * Records the value of a field before it is overwritten.
+	 * The caller owns the lock of the stripe.
+	 * 
+	 * @param hash the stripe of the field
+	 * @param obj the object of the field
+	 * @param field the field address
+	 * @param value the value overwritten
+	 * @param timestamp the commit time of the update
+	 * @param bound no active snapshot is older than this time
+	 */
+	public static void push(int hash, Object obj, long field, Object value, int timestamp, int bound) {
+		Version head = new Version(obj, field, value, timestamp, versions.get(hash));
+		// Drop the entries no snapshot can read and cap the chain
+		Version v = head;
+		for (int depth = 1; ; depth++) {
+			Version next = v.next;
+			if (next == null || next == DISCARDED)
+				break;
+			if (next.timestamp <= bound) {
+				v.next = null;
+				break;
+			}
+			if (depth == DEPTH) {
+				v.next = DISCARDED;
+				break;
+			}
+			v = next;
+		}
+		versions.set(hash, head);
+	}
+
+	/**
+	 * Finds the version of a field for a snapshot.
+	 * 
+	 * @param hash the stripe of the field
+	 * @param obj the object of the field
+	 * @param field the field address
+	 * @param timestamp the time of the snapshot
+	 * @return the version to read, or null if the field was not overwritten
+	 * since the snapshot (the value in memory is the one to read)
+	 * @throws TransactionException if the version was discarded
+	 */
+	public static Version find(int hash, Object obj, long field, int timestamp) throws TransactionException {
+		Version found = null;
+		for (Version v = versions.get(hash); v != null && v.timestamp > timestamp; v = v.next) {
+			if (v == DISCARDED)
+				throw SNAPSHOT_FAILURE_EXCEPTION;
+			if (v.field == field && v.reference == obj)
+				found = v;
+		}
+		return found;
+	}
+
+	/**
+	 * Drops the chains that are entirely older than the bound.
+	 * Called by committing transactions, a few stripes at a time, so that
+	 * stripes which are not updated anymore release their old values.
+	 * 
+	 * @param index the first stripe to sweep
+	 * @param count the number of stripes to sweep
+	 * @param bound no active snapshot is older than this time
+	 * @return the stripe following the last one swept
+	 */
+	public static int sweep(int index, int count, int bound) {
+		for (; count > 0; count--) {
+			Version v = versions.get(index);
+			if (v != null && v.timestamp <= bound)
+				versions.compareAndSet(index, v, null);
+			index = (index + 1) & LockTable.MASK;
+		}
+		return index;
+	}
+
+	/**
+	 * A value overwritten at a given commit time.
+	 */
+	@Exclude
+	public static class Version {
+
+		final private Object reference;
+		final private long field;
+		final private Object value;
+		final private int timestamp;
+		private volatile Version next;
+
+		Version(Object reference, long field, Object value, int timestamp, Version next) {
+			this.reference = reference;
+			this.field = field;
+			this.value = value;
+			this.timestamp = timestamp;
+			this.next = next;
+		}
+
+		public Object getValue() {
+			return value;
+		}
+
+		public int getTimestamp() {
+			return timestamp;
+		}
+	}
+}
@@ -0,0 +1,131 @@
+package org.deuce.transaction.mvstm;
+
+import org.deuce.transaction.TransactionException;
+import org.deuce.transaction.mvstm.field.Field.Type;
+import org.deuce.transaction.mvstm.field.WriteFieldAccess;
+import org.deuce.transaction.mvstm.LockTable;
+import org.deuce.transform.commons.Exclude;
+import org.deuce.trove.THashMap;
+
+/**
+ * Redo log of update transactions. The stripes are only locked at commit time,
+ * so that snapshot readers never wait longer than a write-back.
+ * 
+ * @author Pascal Felber
+ */
+@Exclude
+public class WriteSet {
+
+	private static final int DEFAULT_CAPACITY = 16;
+
+	final private THashMap<Integer, WriteFieldAccess> entries;
+
+	public WriteSet(int initialCapacity) {
+		entries = new THashMap<Integer, WriteFieldAccess>(initialCapacity);
+	}
+
+	public WriteSet() {
+		this(DEFAULT_CAPACITY);
+	}
+
+	public void clear() {
+		entries.clear();
+	}
+
+	public boolean isEmpty() {
+		return entries.isEmpty();
+	}
+
+	public int size() {
+		return entries.size();
+	}
+
+	public WriteFieldAccess get(int hash, Object obj, long field) {
+		// Return value from existing entry
+		WriteFieldAccess w = entries.get(hash);
+		while (w != null) {
+			// Check if we have already written that field
+			if (w.getReference() == obj && w.getField() == field)
+				return w;
+			w = w.getNext();
+		}
+		return null;
+	}
+
+	public void put(int hash, Object obj, long field, Object value, Type type) {
+		WriteFieldAccess w = entries.get(hash);
+		if (w == null) {
+			// Add new entry
+			entries.put(hash, new WriteFieldAccess(obj, field, type, value, hash));
+			return;
+		}
+		while (true) {
+			// Check if we have already written that field
+			if (w.getReference() == obj && w.getField() == field) {
+				// Update written value
+				w.setValue(value);
+				return;
+			}
+			WriteFieldAccess next = w.getNext();
+			if (next == null) {
+				// We did not write this field (we must add it to write set)
+				w.setNext(new WriteFieldAccess(obj, field, type, value, hash));
+				return;
+			}
+			w = next;
+		}
+	}
+
+	/**
+	 * @return the version of a stripe locked by {@link #lock(int)}
+	 */
+	public int getLock(int hash) {
+		return entries.get(hash).getLock();
+	}
+
+	/**
+	 * Locks the stripes written, keeping their versions.
+	 * 
+	 * @return false if a stripe is locked by another transaction
+	 * (the stripes already locked are released)
+	 */
+	public boolean lock(int id) {
+		try {
+			for (WriteFieldAccess w : entries.values())
+				w.setLock(LockTable.lock(w.getHash(), id));
+		} catch (TransactionException e) {
+			rollback();
+			return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Saves the overwritten values, writes the new ones and releases the locks.
+	 * 
+	 * @param timestamp the commit time
+	 * @param bound no active snapshot is older than this time
+	 */
+	public void commit(int timestamp, int bound) {
+		for (WriteFieldAccess w : entries.values()) {
+			int hash = w.getHash();
+			assert w.getLock() >= 0;
+			do {
+				VersionTable.push(hash, w.getReference(), w.getField(), w.readField(), timestamp, bound);
+				w.writeField();
+				w = w.getNext();
+			} while (w != null);
+			LockTable.setAndReleaseLock(hash, timestamp);
+		}
+	}
+
+	public void rollback() {
+		// Release the locks taken by lock()
+		for (WriteFieldAccess w : entries.values()) {
+			if (w.getLock() >= 0) {
+				LockTable.setAndReleaseLock(w.getHash(), w.getLock());
+				w.setLock(-1);
+			}
+		}
+	}
+}
@@ -0,0 +1,49 @@
+package org.deuce.transaction.mvstm.field;
+
+import org.deuce.transaction.mvstm.field.Field;
+import org.deuce.transaction.mvstm.field.Field.Type;
+import org.deuce.transform.commons.Exclude;
+
+/**
+ * @author Pascal Felber
+ */
+@Exclude
+public class WriteFieldAccess extends ReadFieldAccess {
+
+	final private Type type;
+	private Object value;
+	private WriteFieldAccess next;
+
+	public WriteFieldAccess(Object reference, long field, Type type, Object value, int hash) {
+		// Not locked yet, the lock is taken at commit time
+		super(reference, field, hash, -1);
+		this.type = type;
+		this.value = value;
+		this.next = null;
+	}
+
+	public void setValue(Object value) {
+		this.value = value;
+	}
+
+	public Object getValue() {
+		return value;
+	}
+
+	public void setNext(WriteFieldAccess next) {
+		this.next = next;
+	}
+
+	public WriteFieldAccess getNext() {
+		return next;
+	}
+
+	/** Returns the value currently in memory */
+	public Object readField() {
+		return Field.getValue(reference, field, type);
+	}
+
+	public void writeField() {
+		Field.putValue(reference, field, value, type);
+	}
+}
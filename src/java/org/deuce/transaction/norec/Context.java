@@ -1,8 +1,8 @@
 package org.deuce.transaction.norec;
 
 import java.util.concurrent.atomic.AtomicInteger;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
 
+import org.deuce.transaction.AbortCauseContext;
 import org.deuce.transaction.TransactionException;
 import org.deuce.transaction.norec.field.BooleanFieldAccess;
 import org.deuce.transaction.norec.field.ByteFieldAccess;
@@ -18,6 +18,12 @@ import org.deuce.transaction.norec.field.ShortFieldAccess;
 import org.deuce.transaction.norec.field.Field.Type;
 import org.deuce.transaction.norec.ReadSet;
 import org.deuce.transaction.norec.WriteSet;
+import org.deuce.transaction.stats.AbortCause;
+import org.deuce.transaction.stats.Recorder;
+import org.deuce.transaction.stats.Statistics;
+import org.deuce.transaction.util.AbortChannel;
+import org.deuce.transaction.util.GroupCommit;
+import org.deuce.transaction.util.IrrevocableAccessLock;
 import org.deuce.transform.commons.Exclude;
 
 /**
@@ -26,7 +32,7 @@ import org.deuce.transform.commons.Exclude;
  * @author Pascal Felber
  */
 @Exclude
-final public class Context implements org.deuce.transaction.Context {
+final public class Context implements AbortCauseContext {
 
 	final private static TransactionException VALIDATE_FAILURE_EXCEPTION =
 		new TransactionException("Fail on validate.");
@@ -35,28 +41,37 @@ final public class Context implements org.deuce.transaction.Context {
 
 	final private static AtomicInteger clock = new AtomicInteger(0);
 
+	// The writers commit in batches that take the global lock once (-Dorg.deuce.transaction.norec.groupcommit=true)
+	final private static boolean GROUP_COMMIT = Boolean.getBoolean("org.deuce.transaction.norec.groupcommit");
+	final private static Combiner combiner = new Combiner();
+	final private GroupCommit.Request<Context> commitRequest = new GroupCommit.Request<Context>(this);
+
 	final private ReadSet readSet = new ReadSet(1024);
 	final private WriteSet writeSet = new WriteSet(32);
 	
 	//Global lock used to allow only one irrevocable transaction solely. 
-	final private static ReentrantReadWriteLock irrevocableAccessLock = new ReentrantReadWriteLock();
+	final private static IrrevocableAccessLock irrevocableAccessLock = new IrrevocableAccessLock();
+	final private IrrevocableAccessLock.Slot irrevocableSlot = irrevocableAccessLock.newSlot();
 	private boolean irrevocableState = false;
 
 	private int timeStamp;
 
+	final private Recorder stats = Recorder.ENABLED ? Statistics.newRecorder(this) : null;
+	final private AbortChannel abortChannel = new AbortChannel();
+
 	public Context() {
 	}
 
 	@Override
-	public void init(int blockId, String metainf) {
-		readSet.clear();
+	public void init(int blockId, int flags, String metainf) {
+		abortChannel.init(blockId);
+		if (Recorder.ENABLED)
+			stats.onStart(blockId);
+		readSet.clear(blockId);
 		writeSet.clear();
 		
 		//Lock according to the transaction irrevocable state
-		if(irrevocableState)
-			irrevocableAccessLock.writeLock().lock();
-		else
-			irrevocableAccessLock.readLock().lock();
+		irrevocableSlot.lock(irrevocableState);
 		
 		do {
 			timeStamp = clock.get();
@@ -65,10 +80,30 @@ final public class Context implements org.deuce.transaction.Context {
 
 	@Override
 	public boolean commit() {
+		boolean committed = commit0();
+		if (!committed)
+			abortChannel.set(AbortCause.COMMIT);
+		if (Recorder.ENABLED) {
+			if (committed)
+				stats.onCommit(readSet.getSize(), writeSet.size());
+			else
+				stats.onAbort(AbortCause.COMMIT);
+		}
+		return committed;
+	}
+
+	private boolean commit0() {
 		try{
 			if (writeSet.isEmpty())
 				return true;
 
+			if (GROUP_COMMIT) {
+				// Fail early, the combiner validates again after the commits batched before ours
+				if (timeStamp != clock.get() && (timeStamp = validate()) < 0)
+					return false;
+				return combiner.commit(commitRequest);
+			}
+
 			// Acquire global lock (make clock odd)
 			while (!clock.compareAndSet(timeStamp, timeStamp | LOCK)) {
 				timeStamp = validate();
@@ -83,20 +118,80 @@ final public class Context implements org.deuce.transaction.Context {
 			return true;
 		}
 		finally{
-			if(irrevocableState){
-				irrevocableState = false;
-				irrevocableAccessLock.writeLock().unlock();
-			}
-			else{
-				irrevocableAccessLock.readLock().unlock();
-			}
+			irrevocableState = false;
+			irrevocableSlot.unlock();
 
 		}
 	}
 
+	/**
+	 * Commits the batches of writers under a single acquisition of the global lock.
+	 */
+	@Exclude
+	private static class Combiner extends GroupCommit<Context> {
+
+		private int timeStamp;
+		private boolean written;
+
+		@Override
+		protected void beginBatch() {
+			// Acquire global lock (make clock odd)
+			int current;
+			do {
+				current = clock.get();
+			} while ((current & LOCK) != 0 || !clock.compareAndSet(current, current | LOCK));
+			timeStamp = current;
+			written = false;
+		}
+
+		@Override
+		protected boolean commit(Context context) {
+			// The reads are still valid if nothing was committed since they were validated
+			if ((written || context.timeStamp != timeStamp) && !context.readSet.validate())
+				return false;
+			// Write values
+			context.writeSet.commit();
+			written = true;
+			return true;
+		}
+
+		@Override
+		protected void endBatch() {
+			// Release global lock (make clock even)
+			clock.set(timeStamp + 2);
+		}
+	}
+
+	/**
+	 * @return the batches of the group commit, see {@link GroupCommit}
+	 */
+	public static GroupCommit<Context> getGroupCommit() {
+		return combiner;
+	}
+
+	/**
+	 * @return the global sequence lock, odd while a writer commits
+	 */
+	public static long getClock() {
+		return clock.get();
+	}
+
 	@Override
 	public void rollback() {
-		irrevocableAccessLock.readLock().unlock();
+		abortChannel.rollback();
+		if (Recorder.ENABLED)
+			stats.onAbort(abortChannel.getCause());
+		irrevocableSlot.unlock();
+	}
+
+	@Override
+	public AbortCause getAbortCause() {
+		return abortChannel.getCause();
+	}
+
+	@Override
+	public int getAbortCount() {
+		return abortChannel.getAborts();
 	}
 
 	@Override
@@ -126,8 +221,10 @@ final public class Context implements org.deuce.transaction.Context {
 		if (f == null) {
 			while (timeStamp != clock.get()) {
 				timeStamp = validate();
-				if (timeStamp < 0)
+				if (timeStamp < 0) {
+					abortChannel.set(AbortCause.READ);
 					throw VALIDATE_FAILURE_EXCEPTION;
+				}
 				f = Field.newFieldAccess(obj, field, type);
 			}
 		}
@@ -293,6 +390,7 @@ final public class Context implements org.deuce.transaction.Context {
 			return;
 
 		irrevocableState = true;
+		abortChannel.set(AbortCause.IRREVOCABLE);
 		throw TransactionException.STATIC_TRANSACTION;
 	}
 }
@@ -12,6 +12,7 @@ import org.deuce.transaction.norec.field.IntFieldAccess;
 import org.deuce.transaction.norec.field.LongFieldAccess;
 import org.deuce.transaction.norec.field.ObjectFieldAccess;
 import org.deuce.transaction.norec.field.ShortFieldAccess;
+import org.deuce.transaction.util.CapacityTuner;
 import org.deuce.transform.commons.Exclude;
 
 /**
@@ -21,11 +22,17 @@ import org.deuce.transform.commons.Exclude;
 public class ReadSet {
 
 	private static final int DEFAULT_CAPACITY = 1024;
+	private static final CapacityTuner.Hints HINTS = new CapacityTuner.Hints();
 
 	private ArrayList<FieldAccess> entries;
+	// The entries the list holds without growing
+	private int capacity;
+	final private CapacityTuner tuner;
 	
 	public ReadSet(int initialCapacity) {
 		entries = new ArrayList<FieldAccess>(initialCapacity);
+		capacity = initialCapacity;
+		tuner = new CapacityTuner(HINTS, initialCapacity);
 	}
 
 	public ReadSet() {
@@ -36,6 +43,24 @@ public class ReadSet {
 		entries.clear();
 	}
 
+	/**
+	 * Clears the read set for the next transaction, sized for its block, see {@link CapacityTuner}.
+	 */
+	public void clear(int atomicBlockId) {
+		int used = entries.size();
+		if (used > capacity)
+			capacity = used; // grown by the list
+		int next = tuner.next(atomicBlockId, used, capacity);
+		if (next < capacity) {
+			entries = new ArrayList<FieldAccess>(next);
+		} else {
+			entries.clear();
+			if (next > capacity)
+				entries.ensureCapacity(next);
+		}
+		capacity = next;
+	}
+
 	public void add(FieldAccess f) {
 		entries.add(f);
 	}
@@ -40,6 +40,10 @@ public class WriteSet {
 		return entries.isEmpty();
 	}
 
+	public int size() {
+		return entries.size();
+	}
+
 	public FieldAccess get(Object obj, long field) {
 		tempFieldAccess.init(obj, field);
 		return entries.get(tempFieldAccess);
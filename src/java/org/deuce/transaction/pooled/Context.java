@@ -0,0 +1,274 @@
+package org.deuce.transaction.pooled;
+
+import org.deuce.transaction.AbortCauseContext;
+import org.deuce.transaction.ContextDelegator;
+import org.deuce.transaction.EarlyReleaseContext;
+import org.deuce.transaction.TransactionException;
+import org.deuce.transaction.stats.AbortCause;
+import org.deuce.transaction.util.AbortChannel;
+import org.deuce.transaction.util.Backoff;
+import org.deuce.transform.commons.Exclude;
+
+/**
+ * Borrows the engine context from a {@link ContextPool} for each top-level transaction instead
+ * of keeping one per thread. The engine contexts preallocate their read sets, write sets and
+ * pools, so with many more threads than processors (e.g. a thread per request) most of them
+ * would sit idle. With pooling only about as many engine contexts as concurrent transactions
+ * exist, and a thread only holds this small decorator.
+ *
+ * The engine context is borrowed when an attempt starts and given back once it commits or aborts,
+ * so a thread whose transaction ends with an exception holds none. A retry borrows from the stripe
+ * of its thread first, so it usually gets the same engine context back. The cause of an abort
+ * and the aborts in a row are kept here for the back-off of the retry loop. A top-level
+ * transaction started while another one runs on the thread (from an unsafe method) uses the same
+ * engine context, as it would without pooling.
+ *
+ * To use it set -Dorg.deuce.transaction.contextClass=org.deuce.transaction.pooled.Context
+ * and name the engine with -Dorg.deuce.transaction.pooled.contextClass (LSA by default).
+ * The number of stripes of the pool is set with -Dorg.deuce.transaction.pooled.stripes (twice
+ * the number of processors by default). The contention managers park instead of spinning, unless
+ * -Dorg.deuce.transaction.backoff.park is set. With an engine supporting blocking retry (TL2 or
+ * LSA) use {@link RetryingContext} instead.
+ *
+ * @see ContextPool
+ * @since 1.4
+ */
+@Exclude
+public class Context implements EarlyReleaseContext, AbortCauseContext {
+
+	final private static String CONTEXT_CLASS_PROPERTY = "org.deuce.transaction.pooled.contextClass";
+	final private static String STRIPES_PROPERTY = "org.deuce.transaction.pooled.stripes";
+
+	final private static Class<? extends org.deuce.transaction.Context> CONTEXT_CLASS = contextClass();
+	final private static ContextPool POOL = new ContextPool(CONTEXT_CLASS,
+			Integer.getInteger(STRIPES_PROPERTY, 2 * Runtime.getRuntime().availableProcessors()));
+
+	static {
+		// Many more threads than processors, a waiting transaction gives its processor away
+		if (System.getProperty(Backoff.PARK_PROPERTY) == null)
+			Backoff.setParks(true);
+	}
+
+	final private ContextPool pool;
+	final private AbortChannel abortChannel = new AbortChannel();
+
+	/** The engine context of the running transaction, <code>null</code> between transactions */
+	org.deuce.transaction.Context delegate = null;
+	/** Set from the start of an attempt until it commits or rolls back */
+	private boolean running = false;
+	/** The number of transactions started while another one was running */
+	private int nesting = 0;
+	/** Set when the engine context waits for a blocking retry, which parks on its next attempt */
+	boolean keep = false;
+	/** Set if the engine context of the last abort told its cause */
+	private boolean abortCauseKnown = false;
+
+	public Context() {
+		this(POOL);
+	}
+
+	public Context(ContextPool pool) {
+		this.pool = pool;
+	}
+
+	@SuppressWarnings("unchecked")
+	private static Class<? extends org.deuce.transaction.Context> contextClass() {
+		String className = System.getProperty(CONTEXT_CLASS_PROPERTY);
+		try {
+			if (className == null)
+				return ContextDelegator.DEFAULT_CONTEXT_CLASS;
+			return (Class<? extends org.deuce.transaction.Context>) Class.forName(className);
+		} catch (Exception e) {
+			throw new TransactionException(e);
+		}
+	}
+
+	/**
+	 * @return the class of the pooled engine contexts
+	 */
+	public static Class<? extends org.deuce.transaction.Context> getContextClass() {
+		return CONTEXT_CLASS;
+	}
+
+	@Override
+	public void init(int atomicBlockId, int flags, String metainf) {
+		if (running) {
+			nesting++;
+		} else {
+			if (delegate == null)
+				delegate = pool.borrow();
+			abortChannel.init(atomicBlockId);
+		}
+		running = true;
+		try {
+			delegate.init(atomicBlockId, flags, metainf);
+		} catch (RuntimeException e) {
+			// The transaction ends here, e.g. interrupted in a blocking retry
+			keep = false;
+			aborted();
+			throw e;
+		}
+		keep = false;
+	}
+
+	@Override
+	public boolean commit() {
+		boolean committed = false;
+		try {
+			committed = delegate.commit();
+		} finally {
+			if (!committed) {
+				aborted();
+			} else if (nesting > 0) {
+				// Back in the enclosing transaction
+				nesting--;
+			} else {
+				running = false;
+				pool.giveBack(delegate);
+				delegate = null;
+			}
+		}
+		return committed;
+	}
+
+	@Override
+	public void rollback() {
+		try {
+			delegate.rollback();
+		} finally {
+			aborted();
+		}
+	}
+
+	/**
+	 * Keeps the cause of the abort and gives the engine context back, unless it is still used by
+	 * the enclosing transaction or by a blocking retry.
+	 */
+	private void aborted() {
+		running = false;
+		abortCauseKnown = delegate instanceof AbortCauseContext;
+		if (abortCauseKnown)
+			abortChannel.set(((AbortCauseContext) delegate).getAbortCause());
+		abortChannel.rollback();
+		if (nesting == 0 && !keep) {
+			pool.giveBack(delegate);
+			delegate = null;
+		}
+	}
+
+	@Override
+	public AbortCause getAbortCause() {
+		return abortCauseKnown ? abortChannel.getCause() : null;
+	}
+
+	@Override
+	public int getAbortCount() {
+		return abortCauseKnown ? abortChannel.getAborts() : 0;
+	}
+
+	@Override
+	public void release(Object obj, long field) {
+		if (delegate instanceof EarlyReleaseContext)
+			((EarlyReleaseContext) delegate).release(obj, field);
+	}
+
+	@Override
+	public void beforeReadAccess(Object obj, long field) {
+		delegate.beforeReadAccess(obj, field);
+	}
+
+	@Override
+	public Object onReadAccess(Object obj, Object value, long field) {
+		return delegate.onReadAccess(obj, value, field);
+	}
+
+	@Override
+	public boolean onReadAccess(Object obj, boolean value, long field) {
+		return delegate.onReadAccess(obj, value, field);
+	}
+
+	@Override
+	public byte onReadAccess(Object obj, byte value, long field) {
+		return delegate.onReadAccess(obj, value, field);
+	}
+
+	@Override
+	public char onReadAccess(Object obj, char value, long field) {
+		return delegate.onReadAccess(obj, value, field);
+	}
+
+	@Override
+	public short onReadAccess(Object obj, short value, long field) {
+		return delegate.onReadAccess(obj, value, field);
+	}
+
+	@Override
+	public int onReadAccess(Object obj, int value, long field) {
+		return delegate.onReadAccess(obj, value, field);
+	}
+
+	@Override
+	public long onReadAccess(Object obj, long value, long field) {
+		return delegate.onReadAccess(obj, value, field);
+	}
+
+	@Override
+	public float onReadAccess(Object obj, float value, long field) {
+		return delegate.onReadAccess(obj, value, field);
+	}
+
+	@Override
+	public double onReadAccess(Object obj, double value, long field) {
+		return delegate.onReadAccess(obj, value, field);
+	}
+
+	@Override
+	public void onWriteAccess(Object obj, Object value, long field) {
+		delegate.onWriteAccess(obj, value, field);
+	}
+
+	@Override
+	public void onWriteAccess(Object obj, boolean value, long field) {
+		delegate.onWriteAccess(obj, value, field);
+	}
+
+	@Override
+	public void onWriteAccess(Object obj, byte value, long field) {
+		delegate.onWriteAccess(obj, value, field);
+	}
+
+	@Override
+	public void onWriteAccess(Object obj, char value, long field) {
+		delegate.onWriteAccess(obj, value, field);
+	}
+
+	@Override
+	public void onWriteAccess(Object obj, short value, long field) {
+		delegate.onWriteAccess(obj, value, field);
+	}
+
+	@Override
+	public void onWriteAccess(Object obj, int value, long field) {
+		delegate.onWriteAccess(obj, value, field);
+	}
+
+	@Override
+	public void onWriteAccess(Object obj, long value, long field) {
+		delegate.onWriteAccess(obj, value, field);
+	}
+
+	@Override
+	public void onWriteAccess(Object obj, float value, long field) {
+		delegate.onWriteAccess(obj, value, field);
+	}
+
+	@Override
+	public void onWriteAccess(Object obj, double value, long field) {
+		delegate.onWriteAccess(obj, value, field);
+	}
+
+	@Override
+	public void onIrrevocableAccess() {
+		delegate.onIrrevocableAccess();
+	}
+}
@@ -0,0 +1,90 @@
+package org.deuce.transaction.pooled;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import org.deuce.transaction.Context;
+import org.deuce.transaction.TransactionException;
+import org.deuce.transform.commons.Exclude;
+
+/**
+ * A pool of engine contexts, striped by thread so that the threads running on a processor mostly
+ * hit their own stripe. Each stripe is a small array of slots taken and filled with atomic
+ * swaps, nothing is allocated once the pool is warm. A thread whose stripe is empty (or full)
+ * moves on to the next stripes, a context is only created when the whole pool is empty and
+ * dropped when it is full: the engine contexts are expensive to build.
+ *
+ * @since 1.4
+ */
+@Exclude
+public class ContextPool {
+
+	final private static int SLOTS = 8;
+
+	final private Class<? extends Context> contextClass;
+	final private AtomicReferenceArray<Context> slots;
+	final private int stripeMask;
+
+	/**
+	 * @param contextClass the engine context class, with a public no-argument constructor
+	 * @param stripes number of stripes, rounded up to a power of two
+	 */
+	public ContextPool(Class<? extends Context> contextClass, int stripes) {
+		int size = 1;
+		while (size < stripes)
+			size <<= 1;
+		this.contextClass = contextClass;
+		this.slots = new AtomicReferenceArray<Context>(size * SLOTS);
+		this.stripeMask = size - 1;
+	}
+
+	/**
+	 * @return a pooled context, looked for first in the stripe of the current thread, or a new one
+	 */
+	public Context borrow() {
+		int start = stripe();
+		int length = slots.length();
+		for (int n = 0; n < length; n++) {
+			int i = (start + n) & (length - 1);
+			if (slots.get(i) != null) {
+				Context context = slots.getAndSet(i, null);
+				if (context != null)
+					return context;
+			}
+		}
+		try {
+			return contextClass.newInstance();
+		} catch (Exception e) {
+			throw new TransactionException(e);
+		}
+	}
+
+	/**
+	 * Returns a context that is not running a transaction, to the stripe of the current thread if it has room.
+	 */
+	public void giveBack(Context context) {
+		int start = stripe();
+		int length = slots.length();
+		for (int n = 0; n < length; n++) {
+			int i = (start + n) & (length - 1);
+			if (slots.get(i) == null && slots.compareAndSet(i, null, context))
+				return;
+		}
+	}
+
+	/**
+	 * @return the number of contexts in the pool
+	 */
+	public int size() {
+		int size = 0;
+		for (int i = 0; i < slots.length(); i++) {
+			if (slots.get(i) != null)
+				size++;
+		}
+		return size;
+	}
+
+	private int stripe() {
+		long id = Thread.currentThread().getId();
+		return ((int) (id ^ (id >>> 32)) & stripeMask) * SLOTS;
+	}
+}
@@ -0,0 +1,50 @@
+package org.deuce.transaction.pooled;
+
+import org.deuce.transaction.RetryContext;
+import org.deuce.transaction.TransactionException;
+import org.deuce.transform.commons.Exclude;
+
+/**
+ * A pooled {@link Context} that forwards the blocking retry and the alternatives of
+ * {@link org.deuce.OrElse} to an engine supporting them (TL2 or LSA). The retrying transaction
+ * keeps its engine context, it parks in it on the next attempt.
+ *
+ * To use it set -Dorg.deuce.transaction.contextClass=org.deuce.transaction.pooled.RetryingContext
+ *
+ * @since 1.4
+ */
+@Exclude
+public class RetryingContext extends Context implements RetryContext {
+
+	public RetryingContext() {
+		super();
+	}
+
+	public RetryingContext(ContextPool pool) {
+		super(pool);
+	}
+
+	@Override
+	public void retry() {
+		if (delegate instanceof RetryContext) {
+			((RetryContext) delegate).retry();
+			keep = true;
+		}
+	}
+
+	@Override
+	public int beginAlternative() {
+		if (delegate instanceof RetryContext)
+			return ((RetryContext) delegate).beginAlternative();
+		return -1;
+	}
+
+	@Override
+	public void endAlternative(int savepoint, boolean retried) {
+		if (delegate instanceof RetryContext) {
+			((RetryContext) delegate).endAlternative(savepoint, retried);
+			keep = false; // the alternative did not wait
+		} else if (retried) // the writes can't be rolled back alone, run the whole transaction again
+			throw TransactionException.STATIC_TRANSACTION;
+	}
+}
@@ -0,0 +1,235 @@
+package org.deuce.transaction.scheduler;
+
+import org.deuce.transaction.AbortCauseContext;
+import org.deuce.transaction.ContextDelegator;
+import org.deuce.transaction.EarlyReleaseContext;
+import org.deuce.transaction.RetryContext;
+import org.deuce.transaction.TransactionException;
+import org.deuce.transaction.stats.AbortCause;
+import org.deuce.transform.commons.Exclude;
+
+/**
+ * Adds the {@link Scheduler} in front of any engine: each transaction is scheduled in
+ * {@link #init(int, int, String)}, before the engine starts it, and reported to the scheduler
+ * once it committed or aborted. The other calls go straight to the engine, the early release,
+ * the blocking retry, the alternatives of {@link org.deuce.OrElse} and the abort causes included
+ * when the engine supports them.
+ *
+ * To use it set -Dorg.deuce.transaction.contextClass=org.deuce.transaction.scheduler.Context
+ * and name the scheduled engine with -Dorg.deuce.transaction.scheduler.contextClass
+ * (LSA by default).
+ *
+ * @see Scheduler
+ */
+@Exclude
+public class Context implements EarlyReleaseContext, RetryContext, AbortCauseContext {
+
+	final private static String CONTEXT_CLASS_PROPERTY = "org.deuce.transaction.scheduler.contextClass";
+
+	final private org.deuce.transaction.Context delegate;
+
+	/** The block of the running attempt, <code>null</code> between attempts */
+	private Scheduler.Block block = null;
+	/** The enemy block the running attempt is queued behind */
+	private Scheduler.Block enemy = null;
+
+	public Context() {
+		this(newDelegate());
+	}
+
+	public Context(org.deuce.transaction.Context delegate) {
+		this.delegate = delegate;
+	}
+
+	private static org.deuce.transaction.Context newDelegate() {
+		String className = System.getProperty(CONTEXT_CLASS_PROPERTY);
+		try {
+			if (className == null)
+				return ContextDelegator.DEFAULT_CONTEXT_CLASS.newInstance();
+			return (org.deuce.transaction.Context) Class.forName(className).newInstance();
+		} catch (Exception e) {
+			throw new TransactionException(e);
+		}
+	}
+
+	@Override
+	public void init(int atomicBlockId, int flags, String metainf) {
+		if (block != null) // the previous attempt was left without a commit or a rollback
+			end(false);
+		Scheduler.Block current = Scheduler.getBlock(atomicBlockId);
+		enemy = Scheduler.begin(current);
+		block = current;
+		delegate.init(atomicBlockId, flags, metainf);
+	}
+
+	@Override
+	public boolean commit() {
+		boolean committed = false;
+		try {
+			committed = delegate.commit();
+		} finally {
+			end(committed);
+		}
+		return committed;
+	}
+
+	@Override
+	public void rollback() {
+		try {
+			delegate.rollback();
+		} finally {
+			// rollback might be called more than once in a row
+			if (block != null)
+				end(false);
+		}
+	}
+
+	private void end(boolean committed) {
+		Scheduler.Block current = block;
+		Scheduler.Block queuedBehind = enemy;
+		block = null;
+		enemy = null;
+		Scheduler.end(current, queuedBehind, committed);
+	}
+
+	@Override
+	public void release(Object obj, long field) {
+		if (delegate instanceof EarlyReleaseContext)
+			((EarlyReleaseContext) delegate).release(obj, field);
+	}
+
+	@Override
+	public void retry() {
+		if (delegate instanceof RetryContext)
+			((RetryContext) delegate).retry();
+	}
+
+	@Override
+	public int beginAlternative() {
+		if (delegate instanceof RetryContext)
+			return ((RetryContext) delegate).beginAlternative();
+		return -1;
+	}
+
+	@Override
+	public void endAlternative(int savepoint, boolean retried) {
+		if (delegate instanceof RetryContext)
+			((RetryContext) delegate).endAlternative(savepoint, retried);
+		else if (retried) // the writes can't be rolled back alone, run the whole transaction again
+			throw TransactionException.STATIC_TRANSACTION;
+	}
+
+	@Override
+	public AbortCause getAbortCause() {
+		if (delegate instanceof AbortCauseContext)
+			return ((AbortCauseContext) delegate).getAbortCause();
+		return null;
+	}
+
+	@Override
+	public int getAbortCount() {
+		if (delegate instanceof AbortCauseContext)
+			return ((AbortCauseContext) delegate).getAbortCount();
+		return 0;
+	}
+
+	@Override
+	public void beforeReadAccess(Object obj, long field) {
+		delegate.beforeReadAccess(obj, field);
+	}
+
+	@Override
+	public Object onReadAccess(Object obj, Object value, long field) {
+		return delegate.onReadAccess(obj, value, field);
+	}
+
+	@Override
+	public boolean onReadAccess(Object obj, boolean value, long field) {
+		return delegate.onReadAccess(obj, value, field);
+	}
+
+	@Override
+	public byte onReadAccess(Object obj, byte value, long field) {
+		return delegate.onReadAccess(obj, value, field);
+	}
+
+	@Override
+	public char onReadAccess(Object obj, char value, long field) {
+		return delegate.onReadAccess(obj, value, field);
+	}
+
+	@Override
+	public short onReadAccess(Object obj, short value, long field) {
+		return delegate.onReadAccess(obj, value, field);
+	}
+
+	@Override
+	public int onReadAccess(Object obj, int value, long field) {
+		return delegate.onReadAccess(obj, value, field);
+	}
+
+	@Override
+	public long onReadAccess(Object obj, long value, long field) {
+		return delegate.onReadAccess(obj, value, field);
+	}
+
+	@Override
+	public float onReadAccess(Object obj, float value, long field) {
+		return delegate.onReadAccess(obj, value, field);
+	}
+
+	@Override
+	public double onReadAccess(Object obj, double value, long field) {
+		return delegate.onReadAccess(obj, value, field);
+	}
+
+	@Override
+	public void onWriteAccess(Object obj, Object value, long field) {
+		delegate.onWriteAccess(obj, value, field);
+	}
+
+	@Override
+	public void onWriteAccess(Object obj, boolean value, long field) {
+		delegate.onWriteAccess(obj, value, field);
+	}
+
+	@Override
+	public void onWriteAccess(Object obj, byte value, long field) {
+		delegate.onWriteAccess(obj, value, field);
+	}
+
+	@Override
+	public void onWriteAccess(Object obj, char value, long field) {
+		delegate.onWriteAccess(obj, value, field);
+	}
+
+	@Override
+	public void onWriteAccess(Object obj, short value, long field) {
+		delegate.onWriteAccess(obj, value, field);
+	}
+
+	@Override
+	public void onWriteAccess(Object obj, int value, long field) {
+		delegate.onWriteAccess(obj, value, field);
+	}
+
+	@Override
+	public void onWriteAccess(Object obj, long value, long field) {
+		delegate.onWriteAccess(obj, value, field);
+	}
+
+	@Override
+	public void onWriteAccess(Object obj, float value, long field) {
+		delegate.onWriteAccess(obj, value, field);
+	}
+
+	@Override
+	public void onWriteAccess(Object obj, double value, long field) {
+		delegate.onWriteAccess(obj, value, field);
+	}
+
+	@Override
+	public void onIrrevocableAccess() {
+		delegate.onIrrevocableAccess();
+	}
+}
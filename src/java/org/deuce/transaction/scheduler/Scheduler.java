@@ -0,0 +1,204 @@
+package org.deuce.transaction.scheduler;
+
+import java.util.Arrays;
+import java.util.Formatter;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.deuce.transform.commons.Exclude;
+
+/**
+ * Proactive transaction scheduler keyed by atomic block, in the spirit of CAR-STM and Shrink.
+ *
+ * The scheduler learns per atomic block how often its transactions abort (the contention
+ * intensity, a moving average of the attempts outcome) and which block most likely made them
+ * abort (the predicted enemy: the block of the last transaction that committed before the abort).
+ * Once the intensity of a block goes over the threshold, its transactions are queued behind the
+ * predicted enemy before they start: they take the queue of the enemy block, so they run one at
+ * a time, and wait for the running transactions of the enemy block to drain.
+ *
+ * The learned state is updated without synchronization, the scheduler only needs a good guess.
+ *
+ * @see Context
+ */
+@Exclude
+public class Scheduler {
+
+	final private static String THRESHOLD_PROPERTY = "org.deuce.transaction.scheduler.threshold";
+	final private static String WAIT_PROPERTY = "org.deuce.transaction.scheduler.wait";
+
+	/** The intensity is kept in 1/1024 */
+	final private static int INTENSITY_ONE = 1024;
+	/** Intensity above which the transactions of a block are queued, by default half the attempts abort */
+	final private static int THRESHOLD = Integer.getInteger(THRESHOLD_PROPERTY, INTENSITY_ONE / 2);
+	/** Maximum number of yields a queued transaction waits for its enemy to drain */
+	final private static int MAX_WAIT = Integer.getInteger(WAIT_PROPERTY, 1000);
+
+	final private static int NO_BLOCK = -1;
+
+	private static volatile Block[] blocks = new Block[64];
+	private static volatile int lastCommitted = NO_BLOCK;
+
+	private Scheduler() {}
+
+	/**
+	 * The scheduling state and the metrics of an atomic block.
+	 */
+	@Exclude
+	final static class Block {
+		final int id;
+		/** Number of running transactions of the block */
+		final AtomicInteger active = new AtomicInteger();
+		/** Transactions predicted to conflict with the block run one at a time */
+		final ReentrantLock queue = new ReentrantLock();
+		volatile int intensity = 0;
+		volatile int enemy = NO_BLOCK;
+
+		final AtomicLong commits = new AtomicLong();
+		final AtomicLong aborts = new AtomicLong();
+		final AtomicLong queued = new AtomicLong();
+
+		Block(int id) {
+			this.id = id;
+		}
+	}
+
+	static Block getBlock(int atomicBlockId) {
+		Block[] current = blocks;
+		if (atomicBlockId < current.length) {
+			Block block = current[atomicBlockId];
+			if (block != null)
+				return block;
+		}
+		return newBlock(atomicBlockId);
+	}
+
+	private static synchronized Block newBlock(int atomicBlockId) {
+		Block[] current = blocks;
+		if (atomicBlockId >= current.length) {
+			int length = current.length;
+			while (length <= atomicBlockId)
+				length <<= 1;
+			current = Arrays.copyOf(current, length);
+		}
+		Block block = current[atomicBlockId];
+		if (block == null) {
+			block = new Block(atomicBlockId);
+			current[atomicBlockId] = block;
+		}
+		blocks = current; // publish
+		return block;
+	}
+
+	/**
+	 * Called before a transaction of the block starts, queues it behind its predicted enemy
+	 * when the block is contended.
+	 *
+	 * @param block the block of the transaction
+	 * @return the block whose queue was taken, to be passed to {@link #end(Block, Block, boolean)}, or <code>null</code>
+	 */
+	static Block begin(Block block) {
+		Block enemy = null;
+		int enemyId = block.enemy;
+		if (block.intensity > THRESHOLD && enemyId != NO_BLOCK) {
+			enemy = getBlock(enemyId);
+			enemy.queue.lock();
+			block.queued.incrementAndGet();
+			for (int i = MAX_WAIT; i > 0 && enemy.active.get() > 0; i--)
+				Thread.yield();
+		}
+		block.active.incrementAndGet();
+		return enemy;
+	}
+
+	/**
+	 * Called once the transaction attempt committed or aborted.
+	 *
+	 * @param block the block of the transaction
+	 * @param enemy the value returned by {@link #begin(Block)}
+	 * @param committed <code>true</code> if the attempt committed
+	 */
+	static void end(Block block, Block enemy, boolean committed) {
+		block.active.decrementAndGet();
+		int intensity = block.intensity;
+		if (committed) {
+			block.commits.incrementAndGet();
+			block.intensity = (intensity * 3) >> 2;
+			if (lastCommitted != block.id)
+				lastCommitted = block.id;
+		} else {
+			block.aborts.incrementAndGet();
+			block.intensity = (intensity * 3 + INTENSITY_ONE) >> 2;
+			int last = lastCommitted;
+			if (last != NO_BLOCK)
+				block.enemy = last;
+		}
+		if (enemy != null)
+			enemy.queue.unlock();
+	}
+
+	/** @return the number of transactions of the block that were queued before they started */
+	public static long getQueued(int atomicBlockId) {
+		return getBlock(atomicBlockId).queued.get();
+	}
+
+	/** @return the number of aborted attempts of the block */
+	public static long getAborted(int atomicBlockId) {
+		return getBlock(atomicBlockId).aborts.get();
+	}
+
+	/** @return the number of committed transactions of the block */
+	public static long getCommitted(int atomicBlockId) {
+		return getBlock(atomicBlockId).commits.get();
+	}
+
+	/** @return the predicted enemy of the block, or -1 if it never aborted */
+	public static int getEnemy(int atomicBlockId) {
+		return getBlock(atomicBlockId).enemy;
+	}
+
+	public static long getTotalQueued() {
+		long sum = 0;
+		for (Block block : blocks)
+			if (block != null)
+				sum += block.queued.get();
+		return sum;
+	}
+
+	public static long getTotalAborted() {
+		long sum = 0;
+		for (Block block : blocks)
+			if (block != null)
+				sum += block.aborts.get();
+		return sum;
+	}
+
+	public static long getTotalCommitted() {
+		long sum = 0;
+		for (Block block : blocks)
+			if (block != null)
+				sum += block.commits.get();
+		return sum;
+	}
+
+	/**
+	 * @return the queued/aborted/committed counts of every block that ran, one line per block
+	 */
+	public static String getDetailedStatistics() {
+		StringBuilder sb = new StringBuilder("\n\n");
+		sb.append("Scheduler Statistics:\n");
+		sb.append("=====================\n");
+		Formatter formatter = new Formatter(sb, Locale.US);
+		formatter.format("  %-8s %12s %12s %12s %10s %6s%n", "Block", "Committed", "Aborted", "Queued", "Intensity", "Enemy");
+		for (Block block : blocks) {
+			if (block == null || (block.commits.get() == 0 && block.aborts.get() == 0))
+				continue;
+			formatter.format("  %-8d %12d %12d %12d %10.2f %6d%n", block.id, block.commits.get(),
+					block.aborts.get(), block.queued.get(), (double) block.intensity / INTENSITY_ONE, block.enemy);
+		}
+		formatter.format("  %-8s %12d %12d %12d%n", "Total", getTotalCommitted(), getTotalAborted(), getTotalQueued());
+		return sb.toString();
+	}
+}
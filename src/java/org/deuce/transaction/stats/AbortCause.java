@@ -0,0 +1,26 @@
+package org.deuce.transaction.stats;
+
+import org.deuce.transform.commons.Exclude;
+
+/**
+ * Why a transaction attempt did not commit, as reported by the engines to {@link Statistics}.
+ *
+ * @since 1.4
+ */
+@Exclude
+public enum AbortCause {
+	/** A read found the field locked or newer than the snapshot, or the snapshot could not be extended */
+	READ,
+	/** A write could not acquire its lock, or found the field changed since it was read */
+	WRITE,
+	/** The commit failed to lock its write set or to validate its read set */
+	COMMIT,
+	/** Killed by the contention manager of another transaction */
+	KILLED,
+	/** Restarted to run irrevocably */
+	IRREVOCABLE,
+	/** A read-only snapshot needed an old version that was already discarded */
+	SNAPSHOT,
+	/** Rolled back for any other reason: an explicit abort, a retry, or an exception thrown by the block */
+	EXPLICIT
+}
@@ -0,0 +1,173 @@
+package org.deuce.transaction.stats;
+
+import java.io.PrintStream;
+import java.lang.ref.WeakReference;
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+import org.deuce.reflection.UnsafeHolder;
+import org.deuce.transform.commons.Exclude;
+import org.deuce.transform.core.ExternalFieldsHolderClass;
+
+/**
+ * Reports how many read, write and array barriers each instrumented method executes, to find the
+ * methods worth marking {@link org.deuce.Unsafe @Unsafe} or {@link Exclude @Exclude}, or
+ * restructuring.
+ *
+ * Enabled with -Dorg.deuce.transaction.barriers=true, the transformer then adds to the fields
+ * holder of each class a counter per method and kind of barrier, incremented by the barriers of
+ * the transactional copy of the method. Without the option no counter is generated at all. The
+ * counters are plain static fields, so concurrent increments may be lost: the counts are meant to
+ * rank the methods, not to be exact. The methods with the most barriers are printed to the
+ * standard error at shutdown, the number set with -Dorg.deuce.transaction.barriers.report (20 by
+ * default).
+ *
+ * @since 1.4
+ */
+@Exclude
+public class BarrierProfile {
+
+	final public static boolean ENABLED = Boolean.getBoolean("org.deuce.transaction.barriers");
+
+	final public static int READ = 0;
+	final public static int WRITE = 1;
+	final public static int ARRAY = 2;
+	final private static String[] KINDS = { "READ", "WRITE", "ARRAY" };
+
+	final private static int REPORT_SIZE = Integer.getInteger("org.deuce.transaction.barriers.report", 20);
+
+	@Exclude
+	private static class Report extends Thread {
+		@Override
+		public void run() {
+			report(System.err, REPORT_SIZE);
+		}
+	}
+
+	@Exclude
+	private static class Instrumented {
+		final WeakReference<ClassLoader> loader;
+		final String className;
+
+		Instrumented(ClassLoader loader, String className) {
+			this.loader = new WeakReference<ClassLoader>(loader);
+			this.className = className;
+		}
+	}
+
+	final private static List<Instrumented> classes = new ArrayList<Instrumented>();
+
+	static {
+		if (ENABLED)
+			Runtime.getRuntime().addShutdownHook(new Report());
+	}
+
+	/**
+	 * @return the name of the static field holding the name and descriptor of the i-th counted
+	 * method of a class
+	 */
+	public static String getMethodField(int method) {
+		return "__BARRIERS_" + method + "__";
+	}
+
+	/**
+	 * @return the name of the static counter of a kind of barrier in the i-th counted method of a
+	 * class
+	 */
+	public static String getCounterField(int method, int kind) {
+		return "__BARRIERS_" + method + "_" + KINDS[kind] + "__";
+	}
+
+	/**
+	 * Records a class the agent instrumented, to read its counters in the reports.
+	 * @param className the internal name of the class
+	 */
+	public static void register(ClassLoader loader, String className) {
+		synchronized (classes) {
+			classes.add(new Instrumented(loader, className.replace('/', '.')));
+		}
+	}
+
+	/**
+	 * @param count number of methods to return
+	 * @return the methods that executed the most barriers, the most first
+	 */
+	public static List<MethodBarriers> getTopMethods(int count) {
+		List<Instrumented> registered;
+		synchronized (classes) {
+			registered = new ArrayList<Instrumented>(classes);
+		}
+		List<MethodBarriers> methods = new ArrayList<MethodBarriers>();
+		for (Instrumented instrumented : registered) {
+			ClassLoader loader = instrumented.loader.get();
+			if (loader == null)
+				continue; // unloaded
+			Class<?> holder = loadedHolder(loader, instrumented.className);
+			if (holder != null)
+				readCounters(holder, instrumented.className, methods);
+		}
+		Collections.sort(methods, new Comparator<MethodBarriers>() {
+			@Override
+			public int compare(MethodBarriers a, MethodBarriers b) {
+				return a.getTotal() < b.getTotal() ? 1 : (a.getTotal() == b.getTotal() ? 0 : -1);
+			}
+		});
+		return methods.size() > count ? methods.subList(0, count) : methods;
+	}
+
+	/**
+	 * Prints the methods that executed the most barriers.
+	 */
+	public static void report(PrintStream out, int count) {
+		List<MethodBarriers> methods = getTopMethods(count);
+		if (methods.isEmpty())
+			return;
+		out.println("Barriers executed by method (reads/writes/arrays):");
+		for (MethodBarriers method : methods)
+			out.println("  " + method);
+	}
+
+	// The class holding the counters, if it was initialized; reading them must not initialize it
+	private static Class<?> loadedHolder(ClassLoader loader, String className) {
+		String[] names = { className, ExternalFieldsHolderClass.getFieldsHolderName(className) };
+		for (String name : names) {
+			try {
+				Class<?> c = Class.forName(name, false, loader);
+				if (UnsafeHolder.getUnsafe().shouldBeInitialized(c))
+					continue;
+				c.getDeclaredField(getMethodField(0));
+				return c;
+			} catch (ClassNotFoundException e) {
+				// Instrumented online, the counters are in the class
+			} catch (NoSuchFieldException e) {
+				// No barriers in the class, or the counters are in its fields holder
+			}
+		}
+		return null;
+	}
+
+	private static void readCounters(Class<?> holder, String className, List<MethodBarriers> methods) {
+		try {
+			for (int method = 0; ; method++) {
+				Field methodField = holder.getDeclaredField(getMethodField(method));
+				methodField.setAccessible(true);
+				long[] counts = new long[KINDS.length];
+				for (int kind = 0; kind < counts.length; kind++) {
+					Field counter = holder.getDeclaredField(getCounterField(method, kind));
+					counter.setAccessible(true);
+					counts[kind] = counter.getLong(null);
+				}
+				if (counts[READ] + counts[WRITE] + counts[ARRAY] != 0)
+					methods.add(new MethodBarriers(className, (String) methodField.get(null),
+							counts[READ], counts[WRITE], counts[ARRAY]));
+			}
+		} catch (NoSuchFieldException e) {
+			// Past the last counted method
+		} catch (IllegalAccessException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+}
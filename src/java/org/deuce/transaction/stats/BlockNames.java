@@ -0,0 +1,34 @@
+package org.deuce.transaction.stats;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.deuce.transform.commons.Exclude;
+
+/**
+ * The names of the atomic blocks by Id, registered as the transformers assign the Ids. Only the
+ * blocks instrumented in this JVM are known, the blocks instrumented offline have no name.
+ *
+ * @since 1.4
+ */
+@Exclude
+public class BlockNames {
+
+	final private static ConcurrentHashMap<Integer, String> names = new ConcurrentHashMap<Integer, String>();
+
+	/**
+	 * @param atomicBlockId the Id the transformer assigned to the block
+	 * @param className internal name of the class of the atomic method
+	 * @param methodName name of the atomic method
+	 */
+	public static void register(int atomicBlockId, String className, String methodName) {
+		names.put(atomicBlockId, className.replace('/', '.') + "." + methodName);
+	}
+
+	/**
+	 * @return the atomic method of the block, or "block " and its Id if unknown
+	 */
+	public static String getName(int atomicBlockId) {
+		String name = names.get(atomicBlockId);
+		return name != null ? name : "block " + atomicBlockId;
+	}
+}
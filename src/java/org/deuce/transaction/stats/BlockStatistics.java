@@ -0,0 +1,112 @@
+package org.deuce.transaction.stats;
+
+import org.deuce.transform.commons.Exclude;
+
+/**
+ * A snapshot of the counters of an atomic block (or of all of them), summed over the contexts.
+ *
+ * @since 1.4
+ */
+@Exclude
+final public class BlockStatistics {
+
+	final private int atomicBlockId;
+	final private long[] counters;
+
+	BlockStatistics(int atomicBlockId, long[] counters) {
+		this.atomicBlockId = atomicBlockId;
+		this.counters = counters;
+	}
+
+	/**
+	 * @return the atomic block Id, or -1 for the totals of all the blocks
+	 */
+	public int getAtomicBlockId() {
+		return atomicBlockId;
+	}
+
+	/**
+	 * @return the number of attempts started, retries included
+	 */
+	public long getStarts() {
+		return counters[Recorder.STARTS];
+	}
+
+	public long getCommits() {
+		return counters[Recorder.COMMITS];
+	}
+
+	/**
+	 * @return the number of attempts started right after an aborted attempt of the same block
+	 */
+	public long getRetries() {
+		return counters[Recorder.RETRIES];
+	}
+
+	public long getAborts() {
+		long aborts = 0;
+		for (int i = Recorder.ABORTS; i < Recorder.FIELDS; i++)
+			aborts += counters[i];
+		return aborts;
+	}
+
+	public long getAborts(AbortCause cause) {
+		return counters[Recorder.ABORTS + cause.ordinal()];
+	}
+
+	/**
+	 * @return the average number of read set entries of the committed attempts
+	 */
+	public double getAverageReadSetSize() {
+		return average(counters[Recorder.READ_SET]);
+	}
+
+	/**
+	 * @return the average number of write set entries of the committed attempts
+	 */
+	public double getAverageWriteSetSize() {
+		return average(counters[Recorder.WRITE_SET]);
+	}
+
+	/**
+	 * @return the largest read set of the committed attempts
+	 */
+	public long getMaxReadSetSize() {
+		return counters[Recorder.MAX_READ_SET];
+	}
+
+	/**
+	 * @return the largest write set of the committed attempts
+	 */
+	public long getMaxWriteSetSize() {
+		return counters[Recorder.MAX_WRITE_SET];
+	}
+
+	void addTo(long[] totals) {
+		for (int i = 0; i < Recorder.FIELDS; i++)
+			Recorder.merge(totals, i, counters[i]);
+	}
+
+	private double average(long total) {
+		long commits = getCommits();
+		return commits == 0 ? 0 : (double) total / commits;
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder();
+		sb.append(atomicBlockId < 0 ? "all blocks" : "block " + atomicBlockId);
+		sb.append(": starts=").append(getStarts());
+		sb.append(" commits=").append(getCommits());
+		sb.append(" retries=").append(getRetries());
+		sb.append(" aborts=").append(getAborts());
+		for (AbortCause cause : AbortCause.values()) {
+			long aborts = getAborts(cause);
+			if (aborts != 0)
+				sb.append(' ').append(cause.name().toLowerCase()).append('=').append(aborts);
+		}
+		sb.append(String.format(" reads=%.1f (max %d) writes=%.1f (max %d)", getAverageReadSetSize(),
+				getMaxReadSetSize(), getAverageWriteSetSize(), getMaxWriteSetSize()));
+		return sb.toString();
+	}
+}
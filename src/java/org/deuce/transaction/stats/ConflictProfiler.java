@@ -0,0 +1,202 @@
+package org.deuce.transaction.stats;
+
+import java.io.PrintStream;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.deuce.reflection.AddressUtil;
+import org.deuce.transform.commons.Exclude;
+import org.deuce.transform.commons.util.Util;
+import org.deuce.transform.core.ExternalFieldsHolderClass;
+
+/**
+ * Samples the aborts caused by a conflict on a field, and reports the fields and atomic blocks
+ * with the most conflicts.
+ *
+ * Enabled with -Dorg.deuce.transaction.conflicts=N along with the statistics, each context then
+ * samples one in N of its field conflicts. A sample keeps the class of the object and the address
+ * the instrumented code passed; the field is named only in the reports, by matching the address
+ * against the synthetic address fields the transformer adds to the class, or to its fields holder
+ * when instrumented offline. The top fields are printed to the standard error at shutdown, the
+ * number set with -Dorg.deuce.transaction.conflicts.report (20 by default).
+ *
+ * @see Recorder#setAbortCause(AbortCause, int, Object, long)
+ * @since 1.4
+ */
+@Exclude
+public class ConflictProfiler {
+
+	final public static int SAMPLING = Integer.getInteger("org.deuce.transaction.conflicts", 0);
+	final public static boolean ENABLED = Statistics.ENABLED && SAMPLING > 0;
+
+	// Sites past the cap are not sampled, their samples would only dilute the report
+	final private static int MAX_SITES = 1 << 12;
+	final private static int REPORT_SIZE = Integer.getInteger("org.deuce.transaction.conflicts.report", 20);
+
+	/**
+	 * A sampled field in an atomic block, as passed by the instrumented code.
+	 */
+	@Exclude
+	private static class Site {
+		final Class<?> type;
+		final boolean isStatic;
+		final long field; // -1 for the array elements
+		final int atomicBlockId;
+
+		Site(Class<?> type, boolean isStatic, long field, int atomicBlockId) {
+			this.type = type;
+			this.isStatic = isStatic;
+			this.field = field;
+			this.atomicBlockId = atomicBlockId;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (!(obj instanceof Site))
+				return false;
+			Site other = (Site) obj;
+			return type == other.type && isStatic == other.isStatic && field == other.field
+					&& atomicBlockId == other.atomicBlockId;
+		}
+
+		@Override
+		public int hashCode() {
+			return (type.hashCode() * 31 + (int) (field ^ (field >>> 32))) * 31 + atomicBlockId;
+		}
+	}
+
+	@Exclude
+	private static class Report extends Thread {
+		@Override
+		public void run() {
+			report(System.err, REPORT_SIZE);
+		}
+	}
+
+	final private static ConcurrentHashMap<Site, AtomicLong> samples = new ConcurrentHashMap<Site, AtomicLong>();
+
+	static {
+		if (ENABLED)
+			Runtime.getRuntime().addShutdownHook(new Report());
+	}
+
+	/**
+	 * Records a sampled conflict.
+	 * @param obj the object of the field, the static field base for a static field
+	 * @param field the address of the field
+	 * @param atomicBlockId the block of the aborted transaction
+	 */
+	static void sample(Object obj, long field, int atomicBlockId) {
+		if (obj == null)
+			return;
+		Site site;
+		if (obj instanceof Class) // The static field base
+			site = new Site((Class<?>) obj, true, field, atomicBlockId);
+		else if (obj.getClass().isArray())
+			site = new Site(obj.getClass(), false, -1, atomicBlockId);
+		else
+			site = new Site(obj.getClass(), false, field, atomicBlockId);
+		AtomicLong count = samples.get(site);
+		if (count == null) {
+			if (samples.size() >= MAX_SITES)
+				return;
+			AtomicLong first = samples.putIfAbsent(site, count = new AtomicLong());
+			if (first != null)
+				count = first;
+		}
+		count.incrementAndGet();
+	}
+
+	/**
+	 * @param count number of fields to return
+	 * @return the fields with the most sampled conflicts, per atomic block, the most contended first
+	 */
+	public static List<FieldConflict> getTopConflicts(int count) {
+		List<FieldConflict> conflicts = new ArrayList<FieldConflict>();
+		for (Map.Entry<Site, AtomicLong> entry : samples.entrySet()) {
+			Site site = entry.getKey();
+			String className, fieldName;
+			if (site.field == -1) {
+				className = site.type.getComponentType().getName();
+				fieldName = "[]";
+			} else {
+				className = site.type.getName();
+				fieldName = fieldName(site.type, site.isStatic, site.field);
+			}
+			conflicts.add(new FieldConflict(className, fieldName, site.atomicBlockId, entry.getValue().get()));
+		}
+		Collections.sort(conflicts, new Comparator<FieldConflict>() {
+			@Override
+			public int compare(FieldConflict a, FieldConflict b) {
+				return a.getSamples() < b.getSamples() ? 1 : (a.getSamples() == b.getSamples() ? 0 : -1);
+			}
+		});
+		return conflicts.size() > count ? conflicts.subList(0, count) : conflicts;
+	}
+
+	/**
+	 * Prints the fields with the most sampled conflicts.
+	 */
+	public static void report(PrintStream out, int count) {
+		List<FieldConflict> conflicts = getTopConflicts(count);
+		if (conflicts.isEmpty())
+			return;
+		out.println("Conflicts sampled 1 in " + SAMPLING + ", by field and atomic block:");
+		for (FieldConflict conflict : conflicts)
+			out.println("  " + conflict);
+	}
+
+	/**
+	 * Discards the samples.
+	 */
+	public static void reset() {
+		samples.clear();
+	}
+
+	// Searches the field of the class, or of its superclasses for an instance field
+	private static String fieldName(Class<?> type, boolean isStatic, long address) {
+		for (Class<?> c = type; c != null; c = isStatic ? null : c.getSuperclass()) {
+			for (Field field : c.getDeclaredFields()) {
+				if (field.isSynthetic() || Modifier.isStatic(field.getModifiers()) != isStatic)
+					continue;
+				if (address(c, field) == address)
+					return field.getName();
+			}
+		}
+		return "@" + address;
+	}
+
+	private static long address(Class<?> c, Field field) {
+		String addressField = Util.getAddressField(field.getName());
+		Long address = readAddress(c, addressField);
+		if (address == null) {
+			try {
+				Class<?> holder = Class.forName(ExternalFieldsHolderClass.getFieldsHolderName(c.getName()),
+						true, c.getClassLoader());
+				address = readAddress(holder, addressField);
+			} catch (ClassNotFoundException e) {
+				// Instrumented online, or not instrumented
+			}
+		}
+		return address != null ? address : AddressUtil.getAddress(field);
+	}
+
+	private static Long readAddress(Class<?> c, String addressField) {
+		try {
+			Field field = c.getDeclaredField(addressField);
+			field.setAccessible(true);
+			return field.getLong(null);
+		} catch (NoSuchFieldException e) {
+			return null;
+		} catch (IllegalAccessException e) {
+			return null;
+		}
+	}
+}
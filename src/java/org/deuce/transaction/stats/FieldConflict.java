@@ -0,0 +1,58 @@
+package org.deuce.transaction.stats;
+
+import org.deuce.transform.commons.Exclude;
+
+/**
+ * The sampled conflicts on a field in an atomic block, see {@link ConflictProfiler}.
+ *
+ * @since 1.4
+ */
+@Exclude
+public class FieldConflict {
+
+	final private String className;
+	final private String fieldName;
+	final private int atomicBlockId;
+	final private long samples;
+
+	FieldConflict(String className, String fieldName, int atomicBlockId, long samples) {
+		this.className = className;
+		this.fieldName = fieldName;
+		this.atomicBlockId = atomicBlockId;
+		this.samples = samples;
+	}
+
+	/**
+	 * @return the class declaring the field, or the component type for an array element
+	 */
+	public String getClassName() {
+		return className;
+	}
+
+	/**
+	 * @return the field name, "[]" for an array element
+	 */
+	public String getFieldName() {
+		return fieldName;
+	}
+
+	public int getAtomicBlockId() {
+		return atomicBlockId;
+	}
+
+	public String getAtomicBlockName() {
+		return BlockNames.getName(atomicBlockId);
+	}
+
+	/**
+	 * @return the number of sampled aborts on the field in the block
+	 */
+	public long getSamples() {
+		return samples;
+	}
+
+	@Override
+	public String toString() {
+		return className + (fieldName.equals("[]") ? "" : ".") + fieldName + " in " + getAtomicBlockName() + ": " + samples;
+	}
+}
@@ -0,0 +1,162 @@
+package org.deuce.transaction.stats;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+import org.deuce.transform.commons.Exclude;
+
+/**
+ * The Flight Recorder events, only loaded when {@link TransactionEvents} emits them, so the JVMs
+ * without Flight Recorder never link against jdk.jfr.
+ *
+ * @since 1.4
+ */
+@Exclude
+final class FlightEvents {
+
+	private FlightEvents() {
+	}
+
+	@Exclude
+	@Name("org.deuce.TransactionBegin")
+	@Label("Transaction Begin")
+	@Category("Deuce STM")
+	@StackTrace(false)
+	public static class Begin extends Event {
+		@Label("Atomic Block")
+		String atomicBlock;
+		@Label("Atomic Block Id")
+		int atomicBlockId;
+		@Label("Retry")
+		@Description("The previous attempt of the block aborted")
+		boolean retry;
+	}
+
+	@Exclude
+	@Name("org.deuce.TransactionCommit")
+	@Label("Transaction Commit")
+	@Category("Deuce STM")
+	@StackTrace(false)
+	public static class Commit extends Event {
+		@Label("Atomic Block")
+		String atomicBlock;
+		@Label("Atomic Block Id")
+		int atomicBlockId;
+		@Label("Read Set Size")
+		int readSetSize;
+		@Label("Write Set Size")
+		int writeSetSize;
+		@Label("Latency")
+		@Description("From the start of the first attempt, the retries included")
+		@Timespan(Timespan.NANOSECONDS)
+		long latency;
+	}
+
+	@Exclude
+	@Name("org.deuce.TransactionAbort")
+	@Label("Transaction Abort")
+	@Category("Deuce STM")
+	@StackTrace(false)
+	public static class Abort extends Event {
+		@Label("Atomic Block")
+		String atomicBlock;
+		@Label("Atomic Block Id")
+		int atomicBlockId;
+		@Label("Cause")
+		String cause;
+		@Label("Lock Stripe")
+		@Description("The lock stripe of the conflict, -1 if unknown")
+		int stripe;
+	}
+
+	@Exclude
+	@Name("org.deuce.TransactionIrrevocable")
+	@Label("Transaction Irrevocable")
+	@Description("A transaction restarts to run irrevocably")
+	@Category("Deuce STM")
+	public static class Irrevocable extends Event {
+		@Label("Atomic Block")
+		String atomicBlock;
+		@Label("Atomic Block Id")
+		int atomicBlockId;
+	}
+
+	@Exclude
+	@Name("org.deuce.TransactionExtend")
+	@Label("Transaction Extend")
+	@Description("An LSA transaction extends its snapshot")
+	@Category("Deuce STM")
+	@StackTrace(false)
+	public static class Extend extends Event {
+		@Label("Atomic Block")
+		String atomicBlock;
+		@Label("Atomic Block Id")
+		int atomicBlockId;
+		@Label("Extended")
+		boolean extended;
+		@Label("Snapshot")
+		long snapshot;
+		@Label("Validation")
+		@Timespan(Timespan.NANOSECONDS)
+		long validation;
+	}
+
+	static void begin(int atomicBlockId, boolean retry) {
+		Begin event = new Begin();
+		if (event.shouldCommit()) {
+			event.atomicBlock = BlockNames.getName(atomicBlockId);
+			event.atomicBlockId = atomicBlockId;
+			event.retry = retry;
+			event.commit();
+		}
+	}
+
+	static void commit(int atomicBlockId, int readSetSize, int writeSetSize, long latency) {
+		Commit event = new Commit();
+		if (event.shouldCommit()) {
+			event.atomicBlock = BlockNames.getName(atomicBlockId);
+			event.atomicBlockId = atomicBlockId;
+			event.readSetSize = readSetSize;
+			event.writeSetSize = writeSetSize;
+			event.latency = latency;
+			event.commit();
+		}
+	}
+
+	static void abort(int atomicBlockId, AbortCause cause, int stripe) {
+		Abort event = new Abort();
+		if (event.shouldCommit()) {
+			event.atomicBlock = BlockNames.getName(atomicBlockId);
+			event.atomicBlockId = atomicBlockId;
+			event.cause = cause.name();
+			event.stripe = stripe;
+			event.commit();
+		}
+	}
+
+	static void irrevocable(int atomicBlockId) {
+		Irrevocable event = new Irrevocable();
+		if (event.shouldCommit()) {
+			event.atomicBlock = BlockNames.getName(atomicBlockId);
+			event.atomicBlockId = atomicBlockId;
+			event.commit();
+		}
+	}
+
+	static void extend(int atomicBlockId, boolean extended, long snapshot, long validation) {
+		Extend event = new Extend();
+		if (event.shouldCommit()) {
+			event.atomicBlock = BlockNames.getName(atomicBlockId);
+			event.atomicBlockId = atomicBlockId;
+			event.extended = extended;
+			event.snapshot = snapshot;
+			event.validation = validation;
+			event.commit();
+		}
+	}
+}
@@ -0,0 +1,64 @@
+package org.deuce.transaction.stats;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import org.deuce.transform.commons.Exclude;
+
+/**
+ * Approximate counts of the conflicts on the most contended lock stripes, in a fixed table.
+ * Each slot holds a stripe and its count. A conflict on another stripe mapped to the same slot
+ * takes one off the count, and takes the slot once the count drops to zero, so a stripe that
+ * keeps conflicting stays while the occasional ones pass through. Only the aborts update it.
+ *
+ * @since 1.4
+ */
+@Exclude
+final class HotStripes {
+
+	private static final int SIZE = 1 << 10;
+
+	// The stripe + 1 held by each slot, 0 when empty
+	final private AtomicIntegerArray stripes = new AtomicIntegerArray(SIZE);
+	final private AtomicLongArray counts = new AtomicLongArray(SIZE);
+
+	void add(int stripe) {
+		int key = stripe + 1;
+		int slot = (stripe * 0x9E3779B9) >>> 22; // top 10 bits
+		int current = stripes.get(slot);
+		if (current == key) {
+			counts.incrementAndGet(slot);
+			return;
+		}
+		if (current == 0 || counts.decrementAndGet(slot) <= 0) {
+			if (stripes.compareAndSet(slot, current, key))
+				counts.set(slot, 1);
+		}
+	}
+
+	Map<Integer, Long> top(int count) {
+		List<long[]> entries = new ArrayList<long[]>();
+		for (int slot = 0; slot < SIZE; slot++) {
+			int key = stripes.get(slot);
+			long conflicts = counts.get(slot);
+			if (key != 0 && conflicts > 0)
+				entries.add(new long[] { key - 1, conflicts });
+		}
+		Collections.sort(entries, new Comparator<long[]>() {
+			@Override
+			public int compare(long[] a, long[] b) {
+				return a[1] < b[1] ? 1 : (a[1] == b[1] ? 0 : -1);
+			}
+		});
+		Map<Integer, Long> top = new LinkedHashMap<Integer, Long>();
+		for (int i = 0; i < count && i < entries.size(); i++)
+			top.put((int) entries.get(i)[0], entries.get(i)[1]);
+		return top;
+	}
+}
@@ -0,0 +1,164 @@
+package org.deuce.transaction.stats;
+
+import org.deuce.transform.commons.Exclude;
+
+/**
+ * A snapshot of the latencies of an atomic block, from the first start of a transaction to its
+ * commit, the retries included, summed over the contexts.
+ *
+ * The buckets are log-linear as in HdrHistogram: the values below 64 ns are exact, then each
+ * power of two is split in 32 buckets, so a latency is known within about 3%, up to 2^40 ns
+ * (some 18 minutes, the longer ones count in the last bucket).
+ *
+ * @since 1.4
+ */
+@Exclude
+final public class LatencyHistogram {
+
+	private static final int EXACT_BITS = 6;
+	private static final int HALF = 1 << (EXACT_BITS - 1);
+	private static final int MAX_BIT = 39;
+	static final int BUCKETS = (MAX_BIT - EXACT_BITS + 3) * HALF;
+
+	final private int atomicBlockId;
+	final private long[] counts;
+	final private long count;
+
+	LatencyHistogram(int atomicBlockId, long[] counts) {
+		this.atomicBlockId = atomicBlockId;
+		this.counts = counts;
+		long count = 0;
+		for (long c : counts)
+			count += c;
+		this.count = count;
+	}
+
+	/**
+	 * @return the bucket of a latency
+	 */
+	static int bucket(long nanos) {
+		if (nanos < (1 << EXACT_BITS))
+			return nanos < 0 ? 0 : (int) nanos;
+		int bit = 63 - Long.numberOfLeadingZeros(nanos);
+		if (bit > MAX_BIT)
+			return BUCKETS - 1;
+		int shift = bit - EXACT_BITS + 1;
+		return shift * HALF + (int) (nanos >>> shift);
+	}
+
+	// The lowest latency of a bucket
+	private static long lowest(int bucket) {
+		if (bucket < (1 << EXACT_BITS))
+			return bucket;
+		int shift = bucket / HALF - 1;
+		return (long) (bucket % HALF + HALF) << shift;
+	}
+
+	// The highest latency of a bucket
+	private static long highest(int bucket) {
+		return bucket == BUCKETS - 1 ? Long.MAX_VALUE : lowest(bucket + 1) - 1;
+	}
+
+	public int getAtomicBlockId() {
+		return atomicBlockId;
+	}
+
+	public String getAtomicBlockName() {
+		return BlockNames.getName(atomicBlockId);
+	}
+
+	/**
+	 * @return the number of committed transactions
+	 */
+	public long getCount() {
+		return count;
+	}
+
+	/**
+	 * @param percentile between 0 and 100
+	 * @return the latency in nanoseconds that the given percentage of the transactions didn't
+	 * exceed, the highest value of its bucket, 0 if there are none
+	 */
+	public long getValueAtPercentile(double percentile) {
+		if (count == 0)
+			return 0;
+		long rank = Math.max(1, (long) Math.ceil(count * Math.min(percentile, 100) / 100));
+		long seen = 0;
+		for (int bucket = 0; bucket < counts.length; bucket++) {
+			seen += counts[bucket];
+			if (seen >= rank)
+				return highest(bucket);
+		}
+		return highest(counts.length - 1);
+	}
+
+	/**
+	 * @return the highest latency in nanoseconds, within its bucket
+	 */
+	public long getMax() {
+		return getValueAtPercentile(100);
+	}
+
+	/**
+	 * @return the mean latency in nanoseconds, from the middle of the buckets
+	 */
+	public double getMean() {
+		if (count == 0)
+			return 0;
+		double sum = 0;
+		for (int bucket = 0; bucket < counts.length; bucket++) {
+			if (counts[bucket] != 0)
+				sum += counts[bucket] * ((lowest(bucket) + (double) Math.min(highest(bucket), lowest(bucket) << 1)) / 2);
+		}
+		return sum / count;
+	}
+
+	/**
+	 * @param earlier a snapshot of the same block taken before, e.g. at the end of a warmup
+	 * @return the latencies recorded since the earlier snapshot
+	 */
+	public LatencyHistogram since(LatencyHistogram earlier) {
+		long[] counts = this.counts.clone();
+		if (earlier != null) {
+			for (int bucket = 0; bucket < counts.length; bucket++)
+				counts[bucket] -= earlier.counts[bucket];
+		}
+		return new LatencyHistogram(atomicBlockId, counts);
+	}
+
+	/**
+	 * @param other the latencies of another block
+	 * @return the latencies of both blocks, with the Id -1
+	 */
+	public LatencyHistogram add(LatencyHistogram other) {
+		long[] counts = this.counts.clone();
+		for (int bucket = 0; bucket < counts.length; bucket++)
+			counts[bucket] += other.counts[bucket];
+		return new LatencyHistogram(-1, counts);
+	}
+
+	/**
+	 * @return a histogram without latencies, to add the blocks to
+	 */
+	public static LatencyHistogram empty() {
+		return new LatencyHistogram(-1, new long[BUCKETS]);
+	}
+
+	/**
+	 * @param nanos latencies in nanoseconds, e.g. measured outside of the contexts
+	 * @return a histogram of the given latencies, with the Id -1
+	 */
+	public static LatencyHistogram of(long... nanos) {
+		long[] counts = new long[BUCKETS];
+		for (long latency : nanos)
+			counts[bucket(latency)]++;
+		return new LatencyHistogram(-1, counts);
+	}
+
+	@Override
+	public String toString() {
+		return String.format("count=%d mean=%.1fus p50=%.1fus p99=%.1fus p999=%.1fus max=%.1fus", count,
+				getMean() / 1e3, getValueAtPercentile(50) / 1e3, getValueAtPercentile(99) / 1e3,
+				getValueAtPercentile(99.9) / 1e3, getMax() / 1e3);
+	}
+}
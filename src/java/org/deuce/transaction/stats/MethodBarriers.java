@@ -0,0 +1,67 @@
+package org.deuce.transaction.stats;
+
+import org.deuce.transform.commons.Exclude;
+
+/**
+ * The barriers executed by the transactional copy of a method, see {@link BarrierProfile}.
+ *
+ * @since 1.4
+ */
+@Exclude
+public class MethodBarriers {
+
+	final private String className;
+	final private String method;
+	final private long reads;
+	final private long writes;
+	final private long arrays;
+
+	MethodBarriers(String className, String method, long reads, long writes, long arrays) {
+		this.className = className;
+		this.method = method;
+		this.reads = reads;
+		this.writes = writes;
+		this.arrays = arrays;
+	}
+
+	public String getClassName() {
+		return className;
+	}
+
+	/**
+	 * @return the name and descriptor of the original method
+	 */
+	public String getMethod() {
+		return method;
+	}
+
+	/**
+	 * @return the field reads, static fields included
+	 */
+	public long getReads() {
+		return reads;
+	}
+
+	/**
+	 * @return the field writes, static fields included
+	 */
+	public long getWrites() {
+		return writes;
+	}
+
+	/**
+	 * @return the array element reads and writes
+	 */
+	public long getArrays() {
+		return arrays;
+	}
+
+	public long getTotal() {
+		return reads + writes + arrays;
+	}
+
+	@Override
+	public String toString() {
+		return className + "." + method + ": " + reads + "/" + writes + "/" + arrays;
+	}
+}
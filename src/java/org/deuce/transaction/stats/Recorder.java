@@ -0,0 +1,227 @@
+package org.deuce.transaction.stats;
+
+import java.lang.ref.WeakReference;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import org.deuce.transform.commons.Exclude;
+
+/**
+ * The counters of one context, per atomic block. Only the thread running the context writes
+ * them, with plain reads and ordered stores, so recording costs no atomic instruction; the
+ * snapshots of {@link Statistics} read them from other threads.
+ *
+ * The engines call {@link #onStart(int)} on init, {@link #onCommit(int, int)} or
+ * {@link #onAbort(AbortCause)} when commit returns, and {@link #onAbort(AbortCause)} again on
+ * rollback with the cause their {@link org.deuce.transaction.util.AbortChannel} holds. A
+ * conflict on a field is reported with {@link #onConflict(int, Object, long)} before the abort.
+ *
+ * The latency of a transaction, from the start of its first attempt to its commit, is counted in
+ * a per block {@link LatencyHistogram} of buckets allocated on the first commit of the block.
+ * The recorder also raises the enabled {@link TransactionEvents}. The engines guard their calls
+ * with {@link #ENABLED}, on for either; inside, the counters test {@link Statistics#ENABLED} and
+ * each event its own constant, so the events don't turn the statistics on.
+ *
+ * @since 1.4
+ */
+@Exclude
+final public class Recorder {
+
+	/** <code>true</code> if the engines call their recorder, for the statistics or the events */
+	final public static boolean ENABLED = Statistics.ENABLED || TransactionEvents.ENABLED;
+
+	static final int STARTS = 0;
+	static final int COMMITS = 1;
+	static final int RETRIES = 2;
+	static final int READ_SET = 3;
+	static final int WRITE_SET = 4;
+	static final int MAX_READ_SET = 5; // merged as the largest, not summed
+	static final int MAX_WRITE_SET = 6;
+	static final int ABORTS = 7;
+	static final int FIELDS = ABORTS + AbortCause.values().length;
+
+	// Blocks past the cap share its last slot
+	static final int MAX_BLOCKS = 1 << 16;
+	private static final int INITIAL_BLOCKS = 16;
+
+	final private WeakReference<Object> owner;
+	private volatile AtomicLongArray counters = new AtomicLongArray(INITIAL_BLOCKS * FIELDS);
+	// Per block, the latency buckets, null until the block commits
+	private volatile AtomicLongArray[] latencies = new AtomicLongArray[INITIAL_BLOCKS];
+
+	private int atomicBlockId = -1;
+	private int base = 0;
+	private boolean aborted = false;
+	private int conflictCountdown = 1; // the first conflict is sampled
+	private long firstStart;
+	private int conflictStripe = -1;
+
+	Recorder(Object owner) {
+		this.owner = new WeakReference<Object>(owner);
+	}
+
+	/**
+	 * A transaction attempt of the block starts, a retry if the previous attempt of the same
+	 * block aborted.
+	 */
+	public void onStart(int atomicBlockId) {
+		if (atomicBlockId != this.atomicBlockId) {
+			this.atomicBlockId = atomicBlockId;
+			this.aborted = false;
+			int block = atomicBlockId < 0 ? 0 : Math.min(atomicBlockId, MAX_BLOCKS - 1);
+			base = block * FIELDS;
+			if (Statistics.ENABLED && base + FIELDS > counters.length())
+				grow(block);
+		}
+		if (Statistics.ENABLED) {
+			if (aborted)
+				add(RETRIES, 1);
+			add(STARTS, 1);
+		}
+		if (!aborted)
+			firstStart = System.nanoTime();
+		if (TransactionEvents.BEGIN)
+			TransactionEvents.begin(atomicBlockId, aborted);
+		aborted = false;
+		conflictStripe = -1;
+	}
+
+	/**
+	 * The attempt committed.
+	 * @param readSetSize number of entries of its read set
+	 * @param writeSetSize number of entries of its write set
+	 */
+	public void onCommit(int readSetSize, int writeSetSize) {
+		long nanos = System.nanoTime() - firstStart;
+		if (Statistics.ENABLED) {
+			add(COMMITS, 1);
+			add(READ_SET, readSetSize);
+			add(WRITE_SET, writeSetSize);
+			max(MAX_READ_SET, readSetSize);
+			max(MAX_WRITE_SET, writeSetSize);
+			AtomicLongArray latency = latency(base / FIELDS);
+			int bucket = LatencyHistogram.bucket(nanos);
+			latency.lazySet(bucket, latency.get(bucket) + 1);
+		}
+		if (TransactionEvents.COMMIT)
+			TransactionEvents.commit(atomicBlockId, readSetSize, writeSetSize, nanos);
+	}
+
+	/**
+	 * The attempt aborted, its commit failed or it is rolled back.
+	 */
+	public void onAbort(AbortCause cause) {
+		if (Statistics.ENABLED)
+			add(ABORTS + cause.ordinal(), 1);
+		aborted = true;
+		if (TransactionEvents.ABORT)
+			TransactionEvents.abort(atomicBlockId, cause, conflictStripe);
+		if (TransactionEvents.IRREVOCABLE && cause == AbortCause.IRREVOCABLE)
+			TransactionEvents.irrevocable(atomicBlockId);
+	}
+
+	/**
+	 * The attempt aborts on a conflict on a field guarded by the given lock stripe.
+	 * @param obj the object of the field
+	 * @param field the address of the field
+	 * @see Statistics#getHotStripes(int)
+	 * @see ConflictProfiler
+	 */
+	public void onConflict(int stripe, Object obj, long field) {
+		if (Statistics.ENABLED)
+			Statistics.onConflict(stripe);
+		conflictStripe = stripe;
+		if (ConflictProfiler.ENABLED && --conflictCountdown == 0) {
+			conflictCountdown = ConflictProfiler.SAMPLING;
+			ConflictProfiler.sample(obj, field, atomicBlockId);
+		}
+	}
+
+	private void add(int field, long delta) {
+		AtomicLongArray current = counters;
+		int index = base + field;
+		current.lazySet(index, current.get(index) + delta);
+	}
+
+	private void max(int field, long value) {
+		AtomicLongArray current = counters;
+		int index = base + field;
+		if (value > current.get(index))
+			current.lazySet(index, value);
+	}
+
+	/**
+	 * Merges a counter into the totals, summed or the largest.
+	 */
+	static void merge(long[] totals, int field, long value) {
+		if (field == MAX_READ_SET || field == MAX_WRITE_SET)
+			totals[field] = Math.max(totals[field], value);
+		else
+			totals[field] += value;
+	}
+
+	private void grow(int block) {
+		AtomicLongArray current = counters;
+		int length = current.length();
+		while (length < (block + 1) * FIELDS)
+			length <<= 1;
+		AtomicLongArray grown = new AtomicLongArray(length);
+		for (int i = 0; i < current.length(); i++)
+			grown.set(i, current.get(i));
+		counters = grown; // publish
+	}
+
+	private AtomicLongArray latency(int block) {
+		AtomicLongArray[] current = latencies;
+		if (block < current.length && current[block] != null)
+			return current[block];
+		if (block >= current.length) {
+			int length = current.length;
+			while (length <= block)
+				length <<= 1;
+			AtomicLongArray[] grown = new AtomicLongArray[length];
+			System.arraycopy(current, 0, grown, 0, current.length);
+			current = grown;
+		}
+		AtomicLongArray latency = new AtomicLongArray(LatencyHistogram.BUCKETS);
+		current[block] = latency;
+		latencies = current; // publish
+		return latency;
+	}
+
+	boolean isOwnerAlive() {
+		return owner.get() != null;
+	}
+
+	/**
+	 * Adds the counters of a block to the given totals.
+	 */
+	void addTo(int atomicBlockId, long[] totals) {
+		AtomicLongArray current = counters;
+		int index = atomicBlockId * FIELDS;
+		if (index + FIELDS > current.length())
+			return;
+		for (int i = 0; i < FIELDS; i++)
+			merge(totals, i, current.get(index + i));
+	}
+
+	/**
+	 * Adds the latency buckets of a block to the given totals.
+	 * @return <code>false</code> if the block didn't commit
+	 */
+	boolean addLatencyTo(int atomicBlockId, long[] totals) {
+		AtomicLongArray[] current = latencies;
+		if (atomicBlockId >= current.length || current[atomicBlockId] == null)
+			return false;
+		AtomicLongArray latency = current[atomicBlockId];
+		for (int i = 0; i < LatencyHistogram.BUCKETS; i++)
+			totals[i] += latency.get(i);
+		return true;
+	}
+
+	/**
+	 * @return the number of blocks the counters have room for
+	 */
+	int blocks() {
+		return counters.length() / FIELDS;
+	}
+}
@@ -0,0 +1,202 @@
+package org.deuce.transaction.stats;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.deuce.transform.commons.Exclude;
+
+/**
+ * Transaction statistics shared by the engines: starts, commits, retries, aborts by
+ * {@link AbortCause}, the read and write set sizes and the {@link LatencyHistogram} of each
+ * atomic block.
+ *
+ * Collected with -Dorg.deuce.transaction.stats=true. Each engine context owns a {@link Recorder}
+ * and guards its calls with {@link Recorder#ENABLED}, a constant the JIT folds, so the engines pay
+ * nothing when neither the statistics nor the {@link TransactionEvents} are on. The snapshots sum the recorders of the live contexts and
+ * of the contexts collected since they were created. They are read without locking, from the
+ * registry published on each registration, so monitoring never holds up a new context.
+ *
+ * @see TransactionMonitor
+ * @since 1.4
+ */
+@Exclude
+public class Statistics {
+
+	final public static boolean ENABLED = Boolean.getBoolean("org.deuce.transaction.stats");
+
+	/**
+	 * The recorders of the live contexts and the counters of the collected ones, replaced as a
+	 * whole on each change.
+	 */
+	@Exclude
+	private static class Registry {
+		final Recorder[] live;
+		// Per block, the counters of the recorders whose context was collected
+		final long[][] retired;
+		// Per block, their latency buckets, null if none committed
+		final long[][] retiredLatencies;
+
+		Registry(Recorder[] live, long[][] retired, long[][] retiredLatencies) {
+			this.live = live;
+			this.retired = retired;
+			this.retiredLatencies = retiredLatencies;
+		}
+	}
+
+	private static volatile Registry registry = new Registry(new Recorder[0], new long[0][], new long[0][]);
+	final private static HotStripes hotStripes = new HotStripes();
+
+	static {
+		TransactionMonitor.registerIfEnabled();
+	}
+
+	/**
+	 * Creates the recorder of a context, registered only if the statistics are enabled.
+	 * @param owner the context, its recorder is retired once it is collected
+	 */
+	public static Recorder newRecorder(Object owner) {
+		Recorder recorder = new Recorder(owner);
+		if (!ENABLED) // only raises the events
+			return recorder;
+		synchronized (Statistics.class) {
+			Registry current = registry;
+			// Folds the recorders of the collected contexts, they aren't written anymore
+			List<Recorder> live = new ArrayList<Recorder>(current.live.length + 1);
+			long[][] retired = current.retired;
+			long[][] retiredLatencies = current.retiredLatencies;
+			boolean copied = false;
+			for (Recorder other : current.live) {
+				if (other.isOwnerAlive()) {
+					live.add(other);
+					continue;
+				}
+				if (!copied) {
+					retired = copy(retired, other.blocks());
+					retiredLatencies = copyLatencies(retiredLatencies, other.blocks());
+					copied = true;
+				} else if (other.blocks() > retired.length) {
+					retired = copy(retired, other.blocks());
+					retiredLatencies = copyLatencies(retiredLatencies, other.blocks());
+				}
+				for (int block = 0; block < other.blocks(); block++) {
+					other.addTo(block, retired[block]);
+					long[] latency = retiredLatencies[block] != null ? retiredLatencies[block] : new long[LatencyHistogram.BUCKETS];
+					if (other.addLatencyTo(block, latency))
+						retiredLatencies[block] = latency;
+				}
+			}
+			live.add(recorder);
+			registry = new Registry(live.toArray(new Recorder[live.size()]), retired, retiredLatencies);
+		}
+		return recorder;
+	}
+
+	private static long[][] copy(long[][] retired, int blocks) {
+		long[][] copy = new long[Math.max(blocks, retired.length)][];
+		for (int block = 0; block < copy.length; block++)
+			copy[block] = block < retired.length ? retired[block].clone() : new long[Recorder.FIELDS];
+		return copy;
+	}
+
+	private static long[][] copyLatencies(long[][] retired, int blocks) {
+		long[][] copy = new long[Math.max(blocks, retired.length)][];
+		for (int block = 0; block < retired.length; block++)
+			copy[block] = retired[block] != null ? retired[block].clone() : null;
+		return copy;
+	}
+
+	/**
+	 * @return the statistics of each atomic block that started a transaction, by block Id
+	 */
+	public static Map<Integer, BlockStatistics> getBlockStatistics() {
+		Registry current = registry;
+		Map<Integer, BlockStatistics> blocks = new TreeMap<Integer, BlockStatistics>();
+		int count = current.retired.length;
+		for (Recorder recorder : current.live)
+			count = Math.max(count, recorder.blocks());
+		for (int block = 0; block < count; block++) {
+			long[] totals = sum(current, block);
+			if (totals[Recorder.STARTS] != 0)
+				blocks.put(block, new BlockStatistics(block, totals));
+		}
+		return blocks;
+	}
+
+	/**
+	 * @return the statistics of an atomic block
+	 */
+	public static BlockStatistics getBlockStatistics(int atomicBlockId) {
+		return new BlockStatistics(atomicBlockId, sum(registry, atomicBlockId));
+	}
+
+	/**
+	 * @return the statistics of all the atomic blocks together
+	 */
+	public static BlockStatistics getTotalStatistics() {
+		long[] totals = new long[Recorder.FIELDS];
+		for (BlockStatistics block : getBlockStatistics().values())
+			block.addTo(totals);
+		return new BlockStatistics(-1, totals);
+	}
+
+	/**
+	 * @return the latencies of each atomic block that committed a transaction, by block Id
+	 */
+	public static Map<Integer, LatencyHistogram> getLatencies() {
+		Registry current = registry;
+		Map<Integer, LatencyHistogram> latencies = new TreeMap<Integer, LatencyHistogram>();
+		int count = current.retiredLatencies.length;
+		for (Recorder recorder : current.live)
+			count = Math.max(count, recorder.blocks());
+		for (int block = 0; block < count; block++) {
+			LatencyHistogram latency = new LatencyHistogram(block, sumLatencies(current, block));
+			if (latency.getCount() != 0)
+				latencies.put(block, latency);
+		}
+		return latencies;
+	}
+
+	/**
+	 * @return the latencies of an atomic block
+	 */
+	public static LatencyHistogram getLatency(int atomicBlockId) {
+		return new LatencyHistogram(atomicBlockId, sumLatencies(registry, atomicBlockId));
+	}
+
+	/**
+	 * @param count number of stripes to return
+	 * @return the lock stripes with the most conflicts and their approximate number of conflicts,
+	 * the most contended first
+	 */
+	public static Map<Integer, Long> getHotStripes(int count) {
+		return hotStripes.top(count);
+	}
+
+	static void onConflict(int stripe) {
+		hotStripes.add(stripe);
+	}
+
+	private static long[] sum(Registry current, int block) {
+		long[] totals = new long[Recorder.FIELDS];
+		if (block < current.retired.length) {
+			for (int i = 0; i < Recorder.FIELDS; i++)
+				Recorder.merge(totals, i, current.retired[block][i]);
+		}
+		for (Recorder recorder : current.live)
+			recorder.addTo(block, totals);
+		return totals;
+	}
+
+	private static long[] sumLatencies(Registry current, int block) {
+		long[] totals = new long[LatencyHistogram.BUCKETS];
+		if (block < current.retiredLatencies.length && current.retiredLatencies[block] != null) {
+			for (int i = 0; i < LatencyHistogram.BUCKETS; i++)
+				totals[i] += current.retiredLatencies[block][i];
+		}
+		for (Recorder recorder : current.live)
+			recorder.addLatencyTo(block, totals);
+		return totals;
+	}
+}
@@ -0,0 +1,93 @@
+package org.deuce.transaction.stats;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.deuce.transform.commons.Exclude;
+
+/**
+ * JDK Flight Recorder events of the transactions, to correlate them with the GC pauses and
+ * safepoints of a recording: the start of an attempt, a commit, an abort with its cause and lock
+ * stripe, a restart to run irrevocably and an extension of an LSA snapshot.
+ *
+ * Emitted with -Dorg.deuce.transaction.jfr=begin,commit,abort,irrevocable,extend, or =all. The
+ * events are raised from the {@link Recorder} of the contexts, created when any event is on, and
+ * each site tests its own constant, so a disabled event costs a branch the JIT folds. The events
+ * don't need the {@link Statistics}, which stay off unless enabled too. The events
+ * can be disabled again in the settings of the recording, they are named org.deuce.Transaction*.
+ * On a JVM without Flight Recorder none is emitted.
+ *
+ * @since 1.4
+ */
+@Exclude
+final public class TransactionEvents {
+
+	private static final Set<String> EVENTS = enabledEvents();
+
+	final public static boolean BEGIN = EVENTS.contains("begin");
+	final public static boolean COMMIT = EVENTS.contains("commit");
+	final public static boolean ABORT = EVENTS.contains("abort");
+	final public static boolean IRREVOCABLE = EVENTS.contains("irrevocable");
+	final public static boolean EXTEND = EVENTS.contains("extend");
+	final public static boolean ENABLED = !EVENTS.isEmpty();
+
+	private static Set<String> enabledEvents() {
+		Set<String> events = new HashSet<String>();
+		String property = System.getProperty("org.deuce.transaction.jfr", "");
+		for (String event : property.split(",")) {
+			event = event.trim().toLowerCase();
+			if (event.equals("all") || event.equals("true"))
+				events.addAll(Arrays.asList("begin", "commit", "abort", "irrevocable", "extend"));
+			else if (event.length() > 0 && !event.equals("false"))
+				events.add(event);
+		}
+		if (!events.isEmpty()) {
+			try {
+				Class.forName("jdk.jfr.Event");
+			} catch (ClassNotFoundException e) {
+				System.err.println("Flight Recorder is not supported by this JVM, no transaction event is emitted");
+				events.clear();
+			}
+		}
+		return events;
+	}
+
+	private TransactionEvents() {
+	}
+
+	/**
+	 * An attempt of the block starts.
+	 * @param retry <code>true</code> if the previous attempt of the block aborted
+	 */
+	public static void begin(int atomicBlockId, boolean retry) {
+		FlightEvents.begin(atomicBlockId, retry);
+	}
+
+	/**
+	 * @param latencyNanos from the start of the first attempt
+	 */
+	public static void commit(int atomicBlockId, int readSetSize, int writeSetSize, long latencyNanos) {
+		FlightEvents.commit(atomicBlockId, readSetSize, writeSetSize, latencyNanos);
+	}
+
+	/**
+	 * @param stripe the lock stripe of the conflict, -1 if unknown
+	 */
+	public static void abort(int atomicBlockId, AbortCause cause, int stripe) {
+		FlightEvents.abort(atomicBlockId, cause, stripe);
+	}
+
+	public static void irrevocable(int atomicBlockId) {
+		FlightEvents.irrevocable(atomicBlockId);
+	}
+
+	/**
+	 * An LSA transaction tried to extend its snapshot.
+	 * @param snapshot the clock it extended to
+	 * @param validationNanos the time to validate the read set
+	 */
+	public static void extend(int atomicBlockId, boolean extended, long snapshot, long validationNanos) {
+		FlightEvents.extend(atomicBlockId, extended, snapshot, validationNanos);
+	}
+}
@@ -0,0 +1,288 @@
+package org.deuce.transaction.stats;
+
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.ObjectName;
+
+import org.deuce.transaction.Context;
+import org.deuce.transaction.ContextDelegator;
+import org.deuce.transaction.util.Backoff;
+import org.deuce.transaction.util.Footprint;
+import org.deuce.transaction.util.IrrevocableAccessLock;
+import org.deuce.transform.commons.Exclude;
+
+/**
+ * The JMX view of the STM: the counters and latencies of {@link Statistics}, the engine clock,
+ * the footprint of a context, the irrevocable waits, and the tunables that can be changed while
+ * the application runs (the back-off policy and the retry back-off, the TL2-CM contention
+ * manager, the LSA read-only hint and the default retries).
+ *
+ * Registered once per JVM as org.deuce:type=TransactionMonitor when the statistics are enabled,
+ * or with -Dorg.deuce.transaction.jmx=true for the tunables alone. The counters are read from
+ * the published snapshots and atomic variables, never under a lock the transactions take.
+ *
+ * @since 1.4
+ */
+@Exclude
+public class TransactionMonitor implements TransactionMonitorMXBean {
+
+	final public static String OBJECT_NAME = "org.deuce:type=TransactionMonitor";
+
+	final private static long SAMPLE_NANOS = 1000000000L;
+	final private static int TOP_SIZE = 10;
+	final private static long UNMEASURED = Long.MIN_VALUE;
+
+	/**
+	 * The totals at the start of a sampling interval, with the rates of the interval before.
+	 */
+	@Exclude
+	private static class Sample {
+		final long time;
+		final long commits;
+		final long aborts;
+		final double commitRate;
+		final double abortRate;
+
+		Sample(long time, long commits, long aborts, double commitRate, double abortRate) {
+			this.time = time;
+			this.commits = commits;
+			this.aborts = aborts;
+			this.commitRate = commitRate;
+			this.abortRate = abortRate;
+		}
+	}
+
+	private volatile long contextFootprint = UNMEASURED;
+
+	final private AtomicReference<Sample> sample = new AtomicReference<Sample>(new Sample(System.nanoTime(), 0, 0, 0, 0));
+
+	/**
+	 * Registers the monitor if the statistics or -Dorg.deuce.transaction.jmx are enabled.
+	 */
+	public static void registerIfEnabled() {
+		// Reads the properties rather than Statistics.ENABLED, not to initialize the statistics early
+		if (Boolean.getBoolean("org.deuce.transaction.stats") || Boolean.getBoolean("org.deuce.transaction.jmx"))
+			register();
+	}
+
+	/**
+	 * Registers the monitor with the platform MBean server, unless it is already registered.
+	 */
+	public static void register() {
+		try {
+			ManagementFactory.getPlatformMBeanServer().registerMBean(new TransactionMonitor(), new ObjectName(OBJECT_NAME));
+		} catch (InstanceAlreadyExistsException e) {
+			// Registered by another class loader or an earlier call
+		} catch (Exception e) {
+			e.printStackTrace(); // TODO add logger
+		}
+	}
+
+	@Override
+	public String getContextClass() {
+		return ContextDelegator.getContextClass().getName();
+	}
+
+	@Override
+	public long getStartCount() {
+		return Statistics.getTotalStatistics().getStarts();
+	}
+
+	@Override
+	public long getCommitCount() {
+		return Statistics.getTotalStatistics().getCommits();
+	}
+
+	@Override
+	public long getAbortCount() {
+		return Statistics.getTotalStatistics().getAborts();
+	}
+
+	@Override
+	public long getRetryCount() {
+		return Statistics.getTotalStatistics().getRetries();
+	}
+
+	@Override
+	public double getCommitRate() {
+		return sample().commitRate;
+	}
+
+	@Override
+	public double getAbortRate() {
+		return sample().abortRate;
+	}
+
+	// Starts a new interval once the current one is over, whichever reader gets there first
+	private Sample sample() {
+		Sample current = sample.get();
+		long now = System.nanoTime();
+		long elapsed = now - current.time;
+		if (elapsed < SAMPLE_NANOS)
+			return current;
+		BlockStatistics totals = Statistics.getTotalStatistics();
+		double seconds = elapsed / 1e9;
+		Sample next = new Sample(now, totals.getCommits(), totals.getAborts(),
+				(totals.getCommits() - current.commits) / seconds, (totals.getAborts() - current.aborts) / seconds);
+		sample.compareAndSet(current, next);
+		return sample.get();
+	}
+
+	@Override
+	public Map<String, Long> getAbortCauses() {
+		BlockStatistics totals = Statistics.getTotalStatistics();
+		Map<String, Long> causes = new LinkedHashMap<String, Long>();
+		for (AbortCause cause : AbortCause.values())
+			causes.put(cause.name(), totals.getAborts(cause));
+		return causes;
+	}
+
+	@Override
+	public Map<Integer, Long> getHotStripes() {
+		return Statistics.getHotStripes(TOP_SIZE);
+	}
+
+	@Override
+	public List<String> getTopConflicts() {
+		List<String> conflicts = new ArrayList<String>();
+		for (FieldConflict conflict : ConflictProfiler.getTopConflicts(TOP_SIZE))
+			conflicts.add(conflict.toString());
+		return conflicts;
+	}
+
+	@Override
+	public List<String> getLatencies() {
+		List<String> latencies = new ArrayList<String>();
+		for (LatencyHistogram latency : Statistics.getLatencies().values())
+			latencies.add(latency.getAtomicBlockName() + ": " + latency);
+		return latencies;
+	}
+
+	@Override
+	public double getAverageReadSetSize() {
+		return Statistics.getTotalStatistics().getAverageReadSetSize();
+	}
+
+	@Override
+	public double getAverageWriteSetSize() {
+		return Statistics.getTotalStatistics().getAverageWriteSetSize();
+	}
+
+	@Override
+	public long getMaxReadSetSize() {
+		return Statistics.getTotalStatistics().getMaxReadSetSize();
+	}
+
+	@Override
+	public long getMaxWriteSetSize() {
+		return Statistics.getTotalStatistics().getMaxWriteSetSize();
+	}
+
+	// The engine context, the one the pooled contexts delegate to
+	private static Class<? extends Context> engineContextClass() {
+		Class<? extends Context> contextClass = ContextDelegator.getContextClass();
+		if (org.deuce.transaction.pooled.Context.class.isAssignableFrom(contextClass))
+			contextClass = org.deuce.transaction.pooled.Context.getContextClass();
+		return contextClass;
+	}
+
+	@Override
+	public long getClock() {
+		Class<? extends Context> contextClass = engineContextClass();
+		try {
+			// The engines with a global clock expose it with a static getClock()
+			Method getClock = contextClass.getMethod("getClock");
+			return ((Number) getClock.invoke(null)).longValue();
+		} catch (NoSuchMethodException e) {
+			return -1;
+		} catch (Exception e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	@Override
+	public long getContextFootprint() {
+		// Measured once, each measure creates contexts that the engines may register for good
+		long footprint = contextFootprint;
+		if (footprint == UNMEASURED) {
+			synchronized (this) {
+				if (contextFootprint == UNMEASURED)
+					contextFootprint = Footprint.measure(engineContextClass());
+				footprint = contextFootprint;
+			}
+		}
+		return footprint;
+	}
+
+	@Override
+	public long getIrrevocableWaits() {
+		return IrrevocableAccessLock.getWaits();
+	}
+
+	@Override
+	public double getIrrevocableWaitMillis() {
+		return IrrevocableAccessLock.getWaitNanos() / 1e6;
+	}
+
+	@Override
+	public String getBackoffPolicy() {
+		return Backoff.parks() ? "park" : "spin";
+	}
+
+	@Override
+	public void setBackoffPolicy(String policy) {
+		if ("park".equals(policy))
+			Backoff.setParks(true);
+		else if ("spin".equals(policy))
+			Backoff.setParks(false);
+		else
+			throw new IllegalArgumentException("Unknown backoff policy: " + policy + ", expected park or spin");
+	}
+
+	@Override
+	public int getRetryBackoff() {
+		return Backoff.getMaxRetryBackoff();
+	}
+
+	@Override
+	public void setRetryBackoff(int units) {
+		Backoff.setMaxRetryBackoff(units);
+	}
+
+	@Override
+	public String getContentionManager() {
+		return org.deuce.transaction.tl2cm.Factory.getContentionManager();
+	}
+
+	@Override
+	public void setContentionManager(String cmId) {
+		org.deuce.transaction.tl2cm.Factory.setContentionManager(cmId);
+	}
+
+	@Override
+	public boolean isLsaReadOnlyHint() {
+		return org.deuce.transaction.lsa.Context.isReadOnlyHint();
+	}
+
+	@Override
+	public void setLsaReadOnlyHint(boolean hint) {
+		org.deuce.transaction.lsa.Context.setReadOnlyHint(hint);
+	}
+
+	@Override
+	public int getRetries() {
+		return ContextDelegator.getRetries();
+	}
+
+	@Override
+	public void setRetries(int retries) {
+		ContextDelegator.setRetries(retries);
+	}
+}
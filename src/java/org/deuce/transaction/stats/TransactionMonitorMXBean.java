@@ -0,0 +1,92 @@
+package org.deuce.transaction.stats;
+
+import java.util.List;
+import java.util.Map;
+
+import org.deuce.transform.commons.Exclude;
+
+/**
+ * The live view of the STM, registered as org.deuce:type=TransactionMonitor.
+ *
+ * @see TransactionMonitor
+ * @since 1.4
+ */
+@Exclude
+public interface TransactionMonitorMXBean {
+
+	/** @return the context class of the threads */
+	String getContextClass();
+
+	/** @return the number of transaction attempts started */
+	long getStartCount();
+
+	long getCommitCount();
+
+	long getAbortCount();
+
+	/** @return the number of attempts that followed an aborted attempt of the same block */
+	long getRetryCount();
+
+	/** @return the commits per second over the last sampling interval */
+	double getCommitRate();
+
+	/** @return the aborts per second over the last sampling interval */
+	double getAbortRate();
+
+	/** @return the number of aborts of each {@link AbortCause} */
+	Map<String, Long> getAbortCauses();
+
+	/** @return the lock stripes with the most conflicts, and their approximate conflict counts */
+	Map<Integer, Long> getHotStripes();
+
+	/** @return the fields with the most sampled conflicts, see {@link ConflictProfiler} */
+	List<String> getTopConflicts();
+
+	/** @return the latency percentiles of each atomic block, see {@link LatencyHistogram} */
+	List<String> getLatencies();
+
+	double getAverageReadSetSize();
+
+	double getAverageWriteSetSize();
+
+	/** @return the largest read set of a committed transaction */
+	long getMaxReadSetSize();
+
+	long getMaxWriteSetSize();
+
+	/** @return the global clock of the engine, or -1 if it has none */
+	long getClock();
+
+	/** @return the bytes allocated to create a context of the engine, measured on the first read, or -1 if the JVM can't tell */
+	long getContextFootprint();
+
+	/** @return the number of transactions that waited on the irrevocable mode */
+	long getIrrevocableWaits();
+
+	double getIrrevocableWaitMillis();
+
+	/** @return "spin" or "park" */
+	String getBackoffPolicy();
+
+	void setBackoffPolicy(String policy);
+
+	/** @return the longest back-off of the retry loop after a lock conflict, 0 if it retries at once */
+	int getRetryBackoff();
+
+	void setRetryBackoff(int units);
+
+	/** @return the contention manager of the TL2-CM transactions */
+	String getContentionManager();
+
+	void setContentionManager(String cmId);
+
+	/** @return <code>true</code> if the LSA blocks start read-only */
+	boolean isLsaReadOnlyHint();
+
+	void setLsaReadOnlyHint(boolean hint);
+
+	/** @return the number of attempts of the atomic blocks that don't set their retries */
+	int getRetries();
+
+	void setRetries(int retries);
+}
@@ -0,0 +1,19 @@
+package org.deuce.transaction.swisstm;
+
+import org.deuce.transaction.swisstm.Context;
+import org.deuce.transform.commons.Exclude;
+
+/**
+ * Arbitrates the write/write conflicts, detected when a transaction
+ * writes a stripe whose write lock is owned by another transaction.
+ * 
+ * @author Pascal Felber
+ */
+@Exclude
+public interface ContentionManager {
+
+	final public static int KILL_SELF = 0x00;
+	final public static int KILL_OTHER = 0x01;
+
+	public int arbitrate(Context me, Context other);
+}
@@ -0,0 +1,428 @@
+package org.deuce.transaction.swisstm;
+
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.deuce.transaction.AbortCauseContext;
+import org.deuce.transaction.TransactionException;
+import org.deuce.transaction.stats.AbortCause;
+import org.deuce.transaction.stats.Recorder;
+import org.deuce.transaction.stats.Statistics;
+import org.deuce.transaction.swisstm.field.Field;
+import org.deuce.transaction.swisstm.field.Field.Type;
+import org.deuce.transaction.swisstm.field.WriteFieldAccess;
+import org.deuce.transaction.swisstm.ReadSet;
+import org.deuce.transaction.swisstm.WriteSet;
+import org.deuce.transaction.swisstm.cm.TwoPhaseGreedy;
+import org.deuce.transaction.util.AbortChannel;
+import org.deuce.transaction.util.Backoff;
+import org.deuce.transaction.util.IrrevocableAccessLock;
+import org.deuce.transform.commons.Exclude;
+
+/**
+ * SwissTM implementation (Dragojevic, Guerraoui and Kapalka, PLDI 2009).
+ * 
+ * Write/write conflicts are detected eagerly: the first write of a stripe takes its
+ * write lock, and a conflict on it is arbitrated by the {@link ContentionManager}
+ * (two-phase greedy by default, see {@code org.deuce.transaction.swisstm.cm}).
+ * Read/write conflicts are detected lazily: reads are invisible and validated against
+ * the versions of the stripes, as in LSA, and the read locks are only taken during
+ * the write-back of the committing transaction.
+ */
+@Exclude
+final public class Context implements AbortCauseContext {
+
+	final private static int TX_ACTIVE = 1;
+	final private static int TX_COMMITTING = 2;
+	final private static int TX_KILLED = 3;
+
+	final private static int STATUS_BITS = 2;
+	final private static int STATUS_MASK = (1 << STATUS_BITS) - 1;
+
+	final private static TransactionException WRITE_FAILURE_EXCEPTION =
+		new TransactionException("Fail on write (locked by other transaction).");
+
+	final private static TransactionException EXTEND_FAILURE_EXCEPTION =
+		new TransactionException("Fail on extend.");
+
+	final private static TransactionException KILLED_EXCEPTION =
+		new TransactionException("Transaction has been killed.");
+
+	final private static AtomicInteger clock = new AtomicInteger(0);
+	final private static AtomicInteger greedyClock = new AtomicInteger(0);
+	final private static AtomicInteger threadID = new AtomicInteger(0);
+
+	// Greedy timestamp of a transaction in its timid phase
+	final private static int NO_GREEDY_TIME = Integer.MAX_VALUE;
+	// Number of stripes written before entering the greedy phase
+	final private static int WN = Integer.getInteger("org.deuce.transaction.swisstm.wn", 10);
+	// Busy-wait unit of the randomized back-off after a write/write conflict
+	final private static int BACKOFF = 64;
+	// Successive aborts past which the back-off stops growing, keeps the bound from overflowing
+	final private static int MAX_BACKOFF_ABORTS = 1 << 10;
+
+	final private static ContentionManager cm;
+
+	//Global lock used to allow only one irrevocable transaction solely. 
+	final private static IrrevocableAccessLock irrevocableAccessLock = new IrrevocableAccessLock();
+	final private IrrevocableAccessLock.Slot irrevocableSlot = irrevocableAccessLock.newSlot();
+	private boolean irrevocableState = false;
+
+	final private ReadSet readSet = new ReadSet(1024);
+	final private WriteSet writeSet = new WriteSet(32);
+
+	private int readHash;
+	private int readLock;
+	private Object readValue;
+
+	private int validTime;
+	private int id;
+
+	// Can be accessed (read) by other transactions during contention management
+	private volatile int greedyTime = NO_GREEDY_TIME;
+	final private AtomicInteger status = new AtomicInteger(0);
+	private int writes;
+
+	private int successiveAborts;
+	private boolean backoff;
+	final private Random random;
+
+	final private AbortChannel abortChannel = new AbortChannel();
+	final private Recorder stats = Recorder.ENABLED ? Statistics.newRecorder(this) : null;
+
+	static {
+		// Set contention manager
+		String s = System.getProperty("org.deuce.transaction.swisstm.cm");
+		Object o = null;
+		if (s != null) {
+			try {
+				o = Class.forName(s).newInstance();
+			} catch (Exception e) {
+				System.err.println("Cannot create contention manager: " + s);
+			}
+		}
+		cm = (o != null ? (ContentionManager)o : new TwoPhaseGreedy());
+	}
+
+	public Context() {
+		// Unique identifier among active threads
+		id = threadID.incrementAndGet();
+		random = new Random(id);
+	}
+
+	@Override
+	public void init(int blockId, int flags, String metainf) {
+		abortChannel.init(blockId);
+		if (Recorder.ENABLED)
+			stats.onStart(blockId);
+		readSet.clear();
+		writeSet.clear();
+		
+		//Lock according to the transaction irrevocable state
+		irrevocableSlot.lock(irrevocableState);
+		
+		validTime = clock.get();
+		writes = 0;
+		// New attempt (the counter above the status bits protects from late kills)
+		status.set(((status.get() + (1 << STATUS_BITS)) & ~STATUS_MASK) | TX_ACTIVE);
+	}
+
+	@Override
+	public boolean commit() {
+		try{
+			if (!writeSet.isEmpty()) {
+				int v = status.get();
+				if ((v & STATUS_MASK) != TX_ACTIVE || !status.compareAndSet(v, v + (TX_COMMITTING - TX_ACTIVE))) {
+					// We have been killed
+					abortChannel.set(AbortCause.KILLED);
+					if (Recorder.ENABLED)
+						stats.onAbort(AbortCause.KILLED);
+					abort(true);
+					return false;
+				}
+				writeSet.lock(id);
+				int newClock = clock.incrementAndGet();
+				if (newClock != validTime + 1 && !readSet.validate(id, writeSet)) {
+					abortChannel.set(AbortCause.COMMIT);
+					if (Recorder.ENABLED)
+						stats.onAbort(AbortCause.COMMIT);
+					abort(false);
+					return false;
+				}
+				// Write values and release locks
+				writeSet.commit(newClock);
+			}
+			if (Recorder.ENABLED)
+				stats.onCommit(readSet.getSize(), writeSet.size());
+			greedyTime = NO_GREEDY_TIME;
+			successiveAborts = 0;
+			return true;
+		}
+		finally{
+			irrevocableState = false;
+			irrevocableSlot.unlock();
+
+		}
+	}
+
+	@Override
+	public void rollback() {
+		abortChannel.rollback();
+		if (Recorder.ENABLED)
+			stats.onAbort(abortChannel.getCause());
+		abort(backoff);
+		irrevocableSlot.unlock();
+	}
+
+	@Override
+	public AbortCause getAbortCause() {
+		return abortChannel.getCause();
+	}
+
+	@Override
+	public int getAbortCount() {
+		return abortChannel.getAborts();
+	}
+
+	private void abort(boolean conflict) {
+		// Release locks
+		writeSet.rollback();
+		writeSet.clear();
+		backoff = false;
+		if (successiveAborts < MAX_BACKOFF_ABORTS)
+			successiveAborts++;
+		if (conflict) {
+			// Randomized linear back-off after a write/write conflict
+			int timeToWait = random.nextInt(successiveAborts * BACKOFF);
+			Backoff.pause(timeToWait);
+		}
+	}
+
+	/**
+	 * Requests the abort of the owner of a write lock, if it still owns it.
+	 * The owner notices it on its next access or at commit time.
+	 */
+	private static void kill(Context other, int hash) {
+		int v = other.status.get();
+		if ((v & STATUS_MASK) == TX_ACTIVE && LockTable.getOwner(hash) == other)
+			other.status.compareAndSet(v, v + (TX_KILLED - TX_ACTIVE));
+	}
+
+	private void checkKilled() {
+		if ((status.get() & STATUS_MASK) == TX_KILLED) {
+			backoff = true;
+			abortChannel.set(AbortCause.KILLED);
+			throw KILLED_EXCEPTION;
+		}
+	}
+
+	public int getGreedyTime() {
+		return greedyTime;
+	}
+
+	public int getId() {
+		return id;
+	}
+
+	private boolean extend() {
+		int now = clock.get();
+		if (readSet.validate(id, writeSet)) {
+			validTime = now;
+			return true;
+		}
+		return false;
+	}
+
+	@Override
+	public void beforeReadAccess(Object obj, long field) {
+		readHash = LockTable.hash(obj, field);
+		readLock = LockTable.getLock(readHash);
+	}
+
+	private boolean onReadAccess(Object obj, long field, Type type) {
+		checkKilled();
+		if (LockTable.getOwner(readHash) == this) {
+			// We own the write lock
+			WriteFieldAccess w = writeSet.get(readHash, obj, field);
+			if (w != null) {
+				readValue = w.getValue();
+				return true;
+			}
+		}
+		boolean b = false;
+		while (true) {
+			if (LockTable.isLocked(readLock)) {
+				// Another transaction is writing back the stripe
+				Thread.yield();
+				checkKilled();
+			} else if (readLock > validTime) {
+				// Try to extend snapshot
+				if (!extend()) {
+					abortChannel.set(AbortCause.READ);
+					if (Recorder.ENABLED)
+						stats.onConflict(readHash, obj, field);
+					throw EXTEND_FAILURE_EXCEPTION;
+				}
+				continue;
+			} else {
+				// Re-read timestamp (check for race)
+				int lock = LockTable.getLock(readHash);
+				if (lock == readLock) {
+					// We have read a valid value (in snapshot)
+					readSet.add(obj, field, readHash, lock);
+					return b;
+				}
+			}
+			readLock = LockTable.getLock(readHash);
+			readValue = Field.getValue(obj, field, type);
+			b = true;
+		}
+	}
+
+	private void onWriteAccess(Object obj, long field, Object value, Type type) {
+		checkKilled();
+		int hash = LockTable.hash(obj, field);
+		Context owner = LockTable.getOwner(hash);
+		if (owner == this) {
+			// We already own that lock
+			writeSet.append(hash, obj, field, value, type);
+			return;
+		}
+
+		while (true) {
+			if (owner == null) {
+				if (LockTable.acquire(hash, this))
+					break;
+			} else if (cm.arbitrate(this, owner) == ContentionManager.KILL_OTHER) {
+				// We win: wait for the other transaction to release the lock
+				kill(owner, hash);
+				while (LockTable.getOwner(hash) == owner) {
+					Thread.yield();
+					checkKilled();
+				}
+			} else {
+				backoff = true;
+				abortChannel.set(AbortCause.WRITE);
+				if (Recorder.ENABLED)
+					stats.onConflict(hash, obj, field);
+				throw WRITE_FAILURE_EXCEPTION;
+			}
+			owner = LockTable.getOwner(hash);
+		}
+
+		// Only the owner of the write lock locks the read lock, so it is free
+		int timestamp = LockTable.getLock(hash);
+		writeSet.add(hash, obj, field, value, type, timestamp);
+		if (++writes == WN && greedyTime == NO_GREEDY_TIME) {
+			// Enter the greedy phase
+			greedyTime = greedyClock.incrementAndGet();
+		}
+		if (timestamp > validTime && !extend()) {
+			// The stripe changed since our snapshot
+			abortChannel.set(AbortCause.WRITE);
+			if (Recorder.ENABLED)
+				stats.onConflict(hash, obj, field);
+			throw EXTEND_FAILURE_EXCEPTION;
+		}
+	}
+
+	@Override
+	public Object onReadAccess(Object obj, Object value, long field) {
+		return (onReadAccess(obj, field, Type.OBJECT) ? readValue : value);
+	}
+
+	@Override
+	public boolean onReadAccess(Object obj, boolean value, long field) {
+		return (onReadAccess(obj, field, Type.BOOLEAN) ? (Boolean) readValue : value);
+	}
+
+	@Override
+	public byte onReadAccess(Object obj, byte value, long field) {
+		return (onReadAccess(obj, field, Type.BYTE) ? ((Number) readValue).byteValue() : value);
+	}
+
+	@Override
+	public char onReadAccess(Object obj, char value, long field) {
+		return (onReadAccess(obj, field, Type.CHAR) ? (Character) readValue : value);
+	}
+
+	@Override
+	public short onReadAccess(Object obj, short value, long field) {
+		return (onReadAccess(obj, field, Type.SHORT) ? ((Number) readValue).shortValue() : value);
+	}
+
+	@Override
+	public int onReadAccess(Object obj, int value, long field) {
+		return (onReadAccess(obj, field, Type.INT) ? ((Number) readValue).intValue() : value);
+	}
+
+	@Override
+	public long onReadAccess(Object obj, long value, long field) {
+		return (onReadAccess(obj, field, Type.LONG) ? ((Number) readValue).longValue() : value);
+	}
+
+	@Override
+	public float onReadAccess(Object obj, float value, long field) {
+		return (onReadAccess(obj, field, Type.FLOAT) ? ((Number) readValue).floatValue() : value);
+	}
+
+	@Override
+	public double onReadAccess(Object obj, double value, long field) {
+		return (onReadAccess(obj, field, Type.DOUBLE) ? ((Number) readValue).doubleValue() : value);
+	}
+
+	@Override
+	public void onWriteAccess(Object obj, Object value, long field) {
+		onWriteAccess(obj, field, value, Type.OBJECT);
+	}
+
+	@Override
+	public void onWriteAccess(Object obj, boolean value, long field) {
+		onWriteAccess(obj, field, (Object) value, Type.BOOLEAN);
+	}
+
+	@Override
+	public void onWriteAccess(Object obj, byte value, long field) {
+		onWriteAccess(obj, field, (Object) value, Type.BYTE);
+	}
+
+	@Override
+	public void onWriteAccess(Object obj, char value, long field) {
+		onWriteAccess(obj, field, (Object) value, Type.CHAR);
+	}
+
+	@Override
+	public void onWriteAccess(Object obj, short value, long field) {
+		onWriteAccess(obj, field, (Object) value, Type.SHORT);
+	}
+
+	@Override
+	public void onWriteAccess(Object obj, int value, long field) {
+		onWriteAccess(obj, field, (Object) value, Type.INT);
+	}
+
+	@Override
+	public void onWriteAccess(Object obj, long value, long field) {
+		onWriteAccess(obj, field, (Object) value, Type.LONG);
+	}
+
+	@Override
+	public void onWriteAccess(Object obj, float value, long field) {
+		onWriteAccess(obj, field, (Object) value, Type.FLOAT);
+	}
+
+	@Override
+	public void onWriteAccess(Object obj, double value, long field) {
+		onWriteAccess(obj, field, (Object) value, Type.DOUBLE);
+	}
+
+	@Override
+	public void onIrrevocableAccess() {
+		if(irrevocableState) // already in irrevocable state so no need to restart transaction.
+			return;
+
+		irrevocableState = true;
+		abortChannel.set(AbortCause.IRREVOCABLE);
+		throw TransactionException.STATIC_TRANSACTION;
+	}
+}
@@ -0,0 +1,94 @@
+package org.deuce.transaction.swisstm;
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import org.deuce.transaction.TransactionException;
+import org.deuce.transform.commons.Exclude;
+
+/**
+ * Two locks per stripe, as in SwissTM.
+ * The write lock holds the transaction that wrote the stripe, it is taken on
+ * the first write and detects write/write conflicts eagerly. The read lock is
+ * a versioned lock: it holds the commit time of the last update of the stripe,
+ * and is only locked by the owner of the write lock during its write-back,
+ * so that read/write conflicts are detected lazily by validation.
+ * 
+ * @author Pascal Felber
+ */
+@Exclude
+public class LockTable {
+
+	// Failure transaction 
+	final private static TransactionException FAILURE_EXCEPTION =
+		new TransactionException("Fail on lock (already locked).");
+	
+	final private static int ARRAYSIZE = 1 << 20; // 2^20
+	final private static int MASK = ARRAYSIZE - 1;
+	final private static int LOCK = 1 << 31;
+	final private static int IDMASK = LOCK - 1;
+
+	// Array of 32-bit read locks (versions)
+	final private static AtomicIntegerArray locks = new AtomicIntegerArray(ARRAYSIZE);
+	// Array of write locks (owners)
+	final private static AtomicReferenceArray<Context> owners = new AtomicReferenceArray<Context>(ARRAYSIZE);
+
+	public static int checkLock(int hash, int id) throws TransactionException {
+		assert hash <= MASK;
+		int lock = locks.get(hash);
+		if ((lock & LOCK) != 0) {
+			if ((lock & IDMASK) != id) {
+				// Already locked by other thread
+				throw FAILURE_EXCEPTION;
+			} else {
+				// We already own this lock
+				return -1;
+			}
+		}
+
+		// Return old timestamp (lock bit is not set)
+		return lock;
+	}
+
+	/** Returns the read lock as is, locked or not (never throws). */
+	public static int getLock(int hash) {
+		assert hash <= MASK;
+		return locks.get(hash);
+	}
+
+	public static boolean isLocked(int lock) {
+		return (lock & LOCK) != 0;
+	}
+
+	/** Locks a stripe for write-back, the caller owns its write lock. */
+	public static void lock(int hash, int id) {
+		assert hash <= MASK;
+		locks.set(hash, id | LOCK);
+	}
+
+	public static void setAndReleaseLock(int hash, int lock) {
+		assert hash <= MASK;
+		locks.set(hash, lock);
+	}
+
+	public static Context getOwner(int hash) {
+		assert hash <= MASK;
+		return owners.get(hash);
+	}
+
+	/** @return true if the write lock was free and is now owned by the context */
+	public static boolean acquire(int hash, Context context) {
+		assert hash <= MASK;
+		return owners.compareAndSet(hash, null, context);
+	}
+
+	public static void release(int hash) {
+		assert hash <= MASK;
+		owners.set(hash, null);
+	}
+
+	public static int hash(Object obj, long field) {
+		int hash = System.identityHashCode(obj) + (int) field;
+		return hash & MASK;
+	}
+}
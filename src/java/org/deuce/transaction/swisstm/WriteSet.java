@@ -0,0 +1,118 @@
+package org.deuce.transaction.swisstm;
+
+import org.deuce.transaction.swisstm.field.Field.Type;
+import org.deuce.transaction.swisstm.field.WriteFieldAccess;
+import org.deuce.transaction.swisstm.LockTable;
+import org.deuce.transform.commons.Exclude;
+import org.deuce.trove.THashMap;
+
+/**
+ * Redo log, with one entry per write lock owned.
+ * 
+ * @author Pascal Felber
+ */
+@Exclude
+public class WriteSet {
+
+	private static final int DEFAULT_CAPACITY = 16;
+
+	final private THashMap<Integer, WriteFieldAccess> entries;
+	private boolean locked;
+
+	public WriteSet(int initialCapacity) {
+		entries = new THashMap<Integer, WriteFieldAccess>(initialCapacity);
+	}
+
+	public WriteSet() {
+		this(DEFAULT_CAPACITY);
+	}
+
+	public void clear() {
+		entries.clear();
+		locked = false;
+	}
+
+	public boolean isEmpty() {
+		return entries.isEmpty();
+	}
+
+	public int size() {
+		return entries.size();
+	}
+
+	public WriteFieldAccess get(int hash, Object obj, long field) {
+		// Return value from existing entry
+		WriteFieldAccess w = entries.get(hash);
+		while (w != null) {
+			// Check if we have already written that field
+			if (w.getReference() == obj && w.getField() == field)
+				return w;
+			w = w.getNext();
+		}
+		return null;
+	}
+
+	public void append(int hash, Object obj, long field, Object value, Type type) {
+		// Append to existing entry
+		WriteFieldAccess w = entries.get(hash);
+		while (w != null) {
+			// Check if we have already written that field
+			if (w.getReference() == obj && w.getField() == field) {
+				// Update written value
+				w.setValue(value);
+				return;
+			}
+			WriteFieldAccess next = w.getNext();
+			if (next == null) {
+				// We did not write this field (we must add it to write set)
+				w.setNext(new WriteFieldAccess(obj, field, type, value, hash, 0));
+				return;
+			}
+			w = next;
+		}
+	}
+
+	public void add(int hash, Object obj, long field, Object value, Type type, int timestamp) {
+		// Add new entry
+		entries.put(hash, new WriteFieldAccess(obj, field, type, value, hash, timestamp));
+	}
+
+	/**
+	 * @return the version of a stripe when its write lock was acquired
+	 */
+	public int getLock(int hash) {
+		return entries.get(hash).getLock();
+	}
+
+	/**
+	 * Locks the read locks of the stripes written, before the write-back.
+	 */
+	public void lock(int id) {
+		for (WriteFieldAccess w : entries.values())
+			LockTable.lock(w.getHash(), id);
+		locked = true;
+	}
+
+	public void commit(int timestamp) {
+		// Write values and release locks
+		for (WriteFieldAccess w : entries.values()) {
+			int hash = w.getHash();
+			do {
+				w.writeField();
+				w = w.getNext();
+			} while (w != null);
+			LockTable.setAndReleaseLock(hash, timestamp);
+			LockTable.release(hash);
+		}
+	}
+
+	public void rollback() {
+		// Release locks
+		for (WriteFieldAccess w : entries.values()) {
+			if (locked)
+				LockTable.setAndReleaseLock(w.getHash(), w.getLock());
+			LockTable.release(w.getHash());
+		}
+		locked = false;
+	}
+}
@@ -0,0 +1,24 @@
+package org.deuce.transaction.swisstm.cm;
+
+import org.deuce.transform.commons.Exclude;
+import org.deuce.transaction.swisstm.Context;
+import org.deuce.transaction.swisstm.ContentionManager;
+
+/**
+ * Two-phase greedy contention manager of SwissTM.
+ * 
+ * A transaction gets a greedy timestamp once it has written
+ * {@code org.deuce.transaction.swisstm.wn} stripes, and keeps it when it restarts.
+ * Before that it is short and yields to every other transaction (timid phase).
+ * Afterwards the transaction with the oldest timestamp wins (greedy phase).
+ */
+@Exclude
+public class TwoPhaseGreedy implements ContentionManager {
+
+	public int arbitrate(Context me, Context other) {
+		// Short transactions have no timestamp and compare as the youngest
+		if (me.getGreedyTime() < other.getGreedyTime())
+			return KILL_OTHER;
+		return KILL_SELF;
+	}
+}
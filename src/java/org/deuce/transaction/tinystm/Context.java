@@ -0,0 +1,321 @@
+package org.deuce.transaction.tinystm;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.deuce.transaction.AbortCauseContext;
+import org.deuce.transaction.TransactionException;
+import org.deuce.transaction.stats.AbortCause;
+import org.deuce.transaction.stats.Recorder;
+import org.deuce.transaction.stats.Statistics;
+import org.deuce.transaction.tinystm.field.Field;
+import org.deuce.transaction.tinystm.field.Field.Type;
+import org.deuce.transaction.tinystm.ReadSet;
+import org.deuce.transaction.tinystm.UndoLog;
+import org.deuce.transaction.util.AbortChannel;
+import org.deuce.transaction.util.IrrevocableAccessLock;
+import org.deuce.transform.commons.Exclude;
+
+/**
+ * Encounter-time locking, write-through implementation, in the style of TinySTM.
+ * 
+ * A write locks the stripe, saves the current value in the {@link UndoLog} and
+ * updates memory in place. Reads of stripes we own therefore go straight to memory,
+ * and commit only validates the read set and releases the locks with the new version.
+ * Aborting restores the old values and releases the locks with a fresh version,
+ * so that readers which saw our writes fail their validation.
+ * Reads are invisible and validated as in LSA.
+ */
+@Exclude
+final public class Context implements AbortCauseContext {
+
+	final private static TransactionException WRITE_FAILURE_EXCEPTION =
+		new TransactionException("Fail on write (read previous version).");
+
+	final private static TransactionException EXTEND_FAILURE_EXCEPTION =
+		new TransactionException("Fail on extend.");
+
+	final private static AtomicInteger clock = new AtomicInteger(0);
+	final private static AtomicInteger threadID = new AtomicInteger(0);
+
+	//Global lock used to allow only one irrevocable transaction solely. 
+	final private static IrrevocableAccessLock irrevocableAccessLock = new IrrevocableAccessLock();
+	final private IrrevocableAccessLock.Slot irrevocableSlot = irrevocableAccessLock.newSlot();
+	private boolean irrevocableState = false;
+
+	final private ReadSet readSet = new ReadSet(1024);
+	final private UndoLog undoLog = new UndoLog(32);
+
+	private int readHash;
+	private int readLock;
+	private Object readValue;
+
+	private int startTime;
+	private int endTime;
+	private int id;
+
+	final private AbortChannel abortChannel = new AbortChannel();
+	final private Recorder stats = Recorder.ENABLED ? Statistics.newRecorder(this) : null;
+
+	public Context() {
+		// Unique identifier among active threads
+		id = threadID.incrementAndGet();
+	}
+
+	@Override
+	public void init(int blockId, int flags, String metainf) {
+		abortChannel.init(blockId);
+		if (Recorder.ENABLED)
+			stats.onStart(blockId);
+		readSet.clear();
+		undoLog.clear();
+		
+		//Lock according to the transaction irrevocable state
+		irrevocableSlot.lock(irrevocableState);
+		
+		startTime = endTime = clock.get();
+	}
+
+	@Override
+	public boolean commit() {
+		try{
+			if (!undoLog.isEmpty()) {
+				int newClock = clock.incrementAndGet();
+				if (newClock != endTime + 1 && !readSet.validate(id, undoLog)) {
+					abortChannel.set(AbortCause.COMMIT);
+					if (Recorder.ENABLED)
+						stats.onAbort(AbortCause.COMMIT);
+					undoLog.rollback(clock.incrementAndGet()); // Restore values and release locks
+					return false;
+				}
+				// Release locks
+				undoLog.commit(newClock);
+			}
+			if (Recorder.ENABLED)
+				stats.onCommit(readSet.getSize(), undoLog.size());
+			return true;
+		}
+		finally{
+			irrevocableState = false;
+			irrevocableSlot.unlock();
+
+		}
+	}
+
+	@Override
+	public void rollback() {
+		abortChannel.rollback();
+		if (Recorder.ENABLED)
+			stats.onAbort(abortChannel.getCause());
+		if (!undoLog.isEmpty()) {
+			// Restore values and release locks
+			undoLog.rollback(clock.incrementAndGet());
+		}
+		irrevocableSlot.unlock();
+	}
+
+	@Override
+	public AbortCause getAbortCause() {
+		return abortChannel.getCause();
+	}
+
+	@Override
+	public int getAbortCount() {
+		return abortChannel.getAborts();
+	}
+
+	private boolean extend() {
+		int now = clock.get();
+		if (readSet.validate(id, undoLog)) {
+			endTime = now;
+			return true;
+		}
+		return false;
+	}
+
+	@Override
+	public void beforeReadAccess(Object obj, long field) {
+		readHash = LockTable.hash(obj, field);
+		// Check if the field is locked (may throw an exception)
+		try {
+			readLock = LockTable.checkLock(readHash, id);
+		} catch (TransactionException e) {
+			abortChannel.set(AbortCause.READ);
+			if (Recorder.ENABLED)
+				stats.onConflict(readHash, obj, field);
+			throw e;
+		}
+	}
+
+	private boolean onReadAccess(Object obj, long field, Type type) {
+		if (readLock < 0) {
+			// We already own that lock, memory holds our own value
+			return false;
+		}
+		boolean b = false;
+		while (true) {
+			while (readLock <= endTime) {
+				// Re-read timestamp (check for race)
+				int lock;
+				try {
+					lock = LockTable.checkLock(readHash, id);
+				} catch (TransactionException e) {
+					abortChannel.set(AbortCause.READ);
+					if (Recorder.ENABLED)
+						stats.onConflict(readHash, obj, field);
+					throw e;
+				}
+				if (lock != readLock) {
+					readLock = lock;
+					readValue = Field.getValue(obj, field, type);
+					b = true;
+					continue;
+				}
+				// We have read a valid value (in snapshot), save to read set
+				readSet.add(obj, field, readHash, lock);
+				return b;
+			}
+
+			// Try to extend snapshot
+			if (!extend()) {
+				abortChannel.set(AbortCause.READ);
+				if (Recorder.ENABLED)
+					stats.onConflict(readHash, obj, field);
+				throw EXTEND_FAILURE_EXCEPTION;
+			}
+		}
+	}
+
+	private void onWriteAccess(Object obj, long field, Object value, Type type) {
+		int hash = LockTable.hash(obj, field);
+
+		// Lock entry (might throw an exception)
+		int timestamp;
+		try {
+			timestamp = LockTable.lock(hash, id);
+		} catch (TransactionException e) {
+			abortChannel.set(AbortCause.WRITE);
+			if (Recorder.ENABLED)
+				stats.onConflict(hash, obj, field);
+			throw e;
+		}
+
+		if (timestamp >= 0) {
+			if (timestamp > endTime) {
+				// Handle write-after-read
+				if (readSet.contains(obj, field)) {
+					// Abort
+					LockTable.setAndReleaseLock(hash, timestamp);
+					abortChannel.set(AbortCause.WRITE);
+					if (Recorder.ENABLED)
+						stats.onConflict(hash, obj, field);
+					throw WRITE_FAILURE_EXCEPTION;
+				}
+				// We delay validation until later (although we could already validate once here)
+			}
+			undoLog.addLock(hash, timestamp);
+		}
+
+		// Save old value and write in place
+		undoLog.write(obj, field, value, type);
+	}
+
+	@Override
+	public Object onReadAccess(Object obj, Object value, long field) {
+		return (onReadAccess(obj, field, Type.OBJECT) ? readValue : value);
+	}
+
+	@Override
+	public boolean onReadAccess(Object obj, boolean value, long field) {
+		return (onReadAccess(obj, field, Type.BOOLEAN) ? (Boolean) readValue : value);
+	}
+
+	@Override
+	public byte onReadAccess(Object obj, byte value, long field) {
+		return (onReadAccess(obj, field, Type.BYTE) ? ((Number) readValue).byteValue() : value);
+	}
+
+	@Override
+	public char onReadAccess(Object obj, char value, long field) {
+		return (onReadAccess(obj, field, Type.CHAR) ? (Character) readValue : value);
+	}
+
+	@Override
+	public short onReadAccess(Object obj, short value, long field) {
+		return (onReadAccess(obj, field, Type.SHORT) ? ((Number) readValue).shortValue() : value);
+	}
+
+	@Override
+	public int onReadAccess(Object obj, int value, long field) {
+		return (onReadAccess(obj, field, Type.INT) ? ((Number) readValue).intValue() : value);
+	}
+
+	@Override
+	public long onReadAccess(Object obj, long value, long field) {
+		return (onReadAccess(obj, field, Type.LONG) ? ((Number) readValue).longValue() : value);
+	}
+
+	@Override
+	public float onReadAccess(Object obj, float value, long field) {
+		return (onReadAccess(obj, field, Type.FLOAT) ? ((Number) readValue).floatValue() : value);
+	}
+
+	@Override
+	public double onReadAccess(Object obj, double value, long field) {
+		return (onReadAccess(obj, field, Type.DOUBLE) ? ((Number) readValue).doubleValue() : value);
+	}
+
+	@Override
+	public void onWriteAccess(Object obj, Object value, long field) {
+		onWriteAccess(obj, field, value, Type.OBJECT);
+	}
+
+	@Override
+	public void onWriteAccess(Object obj, boolean value, long field) {
+		onWriteAccess(obj, field, (Object) value, Type.BOOLEAN);
+	}
+
+	@Override
+	public void onWriteAccess(Object obj, byte value, long field) {
+		onWriteAccess(obj, field, (Object) value, Type.BYTE);
+	}
+
+	@Override
+	public void onWriteAccess(Object obj, char value, long field) {
+		onWriteAccess(obj, field, (Object) value, Type.CHAR);
+	}
+
+	@Override
+	public void onWriteAccess(Object obj, short value, long field) {
+		onWriteAccess(obj, field, (Object) value, Type.SHORT);
+	}
+
+	@Override
+	public void onWriteAccess(Object obj, int value, long field) {
+		onWriteAccess(obj, field, (Object) value, Type.INT);
+	}
+
+	@Override
+	public void onWriteAccess(Object obj, long value, long field) {
+		onWriteAccess(obj, field, (Object) value, Type.LONG);
+	}
+
+	@Override
+	public void onWriteAccess(Object obj, float value, long field) {
+		onWriteAccess(obj, field, (Object) value, Type.FLOAT);
+	}
+
+	@Override
+	public void onWriteAccess(Object obj, double value, long field) {
+		onWriteAccess(obj, field, (Object) value, Type.DOUBLE);
+	}
+
+	@Override
+	public void onIrrevocableAccess() {
+		if(irrevocableState) // already in irrevocable state so no need to restart transaction.
+			return;
+
+		irrevocableState = true;
+		abortChannel.set(AbortCause.IRREVOCABLE);
+		throw TransactionException.STATIC_TRANSACTION;
+	}
+}
@@ -0,0 +1,140 @@
+package org.deuce.transaction.tinystm;
+
+import org.deuce.transaction.tinystm.field.Field;
+import org.deuce.transaction.tinystm.field.Field.Type;
+import org.deuce.transform.commons.Exclude;
+
+/**
+ * The locks owned by a write-through transaction and the values it overwrote.
+ * 
+ * Writes go to memory directly, so aborting means restoring the old values
+ * (latest first) before releasing the locks.
+ */
+@Exclude
+public class UndoLog {
+
+	private static final int DEFAULT_CAPACITY = 16;
+
+	// Stripes locked and their versions before locking
+	private int[] hashes;
+	private int[] locks;
+	private int lockCount;
+
+	// Overwritten values
+	private Object[] references;
+	private long[] fields;
+	private Type[] types;
+	private Object[] values;
+	private int size;
+
+	public UndoLog(int initialCapacity) {
+		hashes = new int[initialCapacity];
+		locks = new int[initialCapacity];
+		references = new Object[initialCapacity];
+		fields = new long[initialCapacity];
+		types = new Type[initialCapacity];
+		values = new Object[initialCapacity];
+	}
+
+	public UndoLog() {
+		this(DEFAULT_CAPACITY);
+	}
+
+	public void clear() {
+		for (int i = 0; i < size; i++) {
+			// Do not keep objects alive
+			references[i] = null;
+			values[i] = null;
+		}
+		lockCount = 0;
+		size = 0;
+	}
+
+	public boolean isEmpty() {
+		return lockCount == 0;
+	}
+
+	/**
+	 * @return the number of stripes locked
+	 */
+	public int size() {
+		return lockCount;
+	}
+
+	public void addLock(int hash, int lock) {
+		if (lockCount >= hashes.length) {
+			int l = hashes.length << 1;
+			int[] h = new int[l];
+			System.arraycopy(hashes, 0, h, 0, lockCount);
+			hashes = h;
+			int[] k = new int[l];
+			System.arraycopy(locks, 0, k, 0, lockCount);
+			locks = k;
+		}
+		hashes[lockCount] = hash;
+		locks[lockCount] = lock;
+		lockCount++;
+	}
+
+	/**
+	 * @return the version of a stripe we locked when we locked it
+	 */
+	public int getLock(int hash) {
+		for (int i = 0; i < lockCount; i++) {
+			if (hashes[i] == hash)
+				return locks[i];
+		}
+		throw new IllegalStateException("Stripe " + hash + " not locked");
+	}
+
+	/**
+	 * Saves the current value of a field, then writes the new one in place.
+	 */
+	public void write(Object reference, long field, Object value, Type type) {
+		if (size >= references.length)
+			grow();
+		references[size] = reference;
+		fields[size] = field;
+		types[size] = type;
+		values[size] = Field.getValue(reference, field, type);
+		size++;
+		Field.putValue(reference, field, value, type);
+	}
+
+	public void commit(int timestamp) {
+		// Values are already in memory: release locks with the new version
+		for (int i = 0; i < lockCount; i++)
+			LockTable.setAndReleaseLock(hashes[i], timestamp);
+		clear();
+	}
+
+	/**
+	 * Restores the overwritten values and releases the locks.
+	 * 
+	 * @param timestamp the version of the released stripes, newer than their
+	 * version before locking since concurrent readers may have seen our writes
+	 */
+	public void rollback(int timestamp) {
+		for (int i = size - 1; i >= 0; i--)
+			Field.putValue(references[i], fields[i], values[i], types[i]);
+		for (int i = 0; i < lockCount; i++)
+			LockTable.setAndReleaseLock(hashes[i], timestamp);
+		clear();
+	}
+
+	private void grow() {
+		int l = references.length << 1;
+		Object[] r = new Object[l];
+		System.arraycopy(references, 0, r, 0, size);
+		references = r;
+		long[] f = new long[l];
+		System.arraycopy(fields, 0, f, 0, size);
+		fields = f;
+		Type[] t = new Type[l];
+		System.arraycopy(types, 0, t, 0, size);
+		types = t;
+		Object[] v = new Object[l];
+		System.arraycopy(values, 0, v, 0, size);
+		values = v;
+	}
+}
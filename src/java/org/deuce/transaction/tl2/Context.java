@@ -2,9 +2,13 @@ package org.deuce.transaction.tl2;
 
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
 
+import org.deuce.transaction.AbortCauseContext;
+import org.deuce.transaction.RetryContext;
 import org.deuce.transaction.TransactionException;
+import org.deuce.transaction.stats.AbortCause;
+import org.deuce.transaction.stats.Recorder;
+import org.deuce.transaction.stats.Statistics;
 import org.deuce.transaction.tl2.field.BooleanWriteFieldAccess;
 import org.deuce.transaction.tl2.field.ByteWriteFieldAccess;
 import org.deuce.transaction.tl2.field.CharWriteFieldAccess;
@@ -18,6 +22,10 @@ import org.deuce.transaction.tl2.field.ShortWriteFieldAccess;
 import org.deuce.transaction.tl2.field.WriteFieldAccess;
 import org.deuce.transaction.tl2.pool.Pool;
 import org.deuce.transaction.tl2.pool.ResourceFactory;
+import org.deuce.transaction.util.AbortChannel;
+import org.deuce.transaction.util.GroupCommit;
+import org.deuce.transaction.util.IrrevocableAccessLock;
+import org.deuce.transaction.util.WaiterRegistry;
 import org.deuce.transform.commons.Exclude;
 import org.deuce.trove.TObjectProcedure;
 
@@ -28,26 +36,39 @@ import org.deuce.trove.TObjectProcedure;
  * @since	1.0
  */
 @Exclude
-final public class Context implements org.deuce.transaction.Context{
+final public class Context implements RetryContext, AbortCauseContext{
 
 	final static AtomicInteger clock = new AtomicInteger( 0);
 
+	//The validated writers write back in batches sharing a clock increment (-Dorg.deuce.transaction.tl2.groupcommit=true)
+	final private static boolean GROUP_COMMIT = Boolean.getBoolean("org.deuce.transaction.tl2.groupcommit");
+	final private static Combiner combiner = new Combiner();
+	final private GroupCommit.Request<Context> commitRequest = new GroupCommit.Request<Context>(this);
+
 	final private ReadSet readSet = new ReadSet();
 	final private WriteSet writeSet = new WriteSet();
 	
 	private ReadFieldAccess currentReadFieldAccess = null;
 		
 	//Used by the thread to mark locks it holds.
-	final private byte[] locksMarker = new byte[LockTable.LOCKS_SIZE /8 + 1];
-	final private LockProcedure lockProcedure = new LockProcedure(locksMarker);
+	final private OwnedLocks ownedLocks = new OwnedLocks();
+	final private LockProcedure lockProcedure = new LockProcedure(ownedLocks);
 	
 	//Marked on beforeRead, used for the double lock check
 	private int localClock;
 	private int lastReadLock;
 
 	//Global lock used to allow only one irrevocable transaction solely. 
-	final private static ReentrantReadWriteLock irrevocableAccessLock = new ReentrantReadWriteLock();
+	final private static IrrevocableAccessLock irrevocableAccessLock = new IrrevocableAccessLock();
+	final private IrrevocableAccessLock.Slot irrevocableSlot = irrevocableAccessLock.newSlot();
 	private boolean irrevocableState = false;
+
+	//Set by a retry, the next init of the block parks until a read field is committed
+	private WaiterRegistry.Waiter waiter = null;
+	private int atomicBlockId;
+
+	final private Recorder stats = Recorder.ENABLED ? Statistics.newRecorder(this) : null;
+	final private AbortChannel abortChannel = new AbortChannel();
 	
 	final private TObjectProcedure<WriteFieldAccess> putProcedure = new TObjectProcedure<WriteFieldAccess>(){
 		@Override
@@ -62,25 +83,34 @@ final public class Context implements org.deuce.transaction.Context{
 	}
 	
 	@Override
-	public void init(int atomicBlockId, String metainf){
+	public void init(int atomicBlockId, int flags, String metainf){
+		if( waiter != null){
+			WaiterRegistry.Waiter retried = waiter;
+			waiter = null;
+			if( atomicBlockId == this.atomicBlockId)
+				retried.await(); // aborts the block if interrupted
+			else // the retrying block gave up (out of retries)
+				retried.cancel();
+		}
+		this.atomicBlockId = atomicBlockId;
+		abortChannel.init(atomicBlockId);
+		if( Recorder.ENABLED)
+			stats.onStart(atomicBlockId);
 		this.currentReadFieldAccess = null;
-		this.readSet.clear(); 
+		this.readSet.clear(atomicBlockId); 
 		this.writeSet.clear();
-		this.objectPool.clear();
-		this.booleanPool.clear();
-		this.bytePool.clear();
-		this.charPool.clear();
-		this.shortPool.clear();
-		this.intPool.clear();
-		this.longPool.clear();
-		this.floatPool.clear();
-		this.doublePool.clear();
+		this.objectPool.clear(atomicBlockId);
+		this.booleanPool.clear(atomicBlockId);
+		this.bytePool.clear(atomicBlockId);
+		this.charPool.clear(atomicBlockId);
+		this.shortPool.clear(atomicBlockId);
+		this.intPool.clear(atomicBlockId);
+		this.longPool.clear(atomicBlockId);
+		this.floatPool.clear(atomicBlockId);
+		this.doublePool.clear(atomicBlockId);
 		
 		//Lock according to the transaction irrevocable state
-		if(irrevocableState)
-			irrevocableAccessLock.writeLock().lock();
-		else
-			irrevocableAccessLock.readLock().lock();
+		irrevocableSlot.lock(irrevocableState);
 		
 		this.localClock = clock.get();	
 	}
@@ -89,19 +119,30 @@ final public class Context implements org.deuce.transaction.Context{
 	public boolean commit(){
 		try
 		{
-			if (writeSet.isEmpty()) // if the writeSet is empty no need to lock a thing. 
+			if (writeSet.isEmpty()){ // if the writeSet is empty no need to lock a thing. 
+				if( Recorder.ENABLED)
+					stats.onCommit(readSet.size(), 0);
 				return true;
+			}
 
 			try
 			{
 				// pre commit validation phase
 				writeSet.forEach(lockProcedure);
-				readSet.checkClock(localClock);
+				readSet.checkClock(localClock, ownedLocks);
 			}
 			catch( TransactionException exception){
 				lockProcedure.unlockAll();
+				abortChannel.set(AbortCause.COMMIT);
+				if( Recorder.ENABLED)
+					stats.onAbort(AbortCause.COMMIT);
 				return false;
 			}
+			if( Recorder.ENABLED)
+				stats.onCommit(readSet.size(), writeSet.size());
+
+			if( GROUP_COMMIT)
+				return combiner.commit(commitRequest);
 
 			// commit new values and release locks
 			writeSet.forEach(putProcedure);
@@ -109,20 +150,100 @@ final public class Context implements org.deuce.transaction.Context{
 			return true;
 		}
 		finally{
-			if(irrevocableState){
-				irrevocableState = false;
-				irrevocableAccessLock.writeLock().unlock();
-			}
-			else{
-				irrevocableAccessLock.readLock().unlock();
-			}
+			irrevocableState = false;
+			irrevocableSlot.unlock();
 			
 		}
 	}
 	
+	/**
+	 * Writes back the batches of locked and validated writers with a single clock increment,
+	 * their write sets are disjoint and each read set was validated with its locks held.
+	 */
+	@Exclude
+	private static class Combiner extends GroupCommit<Context>{
+
+		private int newClock;
+
+		@Override
+		protected void beginBatch(){
+			newClock = clock.incrementAndGet();
+		}
+
+		@Override
+		protected boolean commit(Context context){
+			context.writeSet.forEach(context.putProcedure);
+			context.lockProcedure.setAndUnlockAll(newClock);
+			return true;
+		}
+
+		@Override
+		protected void endBatch(){
+		}
+	}
+
+	/**
+	 * @return the batches of the group commit, see {@link GroupCommit}
+	 */
+	public static GroupCommit<Context> getGroupCommit(){
+		return combiner;
+	}
+
+	/**
+	 * @return the version of the last commit
+	 */
+	public static long getClock(){
+		return clock.get();
+	}
+	
+	@Override
+	public void retry(){
+		if( writeSet.hasSavepoint()) // the caller runs the other alternative
+			return;
+		int[] hashes = readSet.getHashes();
+		if( hashes.length == 0) // nothing to wait for
+			return;
+		waiter = WaiterRegistry.register(hashes);
+		try{
+			readSet.checkClock(localClock);
+		}
+		catch( TransactionException e){
+			// Already changed, run again right away
+			waiter.cancel();
+			waiter = null;
+		}
+	}
+
+	@Override
+	public int beginAlternative(){
+		return writeSet.savepoint();
+	}
+
+	@Override
+	public void endAlternative(int savepoint, boolean retried){
+		// The reads of the alternative are kept, the choice of the other alternative depends on them
+		if( retried)
+			writeSet.rollbackTo(savepoint);
+		else
+			writeSet.releaseSavepoint(savepoint);
+	}
+
 	@Override
 	public void rollback(){
-		irrevocableAccessLock.readLock().unlock();
+		abortChannel.rollback();
+		if( Recorder.ENABLED)
+			stats.onAbort(abortChannel.getCause());
+		irrevocableSlot.unlock();
+	}
+
+	@Override
+	public AbortCause getAbortCause() {
+		return abortChannel.getCause();
+	}
+
+	@Override
+	public int getAbortCount() {
+		return abortChannel.getAborts();
 	}
 
 	private WriteFieldAccess onReadAccess0( Object obj, long field){
@@ -131,7 +252,15 @@ final public class Context implements org.deuce.transaction.Context{
 		int hash = current.hashCode();
 
 		// Check the read is still valid
-		LockTable.checkLock(hash, localClock, lastReadLock);
+		try{
+			LockTable.checkLock(hash, localClock, lastReadLock);
+		}
+		catch( TransactionException e){
+			abortChannel.set(AbortCause.READ);
+			if( Recorder.ENABLED)
+				stats.onConflict(hash, obj, field);
+			throw e;
+		}
 
 		// Check if it is already included in the write set
 		return writeSet.contains( current);
@@ -151,7 +280,15 @@ final public class Context implements org.deuce.transaction.Context{
 		next.init(obj, field);
 
 		// Check the read is still valid
-		lastReadLock = LockTable.checkLock(next.hashCode(), localClock);
+		try{
+			lastReadLock = LockTable.checkLock(next.hashCode(), localClock);
+		}
+		catch( TransactionException e){
+			abortChannel.set(AbortCause.READ);
+			if( Recorder.ENABLED)
+				stats.onConflict(next.hashCode(), obj, field);
+			throw e;
+		}
 	}
 	
 	@Override
@@ -385,6 +522,7 @@ final public class Context implements org.deuce.transaction.Context{
 			return;
 		
 		irrevocableState = true;
+		abortChannel.set(AbortCause.IRREVOCABLE);
 		throw TransactionException.STATIC_TRANSACTION;
 	}
 	
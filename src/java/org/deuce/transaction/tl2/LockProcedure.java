@@ -1,8 +1,7 @@
 package org.deuce.transaction.tl2;
 
 import org.deuce.transaction.tl2.field.WriteFieldAccess;
-import org.deuce.trove.TIntArrayList;
-import org.deuce.trove.TIntProcedure;
+import org.deuce.transaction.util.WaiterRegistry;
 import org.deuce.trove.TObjectProcedure;
 
 /**
@@ -13,60 +12,40 @@ import org.deuce.trove.TObjectProcedure;
  */
 public class LockProcedure implements TObjectProcedure<WriteFieldAccess>{
 		
-		private final TIntArrayList lockSet = new TIntArrayList();
-		private final byte[] locksMarker;
-		private final TIntProcedure unlockProcedure = new TIntProcedure(){
-			@Override
-			public boolean execute(int value) {
-				LockTable.unLock( value,locksMarker);
-				return true;
-			}
-		};
+		private final OwnedLocks lockSet;
 		
-		private static class SetAndUnlockProcedure implements TIntProcedure{
-			
-			private final byte[] locksMarker;
-			private int newClock;
-
-			public SetAndUnlockProcedure(byte[] locksMarker){
-				this.locksMarker = locksMarker;
-			}
-			
-			@Override
-			public boolean execute(int value) {
-				LockTable.setAndReleaseLock( value, newClock, locksMarker);
-				return true;
-			}
-			
-			public void retrieveNewClock(){
-				this.newClock = Context.clock.incrementAndGet();
-			}
-		}
-		
-		private final SetAndUnlockProcedure setAndUnlockProcedure;
-		
-		public LockProcedure(byte[] locksMarker){
-			this.locksMarker = locksMarker;
-			setAndUnlockProcedure = new SetAndUnlockProcedure(locksMarker);
+		public LockProcedure(OwnedLocks lockSet){
+			this.lockSet = lockSet;
 		}
 		
 		@Override
 		public boolean execute(WriteFieldAccess writeField) {
-			int hashCode = writeField.hashCode();
-			if( LockTable.lock( hashCode, locksMarker))
-				lockSet.add( hashCode);
+			LockTable.lock( writeField.hashCode(), lockSet);
 			return true;
 		}
 		
 		public void unlockAll(){
-			lockSet.forEach(unlockProcedure);
-			lockSet.resetQuick();
+			for( int i=0 ; i < lockSet.size() ; ++i)
+				LockTable.unLock( lockSet.get(i));
+			lockSet.clear();
 		}
 		
 		public void setAndUnlockAll(){
-			setAndUnlockProcedure.retrieveNewClock();
-			lockSet.forEach(setAndUnlockProcedure);
-			lockSet.resetQuick();
+			setAndUnlockAll(Context.clock.incrementAndGet());
+		}
+		
+		/**
+		 * Releases the locks with a version shared by the transactions of a group commit.
+		 * @param newClock the version of the batch
+		 */
+		public void setAndUnlockAll(int newClock){
+			for( int i=0 ; i < lockSet.size() ; ++i)
+				LockTable.setAndReleaseLock( lockSet.get(i), newClock);
+			if( WaiterRegistry.hasWaiters()){ // wake the retrying transactions that read what was committed
+				for( int i=0 ; i < lockSet.size() ; ++i)
+					WaiterRegistry.wake( lockSet.get(i));
+			}
+			lockSet.clear();
 		}
 		
 	}
\ No newline at end of file
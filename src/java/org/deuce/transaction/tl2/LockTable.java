@@ -14,9 +14,6 @@ public class LockTable {
 	final public static int MASK = 0xFFFFF;
 	final private static int LOCK = 1 << 31;
 	final private static int UNLOCK = ~LOCK;
-	
-	final static private int MODULE_8 = 7; //Used for %8
-	final static private int DIVIDE_8 = 3; //Used for /8
 
 	final private static AtomicIntegerArray locks =  new AtomicIntegerArray(LOCKS_SIZE); // array of 2^20 entries of 32-bit lock words
 
@@ -25,14 +22,11 @@ public class LockTable {
 	 * @return <code>true</code> if lock otherwise false.
 	 * @throws TransactionException incase the lock is hold by other thread.
 	 */
-	public static boolean lock( int lockIndex, byte[] contextLocks) throws TransactionException{
+	public static boolean lock( int lockIndex, OwnedLocks contextLocks) throws TransactionException{
 		final int lock = locks.get(lockIndex); 
-		final int selfLockIndex = lockIndex>>>DIVIDE_8;
-		final byte selfLockByte = contextLocks[selfLockIndex];
-		final byte selfLockBit = (byte)(1 << (lockIndex & MODULE_8));
 		
 		if( (lock & LOCK) != 0){  //is already locked?
-			if( (selfLockByte & selfLockBit) != 0) // check for self locking
+			if( contextLocks.contains(lockIndex)) // check for self locking
 				return false;
 			throw FAILURE_EXCEPTION; 
 		}
@@ -42,7 +36,7 @@ public class LockTable {
 		if( !isLocked)
 			throw FAILURE_EXCEPTION;
 		
-		contextLocks[selfLockIndex] |= selfLockBit; //mark in self locks
+		contextLocks.add(lockIndex); //mark in self locks
 		return true;
 	}
 
@@ -56,6 +50,17 @@ public class LockTable {
 	}
 	
 
+	/**
+	 * Commit time validation, the locks held by the context itself only have their version checked.
+	 */
+	public static void checkLock(int lockIndex, int clock, OwnedLocks contextLocks) {
+		int lock = locks.get(lockIndex);
+		if( clock < (lock & UNLOCK))
+			throw FAILURE_EXCEPTION;
+		if( (lock & LOCK) != 0 && !contextLocks.contains(lockIndex))
+			throw FAILURE_EXCEPTION;
+	}
+
 	public static void checkLock(int lockIndex, int clock, int expected) {
 		int lock = locks.get(lockIndex);
 		
@@ -63,25 +68,17 @@ public class LockTable {
 			throw FAILURE_EXCEPTION;
 	}
 
-	public static void unLock( int lockIndex, byte[] contextLocks){
+	/**
+	 * Releases a lock, the caller clears its {@link OwnedLocks} once all are released.
+	 */
+	public static void unLock( int lockIndex){
 		int lockedValue = locks.get( lockIndex);
 		int unlockedValue = lockedValue & UNLOCK;
 		locks.set(lockIndex, unlockedValue);
-		
-		clearSelfLock(lockIndex, contextLocks);
 	}
 
-	public static void setAndReleaseLock( int hash, int newClock, byte[] contextLocks){
+	public static void setAndReleaseLock( int hash, int newClock){
 		int lockIndex = hash & MASK;
 		locks.set(lockIndex, newClock);
-		clearSelfLock( lockIndex, contextLocks);
-	}
-	
-	/**
-	* Clears lock marker from self locking array
-	*/
-	private static void clearSelfLock( int lockIndex, byte[] contextLocks){
-		// clear marker TODO might clear all bits
-		contextLocks[lockIndex>>>DIVIDE_8] &= ~(1 << (lockIndex & MODULE_8)); 
 	}
 }
@@ -0,0 +1,86 @@
+package org.deuce.transaction.tl2;
+
+import org.deuce.transform.commons.Exclude;
+
+/**
+ * The locks of the {@link LockTable} a transaction holds, in the order it took them, with an open
+ * addressing index to tell its own locks apart. Sized to the write set rather than to the lock
+ * table, and cleared in the time it takes to release the locks.
+ *
+ * @since 1.4
+ */
+@Exclude
+final public class OwnedLocks {
+
+	private static final int INITIAL_CAPACITY = 16; // a power of two
+
+	private int[] locks = new int[INITIAL_CAPACITY];
+	// The slot of each lock in the index
+	private int[] slots = new int[INITIAL_CAPACITY];
+	// The lock indexes plus one, 0 for a free slot, at most half full
+	private int[] index = new int[INITIAL_CAPACITY << 1];
+	private int size = 0;
+
+	/**
+	 * @return <code>false</code> if the lock was already held
+	 */
+	public boolean add(int lockIndex) {
+		int slot = slot(lockIndex);
+		if (index[slot] != 0)
+			return false;
+		if (size == locks.length) {
+			grow();
+			slot = slot(lockIndex);
+		}
+		index[slot] = lockIndex + 1;
+		locks[size] = lockIndex;
+		slots[size] = slot;
+		++size;
+		return true;
+	}
+
+	public boolean contains(int lockIndex) {
+		return index[slot(lockIndex)] != 0;
+	}
+
+	// The slot of the lock, or the free slot it would take
+	private int slot(int lockIndex) {
+		int mask = index.length - 1;
+		int hash = lockIndex * 0x9E3779B9;
+		int slot = (hash ^ (hash >>> 16)) & mask;
+		int entry;
+		while ((entry = index[slot]) != 0 && entry != lockIndex + 1)
+			slot = (slot + 1) & mask;
+		return slot;
+	}
+
+	private void grow() {
+		int[] grownLocks = new int[locks.length << 1];
+		System.arraycopy(locks, 0, grownLocks, 0, size);
+		locks = grownLocks;
+		slots = new int[grownLocks.length];
+		index = new int[grownLocks.length << 1];
+		for (int i = 0; i < size; i++) {
+			int slot = slot(locks[i]);
+			index[slot] = locks[i] + 1;
+			slots[i] = slot;
+		}
+	}
+
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * @return the i-th lock taken
+	 */
+	public int get(int i) {
+		return locks[i];
+	}
+
+	public void clear() {
+		for (int i = 0; i < size; i++)
+			index[slots[i]] = 0;
+		size = 0;
+	}
+}
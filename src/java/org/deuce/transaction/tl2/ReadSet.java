@@ -1,11 +1,12 @@
 package org.deuce.transaction.tl2;
 
 import org.deuce.transaction.tl2.field.ReadFieldAccess;
+import org.deuce.transaction.util.CapacityTuner;
 import org.deuce.transform.commons.Exclude;
 
 /**
  * Represents the transaction read set.
- * And acts as a recycle pool of the {@link ReadFieldAccess}.
+ * And acts as a recycle pool of the {@link ReadFieldAccess}, created on first use.
  *  
  * @author Guy Korland
  * @since 0.7
@@ -13,41 +14,74 @@ import org.deuce.transform.commons.Exclude;
 @Exclude
 public class ReadSet{
 	
-	private static final int DEFAULT_CAPACITY = 1024;
-	private ReadFieldAccess[] readSet = new ReadFieldAccess[DEFAULT_CAPACITY];
+	private static final int DEFAULT_CAPACITY = 64;
+	private static final ReadFieldAccess[] EMPTY = new ReadFieldAccess[0];
+	private static final CapacityTuner.Hints HINTS = new CapacityTuner.Hints();
+	private ReadFieldAccess[] readSet = EMPTY;
 	private int nextAvaliable = 0;
-	
-	public ReadSet(){
-		fillArray( 0);
-	}
+	final private CapacityTuner tuner = new CapacityTuner(HINTS, DEFAULT_CAPACITY);
 	
 	public void clear(){
 		nextAvaliable = 0;
 	}
 
-	private void fillArray( int offset){
-		for( int i=offset ; i < readSet.length ; ++i){
-			readSet[i] = new ReadFieldAccess();
-		}
+	/**
+	 * Clears the read set for the next transaction, sized for its block, see {@link CapacityTuner}.
+	 */
+	public void clear(int atomicBlockId){
+		int capacity = tuner.next(atomicBlockId, nextAvaliable, readSet.length);
+		nextAvaliable = 0;
+		if( capacity != readSet.length)
+			resize( capacity);
+	}
+
+	// The entries past the capacity are dropped, the new ones are created on first use
+	private void resize( int capacity){
+		ReadFieldAccess[] tmpReadSet = new ReadFieldAccess[ capacity];
+		System.arraycopy(readSet, 0, tmpReadSet, 0, Math.min(capacity, readSet.length));
+		readSet = tmpReadSet;
 	}
 
 	public ReadFieldAccess getNext(){
-		if( nextAvaliable >= readSet.length){
-			int orignLength = readSet.length;
-			ReadFieldAccess[] tmpReadSet = new ReadFieldAccess[ 2*orignLength];
-			System.arraycopy(readSet, 0, tmpReadSet, 0, orignLength);
-			readSet = tmpReadSet;
-			fillArray( orignLength);
-		}
-		return readSet[ nextAvaliable++];
+		if( nextAvaliable >= readSet.length)
+			resize( Math.max(DEFAULT_CAPACITY, 2*readSet.length));
+		ReadFieldAccess next = readSet[ nextAvaliable];
+		if( next == null)
+			readSet[ nextAvaliable] = next = new ReadFieldAccess();
+		++nextAvaliable;
+		return next;
 	}
 	
+    public int size(){
+    	return nextAvaliable;
+    }
+
+    /**
+     * @return the lock table indexes of the read fields
+     */
+    public int[] getHashes(){
+    	int[] hashes = new int[nextAvaliable];
+    	for( int i=0 ; i < nextAvaliable ; ++i)
+    		hashes[i] = readSet[i].hashCode();
+    	return hashes;
+    }
+
     public void checkClock(int clock) {
         for (int i = 0; i < nextAvaliable; i++) {
         	LockTable.checkLock( readSet[i].hashCode(), clock);
         	readSet[i].clear();
         }
     }
+
+    /**
+     * Commit time validation, skips the lock bit of the fields locked by the transaction itself.
+     */
+    public void checkClock(int clock, OwnedLocks ownedLocks) {
+        for (int i = 0; i < nextAvaliable; i++) {
+        	LockTable.checkLock( readSet[i].hashCode(), clock, ownedLocks);
+        	readSet[i].clear();
+        }
+    }
     
     public interface ReadSetListener{
     	void execute( ReadFieldAccess read);
@@ -1,6 +1,8 @@
 package org.deuce.transaction.tl2;
 
 
+import java.util.Arrays;
+
 import org.deuce.transaction.tl2.field.ReadFieldAccess;
 import org.deuce.transaction.tl2.field.WriteFieldAccess;
 import org.deuce.transform.commons.Exclude;
@@ -17,9 +19,21 @@ import org.deuce.trove.TObjectProcedure;
 public class WriteSet{
 	
 	final private THashSet<WriteFieldAccess> writeSet = new THashSet<WriteFieldAccess>( 16);
+
+	// Undo log of the puts made under a savepoint: the put write and the write it replaced (or null)
+	private WriteFieldAccess[] undoWrites = new WriteFieldAccess[16];
+	private WriteFieldAccess[] undoReplaced = new WriteFieldAccess[16];
+	private int undoSize = 0;
+	private int savepoints = 0;
 	
 	public void clear() {
 		writeSet.clear();
+		if( undoSize > 0){
+			Arrays.fill(undoWrites, 0, undoSize, null);
+			Arrays.fill(undoReplaced, 0, undoSize, null);
+			undoSize = 0;
+		}
+		savepoints = 0;
 	}
 
 	public boolean isEmpty() {
@@ -31,10 +45,66 @@ public class WriteSet{
 	}
 	
 	public void put(WriteFieldAccess write) {
+		if( savepoints > 0){
+			logUndo(write);
+		}
 		// Add to write set
 		if(!writeSet.add( write))
 			writeSet.replace(write);
 	}
+
+	private void logUndo(WriteFieldAccess write) {
+		if( undoSize == undoWrites.length){
+			undoWrites = Arrays.copyOf(undoWrites, undoSize << 1);
+			undoReplaced = Arrays.copyOf(undoReplaced, undoSize << 1);
+		}
+		undoWrites[undoSize] = write;
+		undoReplaced[undoSize] = writeSet.get(write);
+		++undoSize;
+	}
+
+	/**
+	 * Sets a savepoint, the puts that follow can be undone with {@link #rollbackTo(int)}.
+	 * @return the savepoint
+	 */
+	public int savepoint() {
+		++savepoints;
+		return undoSize;
+	}
+
+	/**
+	 * Undoes the puts made since the savepoint and drops it.
+	 * @param savepoint returned by {@link #savepoint()}
+	 */
+	public void rollbackTo(int savepoint) {
+		while( undoSize > savepoint){
+			--undoSize;
+			WriteFieldAccess replaced = undoReplaced[undoSize];
+			if( replaced == null)
+				writeSet.remove(undoWrites[undoSize]);
+			else
+				writeSet.replace(replaced);
+			undoWrites[undoSize] = null;
+			undoReplaced[undoSize] = null;
+		}
+		--savepoints;
+	}
+
+	/**
+	 * Drops the savepoint and keeps the puts made since, the outer savepoints can still undo them.
+	 * @param savepoint returned by {@link #savepoint()}
+	 */
+	public void releaseSavepoint(int savepoint) {
+		if( --savepoints == 0){
+			Arrays.fill(undoWrites, 0, undoSize, null);
+			Arrays.fill(undoReplaced, 0, undoSize, null);
+			undoSize = 0;
+		}
+	}
+
+	public boolean hasSavepoint() {
+		return savepoints > 0;
+	}
 	
 	public WriteFieldAccess contains(ReadFieldAccess read) {
 		// Check if it is already included in the write set
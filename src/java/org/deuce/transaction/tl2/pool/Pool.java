@@ -1,11 +1,16 @@
 package org.deuce.transaction.tl2.pool;
 
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+
 import org.deuce.transaction.tl2.field.ReadFieldAccess;
+import org.deuce.transaction.util.CapacityTuner;
 import org.deuce.transform.commons.Exclude;
 
 /**
  * Represents the transaction read set.
  * And acts as a recycle pool of the {@link ReadFieldAccess}.
+ * The resources are created on first use, in chunks that are never copied as the pool grows.
  *  
  * @author Guy Korland
  * @since 1.0
@@ -13,34 +18,72 @@ import org.deuce.transform.commons.Exclude;
 @Exclude
 final public class Pool<T>{
 	
-	private static final int DEFAULT_CAPACITY = 1024;
-	private T[] pool = (T[]) new Object[DEFAULT_CAPACITY];
+	private static final int CHUNK_BITS = 6;
+	private static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+	private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+	private static final int MIN_CAPACITY = 4 * CHUNK_SIZE; // never shrunk below
+	private static final Object[][] EMPTY = new Object[0][];
+	// The high-water marks of the pools of each resource, by factory
+	private static final ConcurrentHashMap<Class<?>, CapacityTuner.Hints> HINTS = new ConcurrentHashMap<Class<?>, CapacityTuner.Hints>();
+	private Object[][] chunks = EMPTY;
+	private int created = 0;
 	private int nextAvaliable = 0;
 	final private ResourceFactory<T> factory;
+	final private CapacityTuner tuner;
 	
 	public Pool(ResourceFactory<T> factory){
 		this.factory = factory;
-		fillArray( 0);
+		CapacityTuner.Hints hints = HINTS.get(factory.getClass());
+		if( hints == null){
+			CapacityTuner.Hints other = HINTS.putIfAbsent(factory.getClass(), hints = new CapacityTuner.Hints());
+			if( other != null)
+				hints = other;
+		}
+		this.tuner = new CapacityTuner(hints, MIN_CAPACITY);
 	}
 	
 	public void clear(){
 		nextAvaliable = 0;
 	}
 
-	private void fillArray( int offset){
-		for( int i=offset ; i < DEFAULT_CAPACITY + offset ; ++i){
-			pool[i] = factory.newInstance();
+	/**
+	 * Clears the pool for the next transaction, shrunk after an outlier, see {@link CapacityTuner}.
+	 * The resources being created on first use, the pool isn't presized.
+	 */
+	public void clear(int atomicBlockId){
+		int capacity = tuner.next(atomicBlockId, nextAvaliable, created);
+		nextAvaliable = 0;
+		if( capacity < created){
+			// Drops the chunks past the capacity
+			int kept = (capacity + CHUNK_MASK) >>> CHUNK_BITS;
+			Arrays.fill(chunks, kept, chunks.length, null);
+			created = Math.min(created, kept << CHUNK_BITS);
 		}
 	}
 
 	public T getNext(){
-		if( nextAvaliable >= pool.length){
-			int orignLength = pool.length;
-			T[] newPool = (T[]) new Object[ orignLength + DEFAULT_CAPACITY];
-			System.arraycopy(pool, 0, newPool, 0, pool.length);
-			pool = newPool;
-			fillArray( orignLength);
-		}
-		return pool[ nextAvaliable++];
+		int index = nextAvaliable++;
+		if( index < created)
+			return (T) chunks[ index >>> CHUNK_BITS][ index & CHUNK_MASK];
+		return create( index);
+	}
+
+	private T create( int index){
+		int chunk = index >>> CHUNK_BITS;
+		if( chunk == chunks.length)
+			chunks = Arrays.copyOf(chunks, Math.max(4, chunks.length << 1));
+		if( chunks[ chunk] == null)
+			chunks[ chunk] = new Object[ CHUNK_SIZE];
+		T resource = factory.newInstance();
+		chunks[ chunk][ index & CHUNK_MASK] = resource;
+		created = index + 1;
+		return resource;
+	}
+
+	/**
+	 * @return the number of resources created
+	 */
+	public int capacity(){
+		return created;
 	}
 }
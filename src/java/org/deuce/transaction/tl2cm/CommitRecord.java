@@ -0,0 +1,139 @@
+package org.deuce.transaction.tl2cm;
+
+import java.util.Iterator;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import org.deuce.transaction.tl2cm.field.WriteFieldAccess;
+import org.deuce.transform.commons.Exclude;
+
+/**
+ * The write set of a committing transaction, published so that the transactions that run into
+ * its locks can complete its write-back instead of waiting for it or killing it. This keeps a
+ * transaction that is descheduled in the middle of its commit from holding its locks until it
+ * runs again.
+ *
+ * Each entry is claimed before it is written, so every value is written exactly once (a written
+ * entry is cleared). The locks are released once all the entries are written, by whichever thread
+ * gets there, and only while they are still owned by the committing transaction. The hashes are
+ * copied so that nothing reads the pooled entries once the write-back is done.
+ *
+ * A context reuses its record for all its commits. The states of the entries are tagged with the
+ * local clock of the commit, so a helper still holding the record of an earlier commit claims
+ * nothing and releases nothing.
+ *
+ * @since 1.4
+ */
+@Exclude
+public class CommitRecord {
+
+	private static final int PENDING = 0;
+	private static final int CLAIMED = 1;
+	private static final int WRITTEN = 2;
+	private static final int STATE_BITS = 2;
+
+	final private int owner;
+	private WriteFieldAccess[] writes = new WriteFieldAccess[0];
+	private int[] hashes = new int[0];
+	private AtomicIntegerArray states = new AtomicIntegerArray(0);
+	private int size;
+	// The local clock of the commit in the high half, its new version in the low half (0 until taken)
+	private volatile long stamp;
+
+	/**
+	 * @param owner thread Id of the committing thread
+	 */
+	public CommitRecord(int owner) {
+		this.owner = owner;
+	}
+
+	/**
+	 * Fills the record with the write set of a commit, before it is published.
+	 * @param writeSet the locked and validated write set
+	 * @param ownerClock local clock value of the committing thread, held in its locks
+	 */
+	public void reset(WriteSet writeSet, int ownerClock) {
+		int size = writeSet.size();
+		if (writes.length < size) {
+			int capacity = Math.max(size, 2 * writes.length);
+			writes = new WriteFieldAccess[capacity];
+			hashes = new int[capacity];
+			states = new AtomicIntegerArray(capacity);
+		}
+		int pending = (ownerClock << STATE_BITS) | PENDING;
+		Iterator<WriteFieldAccess> iter = writeSet.iterator();
+		for (int i = 0; i < size; i++) {
+			WriteFieldAccess write = iter.next();
+			writes[i] = write;
+			hashes[i] = write.hashCode();
+			states.set(i, pending);
+		}
+		this.size = size;
+		this.stamp = (long) ownerClock << 32;
+	}
+
+	/**
+	 * Sets the version of the commit and writes it back, called by the committing thread once
+	 * it is committed.
+	 * @param newClock version to put on the locks
+	 */
+	public void writeBack(int newClock) {
+		long stamp = (this.stamp & 0xFFFFFFFF00000000L) | (newClock & 0xFFFFFFFFL);
+		this.stamp = stamp;
+		writeBack(stamp);
+	}
+
+	/**
+	 * Completes the write-back of a commit, called by the threads that run into its locks.
+	 * @param ownerClock local clock value held in the lock
+	 * @return true if the write-back is done, false if the record holds another commit
+	 */
+	public boolean help(int ownerClock) {
+		long stamp = this.stamp;
+		while ((int) stamp == 0) {
+			if ((int) (stamp >>> 32) != ownerClock) {
+				return false;
+			}
+			// Committed, the committing thread is only a clock increment away from the version
+			Thread.yield();
+			stamp = this.stamp;
+		}
+		if ((int) (stamp >>> 32) != ownerClock) {
+			return false;
+		}
+		writeBack(stamp);
+		return true;
+	}
+
+	/**
+	 * Writes the entries nobody claimed, waits for the claimed ones and releases the locks.
+	 * It returns once the write-back is done.
+	 */
+	private void writeBack(long stamp) {
+		int ownerClock = (int) (stamp >>> 32);
+		int newClock = (int) stamp;
+		int pending = (ownerClock << STATE_BITS) | PENDING;
+		int claimed = (ownerClock << STATE_BITS) | CLAIMED;
+		int written = (ownerClock << STATE_BITS) | WRITTEN;
+		// A helper late by a commit may see the arrays of the next one, its tag matches none of them
+		WriteFieldAccess[] writes = this.writes;
+		int[] hashes = this.hashes;
+		AtomicIntegerArray states = this.states;
+		int size = Math.min(this.size, Math.min(writes.length, Math.min(hashes.length, states.length())));
+		for (int i = 0; i < size; i++) {
+			if (states.get(i) == pending && states.compareAndSet(i, pending, claimed)) {
+				writes[i].put();
+				states.set(i, written);
+			}
+		}
+		// The claimed entries are only a store away from being written
+		for (int i = 0; i < size; i++) {
+			while (states.get(i) == claimed) {
+				Thread.yield();
+			}
+		}
+		for (int i = 0; i < size; i++) {
+			LockTable.releaseOwned(hashes[i], owner, ownerClock, newClock);
+		}
+	}
+
+}
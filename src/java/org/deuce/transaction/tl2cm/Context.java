@@ -2,9 +2,11 @@ package org.deuce.transaction.tl2cm;
 
 import java.util.Iterator;
 import java.util.concurrent.atomic.AtomicInteger;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
 
+import org.deuce.transaction.AbortCauseContext;
 import org.deuce.transaction.TransactionException;
+import org.deuce.transaction.stats.AbortCause;
+import org.deuce.transaction.stats.Recorder;
 import org.deuce.transaction.tl2.pool.Pool;
 import org.deuce.transaction.tl2.pool.ResourceFactory;
 import org.deuce.transaction.tl2cm.Statistics.AbortType;
@@ -21,6 +23,8 @@ import org.deuce.transaction.tl2cm.field.ObjectWriteFieldAccess;
 import org.deuce.transaction.tl2cm.field.ReadFieldAccess;
 import org.deuce.transaction.tl2cm.field.ShortWriteFieldAccess;
 import org.deuce.transaction.tl2cm.field.WriteFieldAccess;
+import org.deuce.transaction.util.AbortChannel;
+import org.deuce.transaction.util.IrrevocableAccessLock;
 import org.deuce.transform.commons.Exclude;
 import org.deuce.trove.TObjectProcedure;
 
@@ -34,7 +38,7 @@ import org.deuce.trove.TObjectProcedure;
  * @author Yoav Cohen, yoav.cohen@cs.tau.ac.il
  */
 @Exclude
-final public class Context implements org.deuce.transaction.Context {
+final public class Context implements AbortCauseContext {
 
 	// Static members - shared by all threads
 	public static final int TX_RUNNING = 0;
@@ -43,20 +47,25 @@ final public class Context implements org.deuce.transaction.Context {
 	public static final TransactionException FAILURE_EXCEPTION = new TransactionException("Transaction failed");
 
 	private static final AtomicInteger globalClock = new AtomicInteger(0);
-	private static final AtomicInteger threadIdCounter = new AtomicInteger(1);
-	private static final Context[] threads = new Context[256];
+	// The committing transactions publish their write set so that the others can complete their write-back
+	private static final boolean HELPING = !Boolean.getBoolean("org.deuce.transaction.tl2cm.nohelping");
 	
 	//Global lock used to allow only one irrevocable transaction solely. 
-	final private static ReentrantReadWriteLock irrevocableAccessLock = new ReentrantReadWriteLock();
+	final private static IrrevocableAccessLock irrevocableAccessLock = new IrrevocableAccessLock();
+	final private IrrevocableAccessLock.Slot irrevocableSlot = irrevocableAccessLock.newSlot();
 	private boolean irrevocableState = false;
 	
 	// Instance members - specific to each thread
-	private final ContentionManager cm = Factory.createContentionManager();
+	private int cmGeneration = Factory.getGeneration();
+	private ContentionManager cm = Factory.createContentionManager();
 	private final ReadSet readSet = new ReadSet();
 	private final WriteSet writeSet = new WriteSet();
 	private final AtomicInteger statusRecord = new AtomicInteger(0);
 	private final AtomicInteger karma = new AtomicInteger(0);
 	private final AtomicInteger killKarma = new AtomicInteger(0);
+	// Reused by the commits of this context, published while it commits
+	private final CommitRecord record;
+	private volatile CommitRecord commitRecord;
 	private final UpdateAndUnlockProcedure updateAndUnlockProcedure = new UpdateAndUnlockProcedure();
 	private final TObjectProcedure<WriteFieldAccess> putProcedure = new TObjectProcedure<WriteFieldAccess>(){
 		@Override
@@ -72,6 +81,8 @@ final public class Context implements org.deuce.transaction.Context {
 	private int localClock;
 	private int attempts;
 	private final Statistics stats;	
+	private final AbortChannel abortChannel = new AbortChannel();
+	private final Recorder recorder = Recorder.ENABLED ? org.deuce.transaction.stats.Statistics.newRecorder(this) : null;
 	
 	// Static initialization
 	static {
@@ -86,19 +97,24 @@ final public class Context implements org.deuce.transaction.Context {
 	}
 	
 	public Context() {
-		threadId = threadIdCounter.getAndIncrement();
-		int maxThreads = (int) Math.pow(2, LockTable.OWNERSIZE);
-		if (threadId > maxThreads) {
-			System.err.println("Too many threads in the system. Max number of threads allowed is " + maxThreads);
+		threadId = ThreadRegistry.register(this);
+		if (threadId < 0) {
+			System.err.println("Too many threads in the system. Max number of threads allowed is " + ThreadRegistry.MAX_THREADS);
 			System.exit(1);
 		}
-		stats = new Statistics(threadId);
+		stats = Statistics.getInstance(threadId);
+		record = HELPING ? new CommitRecord(threadId) : null;
 		this.localClock = 0;
-		threads[threadId] = this;
 	}
 	
-	public final void init(int atomicBlockId, String metainf) {
+	public final void init(int atomicBlockId, int flags, String metainf) {
 		this.atomicBlockId = atomicBlockId;
+		this.abortChannel.init(atomicBlockId);
+		if (this.cmGeneration != Factory.getGeneration()) {
+			// Another contention manager was selected
+			this.cmGeneration = Factory.getGeneration();
+			this.cm = Factory.createContentionManager();
+		}
 		this.cm.init();
 		this.readSet.clear();
 		this.writeSet.clear();
@@ -111,18 +127,16 @@ final public class Context implements org.deuce.transaction.Context {
 		this.longPool.clear();
 		this.floatPool.clear();
 		this.doublePool.clear();
+		this.cm.onStart(this);
 		
 		//Lock according to the transaction irrevocable state
-		if(irrevocableState)
-			irrevocableAccessLock.writeLock().lock();
-		else
-			irrevocableAccessLock.readLock().lock();
+		irrevocableSlot.lock(irrevocableState);
 		
 		this.rv = globalClock.get();
 		this.attempts++;
 		
 		// Reset localClock if max value reached
-		if (localClock < (1 << LockTable.OWNERCLOCK_SIZE)) {
+		if (localClock < (1 << LockTable.OWNERCLOCK_SIZE) - 1) {
 			this.localClock++;
 		}
 		else {
@@ -130,7 +144,9 @@ final public class Context implements org.deuce.transaction.Context {
 		}
 		int statusRecord = generateStatusRecord(TX_RUNNING, localClock);
 		this.statusRecord.set(statusRecord);
-		this.stats.reportTxStart();
+		this.stats.reportTxStart(atomicBlockId);
+		if (Recorder.ENABLED)
+			this.recorder.onStart(atomicBlockId);
 	}
 
 	public final boolean commit() {
@@ -139,47 +155,69 @@ final public class Context implements org.deuce.transaction.Context {
 			// Read-only transactions don't have to do anything in order to commit
 			if (writeSet.isEmpty()) {
 				this.stats.reportCommit(attempts);
+				if (Recorder.ENABLED)
+					this.recorder.onCommit(readSet.size(), 0);
 				resetPriorities();
 				return true;
 			}
 
 			// Writing transactions have to go through a different algorithm
+			cm.beforeCommit(this);
 			int lockedCounter = lockWriteSet();
 			if (lockedCounter == writeSet.size()) {
-				boolean readSetValidated = readSet.validate(rv);
+				boolean readSetValidated = readSet.validate(rv, threadId);
 				if (readSetValidated) {
+					// Publish the write set before committing, it is helped as soon as we are committed
+					if (HELPING) {
+						record.reset(writeSet, localClock);
+						commitRecord = record;
+					}
 					int expectedStatusRecord = generateStatusRecord(TX_RUNNING, localClock);
 					int newStatusRecord = generateStatusRecord(TX_COMMITTED, localClock);
 					boolean committed = statusRecord.compareAndSet(expectedStatusRecord, newStatusRecord);
 					if (committed) {
-						// Get a new version number
+						// Get a new version number, a killed transaction leaves the clock alone
 						int newClock = globalClock.incrementAndGet();
+						if (HELPING) {
+							// Write values to memory and release locks, along with the helpers
+							record.writeBack(newClock);
+							commitRecord = null;
+						}
+						else {
+							// Write values to memory
+							writeSet.forEach(putProcedure);
 
-						// Write values to memory
-						writeSet.forEach(putProcedure);
-
-						// Update and release locks
-						updateAndUnlockProcedure.setNewClock(newClock);
-						writeSet.forEach(updateAndUnlockProcedure);
+							// Update and release locks
+							updateAndUnlockProcedure.setNewClock(newClock);
+							writeSet.forEach(updateAndUnlockProcedure);
+						}
 
 						this.stats.reportCommit(attempts);
+						if (Recorder.ENABLED)
+							this.recorder.onCommit(readSet.size(), writeSet.size());
 						resetPriorities();
 						return true;
 					}
 					else {
+						commitRecord = null;
+						this.abortChannel.set(AbortCause.KILLED);
 						this.stats.reportAbort(AbortType.COMMIT_KILLED); 
 					}
 				}
 				else {
+					this.abortChannel.set(AbortCause.COMMIT);
 					this.stats.reportAbort(AbortType.COMMIT_READSET_VALIDATION); 
 				}
 			}
 			else {
 				this.stats.reportWriteSetValidationFailureDuringCommit(lockedCounter+1);
+				this.abortChannel.set(AbortCause.COMMIT);
 				this.stats.reportAbort(AbortType.COMMIT_WRITESET_LOCKING);
 			}
 
 			// Commit did not succeed, roll-back all the changes
+			if (Recorder.ENABLED)
+				this.recorder.onAbort(abortChannel.getCause());
 			Iterator<WriteFieldAccess> iter = writeSet.iterator();
 			while (lockedCounter > 0) {
 				WriteFieldAccess field = iter.next();
@@ -191,19 +229,27 @@ final public class Context implements org.deuce.transaction.Context {
 
 		}
 		finally{
-			if(irrevocableState){
-				irrevocableState = false;
-				irrevocableAccessLock.writeLock().unlock();
-			}
-			else{
-				irrevocableAccessLock.readLock().unlock();
-			}
+			cm.onEnd(this);
+			irrevocableState = false;
+			irrevocableSlot.unlock();
 
 		}
 	}
 
 	public final void rollback() {
-		irrevocableAccessLock.readLock().unlock();
+		abortChannel.rollback();
+		if (Recorder.ENABLED)
+			recorder.onAbort(abortChannel.getCause());
+		cm.onEnd(this);
+		irrevocableSlot.unlock();
+	}
+
+	public AbortCause getAbortCause() {
+		return abortChannel.getCause();
+	}
+
+	public int getAbortCount() {
+		return abortChannel.getAborts();
 	}
 	
 	public final boolean kill(int clockValue) {
@@ -221,6 +267,34 @@ final public class Context implements org.deuce.transaction.Context {
 		}
 	}
 	
+	/**
+	 * Completes the write-back of this transaction if it committed while holding the given lock,
+	 * instead of waiting for it or killing it
+	 * @param lock lock value owned by this thread
+	 * @return true if the write-back is done and the lock released, false otherwise
+	 */
+	public final boolean helpCommit(long lock) {
+		int statusRecord = this.statusRecord.get();
+		int ownerClock = LockTable.getOwnerClock(lock);
+		if (getTxStatus(statusRecord) != TX_COMMITTED || getTxLocalClock(statusRecord) != ownerClock) {
+			return false;
+		}
+		// Published before the status changed, unless it belongs to a later commit
+		CommitRecord record = commitRecord;
+		if (record == null) {
+			return false;
+		}
+		return record.help(ownerClock);
+	}
+	
+	/**
+	 * Gets the global version clock
+	 * @return version of the last commit
+	 */
+	public static long getClock() {
+		return globalClock.get();
+	}
+
 	/**
 	 * Gets the Id of this thread
 	 * @return Id of this thread
@@ -251,6 +325,23 @@ final public class Context implements org.deuce.transaction.Context {
 		killKarma.addAndGet(delta);
 	}
 	
+	/**
+	 * Gets the number of attempts of the current transaction that did not commit,
+	 * not counting the running one
+	 * @return number of failed attempts
+	 */
+	public final int getAttempts() {
+		return attempts;
+	}
+
+	/**
+	 * Gets the Id of the atomic block run by this thread
+	 * @return atomic block Id
+	 */
+	public final int getAtomicBlockId() {
+		return atomicBlockId;
+	}
+
 	public final Statistics getStatistics() {
 		return stats;
 	}
@@ -310,8 +401,13 @@ final public class Context implements org.deuce.transaction.Context {
 				else if (res[0] == 1) {
 					// Lock was not acquired, but the owner of the lock is known
 					int lockOwner = LockTable.getOwner(originalLock);
-					Context otherCtx = threads[lockOwner];
-					Action action = cm.resolveWriteConflict(writeField, this, otherCtx);
+					Context otherCtx = ThreadRegistry.get(lockOwner);
+					// A committed owner is only writing back, complete it and acquire the released lock
+					if (otherCtx != null && otherCtx.helpCommit(originalLock)) {
+						continue;
+					}
+					// The owner is gone and cannot release the lock: take it over
+					Action action = (otherCtx == null ? Action.STEAL_LOCK : cm.resolveWriteConflict(writeField, this, otherCtx));
 					if (action.equals(Action.RESTART)) {
 						killedByCM = true;
 						break;
@@ -349,9 +445,17 @@ final public class Context implements org.deuce.transaction.Context {
 		// to be sure we read a consistent value from memory 
 		while (LockTable.isLocked(lock)) {
 			int lockOwner = LockTable.getOwner(lock);
-			Context ownerCtx = threads[lockOwner];
-			Action action = cm.resolveReadConflict(current, this, ownerCtx);
+			Context ownerCtx = ThreadRegistry.get(lockOwner);
+			if (ownerCtx != null && ownerCtx.helpCommit(lock)) {
+				lock = LockTable.getLock(hash);
+				continue;
+			}
+			// The owner is gone and never wrote back: the value in memory is consistent
+			Action action = (ownerCtx == null ? Action.CONTINUE : cm.resolveReadConflict(current, this, ownerCtx));
 			if (action.equals(Action.RESTART)) {
+				abortChannel.set(AbortCause.READ);
+				if (Recorder.ENABLED)
+					recorder.onConflict(hash, obj, field);
 				stats.reportAbort(AbortType.SPECULATION_LOCATION_LOCKED);
 				throw FAILURE_EXCEPTION;
 			}
@@ -365,6 +469,9 @@ final public class Context implements org.deuce.transaction.Context {
 		}
 		int version = LockTable.getVersion(lock);
 		if (version > lastReadLockVersion) {
+			abortChannel.set(AbortCause.READ);
+			if (Recorder.ENABLED)
+				recorder.onConflict(hash, obj, field);
 			stats.reportAbort(AbortType.SPECULATION_READVERSION);
 			throw FAILURE_EXCEPTION;
 		}
@@ -406,6 +513,9 @@ final public class Context implements org.deuce.transaction.Context {
 		long lock = LockTable.getLock(hash);
 		lastReadLockVersion = LockTable.getVersion(lock);
 		if (lastReadLockVersion > rv) {
+			abortChannel.set(AbortCause.READ);
+			if (Recorder.ENABLED)
+				recorder.onConflict(hash, obj, field);
 			stats.reportAbort(AbortType.SPECULATION_READVERSION);
 			throw FAILURE_EXCEPTION;
 		}
@@ -640,6 +750,7 @@ final public class Context implements org.deuce.transaction.Context {
 			return;
 
 		irrevocableState = true;
+		abortChannel.set(AbortCause.IRREVOCABLE);
 		throw TransactionException.STATIC_TRANSACTION;
 	}
 }
@@ -1,5 +1,8 @@
 package org.deuce.transaction.tl2cm;
 
+import java.util.Arrays;
+
+import org.deuce.transaction.tl2cm.cm.Adaptive;
 import org.deuce.transaction.tl2cm.cm.Aggressive;
 import org.deuce.transaction.tl2cm.cm.AggressiveLS;
 import org.deuce.transaction.tl2cm.cm.ContentionManager;
@@ -8,11 +11,14 @@ import org.deuce.transaction.tl2cm.cm.KarmaLS;
 import org.deuce.transaction.tl2cm.cm.KillPrioLS;
 import org.deuce.transaction.tl2cm.cm.Polite;
 import org.deuce.transaction.tl2cm.cm.Polka;
+import org.deuce.transaction.tl2cm.cm.StarvationFree;
 import org.deuce.transaction.tl2cm.cm.Suicide;
 import org.deuce.transform.commons.Exclude;
 
 /**
- * Factory for creating contention mangers
+ * Factory for creating contention mangers. The manager named by
+ * -Dorg.deuce.transaction.tl2cm.ContentionManager can be replaced at run time with
+ * {@link #setContentionManager(String)}, the contexts switch on their next transaction.
  * 
  * @author Yoav Cohen, yoav.cohen@cs.tau.ac.il
  */
@@ -20,9 +26,47 @@ import org.deuce.transform.commons.Exclude;
 public class Factory {
 
 	private static final String TL2CM_CONTENTIONMANAGER = "org.deuce.transaction.tl2cm.ContentionManager";
+	private static final String STARVATION_BASE = "org.deuce.transaction.tl2cm.starvation.base";
+	private static final String STARVATION_THRESHOLD = "org.deuce.transaction.tl2cm.starvation.threshold";
+	private static final String DEFAULT_ID = "KillPrioLS";
+	private static final String[] IDS = {"Suicide", "Aggressive", "Polite", "Karma", "KarmaLS", "Polka",
+		"AggressiveLS", "KillPrioLS", "Adaptive", "StarvationFree"};
+
+	private static volatile String selected = System.getProperty(TL2CM_CONTENTIONMANAGER);
+	// Bumped when the selection changes
+	private static volatile int generation = 0;
 	
 	public static ContentionManager createContentionManager() {
-		String cmId = System.getProperty(TL2CM_CONTENTIONMANAGER);
+		return createContentionManager(selected);
+	}
+
+	/**
+	 * @return the name of the selected contention manager
+	 */
+	public static String getContentionManager() {
+		String id = selected;
+		return id == null || !Arrays.asList(IDS).contains(id) ? DEFAULT_ID : id;
+	}
+
+	/**
+	 * Selects the contention manager of the transactions started afterwards.
+	 * @param cmId one of the names of {@link #createContentionManager(String)}
+	 */
+	public static synchronized void setContentionManager(String cmId) {
+		if (!Arrays.asList(IDS).contains(cmId))
+			throw new IllegalArgumentException("Unknown contention manager: " + cmId + ", expected one of " + Arrays.toString(IDS));
+		selected = cmId;
+		generation++;
+	}
+
+	/**
+	 * @return a number that changes each time another contention manager is selected
+	 */
+	public static int getGeneration() {
+		return generation;
+	}
+
+	public static ContentionManager createContentionManager(String cmId) {
 		ContentionManager cm = null;
 		if ("Suicide".equals(cmId)) {
 			cm = new Suicide();
@@ -48,8 +92,17 @@ public class Factory {
 		else if ("KillPrioLS".equals(cmId)) {
 			cm = new KillPrioLS();
 		}
+		else if ("Adaptive".equals(cmId)) {
+			cm = new Adaptive();
+		}
+		else if ("StarvationFree".equals(cmId)) {
+			// Resolves the conflicts with the base manager until a transaction starves
+			String baseId = System.getProperty(STARVATION_BASE);
+			ContentionManager base = "StarvationFree".equals(baseId) ? new KillPrioLS() : createContentionManager(baseId);
+			cm = new StarvationFree(base, Integer.getInteger(STARVATION_THRESHOLD, 32));
+		}
 		else {
-			cm = new KillPrioLS();	// This is the default CM
+			cm = new KillPrioLS();	// This is the default CM (DEFAULT_ID)
 		}
 		return cm;
 	}
@@ -17,7 +17,7 @@ import org.deuce.transform.commons.Exclude;
 @Exclude
 public class LockTable {
 
-	public static final int OWNERSIZE = 8;	// Allowing for 2^OWNERSIZE threads in the system
+	public static final int OWNERSIZE = 16;	// Allowing for 2^OWNERSIZE-1 live threads in the system (see ThreadRegistry)
 	public static final int OWNERCLOCK_SIZE = 31 - OWNERSIZE;
 	private static final int NO_OWNER = 0;
 	private static final int SIZE = 1 << 20;
@@ -131,6 +131,25 @@ public class LockTable {
 		locks.set(lockIndex, newLock);
 	}
 	
+	/**
+	 * Updates the lock version and unlocks it if still owned by the given owner and local clock,
+	 * might be called by the helpers of the owner as well
+	 * @param hash hash code of the location to unlock
+	 * @param owner thread Id of the lock owner
+	 * @param ownerClock local clock value of the lock owner
+	 * @param updatedVersion new version to put on lock
+	 */
+	public static final void releaseOwned(int hash, int owner, int ownerClock, int updatedVersion) {
+		int lockIndex = hash & HASH_MASK;
+		long lock = locks.get(lockIndex);
+		while (getOwner(lock) == owner && getOwnerClock(lock) == ownerClock) {
+			if (locks.compareAndSet(lockIndex, lock, generateLock(NO_OWNER, 0, updatedVersion))) {
+				return;
+			}
+			lock = locks.get(lockIndex);
+		}
+	}
+	
 	public static final boolean isLocked(long lock) {
 		return getOwner(lock) != NO_OWNER;
 	}
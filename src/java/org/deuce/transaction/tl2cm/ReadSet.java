@@ -47,13 +47,19 @@ public class ReadSet{
 		return currentReadFieldAccess;
 	}
 	
-    public boolean validate(int version) {
+    /**
+     * Validates the read set at commit time
+     * @param version the read version of the transaction
+     * @param threadId the transaction thread, its own locks are not conflicts
+     * @return true if no read field was changed or locked by another thread
+     */
+    public boolean validate(int version, int threadId) {
         for (int i = 0; i < nextAvaliable; i++) {
         	ReadFieldAccess field = readSet[i];
 			int hash = field.hashCode();
         	long lock = LockTable.getLock(hash);
         	int lockVersion = LockTable.getVersion(lock);
-        	if (lockVersion > version || LockTable.isLocked(lock)) {
+        	if (lockVersion > version || (LockTable.isLocked(lock) && LockTable.getOwner(lock) != threadId)) {
         		return false;
         	}
         }
@@ -1,9 +1,11 @@
 package org.deuce.transaction.tl2cm;
 
+import java.util.Arrays;
 import java.util.Formatter;
-import java.util.HashMap;
 import java.util.Locale;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.deuce.transform.commons.Exclude;
 
@@ -17,8 +19,13 @@ public class Statistics {
 
 	public enum AbortType {ALL, SPECULATION, COMMIT, COMMIT_READSET_VALIDATION, COMMIT_WRITESET_LOCKING, COMMIT_KILLED, SPECULATION_READVERSION, SPECULATION_LOCATION_LOCKED} 
 	
-	private static final Map<Integer, Statistics> statsMap = new HashMap<Integer, Statistics>();
+	// Iterated by the reports while the contexts of new threads register
+	private static final Map<Integer, Statistics> statsMap = new ConcurrentHashMap<Integer, Statistics>();
 	private static int[] txAttemptsHistBins;
+
+	/** Per atomic block samples, only collected once a contention manager asked for them */
+	private static volatile boolean blockSampling = false;
+	private static volatile BlockStatistics[] blockStats = new BlockStatistics[64];
 	
 	static {
 		String histStr = System.getProperty("txDurationHist");
@@ -35,6 +42,72 @@ public class Statistics {
 		txAttemptsHistBins[txAttemptsHistBins.length-1] = 100;
 	}
 	
+	/**
+	 * Starts collecting per atomic block samples (starts, commits and time spent waiting
+	 * on conflicts), used by contention managers that adapt to the workload.
+	 */
+	public static void enableBlockSampling() {
+		blockSampling = true;
+	}
+
+	/**
+	 * Gets the samples of an atomic block, see {@link #enableBlockSampling()}
+	 * @param atomicBlockId atomic block Id
+	 * @return samples of the atomic block
+	 */
+	public static BlockStatistics getBlockStatistics(int atomicBlockId) {
+		BlockStatistics[] current = blockStats;
+		if (atomicBlockId < current.length) {
+			BlockStatistics statistics = current[atomicBlockId];
+			if (statistics != null)
+				return statistics;
+		}
+		return newBlockStatistics(atomicBlockId);
+	}
+
+	private static synchronized BlockStatistics newBlockStatistics(int atomicBlockId) {
+		BlockStatistics[] current = blockStats;
+		if (atomicBlockId >= current.length) {
+			int length = current.length;
+			while (length <= atomicBlockId)
+				length <<= 1;
+			current = Arrays.copyOf(current, length);
+		}
+		BlockStatistics statistics = current[atomicBlockId];
+		if (statistics == null) {
+			statistics = new BlockStatistics();
+			current[atomicBlockId] = statistics;
+		}
+		blockStats = current; // publish
+		return statistics;
+	}
+
+	/**
+	 * Samples of an atomic block, shared by all the threads running it
+	 */
+	@Exclude
+	public static class BlockStatistics {
+		private final AtomicLong starts = new AtomicLong();
+		private final AtomicLong commits = new AtomicLong();
+		private final AtomicLong waitNanos = new AtomicLong();
+
+		public long getStarts() {
+			return starts.get();
+		}
+
+		public long getCommits() {
+			return commits.get();
+		}
+
+		/**
+		 * Gets the time spent by transactions of the block waiting on conflicts
+		 * @return time in nanoseconds
+		 */
+		public long getWaitNanos() {
+			return waitNanos.get();
+		}
+	}
+
 	public static int getTotalStarts() {
 		int totalStarts = 0;
 		for (Map.Entry<Integer, Statistics> entry : statsMap.entrySet()) {
@@ -210,6 +283,8 @@ public class Statistics {
 	private long txDurationSum = 0;
 	
 	private int[] txAttemptsHistCounters;
+
+	private BlockStatistics currentBlockStats = null;
 	
 	private int readSetValidationFailureSum = 0;
 	private int readSetValidationFailureCounter = 0;
@@ -223,13 +298,42 @@ public class Statistics {
 	private int writeSetSizeOnCommitCounter = 0;
 	
 	public Statistics(int threadId) {
-		statsMap.put(threadId, this);
+		synchronized (statsMap) {
+			statsMap.put(threadId, this);
+		}
 		txAttemptsHistCounters = new int[txAttemptsHistBins.length];
 	}
 
-	public void reportTxStart() {
+	/**
+	 * Gets the statistics of a thread Id. Thread Ids are recycled (see {@link ThreadRegistry}),
+	 * so a thread that gets the Id of a dead one keeps adding to the same statistics.
+	 * @param threadId thread Id
+	 * @return statistics of the thread Id
+	 */
+	public static Statistics getInstance(int threadId) {
+		synchronized (statsMap) {
+			Statistics statistics = statsMap.get(threadId);
+			return (statistics != null ? statistics : new Statistics(threadId));
+		}
+	}
+
+	public void reportTxStart(int atomicBlockId) {
 		this.starts++;
 		this.startTime = System.currentTimeMillis();
+		if (blockSampling) {
+			currentBlockStats = getBlockStatistics(atomicBlockId);
+			currentBlockStats.starts.incrementAndGet();
+		}
+	}
+
+	/**
+	 * Reports time spent waiting on a conflict (e.g. backing off before retrying a lock)
+	 * @param nanos waiting time in nanoseconds
+	 */
+	public void reportWait(long nanos) {
+		if (currentBlockStats != null) {
+			currentBlockStats.waitNanos.addAndGet(nanos);
+		}
 	}
 	
 	public void reportAbort(AbortType type) {
@@ -250,6 +354,9 @@ public class Statistics {
 	
 	public void reportCommit(int attempts) {
 		this.commits++;
+		if (currentBlockStats != null) {
+			currentBlockStats.commits.incrementAndGet();
+		}
 		if (startTime != -1) {
 			long txDuration = System.currentTimeMillis() - startTime;
 			txDurationSum += txDuration;
@@ -0,0 +1,102 @@
+package org.deuce.transaction.tl2cm;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+
+import org.deuce.transform.commons.Exclude;
+
+/**
+ * Maps the thread Ids found in lock words to the contexts of their threads.
+ * 
+ * <p>The table grows on demand up to the 2^{@link LockTable#OWNERSIZE} - 1 Ids that fit
+ * in a lock word (Id 0 stands for no owner). Contexts are only weakly referenced: once
+ * the thread of a context is gone and the context has been garbage collected, its Id is
+ * handed out again.</p>
+ * 
+ * @author Yoav Cohen, yoav.cohen@cs.tau.ac.il
+ */
+@Exclude
+public class ThreadRegistry {
+
+	public static final int MAX_THREADS = (1 << LockTable.OWNERSIZE) - 1;
+	private static final int INITIAL_CAPACITY = 256;
+
+	private static final ReferenceQueue<Context> collected = new ReferenceQueue<Context>();
+	private static volatile ContextReference[] contexts = new ContextReference[INITIAL_CAPACITY];
+	// Ids released by collected contexts
+	private static int[] freeIds = new int[16];
+	private static int freeCount = 0;
+	private static int nextId = 1;
+
+	/**
+	 * Registers a new context
+	 * @param context the context of the calling thread
+	 * @return the Id of the context, or -1 if all the Ids are in use
+	 */
+	public static synchronized int register(Context context) {
+		reclaim();
+		int id;
+		if (freeCount > 0) {
+			id = freeIds[--freeCount];
+		}
+		else if (nextId <= MAX_THREADS) {
+			id = nextId++;
+		}
+		else {
+			return -1;
+		}
+		ContextReference[] array = contexts;
+		if (id >= array.length) {
+			ContextReference[] newArray = new ContextReference[Math.min(array.length << 1, MAX_THREADS + 1)];
+			System.arraycopy(array, 0, newArray, 0, array.length);
+			array = newArray;
+		}
+		array[id] = new ContextReference(context, id);
+		// Publish the (possibly new) array after the slot is set
+		contexts = array;
+		return id;
+	}
+
+	/**
+	 * Gets the context of a thread Id
+	 * @param id thread Id, as found in a lock word
+	 * @return the context, or null if it has been garbage collected
+	 */
+	public static Context get(int id) {
+		ContextReference ref = contexts[id];
+		return (ref != null ? ref.get() : null);
+	}
+
+	/**
+	 * Gets the number of Ids handed out so far, including the recycled ones
+	 */
+	public static synchronized int size() {
+		reclaim();
+		return nextId - 1 - freeCount;
+	}
+
+	private static void reclaim() {
+		ContextReference ref;
+		while ((ref = (ContextReference) collected.poll()) != null) {
+			if (contexts[ref.id] == ref) {
+				contexts[ref.id] = null;
+				if (freeCount == freeIds.length) {
+					int[] newFreeIds = new int[freeIds.length << 1];
+					System.arraycopy(freeIds, 0, newFreeIds, 0, freeCount);
+					freeIds = newFreeIds;
+				}
+				freeIds[freeCount++] = ref.id;
+			}
+		}
+	}
+
+	@Exclude
+	private static class ContextReference extends WeakReference<Context> {
+		private final int id;
+
+		public ContextReference(Context context, int id) {
+			super(context, collected);
+			this.id = id;
+		}
+	}
+}
@@ -1,5 +1,7 @@
 package org.deuce.transaction.tl2cm.cm;
 
+import org.deuce.transaction.tl2cm.Context;
+
 /**
  * This class provides default implementation for contention managers
  * 
@@ -23,4 +25,16 @@ abstract public class AbstractContentionManager implements ContentionManager {
 		
 	}
 
+	@Override
+	public void onStart(Context me) {
+	}
+
+	@Override
+	public void beforeCommit(Context me) {
+	}
+
+	@Override
+	public void onEnd(Context me) {
+	}
+
 }
@@ -0,0 +1,220 @@
+package org.deuce.transaction.tl2cm.cm;
+
+import java.util.Formatter;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.deuce.transaction.tl2cm.Context;
+import org.deuce.transaction.tl2cm.Statistics;
+import org.deuce.transaction.tl2cm.Statistics.BlockStatistics;
+import org.deuce.transaction.tl2cm.field.ReadFieldAccess;
+import org.deuce.transaction.tl2cm.field.WriteFieldAccess;
+import org.deuce.transform.commons.Exclude;
+
+/**
+ * The Adaptive contention manager picks, for each atomic block, one of the Suicide, Aggressive,
+ * Polite and Karma policies, and switches between them as the contention changes.
+ *
+ * Every {@code PERIOD} transactions of a block, the abort ratio and the time spent waiting on
+ * conflicts are sampled from {@link Statistics}. A low abort ratio calls for the cheap policies
+ * (Suicide, then Aggressive), a higher one for backing off (Polite), and a high one, or Polite
+ * waiting too long, for priorities (Karma). The decision is only taken on a conflict, since the
+ * policy has no effect on a block that does not conflict.
+ *
+ * The decisions can be followed with {@link #getPolicy(int)}, {@link #getSwitches(int)} and
+ * {@link #getDecisions()}, or printed as they are taken with
+ * -Dorg.deuce.transaction.tl2cm.adaptive.verbose=true.
+ *
+ * @since 1.4
+ */
+@Exclude
+public class Adaptive extends AbstractContentionManager {
+
+	private static final int SUICIDE = 0;
+	private static final int AGGRESSIVE = 1;
+	private static final int POLITE = 2;
+	private static final int KARMA = 3;
+	private static final String[] NAMES = {"Suicide", "Aggressive", "Polite", "Karma"};
+
+	/** Number of transactions of a block between two decisions */
+	private static final int PERIOD = Integer.getInteger("org.deuce.transaction.tl2cm.adaptive.period", 256);
+	/** Average wait per commit (in microseconds) above which Polite is replaced by Karma */
+	private static final int MAX_WAIT = Integer.getInteger("org.deuce.transaction.tl2cm.adaptive.maxWait", 100);
+	private static final boolean VERBOSE = Boolean.getBoolean("org.deuce.transaction.tl2cm.adaptive.verbose");
+
+	private static final ConcurrentHashMap<Integer, BlockPolicy> policies = new ConcurrentHashMap<Integer, BlockPolicy>();
+
+	private final ContentionManager[] managers = {new Suicide(), new Aggressive(), new Polite(2), new Karma(4)};
+
+	public Adaptive() {
+		Statistics.enableBlockSampling();
+	}
+
+	/**
+	 * The policy of an atomic block and the samples it was decided on
+	 */
+	@Exclude
+	private static class BlockPolicy {
+		volatile int policy = SUICIDE;
+		int switches = 0;
+		volatile long lastStarts = 0;
+		long lastCommits = 0;
+		long lastWaitNanos = 0;
+		String lastDecision = null;
+	}
+
+	@Override
+	public void init() {
+		for (ContentionManager manager : managers) {
+			manager.init();
+		}
+	}
+
+	@Override
+	public Action resolveReadConflict(ReadFieldAccess readField, Context me, Context other) {
+		ContentionManager manager = managers[adapt(me.getAtomicBlockId())];
+		long start = System.nanoTime();
+		Action action = manager.resolveReadConflict(readField, me, other);
+		me.getStatistics().reportWait(System.nanoTime() - start);
+		return action;
+	}
+
+	@Override
+	public Action resolveWriteConflict(WriteFieldAccess writeField, Context me, Context other) {
+		ContentionManager manager = managers[adapt(me.getAtomicBlockId())];
+		long start = System.nanoTime();
+		Action action = manager.resolveWriteConflict(writeField, me, other);
+		me.getStatistics().reportWait(System.nanoTime() - start);
+		return action;
+	}
+
+	/**
+	 * Karma is one of the policies, so priorities are always collected
+	 */
+	@Override
+	public boolean requiresPriorities() {
+		return true;
+	}
+
+	@Override
+	public String getDescription() {
+		return "Adaptive [Suicide/Aggressive/Polite/Karma per atomic block, Period=" + PERIOD + ", Max wait=" + MAX_WAIT + "us]";
+	}
+
+	/**
+	 * Gets the policy of an atomic block, deciding again if a period elapsed
+	 * @param atomicBlockId atomic block Id
+	 * @return the policy index
+	 */
+	private static int adapt(int atomicBlockId) {
+		BlockPolicy blockPolicy = getBlockPolicy(atomicBlockId);
+		BlockStatistics samples = Statistics.getBlockStatistics(atomicBlockId);
+		if (samples.getStarts() - blockPolicy.lastStarts < PERIOD) {
+			return blockPolicy.policy;
+		}
+		synchronized (blockPolicy) {
+			long starts = samples.getStarts();
+			long periodStarts = starts - blockPolicy.lastStarts;
+			if (periodStarts < PERIOD) {
+				return blockPolicy.policy; // decided by another thread
+			}
+			long commits = samples.getCommits();
+			long waitNanos = samples.getWaitNanos();
+			long periodCommits = commits - blockPolicy.lastCommits;
+			double abortRatio = 1 - (double) periodCommits / periodStarts;
+			double waitPerCommit = (waitNanos - blockPolicy.lastWaitNanos) / 1000.0 / Math.max(periodCommits, 1);
+			blockPolicy.lastStarts = starts;
+			blockPolicy.lastCommits = commits;
+			blockPolicy.lastWaitNanos = waitNanos;
+
+			int policy = choose(abortRatio, waitPerCommit);
+			if (policy != blockPolicy.policy) {
+				String decision = new Formatter(Locale.US).format("block %d: %s -> %s (aborts %.2f%%, wait %.1fus/commit)",
+						atomicBlockId, NAMES[blockPolicy.policy], NAMES[policy], abortRatio * 100, waitPerCommit).toString();
+				blockPolicy.lastDecision = decision;
+				blockPolicy.switches++;
+				blockPolicy.policy = policy;
+				if (VERBOSE) {
+					System.out.println("TL2CM Adaptive " + decision);
+				}
+			}
+			return policy;
+		}
+	}
+
+	private static int choose(double abortRatio, double waitPerCommit) {
+		if (abortRatio < 0.05) {
+			return SUICIDE;
+		}
+		if (abortRatio < 0.25) {
+			return AGGRESSIVE;
+		}
+		if (abortRatio < 0.5 && waitPerCommit <= MAX_WAIT) {
+			return POLITE;
+		}
+		return KARMA;
+	}
+
+	private static BlockPolicy getBlockPolicy(int atomicBlockId) {
+		BlockPolicy blockPolicy = policies.get(atomicBlockId);
+		if (blockPolicy == null) {
+			blockPolicy = new BlockPolicy();
+			BlockPolicy existing = policies.putIfAbsent(atomicBlockId, blockPolicy);
+			if (existing != null) {
+				blockPolicy = existing;
+			}
+		}
+		return blockPolicy;
+	}
+
+	/**
+	 * Gets the policy currently used for an atomic block
+	 * @param atomicBlockId atomic block Id
+	 * @return Suicide, Aggressive, Polite or Karma
+	 */
+	public static String getPolicy(int atomicBlockId) {
+		BlockPolicy blockPolicy = policies.get(atomicBlockId);
+		return NAMES[blockPolicy == null ? SUICIDE : blockPolicy.policy];
+	}
+
+	/**
+	 * Gets the number of policy switches of an atomic block
+	 * @param atomicBlockId atomic block Id
+	 * @return number of switches
+	 */
+	public static int getSwitches(int atomicBlockId) {
+		BlockPolicy blockPolicy = policies.get(atomicBlockId);
+		if (blockPolicy == null) {
+			return 0;
+		}
+		synchronized (blockPolicy) {
+			return blockPolicy.switches;
+		}
+	}
+
+	/**
+	 * Gets the current policy of each atomic block that had a conflict, with its last switch
+	 * @return one line per atomic block
+	 */
+	public static String getDecisions() {
+		StringBuilder sb = new StringBuilder("\n  Adaptive Contention Manager:\n");
+		for (Map.Entry<Integer, BlockPolicy> entry : policies.entrySet()) {
+			BlockPolicy blockPolicy = entry.getValue();
+			synchronized (blockPolicy) {
+				sb.append("  block ");
+				sb.append(entry.getKey());
+				sb.append(": ");
+				sb.append(NAMES[blockPolicy.policy]);
+				sb.append(", switches=");
+				sb.append(blockPolicy.switches);
+				if (blockPolicy.lastDecision != null) {
+					sb.append(", last ");
+					sb.append(blockPolicy.lastDecision);
+				}
+				sb.append("\n");
+			}
+		}
+		return sb.toString();
+	}
+}
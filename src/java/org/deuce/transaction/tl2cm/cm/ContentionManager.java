@@ -45,6 +45,25 @@ public interface ContentionManager {
 	 */
 	public void init();
 
+	/**
+	 * Called when {@code me} starts a transaction attempt, before it reads anything
+	 * @param me the context of the starting thread
+	 */
+	public void onStart(Context me);
+
+	/**
+	 * Called when {@code me} is about to lock its write set to commit
+	 * @param me the context of the committing thread
+	 */
+	public void beforeCommit(Context me);
+
+	/**
+	 * Called when the attempt of {@code me} committed, failed to commit or rolled back.
+	 * Might be called more than once for the same attempt.
+	 * @param me the context of the thread
+	 */
+	public void onEnd(Context me);
+
 	/**
 	 * Resolves the conflict that is caused when {@code me} tries to read the shared object that 
 	 * is represented by {@code readField} while at the same time {@code other} is holding
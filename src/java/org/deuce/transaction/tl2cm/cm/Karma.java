@@ -3,6 +3,7 @@ package org.deuce.transaction.tl2cm.cm;
 import org.deuce.transaction.tl2cm.Context;
 import org.deuce.transaction.tl2cm.field.ReadFieldAccess;
 import org.deuce.transaction.tl2cm.field.WriteFieldAccess;
+import org.deuce.transaction.util.Backoff;
 import org.deuce.transform.commons.Exclude;
 
 /**
@@ -41,7 +42,7 @@ public class Karma extends AbstractContentionManager {
 			}
 		}
 		counter++;
-		for (int i=0; i<BACKOFF_PERIOD; i++);
+		Backoff.pause(BACKOFF_PERIOD);
 		return Action.RETRY;
 	}
 
@@ -60,7 +61,7 @@ public class Karma extends AbstractContentionManager {
 			}
 		}
 		counter++;
-		for (int i=0; i<BACKOFF_PERIOD; i++);
+		Backoff.pause(BACKOFF_PERIOD);
 		return Action.RETRY;
 	}
 	 
@@ -3,6 +3,7 @@ package org.deuce.transaction.tl2cm.cm;
 import org.deuce.transaction.tl2cm.Context;
 import org.deuce.transaction.tl2cm.field.ReadFieldAccess;
 import org.deuce.transaction.tl2cm.field.WriteFieldAccess;
+import org.deuce.transaction.util.Backoff;
 import org.deuce.transform.commons.Exclude;
 
 /**
@@ -43,7 +44,7 @@ public class Polite extends AbstractContentionManager {
 		}
 		// increase back-off counter and loop until the time comes to retry
 		int timeToWait = calculateTimeToWait(counter);
-		for (int i=0; i<timeToWait; i++);
+		Backoff.pause(timeToWait);
 		counter++;
 		return Action.RETRY;
 	}
@@ -63,13 +64,13 @@ public class Polite extends AbstractContentionManager {
 		// increase back-off counter and loop until
 		// the time comes to retry
 		int timeToWait = calculateTimeToWait(counter);
-		for (int i=0; i<timeToWait; i++);
+		Backoff.pause(timeToWait);
 		counter++;
 		return Action.RETRY;
 	}
 
 	public String getDescription() {
-		return "Polite busy-waiting [K=" + K + "Max backoff=" + MAX_BACKOFF_TIMES + "]";
+		return "Polite " + (Backoff.parks() ? "parking" : "busy-waiting") + " [K=" + K + "Max backoff=" + MAX_BACKOFF_TIMES + "]";
 	}
 
 	private int calculateTimeToWait(int n) { 
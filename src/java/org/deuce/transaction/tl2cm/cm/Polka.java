@@ -3,6 +3,7 @@ package org.deuce.transaction.tl2cm.cm;
 import org.deuce.transaction.tl2cm.Context;
 import org.deuce.transaction.tl2cm.field.ReadFieldAccess;
 import org.deuce.transaction.tl2cm.field.WriteFieldAccess;
+import org.deuce.transaction.util.Backoff;
 import org.deuce.transform.commons.Exclude;
 
 /**
@@ -45,7 +46,7 @@ public class Polka extends AbstractContentionManager {
 		counter++;
 		diff = Math.abs(diff);
 		int t = (int) Math.pow(diff, counter) * C;
-		for (int i=0; i<t; i++);
+		Backoff.pause(t);
 		return Action.RETRY;
 	}
 
@@ -66,7 +67,7 @@ public class Polka extends AbstractContentionManager {
 		counter++;
 		diff = Math.abs(diff);
 		int t = (int) Math.pow(diff, counter) * C;
-		for (int i=0; i<t; i++);
+		Backoff.pause(t);
 		return Action.RETRY;
 	}
 	
@@ -75,7 +76,7 @@ public class Polka extends AbstractContentionManager {
 	}
 	
 	public String getDescription() {
-		return "Polka busy-waiting [C=" + C + "]";
+		return "Polka " + (Backoff.parks() ? "parking" : "busy-waiting") + " [C=" + C + "]";
 	}
 
 }
@@ -0,0 +1,135 @@
+package org.deuce.transaction.tl2cm.cm;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.deuce.transaction.tl2cm.Context;
+import org.deuce.transaction.tl2cm.field.ReadFieldAccess;
+import org.deuce.transaction.tl2cm.field.WriteFieldAccess;
+import org.deuce.transform.commons.Exclude;
+
+/**
+ * The StarvationFree contention manager resolves the conflicts with a base contention manager
+ * until a transaction failed {@code threshold} attempts in a row. The starving transaction is
+ * then escalated: it wins every conflict (killing the owner, or waiting for it if the owner is
+ * already writing back), and the other writing transactions wait before they lock their write
+ * set until it is done, so its reads are not invalidated. Read-only transactions and the
+ * speculative part of the writing ones keep running, unlike with the irrevocable mode.
+ *
+ * A single transaction is escalated at a time, the next starving one waits for it at start.
+ * The escalation is given up when the attempt ends, so a transaction that runs out of retries
+ * or throws never blocks the others.
+ *
+ * @since 1.4
+ */
+@Exclude
+public class StarvationFree extends AbstractContentionManager {
+
+	private static final AtomicReference<Context> escalated = new AtomicReference<Context>();
+	private static final AtomicLong escalations = new AtomicLong();
+
+	private final ContentionManager base;
+	private final int threshold;
+
+	public StarvationFree(ContentionManager base, int threshold) {
+		this.base = base;
+		this.threshold = threshold;
+	}
+
+	@Override
+	public void init() {
+		base.init();
+	}
+
+	@Override
+	public void onStart(Context me) {
+		if (me.getAttempts() < threshold) {
+			return;
+		}
+		if (escalated.get() == me) {
+			return;
+		}
+		while (!escalated.compareAndSet(null, me)) {
+			Thread.yield();
+		}
+		escalations.incrementAndGet();
+	}
+
+	@Override
+	public void beforeCommit(Context me) {
+		Context holder;
+		while ((holder = escalated.get()) != null && holder != me) {
+			Thread.yield();
+		}
+	}
+
+	@Override
+	public void onEnd(Context me) {
+		if (escalated.get() == me) {
+			escalated.set(null);
+		}
+	}
+
+	@Override
+	public Action resolveReadConflict(ReadFieldAccess readField, Context me, Context other) {
+		if (escalated.get() == me) {
+			int statusRecord = other.getStatusRecord();
+			int status = Context.getTxStatus(statusRecord);
+			if (status == Context.TX_ABORTED || (status == Context.TX_RUNNING && other.kill(Context.getTxLocalClock(statusRecord)))) {
+				return Action.CONTINUE;
+			}
+			return Action.RETRY; // the owner is writing back
+		}
+		if (escalated.get() == other) {
+			return Action.RETRY; // the escalated transaction only holds locks while it writes back
+		}
+		return base.resolveReadConflict(readField, me, other);
+	}
+
+	@Override
+	public Action resolveWriteConflict(WriteFieldAccess writeField, Context me, Context other) {
+		if (escalated.get() == me) {
+			int statusRecord = other.getStatusRecord();
+			int status = Context.getTxStatus(statusRecord);
+			if (status == Context.TX_ABORTED || (status == Context.TX_RUNNING && other.kill(Context.getTxLocalClock(statusRecord)))) {
+				return Action.STEAL_LOCK;
+			}
+			return Action.RETRY; // the owner is writing back
+		}
+		if (escalated.get() == other) {
+			me.kill(-1);
+			return Action.RESTART;
+		}
+		return base.resolveWriteConflict(writeField, me, other);
+	}
+
+	@Override
+	public boolean requiresPriorities() {
+		return base.requiresPriorities();
+	}
+
+	@Override
+	public boolean requiresKillPriorities() {
+		return base.requiresKillPriorities();
+	}
+
+	@Override
+	public String getDescription() {
+		return "StarvationFree [Threshold=" + threshold + ", Base=" + base.getDescription() + "]";
+	}
+
+	/**
+	 * @param context a transaction context
+	 * @return <code>true</code> if the transaction of the context is escalated
+	 */
+	public static boolean isEscalated(Context context) {
+		return escalated.get() == context;
+	}
+
+	/**
+	 * @return the number of escalated transaction attempts so far
+	 */
+	public static long getEscalations() {
+		return escalations.get();
+	}
+}
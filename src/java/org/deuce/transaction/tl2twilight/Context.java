@@ -4,11 +4,14 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.Set;
 import java.util.concurrent.atomic.AtomicInteger;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
 
+import org.deuce.transaction.AbortCauseContext;
 import org.deuce.transaction.AbortTransactionException;
 import org.deuce.transaction.TransactionException;
 import org.deuce.transaction.TwilightContext;
+import org.deuce.transaction.stats.AbortCause;
+import org.deuce.transaction.stats.Recorder;
+import org.deuce.transaction.stats.Statistics;
 import org.deuce.transaction.tl2twilight.field.BooleanWriteFieldAccess;
 import org.deuce.transaction.tl2twilight.field.ByteWriteFieldAccess;
 import org.deuce.transaction.tl2twilight.field.CharWriteFieldAccess;
@@ -22,6 +25,8 @@ import org.deuce.transaction.tl2twilight.field.ShortWriteFieldAccess;
 import org.deuce.transaction.tl2twilight.field.WriteFieldAccess;
 import org.deuce.transaction.tl2twilight.pool.Pool;
 import org.deuce.transaction.tl2twilight.pool.ResourceFactory;
+import org.deuce.transaction.util.AbortChannel;
+import org.deuce.transaction.util.IrrevocableAccessLock;
 import org.deuce.transform.commons.Exclude;
 import org.deuce.trove.THashSet;
 import org.deuce.trove.TObjectProcedure;
@@ -68,7 +73,7 @@ import org.deuce.trove.TObjectProcedure;
  * @since	1.0
  */
 @Exclude
-final public class Context implements TwilightContext {
+final public class Context implements TwilightContext, AbortCauseContext {
 	// SHARED/GLOBAL FIELDS (note that they are static)
 	/**
 	 * Twilight STM has a global counter/timer/clock, just as TL2 does [TL2].
@@ -77,7 +82,8 @@ final public class Context implements TwilightContext {
 	/**
 	 * Global lock used for irrevocable transactions, allowing only one irrevocable transaction to run at a time [TL2].
 	 */
-	private static final ReentrantReadWriteLock irrevocableAccessLock = new ReentrantReadWriteLock();
+	private static final IrrevocableAccessLock irrevocableAccessLock = new IrrevocableAccessLock();
+	private final IrrevocableAccessLock.Slot irrevocableSlot = irrevocableAccessLock.newSlot();
 
 	// THREAD-LOCAL FIELDS
 	/**
@@ -138,6 +144,12 @@ final public class Context implements TwilightContext {
 	// TODO: consider the second last post on http://groups.google.com/group/deuce-stm/browse_thread/thread/5f53ca0a2e0cea7a; should I be using the Trove implementation types instead of Map and Set for the static types?
 	private List<Set<ReadFieldAccess>> tagFields;
 
+	/**
+	 * Counters of the transactions run by this context, see {@link Statistics}.
+	 */
+	final private Recorder stats = Recorder.ENABLED ? Statistics.newRecorder(this) : null;
+	final private AbortChannel abortChannel = new AbortChannel();
+
 	// EXCEPTIONS
 	private static final AbortTransactionException READ_IN_TWILIGHT_EXCEPTION = new AbortTransactionException( "Ordinary reads not allowed in Twilight code. Use *reread* operation instead.");
 	private static final AbortTransactionException WRITE_IN_TWILIGHT_EXCEPTION = new AbortTransactionException( "Ordinary writes not allowed in Twilight code. Use *update* operation instead.");
@@ -145,7 +157,10 @@ final public class Context implements TwilightContext {
 
 	//The atomicBlockId argument allows the transaction to log information about the specific atomic block (statically assigned in the bytecode).
 	@Override
-	public void init(int atomicBlockId, String metainf){
+	public void init(int atomicBlockId, int flags, String metainf){
+		abortChannel.init(atomicBlockId);
+		if (Recorder.ENABLED)
+			stats.onStart(atomicBlockId);
 		// (re)initialise transaction state
 		this.readSet.clear();
 		this.writeSet.clear();
@@ -167,10 +182,7 @@ final public class Context implements TwilightContext {
 		this.doublePool.clear();
 
 		// lock according to the transaction irrevocable state (NOTE: irrevocableState must only be initialised in the constructor, not here -- due to the fact that as soon as we spot that the transaction needs to become irrevocable (by a call to onIrrevocableAccess()), the transaction is restarted with irrevocableState set to true -- resetting it to false in this init() method would stop it working)
-		if(irrevocableState)
-			irrevocableAccessLock.writeLock().lock();
-		else
-			irrevocableAccessLock.readLock().lock();
+		irrevocableSlot.lock(irrevocableState);
 
 		// sample the global clock to get start time (T_init) (NOTE: sampling the clock MUST occur after (the potential) locking of the irrevocableAccessLock; see message of first commit appearing on Feb 10th 2011)
 		this.startTime = clock.get();
@@ -214,7 +226,13 @@ final public class Context implements TwilightContext {
 			// reserve the transactional variables in the write set (can throw TransactionException if some fields in write set are LOCKED -- TODO: check this)
 			System.out.println(Thread.currentThread()+" About to try reserving write set");
 			// exception can occur if not able to reserve all the write set locks
-			writeSet.reserve(); // if reservation fails, then transaction is automatically restarted (by relying on exception mechanism in instrumented atomic method to call context.rollback())
+			try {
+				writeSet.reserve(); // if reservation fails, then transaction is automatically restarted (by relying on exception mechanism in instrumented atomic method to call context.rollback())
+			}
+			catch(TransactionException ex) {
+				abortChannel.set(AbortCause.COMMIT);
+				throw ex;
+			}
 			System.out.println(Thread.currentThread()+" Succeeded in reserving write set");
 			// validate the transactional variables in the read set
 			return validate();
@@ -231,6 +249,9 @@ final public class Context implements TwilightContext {
 			// return false if read set still inconsistent even after Twilight zone
 			if(state != ReadSetState.CONSISTENT) {
 				System.out.println(Thread.currentThread()+" Readset found to be inconsistent at the start of finalizeCommit");
+				abortChannel.set(AbortCause.COMMIT);
+				if (Recorder.ENABLED)
+					stats.onAbort(AbortCause.COMMIT);
 				return false;
 			}
 			// otherwise, read set was consistent and we can publish write set (performing necessary locking and unlocking to do so)
@@ -240,6 +261,8 @@ final public class Context implements TwilightContext {
 			writeSet.publishAndUnlock();
 			System.out.println(Thread.currentThread()+" Succeeded in publishing and unlocking write set");
 			System.out.println("SUCCESSFUL COMMIT");
+			if (Recorder.ENABLED)
+				stats.onCommit(readSet.size(), writeSet.size());
 			return true;
 		}
 		// unreserve writeset if readset is inconsistent...
@@ -247,17 +270,15 @@ final public class Context implements TwilightContext {
 		// (I don't think writeSet.lock() can fail since we reserved writeset already and so we should be able to lock unhindered by other transactions... -- one transaction cannot reserve (and afterwards lock) a field that has already been reserved)
 		catch(TransactionException ex) {
 			writeSet.unlock();
+			abortChannel.set(AbortCause.COMMIT);
+			if (Recorder.ENABLED)
+				stats.onAbort(AbortCause.COMMIT);
 			return false;
 		}
 		finally {
 			// set irrevocable state appropriately and also release appropriate locks (this is always run before returning)
-			if(irrevocableState) {
-				irrevocableState = false;
-				irrevocableAccessLock.writeLock().unlock();
-			}
-			else {
-				irrevocableAccessLock.readLock().unlock();
-			}
+			irrevocableState = false;
+			irrevocableSlot.unlock();
 		}
 	}
 
@@ -276,22 +297,45 @@ final public class Context implements TwilightContext {
 		// failed to reserve writeset during prepareCommit() (returning false will cause the atomic method's retry loop to iterate again)
 		catch(TransactionException ex) {
 			writeSet.unlock();
+			abortChannel.set(AbortCause.COMMIT);
+			if (Recorder.ENABLED)
+				stats.onAbort(AbortCause.COMMIT);
 			return false;
 		}
 	}
 
 	@Override
 	public void rollback() {
+		abortChannel.rollback();
+		if (Recorder.ENABLED)
+			stats.onAbort(abortChannel.getCause());
 		// unreserve/unlock writeset entries so other transactions can read/write fields
 		writeSet.unlock();
-		// release irrevocableAccessLock read lock (read lock since any transaction holding the write lock WILL NEVER rollback)
-		irrevocableAccessLock.readLock().unlock();
+		// release the irrevocableAccessLock slot (a no-op if the commit already released it)
+		irrevocableSlot.unlock();
 
 		// lazy version management means that no undo is necessary
 		// write set contents are simply cleared on next call to Context.init()
 		// (same for read set)
 	}
 
+	@Override
+	public AbortCause getAbortCause() {
+		return abortChannel.getCause();
+	}
+
+	@Override
+	public int getAbortCount() {
+		return abortChannel.getAborts();
+	}
+
+	/**
+	 * @return the value of the global version-clock (the version of the last commit)
+	 */
+	public static long getClock() {
+		return clock.get();
+	}
+
 	/**
 	 * <p>Method to allow the programmer to restart the transaction.</p>
 	 *
@@ -601,7 +645,15 @@ final public class Context implements TwilightContext {
 		//System.out.println("object: "+obj);
 
 		// Check the read is valid (PRE-VALIDATION step described in the thesis on p32)
-		preValidationReadVersionedLock = LockManager.checkLock(currentReadFieldAccess.hashCode(), startTime);
+		try {
+			preValidationReadVersionedLock = LockManager.checkLock(currentReadFieldAccess.hashCode(), startTime);
+		}
+		catch(TransactionException ex) {
+			abortChannel.set(AbortCause.READ);
+			if (Recorder.ENABLED)
+				stats.onConflict(currentReadFieldAccess.hashCode(), obj, field);
+			throw ex;
+		}
 		System.out.println(Thread.currentThread()+" No exception happened during the checkLock in beforeReadAccess");
 		// Pre-validation passed, so add to read set (if post-validation subsequently fails, not a problem since transaction will just abort and restart)
 		readSet.add(currentReadFieldAccess);
@@ -617,7 +669,15 @@ final public class Context implements TwilightContext {
 	// 2.
 	private WriteFieldAccess onReadAccess(Object obj, long field){
 		// Check the read is still valid (same lock state and version as in pre-validation) (POST-VALIDATION step described in the thesis on p32)
-		LockManager.checkLock(currentReadFieldAccess.hashCode(), startTime, preValidationReadVersionedLock);
+		try {
+			LockManager.checkLock(currentReadFieldAccess.hashCode(), startTime, preValidationReadVersionedLock);
+		}
+		catch(TransactionException ex) {
+			abortChannel.set(AbortCause.READ);
+			if (Recorder.ENABLED)
+				stats.onConflict(currentReadFieldAccess.hashCode(), obj, field);
+			throw ex;
+		}
 		System.out.println(Thread.currentThread()+" No exception happened during the checkLock in onReadAccess");
 
 		// Check if it is already included in the write set (returns null if not in write set) (NOTE: contains method uses equals() method of one of the objects to do this - ReadFieldAcess and WriteFieldAccess objects share common type (ReadFieldAccess) and also common equals and hashcode methods)
@@ -802,6 +862,7 @@ final public class Context implements TwilightContext {
 			return;
 
 		irrevocableState = true;
+		abortChannel.set(AbortCause.IRREVOCABLE);
 		throw TransactionException.STATIC_TRANSACTION;
 	}
 
@@ -34,6 +34,10 @@ public class ReadSet {
 		readSet.clear();
 	}
 
+	public int size() {
+		return readSet.size();
+	}
+
 	/**
 	 * Returns <code>true</code> if the this ReadSet contains the given
 	 * field (ReadFieldAccess).
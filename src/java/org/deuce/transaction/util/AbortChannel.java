@@ -0,0 +1,61 @@
+package org.deuce.transaction.util;
+
+import org.deuce.transaction.stats.AbortCause;
+import org.deuce.transform.commons.Exclude;
+
+/**
+ * The cause of the aborts of a context, passed from the engine to the retry loop without
+ * allocating. The engine calls {@link #init(int)} when an attempt starts, {@link #set(AbortCause)}
+ * just before it throws or fails the commit, the first cause of an attempt is kept, and
+ * {@link #rollback()} on rollback. Only the thread running the context uses it.
+ *
+ * @see org.deuce.transaction.AbortCauseContext
+ * @since 1.4
+ */
+@Exclude
+final public class AbortChannel {
+
+	private AbortCause cause = null;
+	private int atomicBlockId = -1;
+	private int aborts = 0; // in a row of the block, before the running attempt
+
+	/**
+	 * An attempt of the block starts.
+	 */
+	public void init(int atomicBlockId) {
+		if (cause != null && atomicBlockId == this.atomicBlockId) {
+			++aborts;
+		} else {
+			this.atomicBlockId = atomicBlockId;
+			aborts = 0;
+		}
+		cause = null;
+	}
+
+	/**
+	 * Sets the cause of the abort to come.
+	 */
+	public void set(AbortCause cause) {
+		if (this.cause == null)
+			this.cause = cause;
+	}
+
+	/**
+	 * The attempt is rolled back, a rollback without a cause is {@link AbortCause#EXPLICIT}.
+	 */
+	public void rollback() {
+		if (cause == null)
+			cause = AbortCause.EXPLICIT;
+	}
+
+	public AbortCause getCause() {
+		return cause;
+	}
+
+	/**
+	 * @return the aborts in a row of the block, the running attempt included if it aborted
+	 */
+	public int getAborts() {
+		return cause != null ? aborts + 1 : aborts;
+	}
+}
@@ -0,0 +1,88 @@
+package org.deuce.transaction.util;
+
+import java.util.concurrent.locks.LockSupport;
+
+import org.deuce.transaction.stats.AbortCause;
+import org.deuce.transform.commons.Exclude;
+
+/**
+ * The back-off of the contention managers. By default it busy-waits for the given number of
+ * iterations, as the managers always did. With -Dorg.deuce.transaction.backoff.park=true it
+ * parks for as many nanoseconds instead, so that a waiting transaction gives its processor away
+ * (needed when many more threads than processors run transactions). The pooled contexts turn
+ * parking on unless the property is set. The mode can be switched at run time with
+ * {@link #setParks(boolean)}.
+ *
+ * The retry loop of the atomic blocks also backs off by the cause of each abort, see
+ * {@link #onAbort(AbortCause, int)}, once -Dorg.deuce.transaction.backoff.retry sets the longest
+ * back-off.
+ *
+ * @since 1.4
+ */
+@Exclude
+public class Backoff {
+
+	final public static String PARK_PROPERTY = "org.deuce.transaction.backoff.park";
+
+	private static volatile boolean park = Boolean.getBoolean(PARK_PROPERTY);
+
+	final private static int MIN_RETRY_BACKOFF = 32;
+	// The longest back-off of the retry loop, 0 to retry at once
+	private static volatile int maxRetryBackoff = Integer.getInteger("org.deuce.transaction.backoff.retry", 0);
+
+	/**
+	 * Backs off.
+	 * @param units number of busy-wait iterations, or nanoseconds to park for
+	 */
+	public static void pause(int units) {
+		if (park) {
+			LockSupport.parkNanos(units);
+			return;
+		}
+		for (int i=0; i<units; i++);
+	}
+
+	public static boolean parks() {
+		return park;
+	}
+
+	/**
+	 * @param parks <code>true</code> to park, <code>false</code> to busy-wait
+	 */
+	public static void setParks(boolean parks) {
+		park = parks;
+	}
+
+	/**
+	 * Backs off before the retry of an aborted transaction. The aborts on a lock held by another
+	 * transaction (a write, a commit or a kill) back off exponentially with the aborts in a row,
+	 * with jitter so that the transactions in conflict don't retry in step. The other aborts
+	 * retry at once: a failed read validation starts from a newer snapshot, and an irrevocable
+	 * transaction already waits its turn.
+	 * @param cause the cause of the abort, <code>null</code> if the engine doesn't tell
+	 * @param aborts the aborts in a row of the atomic block
+	 */
+	public static void onAbort(AbortCause cause, int aborts) {
+		int max = maxRetryBackoff;
+		if (max <= 0 || (cause != AbortCause.WRITE && cause != AbortCause.COMMIT && cause != AbortCause.KILLED))
+			return;
+		int units = Math.min(max, MIN_RETRY_BACKOFF << Math.max(0, Math.min(aborts - 1, 20)));
+		pause(units / 2 + (int) ((System.nanoTime() >>> 4) % (units / 2 + 1)));
+	}
+
+	/**
+	 * @return the longest back-off of the retry loop, 0 if it retries at once
+	 */
+	public static int getMaxRetryBackoff() {
+		return maxRetryBackoff;
+	}
+
+	/**
+	 * @param units the longest back-off of the retry loop, 0 to retry at once
+	 */
+	public static void setMaxRetryBackoff(int units) {
+		if (units < 0)
+			throw new IllegalArgumentException("back-off must not be negative: " + units);
+		maxRetryBackoff = units;
+	}
+}
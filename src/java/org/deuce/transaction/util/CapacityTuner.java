@@ -0,0 +1,121 @@
+package org.deuce.transaction.util;
+
+import org.deuce.transform.commons.Exclude;
+
+/**
+ * Sizes a structure of a context, a read set, a write set or a pool, to the transactions that use
+ * it. The structure reports the entries its last transaction used when it is cleared for the next
+ * one, and resizes to the capacity returned:
+ * <ul>
+ * <li>presized for the atomic blocks known to be large, from a high-water mark per block shared by
+ * the contexts, so a large transaction doesn't grow the structure step by step on each thread;</li>
+ * <li>shrunk when it stayed four times larger than the peak use of a period, so one huge
+ * transaction doesn't pin its memory in the thread forever.</li>
+ * </ul>
+ * The high-water marks are only written when exceeded, and now and then when the block uses far
+ * less, to forget an outlier. Tuned every -Dorg.deuce.transaction.capacity.period transactions
+ * (1024 by default), 0 keeps the structures as they grow.
+ *
+ * @since 1.4
+ */
+@Exclude
+final public class CapacityTuner {
+
+	final private static int PERIOD = Integer.getInteger("org.deuce.transaction.capacity.period", 1024);
+	// One in that many uses far below the high-water mark lowers it
+	final private static int DECAY_MASK = 63;
+
+	/**
+	 * The high-water marks of a kind of structure, per atomic block.
+	 */
+	@Exclude
+	final public static class Hints {
+
+		// Blocks past the cap aren't presized
+		final private static int MAX_BLOCKS = 1 << 16;
+
+		private volatile int[] marks = new int[64];
+
+		int get(int atomicBlockId) {
+			int[] current = marks;
+			return atomicBlockId >= 0 && atomicBlockId < current.length ? current[atomicBlockId] : 0;
+		}
+
+		// Racy on purpose, a lost update only loses a hint
+		void set(int atomicBlockId, int mark) {
+			if (atomicBlockId < 0 || atomicBlockId >= MAX_BLOCKS)
+				return;
+			int[] current = marks;
+			if (atomicBlockId >= current.length)
+				current = grow(atomicBlockId);
+			current[atomicBlockId] = mark;
+		}
+
+		private synchronized int[] grow(int atomicBlockId) {
+			int[] current = marks;
+			if (atomicBlockId < current.length)
+				return current;
+			int length = current.length;
+			while (length <= atomicBlockId)
+				length <<= 1;
+			int[] grown = new int[length];
+			System.arraycopy(current, 0, grown, 0, current.length);
+			marks = grown; // publish
+			return grown;
+		}
+	}
+
+	final private Hints hints;
+	final private int minCapacity;
+	private int atomicBlockId = -1;
+	private int peak = 0;
+	private int transactions = 0;
+	private int decays = 0;
+
+	/**
+	 * @param hints shared by the structures of the same kind
+	 * @param minCapacity the structure is never shrunk below
+	 */
+	public CapacityTuner(Hints hints, int minCapacity) {
+		this.hints = hints;
+		this.minCapacity = minCapacity;
+	}
+
+	/**
+	 * The last transaction is over, the next one starts.
+	 * @param atomicBlockId the block of the next transaction
+	 * @param used the entries the last transaction used
+	 * @param capacity the current capacity of the structure
+	 * @return the capacity for the next transaction, the current one if it fits
+	 */
+	public int next(int atomicBlockId, int used, int capacity) {
+		if (PERIOD <= 0)
+			return capacity;
+
+		int mark = hints.get(this.atomicBlockId);
+		if (used > mark)
+			hints.set(this.atomicBlockId, used);
+		else if (used < (mark >> 2) && (++decays & DECAY_MASK) == 0)
+			hints.set(this.atomicBlockId, mark - (mark >> 2));
+		if (used > peak)
+			peak = used;
+		this.atomicBlockId = atomicBlockId;
+
+		int hint = hints.get(atomicBlockId);
+		if (hint > capacity)
+			return hint;
+		if (++transactions < PERIOD)
+			return capacity;
+		int target = Math.max(minCapacity, Math.max(peak, hint) << 1);
+		transactions = 0;
+		peak = 0;
+		return capacity > (target << 1) ? target : capacity;
+	}
+
+	/**
+	 * @return the high-water mark of the block, or 0 if it isn't known
+	 */
+	public int getHint(int atomicBlockId) {
+		return hints.get(atomicBlockId);
+	}
+}
@@ -0,0 +1,85 @@
+package org.deuce.transaction.util;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.lang.reflect.Method;
+
+import org.deuce.transaction.Context;
+import org.deuce.transform.commons.Exclude;
+
+/**
+ * Measures the memory a thread allocates, from the allocation counter of the JVM
+ * (com.sun.management.ThreadMXBean), read through reflection as the sources target other JVMs
+ * too.
+ *
+ * @since 1.4
+ */
+@Exclude
+final public class Footprint {
+
+	final private static ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+	final private static Method getThreadAllocatedBytes = allocatedBytesMethod();
+
+	private static Method allocatedBytesMethod() {
+		try {
+			Class<?> sunThreads = Class.forName("com.sun.management.ThreadMXBean");
+			if (!sunThreads.isInstance(threads))
+				return null;
+			Method method = sunThreads.getMethod("getThreadAllocatedBytes", long.class);
+			method.setAccessible(true);
+			return method;
+		} catch (Exception e) {
+			return null;
+		}
+	}
+
+	private Footprint() {
+	}
+
+	/**
+	 * @return <code>true</code> if the JVM counts the bytes its threads allocate
+	 */
+	public static boolean isSupported() {
+		return getThreadAllocatedBytes != null;
+	}
+
+	/**
+	 * @param threadId the Id of a live thread
+	 * @return the bytes the thread allocated since it started, -1 if the JVM doesn't count them
+	 */
+	public static long getAllocatedBytes(long threadId) {
+		if (getThreadAllocatedBytes == null)
+			return -1;
+		try {
+			return ((Number) getThreadAllocatedBytes.invoke(threads, threadId)).longValue();
+		} catch (Exception e) {
+			return -1;
+		}
+	}
+
+	/**
+	 * @return the bytes the current thread allocated since it started, -1 if the JVM doesn't
+	 * count them
+	 */
+	public static long getAllocatedBytes() {
+		return getAllocatedBytes(Thread.currentThread().getId());
+	}
+
+	/**
+	 * @return the bytes allocated to create a context of the class, its statics excluded, -1 if
+	 * the JVM doesn't count them
+	 */
+	public static long measure(Class<? extends Context> contextClass) {
+		try {
+			contextClass.newInstance(); // loads and initializes the classes of the context
+			long before = getAllocatedBytes();
+			Context context = contextClass.newInstance();
+			long after = getAllocatedBytes();
+			if (before < 0 || after < 0 || context == null)
+				return -1;
+			return after - before;
+		} catch (Exception e) {
+			throw new IllegalArgumentException("Can't create a context of " + contextClass.getName(), e);
+		}
+	}
+}
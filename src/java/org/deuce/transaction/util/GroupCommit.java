@@ -0,0 +1,143 @@
+package org.deuce.transaction.util;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.deuce.transform.commons.Exclude;
+
+/**
+ * Group commit by flat combining: the committing transactions push a request on a shared stack,
+ * and whichever of them takes the combiner flag commits all the pending requests as one batch.
+ * The engine pays for its global commit step (taking the clock, bumping it) once per batch
+ * instead of once per transaction, and the other committers wait on their own request.
+ *
+ * The engine implements {@link #beginBatch()}, {@link #commit(Object)} and {@link #endBatch()},
+ * they are only called by the combiner. The requests of a batch are committed in the order they
+ * were pushed, and their results are published once the batch ended.
+ *
+ * @param <T> the engine context
+ * @since 1.4
+ */
+@Exclude
+abstract public class GroupCommit<T> {
+
+	private static final int PENDING = 0;
+	private static final int COMMITTED = 1;
+	private static final int FAILED = 2;
+
+	/**
+	 * The commit request of a context, reused by its commits.
+	 */
+	@Exclude
+	final public static class Request<T> {
+		final private T owner;
+		private volatile int state = COMMITTED;
+		private boolean committed;
+		private Request<T> next;
+
+		public Request(T owner) {
+			this.owner = owner;
+		}
+	}
+
+	final private AtomicReference<Request<T>> pending = new AtomicReference<Request<T>>();
+	final private AtomicBoolean combining = new AtomicBoolean(false);
+
+	// Only updated by the combiner
+	private volatile long batches = 0;
+	private volatile long requests = 0;
+
+	/**
+	 * Commits the transaction of the request, in a batch run by this thread or another one.
+	 * @return the result of {@link #commit(Object)} for the owner of the request
+	 */
+	public final boolean commit(Request<T> request) {
+		request.state = PENDING;
+		Request<T> head;
+		do {
+			head = pending.get();
+			request.next = head;
+		} while (!pending.compareAndSet(head, request));
+
+		while (true) {
+			int state = request.state;
+			if (state != PENDING)
+				return state == COMMITTED;
+			if (!combining.get() && combining.compareAndSet(false, true)) {
+				try {
+					combine();
+				} finally {
+					combining.set(false);
+				}
+			} else {
+				Thread.yield();
+			}
+		}
+	}
+
+	private void combine() {
+		Request<T> stack = pending.getAndSet(null);
+		if (stack == null)
+			return;
+		// Oldest first
+		Request<T> first = null;
+		while (stack != null) {
+			Request<T> next = stack.next;
+			stack.next = first;
+			first = stack;
+			stack = next;
+		}
+
+		int size = 0;
+		beginBatch();
+		try {
+			for (Request<T> r = first; r != null; r = r.next) {
+				r.committed = false;
+				r.committed = commit(r.owner);
+				size++;
+			}
+		} finally {
+			endBatch();
+			// The owners reuse their requests once they see the result
+			Request<T> r = first;
+			while (r != null) {
+				Request<T> next = r.next;
+				r.next = null;
+				r.state = r.committed ? COMMITTED : FAILED;
+				r = next;
+			}
+			batches++;
+			requests += size;
+		}
+	}
+
+	/**
+	 * Starts a batch, e.g. takes the global clock.
+	 */
+	abstract protected void beginBatch();
+
+	/**
+	 * Commits the transaction of a context within the batch.
+	 * @return <code>true</code> if it committed
+	 */
+	abstract protected boolean commit(T owner);
+
+	/**
+	 * Ends a batch, e.g. releases the global clock.
+	 */
+	abstract protected void endBatch();
+
+	/**
+	 * @return the number of batches committed
+	 */
+	public long getBatches() {
+		return batches;
+	}
+
+	/**
+	 * @return the number of requests committed in the batches (successfully or not)
+	 */
+	public long getRequests() {
+		return requests;
+	}
+}
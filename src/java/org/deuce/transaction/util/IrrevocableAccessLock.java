@@ -0,0 +1,151 @@
+package org.deuce.transaction.util;
+
+import java.util.Collections;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.deuce.transform.commons.Exclude;
+
+/**
+ * Lets a single irrevocable transaction run alone, without the shared reader count of a
+ * ReentrantReadWriteLock that every transaction start would update.
+ *
+ * Each context owns a {@link Slot} holding its own reader flag. A revocable transaction raises
+ * its flag and then checks that no irrevocable transaction is pending, so in the common case
+ * it only writes its own cache line and reads a shared flag nobody writes. An irrevocable
+ * transaction takes the writer lock, raises the pending flag and then waits for the flags of
+ * all the slots to drop. Both sides first publish and then check (all volatile accesses), so
+ * they can't miss each other.
+ *
+ * Unlocking a slot is idempotent, so a rollback that follows a failed commit is harmless.
+ *
+ * The waits (of the revocable transactions for an irrevocable one, and of an irrevocable
+ * transaction for the running ones) are counted over all the locks, only the waits pay for it.
+ *
+ * @since 1.4
+ */
+@Exclude
+public class IrrevocableAccessLock {
+
+	/** Set while an irrevocable transaction waits for the others to drain or runs */
+	private volatile boolean irrevocable = false;
+	/** Only one irrevocable transaction at a time, the revocable ones wait on it too */
+	final private ReentrantLock writerLock = new ReentrantLock();
+	/** The slots of the live contexts, dropped with their contexts */
+	final private Set<Slot> slots = Collections.newSetFromMap(new WeakHashMap<Slot, Boolean>());
+
+	final private static AtomicLong waits = new AtomicLong();
+	final private static AtomicLong waitNanos = new AtomicLong();
+
+	/**
+	 * @return a slot for a new context
+	 */
+	public Slot newSlot() {
+		Slot slot = new Slot(this);
+		synchronized (slots) {
+			slots.add(slot);
+		}
+		return slot;
+	}
+
+	private void lockIrrevocable() {
+		long start = System.nanoTime();
+		writerLock.lock();
+		irrevocable = true;
+		Slot[] snapshot;
+		synchronized (slots) {
+			snapshot = slots.toArray(new Slot[slots.size()]);
+		}
+		// The slots created after the snapshot see the pending flag
+		for (Slot slot : snapshot) {
+			while (slot.active)
+				Thread.yield();
+		}
+		countWait(start);
+	}
+
+	private void unlockIrrevocable() {
+		irrevocable = false;
+		writerLock.unlock();
+	}
+
+	private void awaitIrrevocable() {
+		// The irrevocable transaction holds the writer lock until it is done
+		long start = System.nanoTime();
+		writerLock.lock();
+		writerLock.unlock();
+		countWait(start);
+	}
+
+	private static void countWait(long start) {
+		waits.incrementAndGet();
+		waitNanos.addAndGet(System.nanoTime() - start);
+	}
+
+	/**
+	 * @return the number of transactions that waited to start, for an irrevocable transaction or
+	 * (irrevocable) for the running ones
+	 */
+	public static long getWaits() {
+		return waits.get();
+	}
+
+	/**
+	 * @return the time spent in the waits of {@link #getWaits()}, in nanoseconds
+	 */
+	public static long getWaitNanos() {
+		return waitNanos.get();
+	}
+
+	/**
+	 * The irrevocability state of a context, only used by the thread of the context.
+	 */
+	@Exclude
+	public static class Slot {
+
+		// Keeps the flags of different contexts apart (HotSpot lays the longs out before the flag)
+		@SuppressWarnings("unused")
+		private long p1, p2, p3, p4, p5, p6, p7;
+
+		private volatile boolean active = false;
+		private boolean holdsIrrevocable = false;
+		final private IrrevocableAccessLock lock;
+
+		private Slot(IrrevocableAccessLock lock) {
+			this.lock = lock;
+		}
+
+		/**
+		 * Called on transaction start.
+		 * @param irrevocable <code>true</code> to run alone, once the running transactions are done
+		 */
+		public void lock(boolean irrevocable) {
+			if (irrevocable) {
+				lock.lockIrrevocable();
+				holdsIrrevocable = true;
+				return;
+			}
+			while (true) {
+				active = true;
+				if (!lock.irrevocable)
+					return;
+				active = false;
+				lock.awaitIrrevocable();
+			}
+		}
+
+		/**
+		 * Called once the transaction committed or rolled back, might be called more than once.
+		 */
+		public void unlock() {
+			if (holdsIrrevocable) {
+				holdsIrrevocable = false;
+				lock.unlockIrrevocable();
+			} else if (active) {
+				active = false;
+			}
+		}
+	}
+}
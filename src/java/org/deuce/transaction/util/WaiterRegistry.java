@@ -0,0 +1,147 @@
+package org.deuce.transaction.util;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+import org.deuce.transaction.TransactionException;
+import org.deuce.transform.commons.Exclude;
+
+/**
+ * Registry of the threads blocked by a retry, keyed by the lock table stripes they read.
+ *
+ * A retrying transaction registers the stripes of its read set, checks that none of them
+ * changed since it read them and then parks. A committing transaction releases its locks
+ * and then wakes the waiters of the stripes it wrote. Since both sides first publish (the
+ * registration or the new versions) and then check the other side, a commit can't slip
+ * between the check and the park unnoticed.
+ *
+ * The stripes are hashed into a fixed number of buckets, so a waiter may be woken by a commit
+ * to another stripe of its bucket: it then runs the transaction again and retries once more.
+ * An interrupt ends the wait and aborts the block, see {@link Waiter#await()}.
+ *
+ * @since	1.4
+ */
+@Exclude
+public class WaiterRegistry {
+
+	final private static int BUCKETS = 1 << 10;
+	final private static int MASK = BUCKETS - 1;
+
+	/** Maximum time to park in milliseconds, 0 to wait for a commit however long it takes */
+	final private static long TIMEOUT = Long.getLong("org.deuce.transaction.retry.timeout", 0);
+
+	/** Number of registered waiters, lets the commits skip the registry when nobody waits */
+	final private static AtomicInteger waiting = new AtomicInteger(0);
+
+	final private static TransactionException INTERRUPTED_EXCEPTION =
+		new TransactionException("Interrupted while waiting for a retry.");
+
+	final private static Bucket[] buckets = new Bucket[BUCKETS];
+
+	static {
+		for (int i = 0; i < BUCKETS; i++)
+			buckets[i] = new Bucket();
+	}
+
+	private WaiterRegistry() {}
+
+	/**
+	 * @return <code>true</code> if some thread waits on a stripe, checked by the commits
+	 * after they released their locks
+	 */
+	public static boolean hasWaiters() {
+		return waiting.get() != 0;
+	}
+
+	/**
+	 * Registers the current thread as waiting on the given stripes.
+	 * The caller then checks that the stripes did not change and either parks with
+	 * {@link Waiter#await()} or gives up with {@link Waiter#cancel()}.
+	 *
+	 * @param stripes the lock table indexes read by the transaction
+	 * @return the registered waiter
+	 */
+	public static Waiter register(int[] stripes) {
+		Waiter waiter = new Waiter(stripes);
+		waiting.incrementAndGet();
+		for (int stripe : stripes)
+			buckets[stripe & MASK].add(waiter);
+		return waiter;
+	}
+
+	/**
+	 * Wakes the threads waiting on the stripe.
+	 *
+	 * @param stripe a lock table index that was just committed
+	 */
+	public static void wake(int stripe) {
+		for (Waiter waiter : buckets[stripe & MASK])
+			waiter.wake();
+	}
+
+	/**
+	 * The waiters of the stripes hashed to a bucket.
+	 */
+	@Exclude
+	private static class Bucket extends ConcurrentLinkedQueue<Waiter> {
+		private static final long serialVersionUID = 1L;
+	}
+
+	/**
+	 * A thread waiting for a commit to one of its stripes.
+	 */
+	@Exclude
+	public static class Waiter {
+
+		final private Thread thread = Thread.currentThread();
+		final private int[] stripes;
+		private volatile boolean woken = false;
+
+		private Waiter(int[] stripes) {
+			this.stripes = stripes;
+		}
+
+		private void wake() {
+			woken = true;
+			LockSupport.unpark(thread);
+		}
+
+		/**
+		 * Parks until a commit wakes the thread or the timeout elapsed, then unregisters.
+		 * @throws TransactionException if the thread was interrupted, its interrupt status kept:
+		 * running the block again would find the thread interrupted again, so the block ends
+		 * as if it ran out of retries
+		 */
+		public void await() {
+			long deadline = System.nanoTime() + TIMEOUT * 1000000;
+			while (!woken && !thread.isInterrupted()) {
+				if (TIMEOUT > 0) {
+					long left = deadline - System.nanoTime();
+					if (left <= 0)
+						break;
+					LockSupport.parkNanos(this, left);
+				} else {
+					LockSupport.park(this);
+				}
+			}
+			unregister();
+			if (!woken && thread.isInterrupted())
+				throw INTERRUPTED_EXCEPTION;
+		}
+
+		/**
+		 * Unregisters without parking, when a stripe already changed.
+		 */
+		public void cancel() {
+			woken = true;
+			unregister();
+		}
+
+		private void unregister() {
+			for (int stripe : stripes)
+				buckets[stripe & MASK].remove(this);
+			waiting.decrementAndGet();
+		}
+	}
+}
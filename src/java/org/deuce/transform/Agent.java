@@ -27,6 +27,7 @@ import org.deuce.reflection.UnsafeHolder;
 import org.deuce.transaction.Context;
 import org.deuce.transaction.ContextDelegator;
 import org.deuce.transaction.TwilightContext;
+import org.deuce.transaction.stats.BarrierProfile;
 import org.deuce.transform.commons.BaseClassTransformer;
 import org.deuce.transform.commons.Exclude;
 import org.deuce.transform.commons.ExcludeIncludeStore;
@@ -97,8 +98,12 @@ public class Agent implements ClassFileTransformer {
 	throws IllegalClassFormatException {
 		try {
 			// Don't transform classes from the boot classLoader.
-			if (loader != null)
-				return transform(className, classfileBuffer, false).get(0).getBytecode();
+			if (loader != null) {
+				byte[] bytecode = transform(className, classfileBuffer, false).get(0).getBytecode();
+				if (BarrierProfile.ENABLED && bytecode != classfileBuffer)
+					BarrierProfile.register(loader, className); // its barrier counters are reported
+				return bytecode;
+			}
 		}
 		catch(Exception e) {
 			logger.log( Level.SEVERE, "Fail on class transform: " + className, e);
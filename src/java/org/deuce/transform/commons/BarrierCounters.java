@@ -0,0 +1,71 @@
+package org.deuce.transform.commons;
+
+import org.deuce.objectweb.asm.MethodVisitor;
+import org.deuce.objectweb.asm.Opcodes;
+import org.deuce.transaction.stats.BarrierProfile;
+
+/**
+ * Adds the barrier counters of the methods of a class to its fields holder, created by the class
+ * transformers only when {@link BarrierProfile#ENABLED}. A method gets its counters with its first
+ * barrier, the methods without barriers get none.
+ *
+ * @since 1.4
+ */
+@Exclude
+public class BarrierCounters {
+
+	final private static int COUNTER_ACCESS = Opcodes.ACC_PUBLIC | Opcodes.ACC_STATIC | Opcodes.ACC_SYNTHETIC;
+
+	final private FieldsHolder fieldsHolder;
+	private int methods = 0;
+
+	public BarrierCounters(FieldsHolder fieldsHolder) {
+		this.fieldsHolder = fieldsHolder;
+	}
+
+	/**
+	 * @param name the name of the original method
+	 * @param desc the descriptor of the original method
+	 */
+	public Method forMethod(String name, String desc) {
+		return new Method(name + desc);
+	}
+
+	/**
+	 * The counters of a method.
+	 */
+	@Exclude
+	public class Method {
+
+		final private String method;
+		private int index = -1;
+
+		private Method(String method) {
+			this.method = method;
+		}
+
+		/**
+		 * Adds the code incrementing the counter of a kind of barrier.
+		 * @param kind {@link BarrierProfile#READ}, {@link BarrierProfile#WRITE} or {@link BarrierProfile#ARRAY}
+		 */
+		public void count(MethodVisitor mv, int kind) {
+			if (index < 0)
+				addFields();
+			String counter = BarrierProfile.getCounterField(index, kind);
+			String owner = fieldsHolder.getFieldsHolderName();
+			mv.visitFieldInsn(Opcodes.GETSTATIC, owner, counter, "J");
+			mv.visitInsn(Opcodes.LCONST_1);
+			mv.visitInsn(Opcodes.LADD);
+			mv.visitFieldInsn(Opcodes.PUTSTATIC, owner, counter, "J");
+		}
+
+		private void addFields() {
+			index = methods++;
+			fieldsHolder.addField(COUNTER_ACCESS | Opcodes.ACC_FINAL, BarrierProfile.getMethodField(index),
+					"Ljava/lang/String;", method);
+			fieldsHolder.addField(COUNTER_ACCESS, BarrierProfile.getCounterField(index, BarrierProfile.READ), "J", null);
+			fieldsHolder.addField(COUNTER_ACCESS, BarrierProfile.getCounterField(index, BarrierProfile.WRITE), "J", null);
+			fieldsHolder.addField(COUNTER_ACCESS, BarrierProfile.getCounterField(index, BarrierProfile.ARRAY), "J", null);
+		}
+	}
+}
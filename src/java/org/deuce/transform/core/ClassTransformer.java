@@ -12,6 +12,8 @@ import org.deuce.objectweb.asm.Type;
 import org.deuce.objectweb.asm.commons.Method;
 import org.deuce.transaction.Context;
 import org.deuce.transaction.ContextDelegator;
+import org.deuce.transaction.stats.BarrierProfile;
+import org.deuce.transform.commons.BarrierCounters;
 import org.deuce.transform.commons.BaseClassTransformer;
 import org.deuce.transform.commons.Exclude;
 import org.deuce.transform.commons.Field;
@@ -44,6 +46,7 @@ public class ClassTransformer extends BaseClassTransformer implements FieldsHold
 
 	// haven't fully worked out what this is for. FieldsHolder holds NEW fields for transformed classes. Difference between Field and FieldsHolder? FieldsHolder is an interface. Field is a class.
 	private final FieldsHolder fieldsHolder;
+	private BarrierCounters barrierCounters; // null unless the barriers are counted
 
 	public ClassTransformer(ClassVisitor cv, String className, FieldsHolder fieldsHolder){
 		super(cv, className);
@@ -63,6 +66,9 @@ public class ClassTransformer extends BaseClassTransformer implements FieldsHold
 		// store useful information for later
 		isInterface = (access & Opcodes.ACC_INTERFACE) != 0;
 		isEnum = ENUM_DESC.equals(superName);
+		// the static fields of an interface are constants
+		if(BarrierProfile.ENABLED && !isInterface)
+			barrierCounters = new BarrierCounters(fieldsHolder);
 
 		for(String inter : interfaces){
 			// if the class is an Annotation type, then exclude from transformation (see http://docs.oracle.com/javase/1.5.0/docs/api/java/lang/annotation/Annotation.html)
@@ -164,7 +170,7 @@ public class ClassTransformer extends BaseClassTransformer implements FieldsHold
 				signature, exceptions);
 
 		return new MethodTransformer( originalMethod, copyMethod, className,
-				access, name, desc, newMethod, fieldsHolder);
+				access, name, desc, newMethod, fieldsHolder, barrierCounters);
 	}
 
 	@Override
@@ -13,6 +13,7 @@ import org.deuce.transaction.AbortTransactionException;
 import org.deuce.transaction.Context;
 import org.deuce.transaction.ContextDelegator;
 import org.deuce.transaction.TransactionException;
+import org.deuce.transaction.stats.BlockNames;
 import org.deuce.transform.commons.type.TypeCodeResolver;
 import org.deuce.transform.commons.type.TypeCodeResolverFactory;
 
@@ -30,8 +31,9 @@ public class AtomicMethod extends MethodVisitor {
 	final static public String ATOMIC_DESCRIPTOR = Type.getDescriptor(Atomic.class);
 	final static private AtomicInteger ATOMIC_BLOCK_COUNTER = new AtomicInteger(0);
 
-	private Integer retries = Integer.getInteger("org.deuce.transaction.retries", Integer.MAX_VALUE);
+	private Integer retries = null; // unless set, read on each call from ContextDelegator.getRetries()
 	private String metainf = "";//Integer.getInteger("org.deuce.transaction.retries", Integer.MAX_VALUE);
+	private int flags = 0; // Context.FLAG_* bits passed to init()
 
 	final private String className;
 	final private String methodName;
@@ -70,8 +72,15 @@ public class AtomicMethod extends MethodVisitor {
 					if( name.equals("retries"))
 						AtomicMethod.this.retries = (Integer)value;
 
-					if( name.equals("metainf"))
+					if( name.equals("metainf")) {
 						AtomicMethod.this.metainf = (String)value;
+						// legacy way of asking for an elastic block, resolved once here
+						if( AtomicMethod.this.metainf.indexOf("elastic") != -1)
+							AtomicMethod.this.flags |= Context.FLAG_ELASTIC;
+					}
+
+					if( name.equals("elastic") && (Boolean)value)
+						AtomicMethod.this.flags |= Context.FLAG_ELASTIC;
 
 					visitAnnotation.visit(name, value);
 				}
@@ -101,7 +110,7 @@ public class AtomicMethod extends MethodVisitor {
 		boolean result = true;
 		for( int i=10 ; i>0 ; --i)
 		{
-			context.init(atomicBlockId, metainf);
+			context.init(atomicBlockId, flags, metainf);
 			try
 			{
 				result = foo(s,context);
@@ -133,6 +142,7 @@ public class AtomicMethod extends MethodVisitor {
 				context.rollback();
 				commit = true;
 			}
+			ContextDelegator.onAbort(context);
 		}
 		throw new TransactionException();
 
@@ -179,7 +189,11 @@ public class AtomicMethod extends MethodVisitor {
 
 		Label l8 = new Label(); // for( int i=10 ; ... ; ...)
 		mv.visitLabel(l8);
-		mv.visitLdcInsn( retries);
+		if( retries != null)
+			mv.visitLdcInsn( retries);
+		else
+			mv.visitMethodInsn(INVOKESTATIC, ContextDelegator.CONTEXT_DELEGATOR_INTERNAL,
+					ContextDelegator.GET_RETRIES_METHOD_NAME, ContextDelegator.GET_RETRIES_METHOD_DESC);
 		mv.visitVarInsn(ISTORE, indexIndex);
 
 		Label l9 = new Label();
@@ -187,12 +201,15 @@ public class AtomicMethod extends MethodVisitor {
 		Label l10 = new Label();
 		mv.visitJumpInsn(GOTO, l10);
 
-		Label l11 = new Label(); // context.init(atomicBlockId, metainf);
+		Label l11 = new Label(); // context.init(atomicBlockId, flags, metainf);
 		mv.visitLabel(l11);
 		mv.visitVarInsn(ALOAD, contextIndex);
-		mv.visitLdcInsn(ATOMIC_BLOCK_COUNTER.getAndIncrement());
+		int atomicBlockId = ATOMIC_BLOCK_COUNTER.getAndIncrement();
+		BlockNames.register(atomicBlockId, className, methodName);
+		mv.visitLdcInsn(atomicBlockId);
+		mv.visitLdcInsn(flags);
 		mv.visitLdcInsn(metainf);
-		mv.visitMethodInsn(INVOKEINTERFACE, Context.CONTEXT_INTERNAL, "init", "(ILjava/lang/String;)V");
+		mv.visitMethodInsn(INVOKEINTERFACE, Context.CONTEXT_INTERNAL, "init", "(IILjava/lang/String;)V");
 
 		/* result = foo( context, ...)  */
 		mv.visitLabel(l0);
@@ -320,8 +337,12 @@ public class AtomicMethod extends MethodVisitor {
 		mv.visitInsn(ICONST_1); // commit = true;
 		mv.visitVarInsn(ISTORE, commitIndex);
 
-		mv.visitLabel(l18);  // for( ... ; i>0 ; --i)
-		mv.visitIincInsn(indexIndex, -1);
+		mv.visitLabel(l18);  // ContextDelegator.onAbort(context);
+		mv.visitVarInsn(ALOAD, contextIndex);
+		mv.visitMethodInsn(INVOKESTATIC, ContextDelegator.CONTEXT_DELEGATOR_INTERNAL,
+				ContextDelegator.ON_ABORT_METHOD_NAME, ContextDelegator.ON_ABORT_METHOD_DESC);
+
+		mv.visitIincInsn(indexIndex, -1); // for( ... ; i>0 ; --i)
 		mv.visitLabel(l10);
 		mv.visitVarInsn(ILOAD, indexIndex);
 		mv.visitJumpInsn(IFGT, l11);
@@ -14,6 +14,7 @@ import org.deuce.objectweb.asm.Type;
 import org.deuce.objectweb.asm.commons.AnalyzerAdapter;
 import org.deuce.objectweb.asm.commons.Method;
 import org.deuce.transaction.ContextDelegator;
+import org.deuce.transform.commons.BarrierCounters;
 import org.deuce.transform.commons.FieldsHolder;
 import org.deuce.transform.commons.util.Util;
 
@@ -45,7 +46,7 @@ public class MethodTransformer extends MethodVisitor {
 
 	public MethodTransformer(MethodVisitor originalMethod, MethodVisitor copyMethod,
 			String className, int access, String methodName, String descriptor, Method newMethod,
-			FieldsHolder fieldsHolder) {
+			FieldsHolder fieldsHolder, BarrierCounters barrierCounters) {
 		super(Opcodes.ASM4);
 
 		this.originalMethod = originalMethod;
@@ -55,7 +56,8 @@ public class MethodTransformer extends MethodVisitor {
 
 		// The AnalyzerAdapter delegates the call to the DuplicateMethod, while the DuplicateMethod uses
 		// the analyzer for stack state in the original method.
-		DuplicateMethod duplicateMethod = new DuplicateMethod( copyMethod, isStatic, newMethod, fieldsHolder);
+		DuplicateMethod duplicateMethod = new DuplicateMethod( copyMethod, isStatic, newMethod, fieldsHolder,
+				barrierCounters == null ? null : barrierCounters.forMethod(methodName, descriptor));
 		AnalyzerAdapter analyzerAdapter = new AnalyzerAdapter( className, access, methodName, descriptor, duplicateMethod);
 		duplicateMethod.setAnalyzer( analyzerAdapter);
 
@@ -10,6 +10,8 @@ import org.deuce.objectweb.asm.Type;
 import org.deuce.objectweb.asm.commons.Method;
 import org.deuce.transaction.Context;
 import org.deuce.transaction.ContextDelegator;
+import org.deuce.transaction.stats.BarrierProfile;
+import org.deuce.transform.commons.BarrierCounters;
 import org.deuce.transform.commons.BaseClassTransformer;
 import org.deuce.transform.commons.Exclude;
 import org.deuce.transform.commons.Field;
@@ -62,6 +64,7 @@ public class ClassTransformer extends BaseClassTransformer implements FieldsHold
 
 	// haven't fully worked out what this is for. FieldsHolder holds NEW fields for transformed classes. Difference between Field and FieldsHolder? FieldsHolder is an interface. Field is a class.
 	private final FieldsHolder fieldsHolder;
+	private BarrierCounters barrierCounters; // null unless the barriers are counted
 
 	public ClassTransformer(ClassVisitor cv, String className, FieldsHolder fieldsHolder){
 		super(cv, className);
@@ -81,6 +84,9 @@ public class ClassTransformer extends BaseClassTransformer implements FieldsHold
 		// store useful information for later
 		isInterface = (access & Opcodes.ACC_INTERFACE) != 0;
 		isEnum = ENUM_DESC.equals(superName);
+		// the static fields of an interface are constants
+		if(BarrierProfile.ENABLED && !isInterface)
+			barrierCounters = new BarrierCounters(fieldsHolder);
 
 		// visit class header as normal (TODO: we call visit on super here, ByteCodeVisitor, but all it does is something very simple that doesn't really need to be done there; it could just be done directly here)
 		super.visit(version, access, name, signature, superName, interfaces);
@@ -156,7 +162,7 @@ public class ClassTransformer extends BaseClassTransformer implements FieldsHold
 		MethodVisitor copyMethod =  super.visitMethod((access | Opcodes.ACC_SYNTHETIC) & ~Opcodes.ACC_FINAL, name,
 				newMethod.getDescriptor(), signature, exceptions);
 
-		return new MethodTransformer(originalMethodVisitor, copyMethod, className,	access, name, desc, newMethod, fieldsHolder);
+		return new MethodTransformer(originalMethodVisitor, copyMethod, className,	access, name, desc, newMethod, fieldsHolder, barrierCounters);
 	}
 
 	@Override
@@ -14,6 +14,7 @@ import org.deuce.transaction.ContextDelegator;
 import org.deuce.transaction.TransactionException;
 import org.deuce.transaction.TwilightContext;
 import org.deuce.transaction.TwilightContextDelegator;
+import org.deuce.transaction.stats.BlockNames;
 import org.deuce.transform.Agent;
 import org.deuce.transform.commons.type.TypeCodeResolver;
 import org.deuce.transform.commons.type.TypeCodeResolverFactory;
@@ -37,10 +38,12 @@ public class AtomicMethod extends MethodVisitor {
 	final static private String ATOMIC_ANNOTATION_NAME_RETRIES = "retries";
 	final static private String ATOMIC_ANNOTATION_NAME_METAINFORMATION = "metainf";
 	final static private String ATOMIC_ANNOTATION_NAME_TWILIGHT = "twilight";
+	final static private String ATOMIC_ANNOTATION_NAME_ELASTIC = "elastic";
 
 	// attributes of current @Atomic method's annotation
-	private Integer retries = Integer.getInteger("org.deuce.transaction.retries", Integer.MAX_VALUE);
+	private Integer retries = null; // unless set, read on each call from ContextDelegator.getRetries()
 	private String metainf = "";//Integer.getInteger("org.deuce.transaction.retries", Integer.MAX_VALUE);
+	private int flags = 0; // Context.FLAG_* bits passed to init()
 	private boolean useTwilightOnlyOperations = false; // indicates non-standard STM operations such as prepareCommit(), finalizeCommit() and other Twilight-only API calls are being by the programmer
 
 	final private String className;
@@ -82,8 +85,15 @@ public class AtomicMethod extends MethodVisitor {
 					if(name.equals(ATOMIC_ANNOTATION_NAME_RETRIES))
 						AtomicMethod.this.retries = (Integer)value;
 					// meta information
-					if(name.equals(ATOMIC_ANNOTATION_NAME_METAINFORMATION))
+					if(name.equals(ATOMIC_ANNOTATION_NAME_METAINFORMATION)) {
 						AtomicMethod.this.metainf = (String)value;
+						// legacy way of asking for an elastic block, resolved once here
+						if(AtomicMethod.this.metainf.indexOf("elastic") != -1)
+							AtomicMethod.this.flags |= Context.FLAG_ELASTIC;
+					}
+					// elastic attribute set (with value true)
+					if(name.equals(ATOMIC_ANNOTATION_NAME_ELASTIC) && (Boolean)value)
+						AtomicMethod.this.flags |= Context.FLAG_ELASTIC;
 					// twilight attribute set (with value true)
 					if(name.equals(ATOMIC_ANNOTATION_NAME_TWILIGHT) && (Boolean)value) {
 						// if context supports twilight zones, ok
@@ -126,7 +136,7 @@ public class AtomicMethod extends MethodVisitor {
 		[returnType] result = true;
 		for( int i=10 ; i>0 ; --i)
 		{
-			context.init(atomicBlockId, metainf);
+			context.init(atomicBlockId, flags, metainf);
 			try
 			{
 				result = foo([parameters],context);
@@ -158,6 +168,7 @@ public class AtomicMethod extends MethodVisitor {
 				context.rollback();
 				commit = true;
 			}
+			ContextDelegator.onAbort(context);
 		}
 		throw new TransactionException();
 	}
@@ -171,7 +182,7 @@ public class AtomicMethod extends MethodVisitor {
 		[returnType] result = true;
 		for(int i = 10; i > 0; --i)
 		{
-			context.init(atomicBlockId, metainf);
+			context.init(atomicBlockId, flags, metainf);
 			try
 			{
 				result = foo([parameters],context); // inside this method are calls to Twilight API (including prepareCommit())
@@ -203,6 +214,7 @@ public class AtomicMethod extends MethodVisitor {
 				context.rollback();
 				commit = true;
 			}
+			ContextDelegator.onAbort(context);
 		}
 		throw new TransactionException();
 	}
@@ -252,7 +264,11 @@ public class AtomicMethod extends MethodVisitor {
 
 		Label l8 = new Label(); // for( int i=10 ; ... ; ...)
 		mv.visitLabel(l8);
-		mv.visitLdcInsn( retries);
+		if( retries != null)
+			mv.visitLdcInsn( retries);
+		else
+			mv.visitMethodInsn(INVOKESTATIC, ContextDelegator.CONTEXT_DELEGATOR_INTERNAL,
+					ContextDelegator.GET_RETRIES_METHOD_NAME, ContextDelegator.GET_RETRIES_METHOD_DESC);
 		mv.visitVarInsn(ISTORE, indexIndex);
 
 		Label l9 = new Label();
@@ -260,12 +276,15 @@ public class AtomicMethod extends MethodVisitor {
 		Label l10 = new Label();
 		mv.visitJumpInsn(GOTO, l10);
 
-		Label l11 = new Label(); // context.init(atomicBlockId, metainf);
+		Label l11 = new Label(); // context.init(atomicBlockId, flags, metainf);
 		mv.visitLabel(l11);
 		mv.visitVarInsn(ALOAD, contextIndex);
-		mv.visitLdcInsn(ATOMIC_BLOCK_COUNTER.getAndIncrement());
+		int atomicBlockId = ATOMIC_BLOCK_COUNTER.getAndIncrement();
+		BlockNames.register(atomicBlockId, className, methodName);
+		mv.visitLdcInsn(atomicBlockId);
+		mv.visitLdcInsn(flags);
 		mv.visitLdcInsn(metainf);
-		mv.visitMethodInsn(INVOKEINTERFACE, Context.CONTEXT_INTERNAL, "init", "(ILjava/lang/String;)V");
+		mv.visitMethodInsn(INVOKEINTERFACE, Context.CONTEXT_INTERNAL, "init", "(IILjava/lang/String;)V");
 
 		/* result = foo( context, ...)  */
 		mv.visitLabel(l0);
@@ -400,8 +419,12 @@ public class AtomicMethod extends MethodVisitor {
 		mv.visitInsn(ICONST_1); // commit = true;
 		mv.visitVarInsn(ISTORE, commitIndex);
 
-		mv.visitLabel(l18);  // for( ... ; i>0 ; --i)
-		mv.visitIincInsn(indexIndex, -1);
+		mv.visitLabel(l18);  // ContextDelegator.onAbort(context);
+		mv.visitVarInsn(ALOAD, contextIndex);
+		mv.visitMethodInsn(INVOKESTATIC, ContextDelegator.CONTEXT_DELEGATOR_INTERNAL,
+				ContextDelegator.ON_ABORT_METHOD_NAME, ContextDelegator.ON_ABORT_METHOD_DESC);
+
+		mv.visitIincInsn(indexIndex, -1); // for( ... ; i>0 ; --i)
 		mv.visitLabel(l10);
 		mv.visitVarInsn(ILOAD, indexIndex);
 		mv.visitJumpInsn(IFGT, l11);
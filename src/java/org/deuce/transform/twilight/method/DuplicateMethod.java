@@ -8,7 +8,9 @@ import org.deuce.objectweb.asm.commons.AnalyzerAdapter;
 import org.deuce.objectweb.asm.commons.Method;
 import org.deuce.transaction.Context;
 import org.deuce.transaction.ContextDelegator;
+import org.deuce.transaction.stats.BarrierProfile;
 import org.deuce.transform.twilight.ClassTransformer;
+import org.deuce.transform.commons.BarrierCounters;
 import org.deuce.transform.commons.FieldsHolder;
 import org.deuce.transform.commons.util.Util;
 import org.deuce.transform.commons.ExcludeIncludeStore;
@@ -40,15 +42,18 @@ public class DuplicateMethod extends MethodVisitor {
 
 	private final int argumentsSize;
 	private final FieldsHolder fieldsHolder;
+	private final BarrierCounters.Method barrierCounters; // null unless the barriers are counted
 
 	private Label firstLabel;
 	private Label lastLabel;
 	private boolean addContextToTable = false;
 	private AnalyzerAdapter analyzerAdapter;
 
-	public DuplicateMethod(MethodVisitor mv, boolean isstatic, Method newMethod, FieldsHolder fieldsHolder) {
+	public DuplicateMethod(MethodVisitor mv, boolean isstatic, Method newMethod, FieldsHolder fieldsHolder,
+			BarrierCounters.Method barrierCounters) {
 		super(Opcodes.ASM4,mv);
 		this.fieldsHolder = fieldsHolder;
+		this.barrierCounters = barrierCounters;
 		this.argumentsSize = Util.calcArgumentsSize( isstatic, newMethod);
 	}
 
@@ -104,6 +109,9 @@ public class DuplicateMethod extends MethodVisitor {
 		mv.visitJumpInsn(GOTO, l2);
 		mv.visitLabel(l1);
 
+		if(barrierCounters != null)
+			barrierCounters.count(mv, opcode == GETFIELD || opcode == GETSTATIC ? BarrierProfile.READ : BarrierProfile.WRITE);
+
 		final Type type = Type.getType(desc);
 		switch( opcode) {
 		case GETFIELD:  //	ALOAD 0: this (stack status)
@@ -247,6 +255,9 @@ public class DuplicateMethod extends MethodVisitor {
 			break;
 		}
 
+		if((load || store) && barrierCounters != null)
+			barrierCounters.count(mv, BarrierProfile.ARRAY);
+
 		if( load)
 		{
 			super.visitVarInsn(ALOAD, argumentsSize - 1); // load context
@@ -11,10 +11,12 @@ abstract public class BenchmarkThread implements Runnable {
 
 	volatile private int m_phase;
 	private int m_steps;
+	private int m_warmupSteps;
 
 	public BenchmarkThread() {
 		m_phase = Benchmark.WARMUP_PHASE;
 		m_steps = 0;
+		m_warmupSteps = 0;
 	}
 
 	public void setPhase(int phase) {
@@ -25,9 +27,14 @@ abstract public class BenchmarkThread implements Runnable {
 		return m_steps;
 	}
 
+	public int getWarmupSteps() {
+		return m_warmupSteps;
+	}
+
 	public void run() {
 		while (m_phase == Benchmark.WARMUP_PHASE) {
 			step(Benchmark.WARMUP_PHASE);
+			m_warmupSteps++;
 		}
 		while (m_phase == Benchmark.TEST_PHASE) {
 			step(Benchmark.TEST_PHASE);
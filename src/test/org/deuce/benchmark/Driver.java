@@ -1,5 +1,15 @@
 package org.deuce.benchmark;
 
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.deuce.transaction.stats.LatencyHistogram;
+import org.deuce.transaction.stats.Statistics;
 import org.deuce.transform.commons.Exclude;
 
 /**
@@ -14,6 +24,9 @@ public class Driver {
 		int duration = 10000;
 		int warmup = 2000;
 		String benchmark = null;
+		boolean virtual = false;
+		String output = null;
+		String format = null;
 		boolean error = false;
 		int arg;
 
@@ -33,6 +46,18 @@ public class Driver {
 					warmup = Integer.parseInt(args[arg]);
 				else
 					error = true;
+			} else if (args[arg].equals("-v")) {
+				virtual = true;
+			} else if (args[arg].equals("-o")) {
+				if (++arg < args.length)
+					output = args[arg];
+				else
+					error = true;
+			} else if (args[arg].equals("-f")) {
+				if (++arg < args.length && (args[arg].equals("csv") || args[arg].equals("json")))
+					format = args[arg];
+				else
+					error = true;
 			} else
 				break;
 		}
@@ -43,9 +68,11 @@ public class Driver {
 			args = s;
 		} else
 			error = true;
+		if (format == null)
+			format = output != null && output.endsWith(".json") ? "json" : "csv";
 
 		if (error) {
-			System.out.println("Usage: java Driver [-n nb-threads] [-d duration-ms] [-w warmup-ms] benchmark [args...]");
+			System.out.println("Usage: java Driver [-n nb-threads] [-d duration-ms] [-w warmup-ms] [-v] [-o results-file] [-f csv|json] benchmark [args...]");
 			System.exit(1);
 		}
 
@@ -64,10 +91,16 @@ public class Driver {
 		for (int i = 0; i < bt.length; i++)
 			bt[i] = b.createThread(i, bt.length);
 
+		if (virtual && bt.length > 0 && newVirtualThread(bt[0]) == null) {
+			System.out.println("Virtual threads are not supported by this JVM, using platform threads");
+			virtual = false;
+		}
 		Thread[] t = new Thread[bt.length];
 		for (int i = 0; i < t.length; i++)
-			t[i] = new Thread(bt[i]);
+			t[i] = virtual ? newVirtualThread(bt[i]) : new Thread(bt[i]);
 
+		// Before the threads start, the JVM's counters of a starting thread are unreliable
+		Measurement wstartMeasurement = new Measurement(t);
 		System.out.print("Starting threads...");
 		for (int i = 0; i < t.length; i++) {
 			System.out.print(" " + i);
@@ -82,6 +115,9 @@ public class Driver {
 		} catch (InterruptedException e) {
 		}
 		long wend = System.currentTimeMillis();
+		Measurement wendMeasurement = new Measurement(t);
+		// The latencies of the warmup are left out of the results
+		Map<Integer, LatencyHistogram> warmupLatencies = Statistics.ENABLED ? Statistics.getLatencies() : null;
 
 		System.out.print("End of warmup phase...");
 		for (int i = 0; i < bt.length; i++) {
@@ -96,6 +132,7 @@ public class Driver {
 		} catch (InterruptedException e) {
 		}
 		long tend = System.currentTimeMillis();
+		Measurement tendMeasurement = new Measurement(t);
 
 		System.out.print("End of test phase...");
 		for (int i = 0; i < bt.length; i++) {
@@ -125,5 +162,170 @@ public class Driver {
 		for (int i = 0; i < bt.length; i++)
 			System.out.println("    " + i + " : " + bt[i].getSteps() +
 					" (" + bt[i].getStats() + ")");
+		if (Statistics.ENABLED) {
+			System.out.println("  Latency per atomic block (test phase):");
+			for (LatencyHistogram latency : Statistics.getLatencies().values()) {
+				latency = latency.since(warmupLatencies.get(latency.getAtomicBlockId()));
+				if (latency.getCount() != 0)
+					System.out.println("    " + latency.getAtomicBlockName() + " : " + latency);
+			}
+		}
+
+		if (output != null) {
+			int warmupSteps = 0;
+			for (int i = 0; i < bt.length; i++)
+				warmupSteps += bt[i].getWarmupSteps();
+			Map<String, String> run = new LinkedHashMap<String, String>();
+			run.put("benchmark", benchmark);
+			run.put("args", join(args, " "));
+			run.put("context", System.getProperty("org.deuce.transaction.contextClass", ""));
+			run.put("options", options());
+			run.put("threads", Integer.toString(bt.length));
+			run.put("virtual", Boolean.toString(virtual));
+			Map<String, Map<String, String>> phases = new LinkedHashMap<String, Map<String, String>>();
+			phases.put("warmup", wendMeasurement.since(wstartMeasurement, warmupSteps));
+			phases.put("test", tendMeasurement.since(wendMeasurement, steps));
+			try {
+				if (format.equals("json"))
+					writeJson(output, run, phases);
+				else
+					writeCsv(output, run, phases);
+			} catch (IOException e) {
+				System.err.println("Can't write the results to " + output + ": " + e.getMessage());
+				System.exit(1);
+			}
+		}
+	}
+
+	/**
+	 * Appends a row per phase, after a header if the file is new.
+	 */
+	private static void writeCsv(String output, Map<String, String> run, Map<String, Map<String, String>> phases)
+			throws IOException {
+		File file = new File(output);
+		boolean header = file.length() == 0;
+		PrintWriter out = new PrintWriter(new FileWriter(file, true));
+		try {
+			for (Map.Entry<String, Map<String, String>> phase : phases.entrySet()) {
+				Map<String, String> row = new LinkedHashMap<String, String>(run);
+				row.put("phase", phase.getKey());
+				row.putAll(phase.getValue());
+				if (header) {
+					out.println(join(row.keySet().toArray(new String[0]), ","));
+					header = false;
+				}
+				String[] values = row.values().toArray(new String[0]);
+				for (int i = 0; i < values.length; i++) {
+					if (values[i].indexOf(',') >= 0 || values[i].indexOf('"') >= 0)
+						values[i] = '"' + values[i].replace("\"", "\"\"") + '"';
+				}
+				out.println(join(values, ","));
+			}
+		} finally {
+			out.close();
+		}
+	}
+
+	/**
+	 * Appends the run as one JSON object on a line, with its phases by name.
+	 */
+	private static void writeJson(String output, Map<String, String> run, Map<String, Map<String, String>> phases)
+			throws IOException {
+		StringBuilder json = new StringBuilder("{");
+		appendJson(json, run);
+		json.append(",\"phases\":{");
+		boolean first = true;
+		for (Map.Entry<String, Map<String, String>> phase : phases.entrySet()) {
+			if (!first)
+				json.append(',');
+			first = false;
+			appendString(json, phase.getKey());
+			json.append(":{");
+			appendJson(json, phase.getValue());
+			json.append('}');
+		}
+		json.append("}}");
+		PrintWriter out = new PrintWriter(new FileWriter(output, true));
+		try {
+			out.println(json);
+		} finally {
+			out.close();
+		}
+	}
+
+	// The numbers unquoted, the counters not measured as null
+	private static void appendJson(StringBuilder json, Map<String, String> values) {
+		boolean first = true;
+		for (Map.Entry<String, String> entry : values.entrySet()) {
+			if (!first)
+				json.append(',');
+			first = false;
+			appendString(json, entry.getKey());
+			json.append(':');
+			String value = entry.getValue();
+			if (value.length() == 0)
+				json.append("null");
+			else if (value.matches("-?[0-9]+(\\.[0-9]+)?") || value.equals("true") || value.equals("false"))
+				json.append(value);
+			else
+				appendString(json, value);
+		}
+	}
+
+	private static void appendString(StringBuilder json, String value) {
+		json.append('"');
+		for (int i = 0; i < value.length(); i++) {
+			char c = value.charAt(i);
+			if (c == '"' || c == '\\')
+				json.append('\\').append(c);
+			else if (c < ' ')
+				json.append(String.format("\\u%04x", (int) c));
+			else
+				json.append(c);
+		}
+		json.append('"');
+	}
+
+	/**
+	 * @return the other org.deuce.transaction properties of the run, such as the read-only hints
+	 */
+	private static String options() {
+		String prefix = "org.deuce.transaction.";
+		Map<String, String> options = new TreeMap<String, String>();
+		for (String name : System.getProperties().stringPropertyNames()) {
+			if (name.startsWith(prefix) && !name.equals(prefix + "contextClass"))
+				options.put(name.substring(prefix.length()), System.getProperty(name));
+		}
+		StringBuilder joined = new StringBuilder();
+		for (Map.Entry<String, String> option : options.entrySet()) {
+			if (joined.length() > 0)
+				joined.append(' ');
+			joined.append(option.getKey()).append('=').append(option.getValue());
+		}
+		return joined.toString();
+	}
+
+	private static String join(String[] values, String separator) {
+		StringBuilder joined = new StringBuilder();
+		for (int i = 0; i < values.length; i++) {
+			if (i > 0)
+				joined.append(separator);
+			joined.append(values[i]);
+		}
+		return joined.toString();
+	}
+
+	/**
+	 * Creates an unstarted virtual thread through reflection, the sources target older JVMs.
+	 * @return the thread, or <code>null</code> if the JVM has no virtual threads
+	 */
+	private static Thread newVirtualThread(Runnable task) {
+		try {
+			Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+			Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+			return (Thread) builderClass.getMethod("unstarted", Runnable.class).invoke(builder, task);
+		} catch (Exception e) {
+			return null;
+		}
 	}
 }
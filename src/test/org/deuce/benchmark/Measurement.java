@@ -0,0 +1,113 @@
+package org.deuce.benchmark;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.deuce.transaction.stats.AbortCause;
+import org.deuce.transaction.stats.BlockStatistics;
+import org.deuce.transaction.stats.LatencyHistogram;
+import org.deuce.transaction.stats.Statistics;
+import org.deuce.transaction.util.Footprint;
+import org.deuce.transform.commons.Exclude;
+
+/**
+ * The counters of a run at an instant: the transaction statistics when they are enabled, the
+ * bytes allocated by the benchmark threads and the garbage collections. The difference of two
+ * measurements gives the results of a phase.
+ *
+ * @since 1.4
+ */
+@Exclude
+public class Measurement {
+
+	final private long time = System.currentTimeMillis();
+	final private BlockStatistics totals;
+	final private Map<Integer, LatencyHistogram> latencies;
+	final private long allocatedBytes;
+	private long collections = 0;
+	private long collectionMillis = 0;
+
+	/**
+	 * @param threads the benchmark threads, unstarted or alive
+	 */
+	public Measurement(Thread[] threads) {
+		totals = Statistics.ENABLED ? Statistics.getTotalStatistics() : null;
+		latencies = Statistics.ENABLED ? Statistics.getLatencies() : null;
+		long allocated = 0;
+		for (Thread thread : threads) {
+			if (thread.getState() == Thread.State.NEW)
+				continue; // nothing allocated yet
+			long bytes = Footprint.getAllocatedBytes(thread.getId());
+			if (bytes < 0) { // not counted by the JVM, or not for virtual threads
+				allocated = -1;
+				break;
+			}
+			allocated += bytes;
+		}
+		allocatedBytes = allocated;
+		for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+			collections += Math.max(0, gc.getCollectionCount());
+			collectionMillis += Math.max(0, gc.getCollectionTime());
+		}
+	}
+
+	/**
+	 * @param start the measurement at the start of the phase
+	 * @param iterations the iterations of the benchmark threads during the phase
+	 * @return the results of the phase by name, empty for the counters not measured
+	 */
+	public Map<String, String> since(Measurement start, long iterations) {
+		Map<String, String> results = new LinkedHashMap<String, String>();
+		long millis = time - start.time;
+		results.put("duration_ms", Long.toString(millis));
+		results.put("iterations", Long.toString(iterations));
+		results.put("throughput", format(millis == 0 ? 0 : iterations * 1000.0 / millis));
+
+		long commits = -1;
+		if (totals != null) {
+			commits = totals.getCommits() - start.totals.getCommits();
+			long aborts = totals.getAborts() - start.totals.getAborts();
+			results.put("commits", Long.toString(commits));
+			results.put("aborts", Long.toString(aborts));
+			results.put("abort_rate", format(commits + aborts == 0 ? 0 : (double) aborts / (commits + aborts)));
+			for (AbortCause cause : AbortCause.values())
+				results.put("aborts_" + cause.name().toLowerCase(),
+						Long.toString(totals.getAborts(cause) - start.totals.getAborts(cause)));
+
+			LatencyHistogram latency = LatencyHistogram.empty();
+			for (LatencyHistogram block : latencies.values())
+				latency = latency.add(block.since(start.latencies.get(block.getAtomicBlockId())));
+			results.put("latency_p50_us", format(latency.getValueAtPercentile(50) / 1e3));
+			results.put("latency_p99_us", format(latency.getValueAtPercentile(99) / 1e3));
+			results.put("latency_p999_us", format(latency.getValueAtPercentile(99.9) / 1e3));
+		} else {
+			results.put("commits", "");
+			results.put("aborts", "");
+			results.put("abort_rate", "");
+			for (AbortCause cause : AbortCause.values())
+				results.put("aborts_" + cause.name().toLowerCase(), "");
+			results.put("latency_p50_us", "");
+			results.put("latency_p99_us", "");
+			results.put("latency_p999_us", "");
+		}
+
+		if (allocatedBytes >= 0 && start.allocatedBytes >= 0) {
+			long allocated = allocatedBytes - start.allocatedBytes;
+			long transactions = commits >= 0 ? commits : iterations;
+			results.put("allocated_bytes", Long.toString(allocated));
+			results.put("bytes_per_tx", format(transactions == 0 ? 0 : (double) allocated / transactions));
+		} else {
+			results.put("allocated_bytes", "");
+			results.put("bytes_per_tx", "");
+		}
+		results.put("gc_count", Long.toString(collections - start.collections));
+		results.put("gc_ms", Long.toString(collectionMillis - start.collectionMillis));
+		return results;
+	}
+
+	private static String format(double value) {
+		return String.format(java.util.Locale.ROOT, "%.3f", value);
+	}
+}
@@ -14,6 +14,7 @@ public class Benchmark implements org.deuce.benchmark.Benchmark {
 	int m_write_frequency = 0;
 	int m_read_threads = 0;
 	int m_write_threads = 0;
+	int m_pause = 0;
 	Account[] m_accounts;
 
 	public void init(String[] args) {
@@ -57,6 +58,12 @@ public class Benchmark implements org.deuce.benchmark.Benchmark {
 					m_write_threads = Integer.parseInt(args[i]);
 				else
 					error = true;
+			} else if (args[i].equals("-p")) {
+				// Blocks between transactions, like a thread serving requests
+				if (++i < args.length)
+					m_pause = Integer.parseInt(args[i]);
+				else
+					error = true;
 			} else if (args[i].equals("-d")) {
 				// Use disjoint sets of accounts
 				Account.s_disjoint = true;
@@ -67,7 +74,7 @@ public class Benchmark implements org.deuce.benchmark.Benchmark {
 				error = true;
 		}
 		if (error) {
-			System.out.println("Benchmark arguments: [-n nb-accounts] [-i initial-amount] [-m max-transfer] [-r read-all-frequency] [-w write-all-frequency] [-R read-all-threads] [-W write-all-threads] [-d] [-y]");
+			System.out.println("Benchmark arguments: [-n nb-accounts] [-i initial-amount] [-m max-transfer] [-r read-all-frequency] [-w write-all-frequency] [-R read-all-threads] [-W write-all-threads] [-p pause-ms] [-d] [-y]");
 			System.exit(1);
 		}
 		m_accounts = new Account[nb];
@@ -84,6 +91,7 @@ public class Benchmark implements org.deuce.benchmark.Benchmark {
 		System.out.println("Write-all threads   = " + m_write_threads);
 		System.out.println("Disjoint            = " + Account.s_disjoint);
 		System.out.println("Yield               = " + Account.s_yield);
+		System.out.println("Pause (ms)          = " + m_pause);
 		System.out.println();
 	}
 
@@ -91,7 +99,7 @@ public class Benchmark implements org.deuce.benchmark.Benchmark {
 	}
 
 	public org.deuce.benchmark.BenchmarkThread createThread(int i, int nb) {
-		return new BenchmarkThread(i, nb, m_accounts, m_max, m_read_frequency, m_write_frequency, m_read_threads, m_write_threads);
+		return new BenchmarkThread(i, nb, m_accounts, m_max, m_read_frequency, m_write_frequency, m_read_threads, m_write_threads, m_pause);
 	}
 
 	public String getStats(org.deuce.benchmark.BenchmarkThread[] threads) {
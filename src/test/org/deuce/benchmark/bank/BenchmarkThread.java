@@ -19,12 +19,13 @@ public class BenchmarkThread extends org.deuce.benchmark.BenchmarkThread {
 	final private int m_write_frequency;
 	final private int m_read_threads;
 	final private int m_write_threads;
+	final private int m_pause;
 	int m_nb_transfers;
 	int m_nb_reads;
 	int m_nb_writes;
 	final private Random m_random;
 
-	BenchmarkThread(int id, int nb, Account[] accounts, int max, int read_frequency, int write_frequency, int read_threads, int write_threads) {
+	BenchmarkThread(int id, int nb, Account[] accounts, int max, int read_frequency, int write_frequency, int read_threads, int write_threads, int pause) {
 		m_id = id;
 		m_nb = nb;
 		m_accounts = accounts;
@@ -33,12 +34,19 @@ public class BenchmarkThread extends org.deuce.benchmark.BenchmarkThread {
 		m_write_frequency = write_frequency;
 		m_read_threads = read_threads;
 		m_write_threads = write_threads;
+		m_pause = pause;
 		m_nb_transfers = m_nb_reads = m_nb_writes = 0;
 		m_random = new Random();
 	}
 
 	protected void step(int phase) {
 
+		if (m_pause > 0) {
+			try {
+				Thread.sleep(m_pause);
+			} catch (InterruptedException e) {
+			}
+		}
 		if (m_id < m_read_threads) {
 			// Compute total of all accounts (read-all transaction)
 			Account.computeTotal(m_accounts);
@@ -43,7 +43,7 @@ public class IntSetLinkedList implements IntSet {
 		m_first = min;
 	}
 
-	@Atomic
+	@Atomic(elastic=true)
 	public boolean add(int value) {
 		boolean result;
 
@@ -62,7 +62,7 @@ public class IntSetLinkedList implements IntSet {
 		return result;
 	}
 
-	@Atomic
+	@Atomic(elastic=true)
 	public boolean remove(int value) {
 		boolean result;
 
@@ -81,7 +81,7 @@ public class IntSetLinkedList implements IntSet {
 		return result;
 	}
 
-	@Atomic
+	@Atomic(elastic=true)
 	public boolean contains(int value) {
 		boolean result;
 
@@ -154,7 +154,7 @@ public class IntSetSkipList implements IntSet {
 		return result;
 	}
 
-	@Atomic
+	@Atomic(elastic=true)
 	public boolean contains(int value) {
 		boolean result;
 
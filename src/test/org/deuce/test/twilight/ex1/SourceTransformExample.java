@@ -57,7 +57,7 @@ public class SourceTransformExample {
 		boolean result = true;
 		for(int i = 10 ;i > 0 ;--i)
 		{
-			context.init(393, "supplied by user and placed here during transformation");
+			context.init(393, 0, "supplied by user and placed here during transformation");
 			try
 			{
 				result = foo(s,context);
@@ -31,7 +31,7 @@ public class BarExplicit {
 		Integer result = null;
 
 		for (int i = 64; i > 0; --i) {
-			context.init(1, "atomic foo!"); // pass it a fake atomicBlockId and meta information about the current atomic block
+			context.init(1, 0, "atomic foo!"); // pass it a fake atomicBlockId and meta information about the current atomic block
 			try {
 //				System.out.println("getting here?");
 				result = foo(s, context);
@@ -0,0 +1,131 @@
+package org.deuce.utest.basic;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import junit.framework.Assert;
+import junit.framework.TestCase;
+
+import org.deuce.Atomic;
+import org.deuce.Transaction;
+import org.deuce.transaction.AbortCauseContext;
+import org.deuce.transaction.Context;
+import org.deuce.transaction.ContextDelegator;
+import org.deuce.transaction.TransactionException;
+import org.deuce.transaction.TwilightContext;
+import org.deuce.transaction.TwilightContextDelegator;
+import org.deuce.transaction.stats.AbortCause;
+import org.deuce.transaction.util.AbortChannel;
+import org.deuce.transaction.util.Backoff;
+
+/**
+ * Tests the cause of the aborts reaches the retry loop.
+ */
+public class AbortCauseTest extends TestCase{
+
+	final private static long X = Transaction.fieldAddress(Cell.class, "x");
+	final private static long Y = Transaction.fieldAddress(Cell.class, "y");
+
+	final private AtomicInteger attempts = new AtomicInteger();
+
+	public void testChannel() {
+		AbortChannel channel = new AbortChannel();
+		channel.init(1);
+		Assert.assertNull(channel.getCause());
+		Assert.assertEquals(0, channel.getAborts());
+
+		// The first cause of an attempt is kept
+		channel.set(AbortCause.READ);
+		channel.set(AbortCause.WRITE);
+		channel.rollback();
+		Assert.assertEquals(AbortCause.READ, channel.getCause());
+		Assert.assertEquals(1, channel.getAborts());
+
+		// A retry of the block, rolled back without a cause
+		channel.init(1);
+		Assert.assertNull(channel.getCause());
+		channel.rollback();
+		Assert.assertEquals(AbortCause.EXPLICIT, channel.getCause());
+		Assert.assertEquals(2, channel.getAborts());
+
+		// A failed commit
+		channel.init(1);
+		channel.set(AbortCause.COMMIT);
+		Assert.assertEquals(3, channel.getAborts());
+
+		// Another block starts over
+		channel.init(2);
+		Assert.assertEquals(0, channel.getAborts());
+	}
+
+	public void testBackoff() {
+		int max = Backoff.getMaxRetryBackoff();
+		Backoff.setMaxRetryBackoff(1000);
+		try{
+			for( int aborts=0 ; aborts<40 ; ++aborts)
+				for( AbortCause cause : AbortCause.values())
+					Backoff.onAbort(cause, aborts);
+			Backoff.onAbort(null, 1);
+		}finally{
+			Backoff.setMaxRetryBackoff(max);
+		}
+	}
+
+	public void testRetryLoop() {
+		// The atomic blocks run the Twilight contexts from their own delegator
+		Context context = TwilightContext.class.isAssignableFrom(ContextDelegator.getContextClass()) ?
+				TwilightContextDelegator.getInstance() : ContextDelegator.getInstance();
+		if( !(context instanceof AbortCauseContext))
+			return; // The engine doesn't tell the cause
+
+		try{
+			abort();
+			Assert.fail("Should get TransactionException");
+		}catch(TransactionException ex){
+		}
+		Assert.assertEquals(3, attempts.get());
+		Assert.assertEquals(AbortCause.EXPLICIT, ((AbortCauseContext) context).getAbortCause());
+		Assert.assertEquals(3, ((AbortCauseContext) context).getAbortCount());
+	}
+
+	@Atomic(retries=3)
+	private void abort(){
+		attempts.incrementAndGet();
+		throw new TransactionException();
+	}
+
+	public void testCommitConflict() {
+		assertCommitConflict(new org.deuce.transaction.tl2cm.Context(), new org.deuce.transaction.tl2cm.Context());
+		assertCommitConflict(new org.deuce.transaction.mvstm.Context(), new org.deuce.transaction.mvstm.Context());
+		assertCommitConflict(new org.deuce.transaction.swisstm.Context(), new org.deuce.transaction.swisstm.Context());
+		assertCommitConflict(new org.deuce.transaction.tinystm.Context(), new org.deuce.transaction.tinystm.Context());
+	}
+
+	/**
+	 * A field read by the reader is updated before the reader commits.
+	 */
+	private void assertCommitConflict(Context reader, Context writer) {
+		Cell cell = new Cell();
+		reader.init(1, 0, "");
+		reader.beforeReadAccess(cell, X);
+		Assert.assertEquals(0, reader.onReadAccess(cell, cell.x, X));
+		reader.onWriteAccess(cell, 1, Y);
+
+		writer.init(2, 0, "");
+		writer.onWriteAccess(cell, 1, X);
+		Assert.assertTrue(writer.commit());
+
+		Assert.assertFalse(reader.commit());
+		Assert.assertEquals(AbortCause.COMMIT, ((AbortCauseContext) reader).getAbortCause());
+		Assert.assertEquals(1, ((AbortCauseContext) reader).getAbortCount());
+
+		// Rolled back without a cause
+		writer.init(2, 0, "");
+		writer.rollback();
+		Assert.assertEquals(AbortCause.EXPLICIT, ((AbortCauseContext) writer).getAbortCause());
+	}
+
+	private static class Cell {
+		int x;
+		int y;
+	}
+}
@@ -0,0 +1,37 @@
+package org.deuce.utest.basic;
+
+import junit.framework.Assert;
+import junit.framework.TestCase;
+
+import org.deuce.transaction.tl2cm.Context;
+import org.deuce.transaction.tl2cm.cm.Adaptive;
+import org.deuce.transaction.tl2cm.cm.ContentionManager.Action;
+
+/**
+ * Tests that the adaptive contention manager of TL2-CM switches the policy of a block
+ * that keeps aborting.
+ */
+public class AdaptiveContentionManagerTest extends TestCase{
+
+	// Far from the ids given to the atomic blocks of the tests
+	final private static int BLOCK = 6000;
+
+	public void testSwitchOnAborts() {
+		Adaptive cm = new Adaptive();
+		Context me = new Context();
+		Context other = new Context();
+		Assert.assertEquals("Suicide", Adaptive.getPolicy(BLOCK));
+
+		// A full period of aborted attempts
+		for( int i=0 ; i<256 ; ++i) {
+			me.init(BLOCK, 0, "");
+			me.rollback();
+		}
+
+		// Karma backs off as long as the priorities are equal
+		Assert.assertEquals(Action.RETRY, cm.resolveReadConflict(null, me, other));
+		Assert.assertEquals("Karma", Adaptive.getPolicy(BLOCK));
+		Assert.assertEquals(1, Adaptive.getSwitches(BLOCK));
+		Assert.assertTrue(Adaptive.getDecisions().contains("block " + BLOCK + ": Suicide -> Karma"));
+	}
+}
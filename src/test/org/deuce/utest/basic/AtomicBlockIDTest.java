@@ -52,6 +52,10 @@ public class AtomicBlockIDTest extends TestCase{
 					int atomicBlockIdC = context.getAtomicBlockId();
 					Assert.assertFalse(atomicBlockIdA==atomicBlockIdC);
 					Assert.assertFalse(atomicBlockIdB==atomicBlockIdC);
+					Assert.assertEquals(0, context.getFlags());
+
+					blockE();
+					Assert.assertEquals(Context.FLAG_ELASTIC, context.getFlags());
 				} catch (Exception e) {
 					error.equals(e);
 				} 
@@ -81,10 +85,14 @@ public class AtomicBlockIDTest extends TestCase{
 	@Atomic(metainf="b")
 	private void blockD(){
 	}
+	@Atomic(elastic=true)
+	private void blockE(){
+	}
 	
 	public static class MockContext implements Context{
 
 		private int atomicBlockId;
+		private int flags;
 		private String metainf;
 
 		@Override
@@ -100,8 +108,9 @@ public class AtomicBlockIDTest extends TestCase{
 		}
 
 		@Override
-		public void init(int atomicBlockId, String metainf) {
+		public void init(int atomicBlockId, int flags, String metainf) {
 			this.atomicBlockId = atomicBlockId;
+			this.flags = flags;
 			this.metainf = metainf;
 		}
 
@@ -226,6 +235,10 @@ public class AtomicBlockIDTest extends TestCase{
 		public int getAtomicBlockId() {
 			return atomicBlockId;
 		}
+
+		public int getFlags() {
+			return flags;
+		}
 		
 		@Override
 		public void onIrrevocableAccess() {
@@ -0,0 +1,46 @@
+package org.deuce.utest.basic;
+
+import java.lang.reflect.Field;
+
+import junit.framework.Assert;
+import junit.framework.TestCase;
+
+import org.deuce.Atomic;
+import org.deuce.transaction.stats.BarrierProfile;
+import org.deuce.transaction.stats.MethodBarriers;
+
+/**
+ * Tests the barriers of the instrumented methods are counted with -Dorg.deuce.transaction.barriers=true,
+ * set before the agent starts, and that no counter is generated without it.
+ */
+public class BarrierProfileTest extends TestCase{
+
+	private int counter = 0;
+	private int[] values = new int[4];
+
+	public void testBarriers() throws Exception {
+		for( int i=0 ; i<10 ; ++i)
+			update();
+
+		if (!BarrierProfile.ENABLED) {
+			for (Field field : BarrierProfileTest.class.getDeclaredFields())
+				Assert.assertFalse(field.getName(), field.getName().startsWith("__BARRIERS_"));
+			return;
+		}
+		MethodBarriers update = null;
+		for (MethodBarriers method : BarrierProfile.getTopMethods(Integer.MAX_VALUE)) {
+			if (method.getClassName().equals(BarrierProfileTest.class.getName()) && method.getMethod().equals("update()V"))
+				update = method;
+		}
+		Assert.assertNotNull(update);
+		Assert.assertEquals(20, update.getReads());
+		Assert.assertEquals(10, update.getWrites());
+		Assert.assertEquals(10, update.getArrays());
+		Assert.assertEquals(40, update.getTotal());
+	}
+
+	@Atomic
+	private void update() {
+		counter = counter + values[1];
+	}
+}
@@ -0,0 +1,57 @@
+package org.deuce.utest.basic;
+
+import junit.framework.Assert;
+import junit.framework.TestCase;
+
+import org.deuce.transaction.util.CapacityTuner;
+
+/**
+ * Tests the structures are presized for the large blocks and shrunk after an outlier.
+ */
+public class CapacityTunerTest extends TestCase{
+
+	// The default tuning period
+	final private static int PERIOD = 1024;
+
+	public void testPresize() throws Exception {
+		CapacityTuner.Hints hints = new CapacityTuner.Hints();
+		CapacityTuner tuner = new CapacityTuner(hints, 16);
+		CapacityTuner other = new CapacityTuner(hints, 16);
+
+		// A transaction of block 1 used 5000 entries
+		Assert.assertEquals(16, tuner.next(1, 0, 16));
+		Assert.assertEquals(8192, tuner.next(2, 5000, 8192));
+		Assert.assertEquals(5000, tuner.getHint(1));
+
+		// The other contexts start block 1 presized
+		Assert.assertEquals(5000, other.next(1, 0, 16));
+		Assert.assertEquals(16, other.next(2, 3, 16));
+	}
+
+	public void testShrink() throws Exception {
+		CapacityTuner tuner = new CapacityTuner(new CapacityTuner.Hints(), 16);
+		int capacity = 1 << 16; // grown by an outlier
+		int next = capacity;
+		for (int i = 0; i < PERIOD && next == capacity; i++)
+			next = tuner.next(3, 10, capacity);
+		Assert.assertEquals(20, next); // twice the peak
+
+		// Kept while the structure is used
+		capacity = 64;
+		for (int i = 0; i < 2 * PERIOD; i++)
+			Assert.assertEquals(64, tuner.next(3, 30, capacity));
+	}
+
+	public void testDecay() throws Exception {
+		CapacityTuner.Hints hints = new CapacityTuner.Hints();
+		CapacityTuner tuner = new CapacityTuner(hints, 16);
+		tuner.next(5, 0, 16);
+		tuner.next(5, 100000, 16);
+		Assert.assertEquals(100000, tuner.getHint(5));
+
+		// An outlier is forgotten once the block keeps using far less
+		for (int i = 0; i < 100 * 64; i++)
+			tuner.next(5, 10, 100000);
+		Assert.assertTrue(tuner.getHint(5) < 100);
+	}
+}
@@ -0,0 +1,117 @@
+package org.deuce.utest.basic;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import junit.framework.Assert;
+import junit.framework.TestCase;
+
+import org.deuce.reflection.AddressUtil;
+import org.deuce.transaction.tl2cm.CommitRecord;
+import org.deuce.transaction.tl2cm.Context;
+import org.deuce.transaction.tl2cm.LockTable;
+import org.deuce.transaction.tl2cm.WriteSet;
+import org.deuce.transaction.tl2cm.field.IntWriteFieldAccess;
+import org.deuce.transform.commons.Exclude;
+
+/**
+ * Tests that the helpers of a committing TL2-CM transaction write each value once and release
+ * its locks, whichever of them gets there first.
+ */
+public class CommitHelpingTest extends TestCase{
+
+	final private static int CELLS = 64;
+	final private static int HELPERS = 4;
+	// Far from the local clocks held by the contexts of the other tests
+	final private static int OWNER_CLOCK = 20000;
+
+	@Exclude
+	private static class Cell{
+		public int value;
+	}
+
+	public void testWriteBack() throws Exception {
+		final Cell[] cells = new Cell[CELLS];
+		long field = AddressUtil.getAddress(Cell.class.getField("value"));
+		int owner = new Context().getThreadId();
+		WriteSet writeSet = new WriteSet();
+		int newClock = 1;
+		for( int i=0 ; i<CELLS ; ++i) {
+			cells[i] = new Cell();
+			IntWriteFieldAccess write = new IntWriteFieldAccess();
+			write.set(i + 1, cells[i], field);
+			writeSet.put(write);
+			long[] res = LockTable.lock(write.hashCode(), owner, OWNER_CLOCK);
+			Assert.assertEquals(0L, res[0]);
+			// Never move a version back
+			newClock = Math.max(newClock, LockTable.getVersion(res[1]) + 1);
+		}
+		final CommitRecord record = new CommitRecord(owner);
+		record.reset(writeSet, OWNER_CLOCK);
+
+		// The helpers wait for the version, then write back along with the committing thread
+		final AtomicInteger helped = new AtomicInteger();
+		Thread[] helpers = new Thread[HELPERS];
+		for( int i=0 ; i<HELPERS ; ++i) {
+			helpers[i] = new Thread() {
+				@Override
+				public void run() {
+					if( record.help(OWNER_CLOCK))
+						helped.incrementAndGet();
+				}
+			};
+			helpers[i].start();
+		}
+		record.writeBack(newClock);
+		for( Thread helper : helpers)
+			helper.join(10000);
+		Assert.assertEquals(HELPERS, helped.get());
+
+		// A late helper finds nothing left to do
+		Assert.assertTrue(record.help(OWNER_CLOCK));
+
+		for( int i=0 ; i<CELLS ; ++i) {
+			Assert.assertEquals(i + 1, cells[i].value);
+			long lock = LockTable.getLock(LockTable.hash(cells[i], field));
+			Assert.assertFalse(LockTable.isLocked(lock));
+			Assert.assertEquals(newClock, LockTable.getVersion(lock));
+		}
+	}
+
+	public void testReuse() throws Exception {
+		Cell cell = new Cell();
+		long field = AddressUtil.getAddress(Cell.class.getField("value"));
+		int owner = new Context().getThreadId();
+		CommitRecord record = new CommitRecord(owner);
+
+		WriteSet first = new WriteSet();
+		IntWriteFieldAccess write = new IntWriteFieldAccess();
+		write.set(1, cell, field);
+		first.put(write);
+		long[] res = LockTable.lock(write.hashCode(), owner, OWNER_CLOCK);
+		Assert.assertEquals(0L, res[0]);
+		int newClock = LockTable.getVersion(res[1]) + 1;
+		record.reset(first, OWNER_CLOCK);
+		record.writeBack(newClock);
+		Assert.assertEquals(1, cell.value);
+
+		// The next commit of the owner reuses the record
+		WriteSet second = new WriteSet();
+		write = new IntWriteFieldAccess();
+		write.set(2, cell, field);
+		second.put(write);
+		res = LockTable.lock(write.hashCode(), owner, OWNER_CLOCK + 1);
+		Assert.assertEquals(0L, res[0]);
+		record.reset(second, OWNER_CLOCK + 1);
+
+		// A helper of the first commit writes nothing of the second one
+		Assert.assertFalse(record.help(OWNER_CLOCK));
+		Assert.assertEquals(1, cell.value);
+		Assert.assertTrue(LockTable.isLocked(LockTable.getLock(write.hashCode())));
+
+		record.writeBack(newClock + 1);
+		Assert.assertEquals(2, cell.value);
+		long lock = LockTable.getLock(write.hashCode());
+		Assert.assertFalse(LockTable.isLocked(lock));
+		Assert.assertEquals(newClock + 1, LockTable.getVersion(lock));
+	}
+}
@@ -0,0 +1,67 @@
+package org.deuce.utest.basic;
+
+import java.util.List;
+
+import junit.framework.Assert;
+import junit.framework.TestCase;
+
+import org.deuce.reflection.AddressUtil;
+import org.deuce.transaction.stats.AbortCause;
+import org.deuce.transaction.stats.ConflictProfiler;
+import org.deuce.transaction.stats.FieldConflict;
+import org.deuce.transaction.stats.Recorder;
+import org.deuce.transaction.stats.Statistics;
+
+/**
+ * Tests the conflict profiler names the conflicting fields.
+ */
+public class ConflictProfilerTest extends TestCase{
+
+	static {
+		// Before the first context is created, sampling every conflict
+		System.setProperty("org.deuce.transaction.stats", "true");
+		System.setProperty("org.deuce.transaction.conflicts", "1");
+	}
+
+	private static int total = 0;
+	private int counter = 0;
+	final private int[] values = new int[4];
+
+	public void testFields() throws Exception {
+		Assert.assertTrue(ConflictProfiler.ENABLED);
+		ConflictProfiler.reset();
+
+		long counterAddress = AddressUtil.getAddress(ConflictProfilerTest.class.getDeclaredField("counter"));
+		long totalAddress = AddressUtil.getAddress(ConflictProfilerTest.class.getDeclaredField("total"));
+		Object staticBase = AddressUtil.staticFieldBase(ConflictProfilerTest.class, "total");
+		long elementAddress = AddressUtil.arrayBaseOffset(int[].class) + 2 * AddressUtil.arrayIndexScale(int[].class);
+
+		Recorder recorder = Statistics.newRecorder(this);
+		conflict(recorder, 4000, this, counterAddress, 3);
+		conflict(recorder, 4001, staticBase, totalAddress, 2);
+		conflict(recorder, 4002, values, elementAddress, 1);
+
+		List<FieldConflict> conflicts = ConflictProfiler.getTopConflicts(10);
+		Assert.assertEquals(3, conflicts.size());
+		assertConflict(conflicts.get(0), ConflictProfilerTest.class.getName(), "counter", 4000, 3);
+		assertConflict(conflicts.get(1), ConflictProfilerTest.class.getName(), "total", 4001, 2);
+		assertConflict(conflicts.get(2), "int", "[]", 4002, 1);
+		Assert.assertEquals(1, ConflictProfiler.getTopConflicts(1).size());
+	}
+
+	private void conflict(Recorder recorder, int atomicBlockId, Object obj, long field, int times) {
+		for( int i=0 ; i<times ; ++i) {
+			recorder.onStart(atomicBlockId);
+			recorder.onConflict(0, obj, field);
+			recorder.onAbort(AbortCause.READ);
+		}
+	}
+
+	private void assertConflict(FieldConflict conflict, String className, String fieldName,
+			int atomicBlockId, long samples) {
+		Assert.assertEquals(className, conflict.getClassName());
+		Assert.assertEquals(fieldName, conflict.getFieldName());
+		Assert.assertEquals(atomicBlockId, conflict.getAtomicBlockId());
+		Assert.assertEquals(samples, conflict.getSamples());
+	}
+}
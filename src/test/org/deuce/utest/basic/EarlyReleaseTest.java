@@ -0,0 +1,164 @@
+package org.deuce.utest.basic;
+
+import junit.framework.Assert;
+import junit.framework.TestCase;
+
+import org.deuce.Atomic;
+import org.deuce.Transaction;
+import org.deuce.transaction.Context;
+import org.deuce.transaction.estm.LastReadEntries;
+import org.deuce.transaction.estm.ReadSet;
+
+/**
+ * Tests the early release API, on a hand-over-hand traversal and on the E-STM sets.
+ */
+public class EarlyReleaseTest extends TestCase{
+
+	final private static long NEXT = Transaction.fieldAddress(Node.class, "next");
+
+	private Node head;
+
+	@Override
+	public void setUp() {
+		head = null;
+		for( int i=10 ; i>0 ; --i)
+			head = new Node(i, head);
+	}
+
+	public void testTraversal() {
+		Assert.assertEquals(55, sum());
+		Assert.assertEquals(55, elasticSum());
+		append(11);
+		Assert.assertEquals(66, sum());
+	}
+
+	public void testReleasedConflict() {
+		assertReleasedConflict(new org.deuce.transaction.lsa.Context(), new org.deuce.transaction.lsa.Context());
+		assertReleasedConflict(new org.deuce.transaction.estm.Context(), new org.deuce.transaction.estm.Context());
+	}
+
+	/**
+	 * A write to a node the reader left behind aborts the reader unless it released the node.
+	 */
+	private void assertReleasedConflict(Context reader, Context writer) {
+		for( int release=0 ; release<2 ; ++release) {
+			setUp();
+			Node first = head;
+			Node second = head.getNext();
+
+			reader.init(0, 0, "");
+			reader.beforeReadAccess(first, NEXT);
+			Assert.assertSame(second, reader.onReadAccess(first, first.next, NEXT));
+			if( release == 1)
+				Transaction.release(first, NEXT, reader);
+			reader.beforeReadAccess(second, NEXT);
+			Node third = (Node)reader.onReadAccess(second, second.next, NEXT);
+
+			// Another transaction unlinks the second node
+			writer.init(1, 0, "");
+			writer.onWriteAccess(first, third, NEXT);
+			Assert.assertTrue(writer.commit());
+
+			// The reader updates the third node
+			reader.onWriteAccess(third, null, NEXT);
+			Assert.assertEquals(release == 1, reader.commit());
+			if( release == 0)
+				reader.rollback();
+		}
+	}
+
+	public void testFieldAddressInTransaction() {
+		Assert.assertEquals(NEXT, nextAddress());
+	}
+
+	public void testReadSetRelease() {
+		Object a = new Object();
+		Object b = new Object();
+		ReadSet readSet = new ReadSet(1);
+		readSet.add(a, 1, 1, 0);
+		readSet.add(b, 1, 2, 0);
+		readSet.add(a, 2, 3, 0);
+		readSet.add(a, 1, 1, 0);
+
+		readSet.release(a, 1);
+		Assert.assertEquals(2, readSet.getSize());
+		Assert.assertFalse(readSet.contains(a, 1));
+		Assert.assertTrue(readSet.contains(b, 1));
+		Assert.assertTrue(readSet.contains(a, 2));
+	}
+
+	public void testLastReadEntriesRelease() {
+		Object a = new Object();
+		LastReadEntries lre = new LastReadEntries(3);
+		for( int i=1 ; i<=4 ; ++i)
+			lre.add(a, i, i, 0); // the window keeps 2, 3 and 4
+
+		lre.release(a, 3);
+		Assert.assertEquals(2, lre.getSize());
+		Assert.assertFalse(lre.contains(a, 3));
+
+		lre.add(a, 5, 5, 0);
+		lre.add(a, 6, 6, 0); // evicts the oldest, 2
+		Assert.assertFalse(lre.contains(a, 2));
+		Assert.assertTrue(lre.contains(a, 4));
+		Assert.assertTrue(lre.contains(a, 5));
+		Assert.assertTrue(lre.contains(a, 6));
+
+		ReadSet readSet = new ReadSet(4);
+		lre.copyTo(readSet);
+		Assert.assertEquals(3, readSet.getSize());
+	}
+
+	@Atomic
+	private int sum() {
+		int sum = 0;
+		Node prev = null;
+		for( Node node = head ; node != null ; node = node.getNext()) {
+			if( prev != null)
+				Transaction.release(prev, NEXT);
+			sum += node.getValue();
+			prev = node;
+		}
+		return sum;
+	}
+
+	@Atomic
+	private long nextAddress() {
+		return Transaction.fieldAddress(Node.class, "next");
+	}
+
+	@Atomic(elastic=true)
+	private int elasticSum() {
+		return sum();
+	}
+
+	@Atomic
+	private void append(int value) {
+		Node node = head;
+		while( node.getNext() != null)
+			node = node.getNext();
+		node.setNext(new Node(value, null));
+	}
+
+	private static class Node {
+		final private int value;
+		private Node next;
+
+		public Node(int value, Node next) {
+			this.value = value;
+			this.next = next;
+		}
+
+		public int getValue() {
+			return value;
+		}
+
+		public Node getNext() {
+			return next;
+		}
+
+		public void setNext(Node next) {
+			this.next = next;
+		}
+	}
+}
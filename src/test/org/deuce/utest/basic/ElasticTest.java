@@ -0,0 +1,61 @@
+package org.deuce.utest.basic;
+
+import java.util.Map;
+
+import junit.framework.Assert;
+import junit.framework.TestCase;
+
+import org.deuce.Atomic;
+import org.deuce.transaction.stats.BlockNames;
+import org.deuce.transaction.stats.BlockStatistics;
+import org.deuce.transaction.stats.Statistics;
+
+/**
+ * Tests the blocks declared elastic, with the attribute or the legacy meta information, run as
+ * elastic transactions on E-STM: their reads before the first write are not kept in the read set.
+ */
+public class ElasticTest extends TestCase{
+
+	static {
+		// Before the first context is created
+		System.setProperty("org.deuce.transaction.stats", "true");
+	}
+
+	private int a = 1, b = 2, c = 3;
+
+	public void testElastic() throws Exception {
+		Assert.assertEquals(6, regularSum());
+		Assert.assertEquals(6, elasticSum());
+		Assert.assertEquals(6, metainfSum());
+		if (!"org.deuce.transaction.estm.Context".equals(System.getProperty("org.deuce.transaction.contextClass")))
+			return;
+
+		Assert.assertEquals(3, block("regularSum").getMaxReadSetSize());
+		Assert.assertEquals(0, block("elasticSum").getMaxReadSetSize());
+		Assert.assertEquals(0, block("metainfSum").getMaxReadSetSize());
+	}
+
+	private BlockStatistics block(String methodName) {
+		String name = ElasticTest.class.getName() + "." + methodName;
+		for (Map.Entry<Integer, BlockStatistics> block : Statistics.getBlockStatistics().entrySet()) {
+			if (BlockNames.getName(block.getKey()).equals(name))
+				return block.getValue();
+		}
+		throw new AssertionError(name);
+	}
+
+	@Atomic
+	private int regularSum() {
+		return a + b + c;
+	}
+
+	@Atomic(elastic=true)
+	private int elasticSum() {
+		return a + b + c;
+	}
+
+	@Atomic(metainf="elastic")
+	private int metainfSum() {
+		return a + b + c;
+	}
+}
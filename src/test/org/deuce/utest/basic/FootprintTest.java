@@ -0,0 +1,37 @@
+package org.deuce.utest.basic;
+
+import junit.framework.Assert;
+import junit.framework.TestCase;
+
+import org.deuce.transaction.tl2.OwnedLocks;
+import org.deuce.transaction.util.Footprint;
+
+/**
+ * Tests the TL2 contexts allocate their structures as they are used.
+ */
+public class FootprintTest extends TestCase{
+
+	public void testOwnedLocks() throws Exception {
+		OwnedLocks locks = new OwnedLocks();
+		for (int round = 0; round < 2; round++) {
+			for (int i = 0; i < 100; i++)
+				Assert.assertTrue(locks.add(i * 1024)); // grows past its initial capacity
+			Assert.assertFalse(locks.add(5 * 1024));
+			Assert.assertEquals(100, locks.size());
+			Assert.assertEquals(7 * 1024, locks.get(7));
+			Assert.assertTrue(locks.contains(99 * 1024));
+			Assert.assertFalse(locks.contains(1));
+			locks.clear();
+			Assert.assertEquals(0, locks.size());
+			Assert.assertFalse(locks.contains(5 * 1024));
+		}
+	}
+
+	public void testContext() throws Exception {
+		if (!Footprint.isSupported())
+			return;
+		// Was over 500 KB with the preallocated pools and the lock marker of the lock table size
+		long footprint = Footprint.measure(org.deuce.transaction.tl2.Context.class);
+		Assert.assertTrue("footprint " + footprint, footprint > 0 && footprint < 16 * 1024);
+	}
+}
@@ -0,0 +1,75 @@
+package org.deuce.utest.basic;
+
+import junit.framework.Assert;
+import junit.framework.TestCase;
+
+import org.deuce.transaction.util.GroupCommit;
+import org.deuce.transform.commons.Exclude;
+
+/**
+ * Tests that the group commit runs every request once, in batches that don't overlap, and
+ * returns the result of each one to its owner.
+ */
+public class GroupCommitTest extends TestCase{
+
+	final private static int THREADS = 4;
+	final private static int COMMITS = 5000;
+
+	@Exclude
+	private static class Counter extends GroupCommit<int[]>{
+		int value = 0;
+		boolean inBatch = false;
+		int overlaps = 0;
+
+		@Override
+		protected void beginBatch() {
+			if( inBatch)
+				++overlaps;
+			inBatch = true;
+		}
+
+		@Override
+		protected boolean commit(int[] owner) {
+			// Even requests fail
+			if( owner[0]++ % 2 == 0)
+				return false;
+			++value;
+			return true;
+		}
+
+		@Override
+		protected void endBatch() {
+			inBatch = false;
+		}
+	}
+
+	public void testCommits() throws Exception {
+		final Counter counter = new Counter();
+		final int[] committed = new int[THREADS];
+		Thread[] threads = new Thread[THREADS];
+		for( int i=0 ; i<THREADS ; ++i) {
+			final int id = i;
+			threads[i] = new Thread() {
+				@Override
+				public void run() {
+					int[] owner = new int[1];
+					GroupCommit.Request<int[]> request = new GroupCommit.Request<int[]>(owner);
+					for( int j=0 ; j<COMMITS ; ++j) {
+						if( counter.commit(request))
+							++committed[id];
+					}
+				}
+			};
+			threads[i].start();
+		}
+		for( Thread thread : threads)
+			thread.join(60000);
+
+		Assert.assertEquals(0, counter.overlaps);
+		Assert.assertEquals(THREADS * COMMITS / 2, counter.value);
+		for( int i=0 ; i<THREADS ; ++i)
+			Assert.assertEquals(COMMITS / 2, committed[i]);
+		Assert.assertEquals(THREADS * COMMITS, counter.getRequests());
+		Assert.assertTrue(counter.getBatches() <= counter.getRequests());
+	}
+}
@@ -72,7 +72,7 @@ public class IrrevocableTest extends TestCase{
 		public boolean commit() {return true;}
 
 		@Override
-		public void init(int atomicBlockId, String metainf) {}
+		public void init(int atomicBlockId, int flags, String metainf) {}
 
 		@Override
 		public Object onReadAccess(Object obj, Object value, long field) {return null;}
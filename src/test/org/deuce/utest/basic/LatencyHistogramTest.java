@@ -0,0 +1,79 @@
+package org.deuce.utest.basic;
+
+import java.util.Arrays;
+
+import junit.framework.Assert;
+import junit.framework.TestCase;
+
+import org.deuce.transaction.stats.AbortCause;
+import org.deuce.transaction.stats.LatencyHistogram;
+import org.deuce.transaction.stats.Recorder;
+import org.deuce.transaction.stats.Statistics;
+
+/**
+ * Tests the latency histograms count a transaction once, retries included.
+ */
+public class LatencyHistogramTest extends TestCase{
+
+	static {
+		// Before the first context is created
+		System.setProperty("org.deuce.transaction.stats", "true");
+	}
+
+	public void testRetries() throws Exception {
+		Assert.assertTrue(Statistics.ENABLED);
+		Recorder recorder = Statistics.newRecorder(this);
+		LatencyHistogram before = Statistics.getLatency(4000);
+
+		long start = System.nanoTime();
+		recorder.onStart(4000);
+		Thread.sleep(10);
+		recorder.onAbort(AbortCause.READ);
+		recorder.onStart(4000);
+		recorder.onCommit(1, 1);
+		long elapsed = System.nanoTime() - start;
+
+		LatencyHistogram latency = Statistics.getLatency(4000).since(before);
+		Assert.assertEquals(1, latency.getCount());
+		// From the first attempt, within a bucket
+		Assert.assertTrue(latency.getValueAtPercentile(50) >= 10000000L);
+		Assert.assertTrue(latency.getValueAtPercentile(50) <= elapsed * 1.05);
+		Assert.assertEquals(latency.getValueAtPercentile(50), latency.getMax());
+		Assert.assertTrue(Statistics.getLatencies().containsKey(4000));
+	}
+
+	public void testCommits() throws Exception {
+		Recorder recorder = Statistics.newRecorder(this);
+		for (int i = 0; i < 100; i++) {
+			recorder.onStart(4001);
+			recorder.onCommit(0, 0);
+		}
+		Assert.assertEquals(100, Statistics.getLatency(4001).getCount());
+		Assert.assertEquals(0, Statistics.getLatency(4002).getCount());
+	}
+
+	public void testPercentiles() throws Exception {
+		// 99 transactions of 1us and one of 5ms
+		long[] nanos = new long[100];
+		Arrays.fill(nanos, 1000L);
+		nanos[99] = 5000000L;
+
+		LatencyHistogram latency = LatencyHistogram.of(nanos);
+		Assert.assertEquals(100, latency.getCount());
+		// Within a bucket, about 3%
+		Assert.assertTrue(latency.getValueAtPercentile(50) >= 1000L);
+		Assert.assertTrue(latency.getValueAtPercentile(50) <= 1040L);
+		Assert.assertEquals(latency.getValueAtPercentile(50), latency.getValueAtPercentile(99));
+		Assert.assertTrue(latency.getMax() >= 5000000L);
+		Assert.assertTrue(latency.getMax() <= 5200000L);
+		Assert.assertTrue(latency.getMean() > 50000);
+		Assert.assertTrue(latency.getMean() < 53000);
+		Assert.assertEquals(0, LatencyHistogram.of().getMax());
+
+		// All the blocks together, as the benchmarks report them
+		LatencyHistogram total = LatencyHistogram.empty().add(latency).add(latency);
+		Assert.assertEquals(200, total.getCount());
+		Assert.assertEquals(latency.getMax(), total.getMax());
+		Assert.assertEquals(latency.getValueAtPercentile(50), total.getValueAtPercentile(50));
+	}
+}
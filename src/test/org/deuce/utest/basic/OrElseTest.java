@@ -0,0 +1,127 @@
+package org.deuce.utest.basic;
+
+import junit.framework.Assert;
+import junit.framework.TestCase;
+
+import org.deuce.Alternative;
+import org.deuce.Atomic;
+import org.deuce.OrElse;
+import org.deuce.Transaction;
+import org.deuce.transaction.ContextDelegator;
+import org.deuce.transaction.RetryContext;
+
+/**
+ * Tests the alternative composition: the writes of an alternative that retries are rolled back
+ * and the other alternative runs in the same transaction.
+ */
+public class OrElseTest extends TestCase{
+
+	private int first = 0;
+	private int second = 0;
+	private int counter = 0;
+	private boolean touched = false;
+
+	@Override
+	protected void setUp() {
+		// The other engines run the whole transaction again when the first alternative retries
+		if( !(ContextDelegator.getInstance() instanceof RetryContext))
+			first = -1;
+	}
+
+	public void testFirst() {
+		if( first < 0)
+			return;
+		set(5, 7);
+		Assert.assertEquals(5, take());
+		Assert.assertEquals(0, getFirst());
+		Assert.assertEquals(7, getSecond());
+		Assert.assertEquals(2, getCounter());
+	}
+
+	public void testRollbackFirst() {
+		if( first < 0)
+			return;
+		set(0, 7);
+		Assert.assertEquals(7, take());
+		Assert.assertEquals(0, getSecond());
+		// The new and the overwritten writes of the first alternative were rolled back
+		Assert.assertFalse(isTouched());
+		Assert.assertEquals(1, getCounter());
+	}
+
+	public void testBothRetry() throws Exception {
+		if( first < 0)
+			return;
+		set(0, 0);
+		final int[] taken = new int[1];
+		Thread consumer = new Thread(new Runnable() {
+			@Override
+			public void run(){
+				taken[0] = take();
+			}
+		});
+		consumer.start();
+		for( int i = 0; i < 500 && consumer.getState() != Thread.State.WAITING; i++)
+			Thread.sleep(10);
+		// Blocked on the fields read by both alternatives
+		Assert.assertEquals(Thread.State.WAITING, consumer.getState());
+
+		set(3, 0);
+		consumer.join(10000);
+		Assert.assertFalse(consumer.isAlive());
+		Assert.assertEquals(3, taken[0]);
+	}
+
+	@Atomic
+	private int take() {
+		counter = 1;
+		return OrElse.orElse(new Alternative<Integer>() {
+			@Override
+			public Integer run() {
+				counter = 2;
+				touched = true;
+				int v = first;
+				if( v == 0)
+					Transaction.retry();
+				first = 0;
+				return v;
+			}
+		}, new Alternative<Integer>() {
+			@Override
+			public Integer run() {
+				int v = second;
+				if( v == 0)
+					Transaction.retry();
+				second = 0;
+				return v;
+			}
+		});
+	}
+
+	@Atomic
+	private void set(int first, int second) {
+		this.first = first;
+		this.second = second;
+		this.touched = false;
+	}
+
+	@Atomic
+	private int getFirst() {
+		return first;
+	}
+
+	@Atomic
+	private int getSecond() {
+		return second;
+	}
+
+	@Atomic
+	private int getCounter() {
+		return counter;
+	}
+
+	@Atomic
+	private boolean isTouched() {
+		return touched;
+	}
+}
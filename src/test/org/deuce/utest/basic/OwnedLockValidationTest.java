@@ -0,0 +1,49 @@
+package org.deuce.utest.basic;
+
+import junit.framework.Assert;
+import junit.framework.TestCase;
+
+import org.deuce.reflection.AddressUtil;
+import org.deuce.transaction.tl2.Context;
+
+/**
+ * Tests the TL2 commit validates the reads of the stripes it locked itself by their version.
+ */
+public class OwnedLockValidationTest extends TestCase{
+
+	public void testReadThenWrite() throws Exception {
+		int[] values = new int[1];
+		long a = AddressUtil.arrayBaseOffset(int[].class);
+
+		Context context = new Context();
+		context.init(0, 0, "");
+		context.beforeReadAccess(values, a);
+		int value = context.onReadAccess(values, values[0], a);
+		context.onWriteAccess(values, value + 1, a);
+
+		// The stripe read is locked by the commit itself
+		Assert.assertTrue(context.commit());
+		Assert.assertEquals(1, values[0]);
+	}
+
+	public void testReadThenWriteStale() throws Exception {
+		int[] values = new int[1];
+		long a = AddressUtil.arrayBaseOffset(int[].class);
+
+		Context reader = new Context();
+		reader.init(0, 0, "");
+		reader.beforeReadAccess(values, a);
+		int value = reader.onReadAccess(values, values[0], a);
+
+		// Another transaction updates the stripe
+		Context writer = new Context();
+		writer.init(1, 0, "");
+		writer.onWriteAccess(values, 5, a);
+		Assert.assertTrue(writer.commit());
+
+		// The reader owns the lock at commit, its read is still stale
+		reader.onWriteAccess(values, value + 1, a);
+		Assert.assertFalse(reader.commit());
+		Assert.assertEquals(5, values[0]);
+	}
+}
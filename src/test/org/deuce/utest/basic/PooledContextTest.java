@@ -0,0 +1,49 @@
+package org.deuce.utest.basic;
+
+import junit.framework.Assert;
+import junit.framework.TestCase;
+
+import org.deuce.transaction.pooled.Context;
+import org.deuce.transaction.pooled.ContextPool;
+import org.deuce.transaction.util.Backoff;
+import org.deuce.utest.basic.AtomicBlockIDTest.MockContext;
+
+/**
+ * Tests that the pooled contexts borrow an engine context for each attempt of a transaction and
+ * give it back once it commits or aborts.
+ */
+public class PooledContextTest extends TestCase{
+
+	// Far from the ids given to the atomic blocks of the tests
+	final private static int BLOCK = 6000;
+
+	public void testBorrowAndGiveBack() {
+		ContextPool pool = new ContextPool(MockContext.class, 1);
+		Context first = new Context(pool);
+		Context second = new Context(pool);
+
+		first.init(BLOCK, 0, "");
+		Assert.assertEquals(0, pool.size());
+		Assert.assertTrue(first.commit());
+		Assert.assertEquals(1, pool.size());
+
+		// Given back on an abort, the retry borrows it again
+		second.init(BLOCK, 0, "");
+		Assert.assertEquals(0, pool.size());
+		second.rollback();
+		Assert.assertEquals(1, pool.size());
+		second.init(BLOCK, 0, "");
+		Assert.assertEquals(0, pool.size());
+		first.init(BLOCK + 1, 0, "");
+		Assert.assertTrue(second.commit());
+		Assert.assertTrue(first.commit());
+		Assert.assertEquals(2, pool.size());
+	}
+
+	public void testParks() {
+		new Context(new ContextPool(MockContext.class, 1));
+		// Unless asked otherwise, the pooled threads don't spin
+		if( System.getProperty(Backoff.PARK_PROPERTY) == null)
+			Assert.assertTrue(Backoff.parks());
+	}
+}
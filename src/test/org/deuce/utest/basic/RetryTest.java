@@ -0,0 +1,91 @@
+package org.deuce.utest.basic;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import junit.framework.Assert;
+import junit.framework.TestCase;
+
+import org.deuce.Atomic;
+import org.deuce.Transaction;
+import org.deuce.transaction.ContextDelegator;
+import org.deuce.transaction.RetryContext;
+import org.deuce.transaction.TransactionException;
+
+/**
+ * Tests the blocking retry: a consumer waits for a value and is woken by the producer's commit.
+ */
+public class RetryTest extends TestCase{
+
+	private int value = 0;
+	final private AtomicInteger attempts = new AtomicInteger();
+
+	public void testWakeOnCommit() throws Exception {
+		final AtomicInteger consumed = new AtomicInteger();
+		Thread consumer = new Thread(new Runnable() {
+			@Override
+			public void run(){
+				consumed.set(awaitValue());
+			}
+		});
+		consumer.start();
+
+		// Let the consumer find no value
+		while( attempts.get() == 0)
+			Thread.sleep(10);
+		if( ContextDelegator.getInstance() instanceof RetryContext) {
+			// Parked, not spinning
+			for( int i = 0; i < 500 && consumer.getState() != Thread.State.WAITING; i++)
+				Thread.sleep(10);
+			Assert.assertEquals(Thread.State.WAITING, consumer.getState());
+			Assert.assertEquals(1, attempts.get());
+		}
+
+		produce(42);
+		consumer.join(10000);
+		Assert.assertFalse(consumer.isAlive());
+		Assert.assertEquals(42, consumed.get());
+	}
+
+	public void testInterrupt() throws Exception {
+		if( !(ContextDelegator.getInstance() instanceof RetryContext))
+			return; // the other engines run the block again right away
+		final AtomicInteger aborted = new AtomicInteger();
+		Thread consumer = new Thread(new Runnable() {
+			@Override
+			public void run(){
+				try{
+					awaitValue();
+				}
+				catch( TransactionException e){
+					if( Thread.currentThread().isInterrupted())
+						aborted.set(1);
+				}
+			}
+		});
+		consumer.start();
+		for( int i = 0; i < 500 && consumer.getState() != Thread.State.WAITING; i++)
+			Thread.sleep(10);
+		Assert.assertEquals(Thread.State.WAITING, consumer.getState());
+
+		// The block ends instead of spinning on the interrupt
+		consumer.interrupt();
+		consumer.join(10000);
+		Assert.assertFalse(consumer.isAlive());
+		Assert.assertEquals(1, aborted.get());
+		Assert.assertEquals(1, attempts.get());
+	}
+
+	@Atomic
+	private int awaitValue() {
+		attempts.incrementAndGet();
+		int v = value;
+		if( v == 0)
+			Transaction.retry();
+		return v;
+	}
+
+	@Atomic
+	private void produce(int v) {
+		value = v;
+	}
+}
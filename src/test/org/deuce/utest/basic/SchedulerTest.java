@@ -0,0 +1,62 @@
+package org.deuce.utest.basic;
+
+import junit.framework.Assert;
+import junit.framework.TestCase;
+
+import org.deuce.transaction.scheduler.Context;
+import org.deuce.transaction.scheduler.Scheduler;
+import org.deuce.transaction.stats.AbortCause;
+import org.deuce.utest.basic.AtomicBlockIDTest.MockContext;
+
+/**
+ * Tests that the scheduler learns the enemy of a block that keeps aborting and queues it.
+ */
+public class SchedulerTest extends TestCase{
+
+	// Far from the ids given to the atomic blocks of the tests
+	final private static int WINNER = 5000;
+	final private static int LOSER = 5001;
+
+	public void testQueueBehindEnemy() {
+		Context winner = new Context(new MockContext());
+		Context loser = new Context(new MockContext(){
+			@Override
+			public boolean commit() {
+				return false;
+			}
+		});
+
+		winner.init(WINNER, 0, "");
+		Assert.assertTrue(winner.commit());
+
+		// A few aborts are needed before the block is queued
+		loser.init(LOSER, 0, "");
+		Assert.assertFalse(loser.commit());
+		Assert.assertEquals(WINNER, Scheduler.getEnemy(LOSER));
+		loser.init(LOSER, 0, "");
+		loser.rollback();
+		loser.rollback(); // rollback might be called more than once
+		loser.init(LOSER, 0, "");
+		Assert.assertFalse(loser.commit());
+		Assert.assertEquals(0, Scheduler.getQueued(LOSER));
+
+		loser.init(LOSER, 0, "");
+		Assert.assertEquals(1, Scheduler.getQueued(LOSER));
+		Assert.assertFalse(loser.commit());
+
+		Assert.assertEquals(4, Scheduler.getAborted(LOSER));
+		Assert.assertEquals(0, Scheduler.getCommitted(LOSER));
+		Assert.assertEquals(1, Scheduler.getCommitted(WINNER));
+		Assert.assertEquals(0, Scheduler.getQueued(WINNER));
+	}
+
+	public void testForwarding() {
+		Context context = new Context(new org.deuce.transaction.lsa.Context());
+		context.init(WINNER + 2, 0, "");
+		// The savepoints of the engine are used by OrElse
+		Assert.assertTrue(context.beginAlternative() >= 0);
+		context.rollback();
+		Assert.assertEquals(AbortCause.EXPLICIT, context.getAbortCause());
+		Assert.assertEquals(1, context.getAbortCount());
+	}
+}
@@ -0,0 +1,70 @@
+package org.deuce.utest.basic;
+
+import junit.framework.Assert;
+import junit.framework.TestCase;
+
+import org.deuce.transaction.tl2cm.Context;
+import org.deuce.transaction.tl2cm.cm.ContentionManager.Action;
+import org.deuce.transaction.tl2cm.cm.StarvationFree;
+import org.deuce.transaction.tl2cm.cm.Suicide;
+
+/**
+ * Tests that the starvation free contention manager of TL2-CM escalates a transaction that
+ * keeps aborting, and that the escalated transaction wins the conflicts and holds the other
+ * writers back.
+ */
+public class StarvationFreeContentionManagerTest extends TestCase{
+
+	// Far from the ids given to the atomic blocks of the tests
+	final private static int BLOCK = 7000;
+	final private static int THRESHOLD = 4;
+
+	public void testEscalation() throws Exception {
+		// The contexts would escalate by themselves
+		if( "StarvationFree".equals(System.getProperty("org.deuce.transaction.tl2cm.ContentionManager")))
+			return;
+		final StarvationFree cm = new StarvationFree(new Suicide(), THRESHOLD);
+		Context me = new Context();
+		final Context writer = new Context();
+		long escalations = StarvationFree.getEscalations();
+
+		// Called by the context before the attempt is counted
+		for( int i=0 ; i<THRESHOLD ; ++i) {
+			cm.onStart(me);
+			me.init(BLOCK, 0, "");
+			Assert.assertFalse(StarvationFree.isEscalated(me));
+			me.rollback();
+		}
+		cm.onStart(me);
+		me.init(BLOCK, 0, "");
+		Assert.assertTrue(StarvationFree.isEscalated(me));
+		Assert.assertEquals(escalations + 1, StarvationFree.getEscalations());
+
+		// The escalated transaction kills the running owner, the others give way
+		writer.init(BLOCK + 1, 0, "");
+		Assert.assertEquals(Action.STEAL_LOCK, cm.resolveWriteConflict(null, me, writer));
+		Assert.assertEquals(Context.TX_ABORTED, Context.getTxStatus(writer.getStatusRecord()));
+		writer.rollback();
+		writer.init(BLOCK + 1, 0, "");
+		Assert.assertEquals(Action.RETRY, cm.resolveReadConflict(null, writer, me));
+		Assert.assertEquals(Action.RESTART, cm.resolveWriteConflict(null, writer, me));
+		writer.rollback();
+
+		// The other writers wait before locking their write set
+		Thread committer = new Thread() {
+			@Override
+			public void run() {
+				cm.beforeCommit(writer);
+			}
+		};
+		committer.start();
+		committer.join(200);
+		Assert.assertTrue(committer.isAlive());
+
+		cm.onEnd(me);
+		me.rollback();
+		Assert.assertFalse(StarvationFree.isEscalated(me));
+		committer.join(10000);
+		Assert.assertFalse(committer.isAlive());
+	}
+}
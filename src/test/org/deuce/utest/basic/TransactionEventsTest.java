@@ -0,0 +1,96 @@
+package org.deuce.utest.basic;
+
+import java.io.File;
+import java.util.List;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import junit.framework.Assert;
+import junit.framework.TestCase;
+
+import org.deuce.transaction.stats.AbortCause;
+import org.deuce.transaction.stats.Recorder;
+import org.deuce.transaction.stats.Statistics;
+import org.deuce.transaction.stats.TransactionEvents;
+
+/**
+ * Tests the transactions raise the enabled Flight Recorder events.
+ */
+public class TransactionEventsTest extends TestCase{
+
+	static {
+		// Before the first context is created, all but the begin events
+		System.setProperty("org.deuce.transaction.jfr", "commit, abort,irrevocable,extend");
+	}
+
+	public void testEvents() throws Exception {
+		Assert.assertTrue(TransactionEvents.ENABLED);
+		Assert.assertFalse(TransactionEvents.BEGIN);
+		// The events alone, without the statistics
+		Assert.assertFalse(Statistics.ENABLED);
+		Assert.assertTrue(Recorder.ENABLED);
+
+		Recording recording = new Recording();
+		recording.enable("org.deuce.TransactionBegin");
+		recording.enable("org.deuce.TransactionCommit");
+		recording.enable("org.deuce.TransactionAbort");
+		recording.enable("org.deuce.TransactionIrrevocable");
+		recording.enable("org.deuce.TransactionExtend");
+		recording.start();
+
+		Recorder recorder = Statistics.newRecorder(this);
+		recorder.onStart(4100);
+		recorder.onConflict(7, this, 0);
+		recorder.onAbort(AbortCause.READ);
+		recorder.onStart(4100);
+		recorder.onAbort(AbortCause.IRREVOCABLE);
+		recorder.onStart(4100);
+		recorder.onCommit(2, 1);
+		TransactionEvents.extend(4100, true, 42, 1000);
+
+		recording.stop();
+		File file = File.createTempFile("deuce", ".jfr");
+		try {
+			recording.dump(file.toPath());
+			recording.close();
+			List<RecordedEvent> events = RecordingFile.readAllEvents(file.toPath());
+
+			int aborts = 0, commits = 0, irrevocables = 0, extends_ = 0;
+			for (RecordedEvent event : events) {
+				String name = event.getEventType().getName();
+				if (!name.startsWith("org.deuce.") || event.getInt("atomicBlockId") != 4100)
+					continue;
+				if (name.equals("org.deuce.TransactionAbort")) {
+					if (aborts++ == 0) {
+						Assert.assertEquals("READ", event.getString("cause"));
+						Assert.assertEquals(7, event.getInt("stripe"));
+					} else {
+						Assert.assertEquals("IRREVOCABLE", event.getString("cause"));
+						Assert.assertEquals(-1, event.getInt("stripe"));
+					}
+				} else if (name.equals("org.deuce.TransactionCommit")) {
+					++commits;
+					Assert.assertEquals(2, event.getInt("readSetSize"));
+					Assert.assertEquals(1, event.getInt("writeSetSize"));
+					Assert.assertTrue(event.getLong("latency") > 0);
+				} else if (name.equals("org.deuce.TransactionIrrevocable")) {
+					++irrevocables;
+				} else if (name.equals("org.deuce.TransactionExtend")) {
+					++extends_;
+					Assert.assertTrue(event.getBoolean("extended"));
+					Assert.assertEquals(42, event.getLong("snapshot"));
+				} else {
+					Assert.fail("Unexpected event " + name);
+				}
+			}
+			Assert.assertEquals(2, aborts);
+			Assert.assertEquals(1, commits);
+			Assert.assertEquals(1, irrevocables);
+			Assert.assertEquals(1, extends_);
+			Assert.assertEquals(0, Statistics.getLatency(4100).getCount());
+		} finally {
+			file.delete();
+		}
+	}
+}
@@ -0,0 +1,105 @@
+package org.deuce.utest.basic;
+
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.management.Attribute;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.openmbean.TabularData;
+
+import junit.framework.Assert;
+import junit.framework.TestCase;
+
+import org.deuce.Atomic;
+import org.deuce.transaction.TransactionException;
+import org.deuce.transaction.stats.AbortCause;
+import org.deuce.transaction.stats.Recorder;
+import org.deuce.transaction.stats.Statistics;
+import org.deuce.transaction.stats.TransactionMonitor;
+
+/**
+ * Tests the JMX view of the STM: its counters and the tunables it changes live.
+ */
+public class TransactionMonitorTest extends TestCase{
+
+	static {
+		// Before the first context is created
+		System.setProperty("org.deuce.transaction.stats", "true");
+		TransactionMonitor.register();
+	}
+
+	final private AtomicInteger attempts = new AtomicInteger();
+	private int value = 0;
+
+	public void testCounters() throws Exception {
+		increment();
+		MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+		ObjectName name = new ObjectName(TransactionMonitor.OBJECT_NAME);
+		Assert.assertTrue(server.isRegistered(name));
+
+		// Not all the engines record statistics
+		Assert.assertTrue((Long) server.getAttribute(name, "StartCount") >= 0);
+		Assert.assertEquals(AbortCause.values().length, ((TabularData) server.getAttribute(name, "AbortCauses")).size());
+		Assert.assertTrue((Long) server.getAttribute(name, "Clock") >= -1);
+		server.getAttribute(name, "CommitRate");
+		server.getAttribute(name, "IrrevocableWaits");
+		// Measured once
+		Assert.assertEquals(server.getAttribute(name, "ContextFootprint"), server.getAttribute(name, "ContextFootprint"));
+	}
+
+	public void testHotStripes() throws Exception {
+		Recorder recorder = Statistics.newRecorder(this);
+		for( int i=0 ; i<100 ; ++i) {
+			recorder.onStart(4000);
+			recorder.onConflict(7, null, 0);
+			recorder.onAbort(AbortCause.WRITE);
+		}
+		Map<Integer, Long> hot = Statistics.getHotStripes(1);
+		Assert.assertEquals(Integer.valueOf(7), hot.keySet().iterator().next());
+	}
+
+	public void testTunables() throws Exception {
+		MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+		ObjectName name = new ObjectName(TransactionMonitor.OBJECT_NAME);
+
+		Object policy = server.getAttribute(name, "BackoffPolicy");
+		server.setAttribute(name, new Attribute("BackoffPolicy", "park"));
+		Assert.assertEquals("park", server.getAttribute(name, "BackoffPolicy"));
+		server.setAttribute(name, new Attribute("BackoffPolicy", policy));
+
+		Object cm = server.getAttribute(name, "ContentionManager");
+		server.setAttribute(name, new Attribute("ContentionManager", "Polite"));
+		Assert.assertEquals("Polite", server.getAttribute(name, "ContentionManager"));
+		try{
+			server.setAttribute(name, new Attribute("ContentionManager", "None"));
+			Assert.fail("Should reject an unknown contention manager");
+		}catch(RuntimeException ex){
+		}
+		server.setAttribute(name, new Attribute("ContentionManager", cm));
+
+		// The atomic blocks that don't set their retries read them on each call
+		Object retries = server.getAttribute(name, "Retries");
+		server.setAttribute(name, new Attribute("Retries", 3));
+		try{
+			abort();
+			Assert.fail("Should get TransactionException");
+		}catch(TransactionException ex){
+			Assert.assertEquals(3, attempts.get());
+		}finally{
+			server.setAttribute(name, new Attribute("Retries", retries));
+		}
+	}
+
+	@Atomic
+	private void increment(){
+		++value;
+	}
+
+	@Atomic
+	private void abort(){
+		attempts.incrementAndGet();
+		throw new TransactionException();
+	}
+}
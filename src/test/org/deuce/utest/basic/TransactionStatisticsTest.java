@@ -0,0 +1,100 @@
+package org.deuce.utest.basic;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import junit.framework.Assert;
+import junit.framework.TestCase;
+
+import org.deuce.Atomic;
+import org.deuce.transaction.TransactionException;
+import org.deuce.transaction.stats.AbortCause;
+import org.deuce.transaction.stats.BlockStatistics;
+import org.deuce.transaction.stats.Recorder;
+import org.deuce.transaction.stats.Statistics;
+
+/**
+ * Tests the per atomic block counters of {@link Statistics}, recorded directly and by the
+ * engine running the tests.
+ */
+public class TransactionStatisticsTest extends TestCase{
+
+	static {
+		// Before the first context is created
+		System.setProperty("org.deuce.transaction.stats", "true");
+	}
+
+	// Far from the Ids of the atomic blocks of the tests
+	final private static int BLOCK = 4000;
+
+	final private AtomicInteger attempts = new AtomicInteger();
+
+	public void testRecorder() throws Exception {
+		Object owner = new Object();
+		Recorder recorder = Statistics.newRecorder(owner);
+		recorder.onStart(BLOCK);
+		recorder.onCommit(3, 1);
+		recorder.onStart(BLOCK);
+		recorder.onAbort(AbortCause.READ);
+		recorder.onStart(BLOCK);
+		recorder.onAbort(AbortCause.COMMIT);
+		recorder.onStart(BLOCK);
+		recorder.onCommit(5, 1);
+		recorder.onStart(BLOCK + 1);
+		recorder.onAbort(AbortCause.EXPLICIT);
+
+		BlockStatistics block = Statistics.getBlockStatistics(BLOCK);
+		Assert.assertEquals(4, block.getStarts());
+		Assert.assertEquals(2, block.getCommits());
+		Assert.assertEquals(2, block.getRetries());
+		Assert.assertEquals(2, block.getAborts());
+		Assert.assertEquals(1, block.getAborts(AbortCause.READ));
+		Assert.assertEquals(1, block.getAborts(AbortCause.COMMIT));
+		Assert.assertEquals(0, block.getAborts(AbortCause.WRITE));
+		Assert.assertEquals(4.0, block.getAverageReadSetSize(), 0.0);
+		Assert.assertEquals(1.0, block.getAverageWriteSetSize(), 0.0);
+		Assert.assertEquals(5, block.getMaxReadSetSize());
+		Assert.assertEquals(1, block.getMaxWriteSetSize());
+		Assert.assertTrue(Statistics.getTotalStatistics().getMaxReadSetSize() >= 5);
+
+		BlockStatistics other = Statistics.getBlockStatistics().get(BLOCK + 1);
+		Assert.assertEquals(1, other.getStarts());
+		Assert.assertEquals(0, other.getRetries());
+		Assert.assertEquals(1, other.getAborts(AbortCause.EXPLICIT));
+	}
+
+	public void testRetired() throws Exception {
+		Recorder recorder = Statistics.newRecorder(new Object());
+		recorder.onStart(BLOCK + 2);
+		recorder.onCommit(1, 0);
+		recorder = null;
+		System.gc();
+
+		// The counters of a collected context are kept
+		Statistics.newRecorder(this);
+		Assert.assertEquals(1, Statistics.getBlockStatistics(BLOCK + 2).getCommits());
+	}
+
+	public void testAtomicBlock() throws Exception {
+		BlockStatistics before = Statistics.getTotalStatistics();
+		try{
+			abort();
+			Assert.fail("Should get TransactionException");
+		}catch(TransactionException ex){
+			Assert.assertEquals(5, attempts.get());
+		}
+		BlockStatistics after = Statistics.getTotalStatistics();
+		if( !Statistics.ENABLED)
+			return;
+
+		Assert.assertEquals(5, after.getStarts() - before.getStarts());
+		Assert.assertEquals(4, after.getRetries() - before.getRetries());
+		Assert.assertEquals(5, after.getAborts(AbortCause.EXPLICIT) - before.getAborts(AbortCause.EXPLICIT));
+		Assert.assertEquals(before.getCommits(), after.getCommits());
+	}
+
+	@Atomic(retries=5)
+	private void abort(){
+		attempts.incrementAndGet();
+		throw new TransactionException();
+	}
+}
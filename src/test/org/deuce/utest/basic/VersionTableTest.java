@@ -0,0 +1,162 @@
+package org.deuce.utest.basic;
+
+import junit.framework.Assert;
+import junit.framework.TestCase;
+
+import org.deuce.Atomic;
+import org.deuce.Transaction;
+import org.deuce.transaction.TransactionException;
+import org.deuce.transaction.mvstm.Context;
+import org.deuce.transaction.mvstm.VersionTable;
+import org.deuce.transaction.stats.AbortCause;
+
+/**
+ * Tests the snapshot lookups and the reclamation of the multi-version engine, and its read-only
+ * hint when it runs the tests.
+ */
+public class VersionTableTest extends TestCase{
+
+	final private static long VALUE = Transaction.fieldAddress(VersionTableTest.class, "value");
+	final private static long OTHER = Transaction.fieldAddress(VersionTableTest.class, "other");
+
+	private int value = 0;
+	private int other = 0;
+
+	public void testReadOnlyHint() {
+		if (!Context.class.getName().equals(System.getProperty("org.deuce.transaction.contextClass")))
+			return;
+		boolean hint = Context.isReadOnlyHint();
+		try {
+			// Without the hint a writing block runs once
+			Context.setReadOnlyHint(false);
+			Assert.assertEquals(1, incrementOnce());
+
+			// With it the first write turns the transaction into an update one, without a retry
+			Context.setReadOnlyHint(true);
+			Assert.assertEquals(1, read());
+			Assert.assertEquals(2, incrementOnce());
+			Assert.assertEquals(3, incrementOnce()); // now known as an update block
+		} finally {
+			Context.setReadOnlyHint(hint);
+		}
+	}
+
+	@Atomic(retries=1)
+	private int incrementOnce() {
+		return ++value;
+	}
+
+	@Atomic
+	private int read() {
+		return value;
+	}
+
+	public void testUpgrade() {
+		boolean hint = Context.isReadOnlyHint();
+		try {
+			Context.setReadOnlyHint(true);
+			for (int conflict = 0; conflict < 2; conflict++) {
+				Context reader = new Context();
+				Context writer = new Context();
+				reader.init(1, 0, "");
+				reader.beforeReadAccess(this, VALUE);
+				reader.onReadAccess(this, value, VALUE);
+				if (conflict == 1) {
+					writer.init(1, 0, "");
+					writer.onWriteAccess(this, value + 1, VALUE);
+					Assert.assertTrue(writer.commit());
+				}
+				try {
+					reader.onWriteAccess(this, 1, OTHER);
+					Assert.assertEquals(0, conflict);
+				} catch (TransactionException e) {
+					// The value read was overwritten
+					Assert.assertEquals(1, conflict);
+					reader.rollback();
+					Assert.assertEquals(AbortCause.WRITE, reader.getAbortCause());
+					continue;
+				}
+				Assert.assertTrue(reader.commit());
+			}
+		} finally {
+			Context.setReadOnlyHint(hint);
+		}
+	}
+
+	public void testDiscardedSnapshot() {
+		int depth = Integer.getInteger("org.deuce.transaction.mvstm.depth", 16);
+		if (depth == 0)
+			return; // unbounded
+		boolean hint = Context.isReadOnlyHint();
+		try {
+			Context.setReadOnlyHint(true);
+			Context reader = new Context();
+			Context writer = new Context();
+			reader.init(1, 0, "");
+			for (int i = 0; i <= depth; i++) {
+				writer.init(2, 0, "");
+				writer.onWriteAccess(this, i, VALUE);
+				Assert.assertTrue(writer.commit());
+			}
+			reader.beforeReadAccess(this, VALUE);
+			try {
+				reader.onReadAccess(this, value, VALUE);
+				fail("Discarded version returned");
+			} catch (TransactionException e) {
+				reader.rollback();
+				Assert.assertEquals(AbortCause.SNAPSHOT, reader.getAbortCause());
+			}
+		} finally {
+			Context.setReadOnlyHint(hint);
+		}
+	}
+
+	public void testFind() {
+		Object a = new Object();
+		Object b = new Object();
+		int hash = 1;
+		// a.1 was 10 until commit 5, 20 until commit 8, and is 30 since then
+		VersionTable.push(hash, a, 1, 10, 5, 0);
+		VersionTable.push(hash, b, 1, 99, 6, 0);
+		VersionTable.push(hash, a, 1, 20, 8, 0);
+
+		Assert.assertEquals(10, VersionTable.find(hash, a, 1, 4).getValue());
+		Assert.assertEquals(20, VersionTable.find(hash, a, 1, 5).getValue());
+		Assert.assertEquals(20, VersionTable.find(hash, a, 1, 7).getValue());
+		Assert.assertNull(VersionTable.find(hash, a, 1, 8));
+		Assert.assertNull(VersionTable.find(hash, a, 2, 4));
+		Assert.assertEquals(99, VersionTable.find(hash, b, 1, 4).getValue());
+	}
+
+	public void testReclaim() {
+		Object a = new Object();
+		int hash = 2;
+		VersionTable.push(hash, a, 1, 10, 5, 0);
+		VersionTable.push(hash, a, 1, 20, 8, 0);
+		// No snapshot is older than 6: the version overwritten at 5 is dropped
+		VersionTable.push(hash, a, 1, 30, 9, 6);
+		Assert.assertEquals(20, VersionTable.find(hash, a, 1, 6).getValue());
+		Assert.assertEquals(30, VersionTable.find(hash, a, 1, 8).getValue());
+
+		// Whole chains older than the bound are swept
+		VersionTable.sweep(hash, 1, 9);
+		Assert.assertNull(VersionTable.find(hash, a, 1, 6));
+	}
+
+	public void testDepth() {
+		Object a = new Object();
+		int hash = 3;
+		int depth = Integer.getInteger("org.deuce.transaction.mvstm.depth", 16);
+		if (depth == 0)
+			return; // unbounded
+		for (int i = 1; i <= depth + 1; i++)
+			VersionTable.push(hash, a, 1, i, i, 0);
+		Assert.assertEquals(depth + 1, VersionTable.find(hash, a, 1, depth).getValue());
+		try {
+			VersionTable.find(hash, a, 1, 0);
+			fail("Discarded version returned");
+		} catch (TransactionException e) {
+			// expected
+		}
+	}
+}
@@ -0,0 +1,37 @@
+package org.deuce.utest.basic;
+
+import junit.framework.Assert;
+import junit.framework.TestCase;
+
+import org.deuce.reflection.AddressUtil;
+import org.deuce.transaction.tinystm.Context;
+
+/**
+ * Tests the write-through engine validates the reads of a stripe it locked afterwards.
+ */
+public class WriteThroughValidationTest extends TestCase{
+
+	public void testReadThenLockedStripe() throws Exception {
+		// Two elements a stripe table apart share their stripe
+		int[] values = new int[(1 << 18) + 1];
+		long a = AddressUtil.arrayBaseOffset(int[].class);
+		long b = a + (1 << 20);
+
+		Context reader = new Context();
+		reader.init(0, 0, "");
+		reader.beforeReadAccess(values, a);
+		Assert.assertEquals(0, reader.onReadAccess(values, values[0], a));
+
+		// Another transaction updates the stripe
+		Context writer = new Context();
+		writer.init(1, 0, "");
+		writer.onWriteAccess(values, 5, a);
+		Assert.assertTrue(writer.commit());
+
+		// The reader locks the stripe for another element, its read of a is stale
+		reader.onWriteAccess(values, 7, b);
+		Assert.assertFalse(reader.commit());
+		Assert.assertEquals(5, values[0]);
+		Assert.assertEquals(0, values[1 << 18]);
+	}
+}
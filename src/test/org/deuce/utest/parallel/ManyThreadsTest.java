@@ -0,0 +1,71 @@
+package org.deuce.utest.parallel;
+
+import java.util.concurrent.CountDownLatch;
+
+import org.deuce.Atomic;
+import org.junit.Assert;
+
+import junit.framework.TestCase;
+
+/**
+ * Test more live threads than engines used to support (TL2-CM was limited to 256),
+ * then short-lived threads whose thread Ids have to be recycled.
+ */
+public class ManyThreadsTest extends TestCase {
+
+	final static private int THREADS = 1000;
+
+	private int[] marks;
+
+	public void testManyLiveThreads() throws Throwable {
+		final CountDownLatch started = new CountDownLatch(THREADS);
+		marks = new int[THREADS];
+		Thread[] threads = new Thread[THREADS];
+		for (int i = 0; i < THREADS; i++) {
+			final int slot = i;
+			threads[i] = new Thread(new Runnable() {
+				@Override
+				public void run() {
+					// Each thread writes its own slot, the point is the number of contexts, not contention
+					mark(slot);
+					// Keep all the threads (and their contexts) alive together
+					started.countDown();
+					try {
+						started.await();
+					} catch (InterruptedException e) {
+					}
+				}
+			});
+			threads[i].start();
+		}
+		for (int i = 0; i < THREADS; i++) {
+			threads[i].join();
+		}
+		for (int i = 0; i < THREADS; i++) {
+			Assert.assertEquals(1, marks[i]);
+		}
+	}
+
+	public void testShortLivedThreads() throws Throwable {
+		marks = new int[THREADS];
+		for (int i = 0; i < THREADS; i++) {
+			final int slot = i;
+			Thread thread = new Thread(new Runnable() {
+				@Override
+				public void run() {
+					mark(slot);
+				}
+			});
+			thread.start();
+			thread.join();
+		}
+		for (int i = 0; i < THREADS; i++) {
+			Assert.assertEquals(1, marks[i]);
+		}
+	}
+
+	@Atomic
+	private void mark(int slot) {
+		marks[slot] = 1;
+	}
+}